@@ -2,19 +2,26 @@ package com.ajjpj.asqlmapper;
 
 
 import java.sql.Connection;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 
 import com.ajjpj.acollections.immutable.AVector;
 import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.ConnectionProvider;
 import com.ajjpj.asqlmapper.core.PrimitiveTypeHandler;
 import com.ajjpj.asqlmapper.core.SqlEngine;
 import com.ajjpj.asqlmapper.core.impl.Constants;
 import com.ajjpj.asqlmapper.core.listener.LoggingListener;
+import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
 import com.ajjpj.asqlmapper.javabeans.BeanMetaDataRegistry;
 import com.ajjpj.asqlmapper.javabeans.BeanMetaDataRegistryImpl;
 import com.ajjpj.asqlmapper.javabeans.columnnames.ColumnNameExtractor;
 import com.ajjpj.asqlmapper.javabeans.columnnames.DirectColumnNameExtractor;
 import com.ajjpj.asqlmapper.javabeans.extractors.BeanMetaDataExtractor;
+import com.ajjpj.asqlmapper.javabeans.extractors.GeneratedBeanMetaDataExtractor;
 import com.ajjpj.asqlmapper.javabeans.extractors.ImmutableWithBuilderMetaDataExtractor;
 import com.ajjpj.asqlmapper.javabeans.extractors.JavaBeansMetaDataExtractor;
 import com.ajjpj.asqlmapper.javabeans.extractors.LombokWithBuilderMetaDataExtractor;
@@ -26,6 +33,7 @@ import com.ajjpj.asqlmapper.mapper.beans.primarykey.PkStrategyDecider;
 import com.ajjpj.asqlmapper.mapper.beans.relations.*;
 import com.ajjpj.asqlmapper.mapper.beans.tablename.DefaultTableNameExtractor;
 import com.ajjpj.asqlmapper.mapper.beans.tablename.TableNameExtractor;
+import com.ajjpj.asqlmapper.mapper.cache.EntityCache;
 import com.ajjpj.asqlmapper.mapper.schema.SchemaRegistry;
 
 /**
@@ -50,11 +58,14 @@ public class SqlMapperBuilder {
 
     private AOption<String> defaultPkName = AOption.empty();
     private boolean withLogging = true;
+    private AVector<SqlEngineEventListener> listeners = AVector.empty();
     private AOption<Supplier<Connection>> defaultConnectionSupplier = AOption.empty();
 
     private ColumnNameExtractor columnNameExtractor = new DirectColumnNameExtractor();
     private BeanStyle beanStyle = BeanStyle.javaBeans;
-    private BeanMetaDataRegistry beanMetaDataRegistry = new BeanMetaDataRegistryImpl(new JavaBeansMetaDataExtractor(columnNameExtractor));
+    private BeanMetaDataExtractor metaDataExtractor = new JavaBeansMetaDataExtractor(columnNameExtractor);
+    private boolean specializedRowMappers = false;
+    private boolean generatedMetaData = false;
 
     private AVector<PrimitiveTypeHandler> primitiveTypeHandlers = AVector.empty();
 
@@ -66,6 +77,12 @@ public class SqlMapperBuilder {
     private PkStrategyDecider pkStrategyDecider = new GuessingPkStrategyDecider();
 
     private int defaultFetchSize = Constants.DEFAULT_FETCH_SIZE;
+    private int statementCacheSize = 0;
+    private int resultCacheSize = 0;
+    private AOption<Executor> asyncExecutor = AOption.empty();
+    private AOption<ConnectionProvider> asyncConnectionProvider = AOption.empty();
+    private int injectedPropertiesParallelism = 1;
+    private final Map<Class<?>, EntityCache.Config> entityCacheConfigs = new HashMap<>();
 
     public SqlMapperBuilder withDefaultPkName(String defaultPkName) {
         this.defaultPkName = AOption.of(defaultPkName);
@@ -77,6 +94,14 @@ public class SqlMapperBuilder {
         return this;
     }
 
+    /**
+     * Registers a listener with the engine, see {@link SqlEngine#withListener(SqlEngineEventListener)}.
+     */
+    public SqlMapperBuilder withListener(SqlEngineEventListener listener) {
+        listeners = listeners.append(listener);
+        return this;
+    }
+
     public SqlMapperBuilder withDefaultConnectionSupplier(Supplier<Connection> defaultConnectionSupplier) {
         this.defaultConnectionSupplier = AOption.some(defaultConnectionSupplier);
         return this;
@@ -90,13 +115,13 @@ public class SqlMapperBuilder {
         this.beanStyle = beanStyle;
         switch(beanStyle) {
             case javaBeans:
-                beanMetaDataRegistry = new BeanMetaDataRegistryImpl(new JavaBeansMetaDataExtractor(columnNameExtractor));
+                metaDataExtractor = new JavaBeansMetaDataExtractor(columnNameExtractor);
                 break;
             case immutables:
-                beanMetaDataRegistry = new BeanMetaDataRegistryImpl(new ImmutableWithBuilderMetaDataExtractor(columnNameExtractor));
+                metaDataExtractor = new ImmutableWithBuilderMetaDataExtractor(columnNameExtractor);
                 break;
             case lombok:
-                beanMetaDataRegistry = new BeanMetaDataRegistryImpl(new LombokWithBuilderMetaDataExtractor(columnNameExtractor));
+                metaDataExtractor = new LombokWithBuilderMetaDataExtractor(columnNameExtractor);
                 break;
             default:
                 throw new IllegalArgumentException("unsupported bean style " + beanStyle + " - this is a bug");
@@ -104,7 +129,28 @@ public class SqlMapperBuilder {
         return this;
     }
     public SqlMapperBuilder withMetaDataExtractor(BeanMetaDataExtractor metaDataExtractor) {
-        beanMetaDataRegistry = new BeanMetaDataRegistryImpl(metaDataExtractor);
+        this.metaDataExtractor = metaDataExtractor;
+        return this;
+    }
+
+    /**
+     * Switches bean mapping to a dedicated mapper per bean type and column layout, see
+     *  {@link BeanMetaDataRegistry#asSpecializedRowExtractor()}. This is off by default.
+     */
+    public SqlMapperBuilder withSpecializedRowMappers(boolean specializedRowMappers) {
+        this.specializedRowMappers = specializedRowMappers;
+        return this;
+    }
+
+    /**
+     * Makes the mapper use bean meta data generated at compile time by
+     *  {@link com.ajjpj.asqlmapper.javabeans.processor.BeanMetaDataProcessor BeanMetaDataProcessor} where it is available,
+     *  falling back to the configured bean style or {@link BeanMetaDataExtractor} for all other classes. Column names
+     *  without an explicit {@link com.ajjpj.asqlmapper.javabeans.annotations.Column @Column} annotation are derived with the
+     *  configured {@link ColumnNameExtractor}, just like for reflective meta data. This is off by default.
+     */
+    public SqlMapperBuilder withGeneratedMetaData(boolean generatedMetaData) {
+        this.generatedMetaData = generatedMetaData;
         return this;
     }
 
@@ -140,6 +186,67 @@ public class SqlMapperBuilder {
         return this;
     }
 
+    /**
+     * Enables caching of up to {@code statementCacheSize} prepared statements, see {@link SqlEngine#withStatementCache(int)}.
+     *  Statement caching is disabled by default.
+     */
+    public SqlMapperBuilder withStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+        return this;
+    }
+
+    /**
+     * Enables caching of up to {@code resultCacheSize} query results, see {@link SqlEngine#withResultCache(int)}. Only
+     *  queries that opt in by calling {@link com.ajjpj.asqlmapper.core.AQuery#cached(java.time.Duration)} are cached.
+     *  Result caching is disabled by default.
+     */
+    public SqlMapperBuilder withResultCacheSize(int resultCacheSize) {
+        this.resultCacheSize = resultCacheSize;
+        return this;
+    }
+
+    /**
+     * Registers an executor for asynchronous queries and updates, see {@link SqlEngine#withAsyncExecutor(Executor)}. Asynchronous
+     *  execution is disabled by default.
+     */
+    public SqlMapperBuilder withAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = AOption.some(asyncExecutor);
+        return this;
+    }
+
+    /**
+     * Registers a provider for the connections of operations that run on the async executor, see
+     *  {@link SqlEngine#withAsyncConnectionProvider(ConnectionProvider)}. Without it, these operations fail.
+     */
+    public SqlMapperBuilder withAsyncConnectionProvider(ConnectionProvider asyncConnectionProvider) {
+        this.asyncConnectionProvider = AOption.some(asyncConnectionProvider);
+        return this;
+    }
+
+    /**
+     * Loads up to {@code parallelism} injected properties (e.g. relations) of a query concurrently, see
+     *  {@link SqlEngine#withInjectedPropertiesParallelism(int)}. This requires an {@link #withAsyncExecutor(Executor) async executor}.
+     *  Injected properties are loaded sequentially by default.
+     */
+    public SqlMapperBuilder withInjectedPropertiesParallelism(int parallelism) {
+        this.injectedPropertiesParallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Enables caching of beans of a given type that are loaded by {@link SqlMapper#findByPk(Class, Object)} or
+     *  {@link SqlMapper#findByPks(Class, java.util.Collection)}, see {@link EntityCache} for details. This should only be used for
+     *  immutable bean types. Entity caching is disabled by default.
+     *
+     * @param maxSize     the maximum number of cached entries for this bean type
+     * @param ttl         the time after which cached entries expire
+     * @param cacheMisses if true, the information that there is no bean for a primary key is cached as well
+     */
+    public SqlMapperBuilder withEntityCache(Class<?> beanType, int maxSize, Duration ttl, boolean cacheMisses) {
+        this.entityCacheConfigs.put(beanType, new EntityCache.Config(maxSize, ttl, cacheMisses));
+        return this;
+    }
+
     private SqlEngine buildEngine() {
         SqlEngine result = SqlEngine.create();
 
@@ -147,6 +254,8 @@ public class SqlMapperBuilder {
             result = result.withDefaultPkName(defaultPkName.get());
         if(withLogging)
             result = result.withListener(LoggingListener.createWithStatistics(1000));
+        for(SqlEngineEventListener l: listeners)
+            result = result.withListener(l);
         if(defaultConnectionSupplier.isPresent())
             result = result.withDefaultConnectionSupplier(defaultConnectionSupplier.get());
 
@@ -154,20 +263,31 @@ public class SqlMapperBuilder {
             result = result.withPrimitiveHandler(h);
 
         result = result.withDefaultFetchSize(defaultFetchSize);
+        if(statementCacheSize > 0)
+            result = result.withStatementCache(statementCacheSize);
+        if(resultCacheSize > 0)
+            result = result.withResultCache(resultCacheSize);
+        if(asyncExecutor.isPresent())
+            result = result.withAsyncExecutor(asyncExecutor.get());
+        if(asyncConnectionProvider.isPresent())
+            result = result.withAsyncConnectionProvider(asyncConnectionProvider.get());
+        result = result.withInjectedPropertiesParallelism(injectedPropertiesParallelism);
 
         return result;
     }
 
     public SqlMapper build(DatabaseDialect databaseDialect) {
         final SchemaRegistry schemaRegistry = new SchemaRegistry(databaseDialect);
+        final BeanMetaDataExtractor effectiveMetaDataExtractor = generatedMetaData ? new GeneratedBeanMetaDataExtractor(metaDataExtractor, columnNameExtractor) : metaDataExtractor;
         return new SqlMapper(buildEngine(), new BeanMappingRegistryImpl(
                 schemaRegistry,
                 tableNameExtractor,
                 pkStrategyDecider,
-                beanMetaDataRegistry,
+                new BeanMetaDataRegistryImpl(effectiveMetaDataExtractor, specializedRowMappers),
                 oneToManyResolver,
                 manyToManyResolver,
                 toOneResolver),
-                schemaRegistry, tableNameExtractor);
+                schemaRegistry, tableNameExtractor,
+                entityCacheConfigs.isEmpty() ? EntityCache.empty() : new EntityCache(entityCacheConfigs));
     }
 }
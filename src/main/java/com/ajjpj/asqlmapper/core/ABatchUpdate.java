@@ -2,18 +2,24 @@ package com.ajjpj.asqlmapper.core;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Supplier;
 
+import com.ajjpj.acollections.AList;
 import com.ajjpj.acollections.immutable.AVector;
 import com.ajjpj.acollections.mutable.AMutableListWrapper;
 import com.ajjpj.acollections.util.AOption;
 import com.ajjpj.acollections.util.AUnchecker;
 import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
 import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.LiveSqlRow;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
 import com.ajjpj.asqlmapper.core.impl.SqlHelper;
+import com.ajjpj.asqlmapper.core.impl.ResultCache;
+import com.ajjpj.asqlmapper.core.impl.StatementCache;
 import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
 
 class ABatchUpdate {
@@ -22,18 +28,22 @@ class ABatchUpdate {
     private final PrimitiveTypeRegistry primTypes;
     private final AVector<SqlEngineEventListener> listeners;
     private final AOption<Supplier<Connection>> defaultConnectionSupplier;
+    private final StatementCache statementCache;
+    private final ResultCache resultCache;
 
     public ABatchUpdate(String sql, List<List<?>> params, PrimitiveTypeRegistry primTypes, AVector<SqlEngineEventListener> listeners,
-                        AOption<Supplier<Connection>> defaultConnectionSupplier) {
+                        AOption<Supplier<Connection>> defaultConnectionSupplier, StatementCache statementCache, ResultCache resultCache) {
         this.sql = sql;
         this.params = params;
         this.primTypes = primTypes;
         this.listeners = listeners;
         this.defaultConnectionSupplier = defaultConnectionSupplier;
+        this.statementCache = statementCache;
+        this.resultCache = resultCache;
     }
     public ABatchUpdate(List<SqlSnippet> items, PrimitiveTypeRegistry primTypes, AVector<SqlEngineEventListener> listeners,
-                        AOption<Supplier<Connection>> defaultConnectionSupplier) {
-        this(sql(items), params(items), primTypes, listeners, defaultConnectionSupplier);
+                        AOption<Supplier<Connection>> defaultConnectionSupplier, StatementCache statementCache, ResultCache resultCache) {
+        this(sql(items), params(items), primTypes, listeners, defaultConnectionSupplier, statementCache, resultCache);
     }
 
     private static String sql(List<SqlSnippet> items) {
@@ -62,13 +72,31 @@ class ABatchUpdate {
     }
 
     public int[] execute(Connection conn) {
-        return doExecute(conn, PreparedStatement::executeBatch);
+        return doExecute(conn, AVector.empty(), PreparedStatement::executeBatch);
     }
 
-    private <T> T doExecute(Connection conn, PsExecutor<T> executor) {
+    /**
+     * Executes the batch and returns the generated values of the given columns, one per batch item. Drivers are not required
+     *  to support generated keys for batches, but all mainstream drivers do.
+     */
+    public <T> AList<T> executeReturningKeys(Connection conn, Class<T> pkCls, RowExtractor rowExtractor, List<String> columnNames) {
+        return doExecute(conn, columnNames, ps -> {
+            ps.executeBatch();
+            final AVector.Builder<T> builder = AVector.builder();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                final Object memento = rowExtractor.mementoPerQuery(pkCls, primTypes, rs, false);
+                final SqlRow row = new LiveSqlRow(primTypes, rs);
+                while (rs.next()) builder.add(rowExtractor.fromSql(pkCls, primTypes, row, memento, false, Collections.emptyMap()));
+            }
+            return builder.build();
+        });
+    }
+
+    private <T> T doExecute(Connection conn, List<String> generatedKeyColumns, PsExecutor<T> executor) {
         listeners.forEach(l -> l.onBeforeBatchUpdate(sql, params.size()));
         try {
-            final PreparedStatement ps = conn.prepareStatement(sql);
+            final PreparedStatement ps = statementCache.prepare(conn, sql, generatedKeyColumns, listeners);
+            boolean success = false;
             try {
                 for (List<?> batchItem : params) {
                     SqlHelper.bindParameters(ps, batchItem, primTypes);
@@ -76,12 +104,14 @@ class ABatchUpdate {
                 }
 
                 final T result = executor.execute(ps);
+                resultCache.invalidateFor(sql);
+                success = true;
 
                 listeners.reverseIterator().forEachRemaining(SqlEngineEventListener::onAfterBatchUpdate);
                 return result;
             }
             finally {
-                SqlHelper.closeQuietly(ps);
+                statementCache.release(ps, success);
             }
         }
         catch (Throwable th) {
@@ -93,7 +123,7 @@ class ABatchUpdate {
 
     public long[] executeLarge(Connection conn) {
         //noinspection ConstantConditions
-        return doExecute(conn, PreparedStatement::executeLargeBatch);
+        return doExecute(conn, AVector.empty(), PreparedStatement::executeLargeBatch);
     }
     public long[] executeLarge() {
         return executeLarge(defaultConnectionSupplier
@@ -0,0 +1,23 @@
+package com.ajjpj.asqlmapper.core;
+
+import java.sql.Connection;
+import java.util.stream.DoubleStream;
+
+/**
+ * A query for a single column of {@code double} values. In addition to the regular {@link AQuery} operations, it can read
+ *  its result into primitive containers, reading values with {@link java.sql.ResultSet#getDouble(int)} and never boxing them.
+ *  SQL NULL values are read as {@code 0}.
+ */
+public interface ADoubleQuery extends AQuery<Double> {
+    double[] toDoubleArray(Connection conn);
+    double[] toDoubleArray();
+
+    /**
+     * This method returns a lazily evaluated stream reading values from an open ResultSet. Code using this method
+     *  <b>must</b> close the returned stream, see {@link #stream(Connection)}.
+     */
+    DoubleStream doubleStream(Connection conn);
+    DoubleStream doubleStream();
+    DoubleStream doubleStream(int fetchSize);
+    DoubleStream doubleStream(Connection conn, int fetchSize);
+}
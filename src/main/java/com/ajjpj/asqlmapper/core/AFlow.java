@@ -0,0 +1,37 @@
+package com.ajjpj.asqlmapper.core;
+
+/**
+ * Interfaces for push-based processing of query results with backpressure, see {@link AQuery#publish()}.<p>
+ *
+ * They have the same signatures and contracts as their counterparts in {@code java.util.concurrent.Flow}, which is not
+ *  available on Java 8, and as the Reactive Streams interfaces. Adapting between them is therefore a matter of simple
+ *  delegation.
+ */
+public interface AFlow {
+    interface Publisher<T> {
+        /**
+         * Each subscription executes the query anew, and the subscriber receives the rows as they are read from the
+         *  database.
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    interface Subscriber<T> {
+        void onSubscribe(Subscription subscription);
+        void onNext(T item);
+        void onError(Throwable throwable);
+        void onComplete();
+    }
+
+    interface Subscription {
+        /**
+         * Requests up to {@code n} more elements. Passing {@link Long#MAX_VALUE} requests all remaining elements.
+         */
+        void request(long n);
+
+        /**
+         * Stops sending elements. For query results, this closes the underlying database resources.
+         */
+        void cancel();
+    }
+}
@@ -14,6 +14,8 @@ import com.ajjpj.acollections.util.AUnchecker;
 import com.ajjpj.asqlmapper.core.common.LiveSqlRow;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
 import com.ajjpj.asqlmapper.core.impl.SqlHelper;
+import com.ajjpj.asqlmapper.core.impl.ResultCache;
+import com.ajjpj.asqlmapper.core.impl.StatementCache;
 import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
 
 class AInsertImpl<T> implements AInsert<T> {
@@ -24,9 +26,12 @@ class AInsertImpl<T> implements AInsert<T> {
     private final AVector<String> columnNames;
     private final AVector<SqlEngineEventListener> listeners;
     private final AOption<Supplier<Connection>> defaultConnectionSupplier;
+    private final StatementCache statementCache;
+    private final ResultCache resultCache;
 
     public AInsertImpl (Class<T> pkCls, SqlSnippet sql, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
-                        List<String> columnNames, AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier) {
+                        List<String> columnNames, AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier,
+                        StatementCache statementCache, ResultCache resultCache) {
         this.pkCls = pkCls;
         this.sql = sql;
         this.primTypes = primTypes;
@@ -34,6 +39,8 @@ class AInsertImpl<T> implements AInsert<T> {
         this.columnNames = AVector.from(columnNames);
         this.listeners = listeners;
         this.defaultConnectionSupplier = defaultConnectionSupplier;
+        this.statementCache = statementCache;
+        this.resultCache = resultCache;
     }
 
     @Override public T executeSingle () {
@@ -45,22 +52,27 @@ class AInsertImpl<T> implements AInsert<T> {
     @Override public T executeSingle (Connection conn) {
         listeners.forEach(l -> l.onBeforeInsert(sql, pkCls, columnNames));
         try {
-            final PreparedStatement ps = conn.prepareStatement(sql.getSql(), columnNames.toArray(new String[0]));
+            final PreparedStatement ps = statementCache.prepare(conn, sql.getSql(), columnNames, listeners);
+            ResultSet rs = null;
+            boolean success = false;
             try {
                 SqlHelper.bindParameters(ps, sql.getParams(), primTypes);
                 ps.executeUpdate();
-                final ResultSet rs = ps.getGeneratedKeys();
+                resultCache.invalidateFor(sql.getSql());
+                rs = ps.getGeneratedKeys();
                 if (!rs.next()) throw new IllegalStateException("no result");
                 final SqlRow row = new LiveSqlRow(primTypes, rs);
                 final T result = rowExtractor.fromSql(pkCls, primTypes, row, rowExtractor.mementoPerQuery(pkCls, primTypes, rs, false), false, Collections.emptyMap());
                 if (rs.next()) throw new IllegalStateException("more than one result row");
+                success = true;
 
                 listeners.reverseIterator().forEachRemaining(l -> l.onAfterInsert(result));
 
                 return result;
             }
             finally {
-                SqlHelper.closeQuietly(ps);
+                SqlHelper.closeQuietly(rs);
+                statementCache.release(ps, success);
             }
         }
         catch(Throwable th) {
@@ -79,21 +91,26 @@ class AInsertImpl<T> implements AInsert<T> {
     @Override public AList<T> executeMulti (Connection conn) {
         listeners.forEach(l -> l.onBeforeInsert(sql, pkCls, columnNames));
         try {
-            final PreparedStatement ps = conn.prepareStatement(sql.getSql(), columnNames.toArray(new String[0]));
+            final PreparedStatement ps = statementCache.prepare(conn, sql.getSql(), columnNames, listeners);
+            ResultSet rs = null;
+            boolean success = false;
             try {
                 SqlHelper.bindParameters(ps, sql.getParams(), primTypes);
                 ps.executeUpdate();
+                resultCache.invalidateFor(sql.getSql());
                 final AVector.Builder<T> builder = AVector.builder();
-                final ResultSet rs = ps.getGeneratedKeys();
+                rs = ps.getGeneratedKeys();
                 final Object memento = rowExtractor.mementoPerQuery(pkCls, primTypes, rs, false);
                 final SqlRow row = new LiveSqlRow(primTypes, rs);
                 while (rs.next()) builder.add(rowExtractor.fromSql(pkCls, primTypes, row, memento, false, Collections.emptyMap()));
                 final AList<T> result = builder.build();
+                success = true;
                 listeners.reverseIterator().forEachRemaining(l -> l.onAfterInsert(result));
                 return result;
             }
             finally {
-                SqlHelper.closeQuietly(ps);
+                SqlHelper.closeQuietly(rs);
+                statementCache.release(ps, success);
             }
         }
         catch(Throwable th) {
@@ -0,0 +1,23 @@
+package com.ajjpj.asqlmapper.core;
+
+import java.sql.Connection;
+import java.util.stream.IntStream;
+
+/**
+ * A query for a single column of {@code int} values. In addition to the regular {@link AQuery} operations, it can read
+ *  its result into primitive containers, reading values with {@link java.sql.ResultSet#getInt(int)} and never boxing them.
+ *  SQL NULL values are read as {@code 0}.
+ */
+public interface AIntQuery extends AQuery<Integer> {
+    int[] toIntArray(Connection conn);
+    int[] toIntArray();
+
+    /**
+     * This method returns a lazily evaluated stream reading values from an open ResultSet. Code using this method
+     *  <b>must</b> close the returned stream, see {@link #stream(Connection)}.
+     */
+    IntStream intStream(Connection conn);
+    IntStream intStream();
+    IntStream intStream(int fetchSize);
+    IntStream intStream(Connection conn, int fetchSize);
+}
@@ -0,0 +1,23 @@
+package com.ajjpj.asqlmapper.core;
+
+import java.sql.Connection;
+import java.util.stream.LongStream;
+
+/**
+ * A query for a single column of {@code long} values. In addition to the regular {@link AQuery} operations, it can read
+ *  its result into primitive containers, reading values with {@link java.sql.ResultSet#getLong(int)} and never boxing them.
+ *  SQL NULL values are read as {@code 0}.
+ */
+public interface ALongQuery extends AQuery<Long> {
+    long[] toLongArray(Connection conn);
+    long[] toLongArray();
+
+    /**
+     * This method returns a lazily evaluated stream reading values from an open ResultSet. Code using this method
+     *  <b>must</b> close the returned stream, see {@link #stream(Connection)}.
+     */
+    LongStream longStream(Connection conn);
+    LongStream longStream();
+    LongStream longStream(int fetchSize);
+    LongStream longStream(Connection conn, int fetchSize);
+}
@@ -1,6 +1,9 @@
 package com.ajjpj.asqlmapper.core;
 
 import java.sql.Connection;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.stream.Collector;
@@ -25,6 +28,18 @@ public interface AQuery<T> {
      */
     AQuery<T> withInjectedProperty(InjectedProperty injectedProperty);
 
+    /**
+     * Returns a query that serves its results from the {@link SqlEngine#withResultCache(int) SqlEngine's result cache} if
+     *  possible, keeping each result for up to {@code ttl}. Cached results are invalidated when a statement modifying one
+     *  of the query's tables is executed through the SqlEngine, see {@link com.ajjpj.asqlmapper.core.impl.ResultCache}.<p>
+     *
+     * Cached results are shared between all callers, so this should only be used for immutable result types. Streaming
+     *  and {@code forEach} operations are served from the cached list, while publishing, prefetching, windowed streaming and row access always
+     *  execute the query. The cache is only used on connections in auto-commit mode, i.e. queries that are part of a transaction always
+     *  execute the query. If the SqlEngine has no result cache, this method has no effect.
+     */
+    AQuery<T> cached(Duration ttl);
+
     T single(Connection conn);
     T single();
     AOption<T> optional(Connection conn);
@@ -37,19 +52,108 @@ public interface AQuery<T> {
     <R,A> R collect(Connection conn, Collector<T,A,R> collector);
     <R,A> R collect(Collector<T,A,R> collector);
 
+    /**
+     * The {@code ...Async} methods execute the query on the {@link SqlEngine#withAsyncExecutor(java.util.concurrent.Executor) executor configured
+     *  on the SqlEngine}, allowing several independent queries to run concurrently. Each query acquires a connection of its own from the
+     *  {@link SqlEngine#withAsyncConnectionProvider(ConnectionProvider) async connection provider} on the executor's thread, and releases it
+     *  there when it is done.
+     *
+     * @throws IllegalStateException if no async executor or connection provider is configured
+     */
+    CompletableFuture<T> singleAsync();
+    CompletableFuture<AOption<T>> optionalAsync();
+    CompletableFuture<AOption<T>> firstAsync();
+    CompletableFuture<AList<T>> listAsync();
+    <R,A> CompletableFuture<R> collectAsync(Collector<T,A,R> collector);
+
     //TODO documentation
     Stream<T> stream(Connection conn);
     Stream<T> stream();
     Stream<T> stream(int fetchSize);
     Stream<T> stream(Connection conn, int fetchSize);
 
+    /**
+     * Reading rows from a ResultSet is inherently sequential, but the returned stream can be processed
+     *  {@link Stream#parallel() in parallel}: Rows are then read and detached from the ResultSet in batches of
+     *  {@code splitBatchSize} rows, and these batches are mapped to objects in parallel. Encounter order is preserved
+     *  unless the stream is explicitly {@link Stream#unordered() unordered}.<p>
+     *
+     * The other {@code stream} methods use the fetch size as batch size.
+     */
+    Stream<T> stream(int fetchSize, int splitBatchSize);
+    Stream<T> stream(Connection conn, int fetchSize, int splitBatchSize);
+
+    /**
+     * Returns a publisher that pushes mapped rows to a subscriber as it {@link AFlow.Subscription#request(long) requests} them. Rows
+     *  are read from the ResultSet on the thread requesting them and only as far as there is demand, so memory usage is bounded no
+     *  matter how slowly the subscriber processes them. The JDBC fetch size determines how many rows the driver transfers per
+     *  round trip.<p>
+     *
+     * Database resources are released deterministically: when the last row was sent, when reading or mapping a row fails, or when
+     *  the subscription is {@link AFlow.Subscription#cancel() cancelled}. Each subscription executes the query separately.
+     */
+    AFlow.Publisher<T> publish();
+    AFlow.Publisher<T> publish(Connection conn);
+    AFlow.Publisher<T> publish(int fetchSize);
+    AFlow.Publisher<T> publish(Connection conn, int fetchSize);
+
     void forEach(Connection conn, Consumer<T> consumer);
     void forEach(Consumer<T> consumer);
     void forEach(int fetchSize, Consumer<T> consumer);
     void forEach(Connection conn, int fetchSize, Consumer<T> consumer);
 
+    /**
+     * These methods read rows in a separate thread while the calling thread maps and processes them, so the time spent
+     *  waiting for the database overlaps with processing. Rows are read ahead into a buffer holding up to {@code fetchSize}
+     *  rows, which bounds the memory used.<p>
+     *
+     * Each stream starts a dedicated daemon thread for reading, independently of the
+     *  {@link SqlEngine#withAsyncExecutor(java.util.concurrent.Executor) async executor}. The reading thread uses the connection
+     *  while the calling thread processes rows - so code processing the rows must not use the same connection. Closing the
+     *  stream stops reading and waits for the reading thread to release the database resources, so the stream <b>must</b> be closed.
+     */
+    Stream<T> streamWithPrefetch();
+    Stream<T> streamWithPrefetch(Connection conn);
+    Stream<T> streamWithPrefetch(int fetchSize);
+    Stream<T> streamWithPrefetch(Connection conn, int fetchSize);
+
+    /**
+     * The same as {@code forEach}, reading rows ahead in a separate thread as described for {@link #streamWithPrefetch()}.
+     */
+    void forEachWithPrefetch(Consumer<T> consumer);
+    void forEachWithPrefetch(Connection conn, Consumer<T> consumer);
+    void forEachWithPrefetch(int fetchSize, Consumer<T> consumer);
+    void forEachWithPrefetch(Connection conn, int fetchSize, Consumer<T> consumer);
+
+    /**
+     * These methods stream the query's results in windows of up to {@code windowSize} rows: rows are read and detached for a
+     *  window, injected properties load their values for that window's rows only, and the window's mapped rows are emitted
+     *  before the next window is read. So for injected properties that {@link InjectedProperty#supportsWindows() support
+     *  windows} (e.g. the SqlMapper's relations), the memory used for injected values is bounded by the window size rather
+     *  than growing with the entire result. Other injected properties are loaded once for the entire query.<p>
+     *
+     * Loading injected values per window means executing their queries once per window, so the window size is a tradeoff
+     *  between memory and the number of statements. The stream <b>must</b> be closed.
+     */
+    Stream<T> streamInWindows(int windowSize);
+    Stream<T> streamInWindows(Connection conn, int windowSize);
+
+    /**
+     * The same as {@code forEach}, loading injected properties for windows of rows as described for {@link #streamInWindows(int)}.
+     */
+    void forEachInWindows(int windowSize, Consumer<T> consumer);
+    void forEachInWindows(Connection conn, int windowSize, Consumer<T> consumer);
+
     void forEachWithRowAccess(Connection conn, BiConsumer<T, SqlRow> consumer);
     void forEachWithRowAccess(BiConsumer<T, SqlRow> consumer);
     void forEachWithRowAccess(int fetchSize, BiConsumer<T, SqlRow> consumer);
     void forEachWithRowAccess(Connection conn, int fetchSize, BiConsumer<T, SqlRow> consumer);
+
+    /**
+     * Streams mapped rows together with the rows they were mapped from, for code that pulls rows and needs their raw data - e.g.
+     *  for merge joins. The raw rows are only valid until the stream advances, so they must be {@link SqlRow#detach() detached}
+     *  to be used beyond that. The stream <b>must</b> be closed.
+     */
+    Stream<Map.Entry<T, SqlRow>> streamWithRowAccess(Connection conn);
+    Stream<Map.Entry<T, SqlRow>> streamWithRowAccess(Connection conn, int fetchSize);
 }
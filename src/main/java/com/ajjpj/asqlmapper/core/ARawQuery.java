@@ -0,0 +1,24 @@
+package com.ajjpj.asqlmapper.core;
+
+import java.sql.Connection;
+import java.util.function.Consumer;
+
+import com.ajjpj.asqlmapper.core.common.ColumnarResult;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+
+/**
+ * A query returning raw {@link SqlRow}s. In addition to the regular {@link AQuery} operations, it can read its result
+ *  column by column into a {@link ColumnarResult}, which stores values in primitive arrays without creating any per-row
+ *  objects.
+ */
+public interface ARawQuery extends AQuery<SqlRow> {
+    ColumnarResult toColumns(Connection conn);
+    ColumnarResult toColumns();
+
+    /**
+     * Reads the result in batches of up to {@code batchSize} rows, passing each batch to the consumer as soon as it is
+     *  read. This bounds the memory used for large results. The batch size is also used as the JDBC fetch size.
+     */
+    void forEachColumnBatch(Connection conn, int batchSize, Consumer<ColumnarResult> consumer);
+    void forEachColumnBatch(int batchSize, Consumer<ColumnarResult> consumer);
+}
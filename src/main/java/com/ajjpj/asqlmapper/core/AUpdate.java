@@ -2,6 +2,7 @@ package com.ajjpj.asqlmapper.core;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents a non-SELECT SQL statement, i.e. a statement that does not return a ResultSet
@@ -11,4 +12,7 @@ interface AUpdate {
     int execute();
     long executeLarge(Connection conn);
     long executeLarge();
+
+    CompletableFuture<Integer> executeAsync();
+    CompletableFuture<Long> executeLargeAsync();
 }
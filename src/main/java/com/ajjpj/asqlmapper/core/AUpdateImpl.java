@@ -3,12 +3,16 @@ package com.ajjpj.asqlmapper.core;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
 import com.ajjpj.acollections.immutable.AVector;
 import com.ajjpj.acollections.util.AOption;
 import com.ajjpj.acollections.util.AUnchecker;
+import com.ajjpj.asqlmapper.core.impl.AsyncHelper;
 import com.ajjpj.asqlmapper.core.impl.SqlHelper;
+import com.ajjpj.asqlmapper.core.impl.ResultCache;
+import com.ajjpj.asqlmapper.core.impl.StatementCache;
 import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
 
 class AUpdateImpl implements AUpdate {
@@ -16,12 +20,20 @@ class AUpdateImpl implements AUpdate {
     private final PrimitiveTypeRegistry primTypes;
     private final AVector<SqlEngineEventListener> listeners;
     private final AOption<Supplier<Connection>> defaultConnectionSupplier;
+    private final AsyncHelper async;
+    private final StatementCache statementCache;
+    private final ResultCache resultCache;
 
-    public AUpdateImpl (SqlSnippet sql, PrimitiveTypeRegistry primTypes, AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier) {
+    public AUpdateImpl (SqlSnippet sql, PrimitiveTypeRegistry primTypes, AVector<SqlEngineEventListener> listeners,
+                        AOption<Supplier<Connection>> defaultConnectionSupplier, AsyncHelper async,
+                        StatementCache statementCache, ResultCache resultCache) {
         this.sql = sql;
         this.primTypes = primTypes;
         this.listeners = listeners;
         this.defaultConnectionSupplier = defaultConnectionSupplier;
+        this.async = async;
+        this.statementCache = statementCache;
+        this.resultCache = resultCache;
     }
 
     @Override public int execute () {
@@ -38,16 +50,19 @@ class AUpdateImpl implements AUpdate {
     private <T> T doExecute (Connection conn, PsExecutor<T> executor) {
         listeners.forEach(l -> l.onBeforeUpdate(sql));
         try {
-            final PreparedStatement ps = conn.prepareStatement(sql.getSql());
+            final PreparedStatement ps = statementCache.prepare(conn, sql.getSql(), listeners);
+            boolean success = false;
             try {
                 SqlHelper.bindParameters(ps, sql.getParams(), primTypes);
                 final T result = executor.execute(ps);
+                resultCache.invalidateFor(sql.getSql());
+                success = true;
 
                 listeners.reverseIterator().forEachRemaining(l -> l.onAfterUpdate(((Number)result).longValue()));
                 return result;
             }
             finally {
-                SqlHelper.closeQuietly(ps);
+                statementCache.release(ps, success);
             }
         }
         catch(Throwable th) {
@@ -67,6 +82,13 @@ class AUpdateImpl implements AUpdate {
                 .get());
     }
 
+    @Override public CompletableFuture<Integer> executeAsync() {
+        return async.supplyAsync(this::execute);
+    }
+    @Override public CompletableFuture<Long> executeLargeAsync() {
+        return async.supplyAsync(this::executeLarge);
+    }
+
     private interface PsExecutor<T> {
         T execute(PreparedStatement ps) throws SQLException;
     }
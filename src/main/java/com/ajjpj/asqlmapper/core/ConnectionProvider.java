@@ -0,0 +1,38 @@
+package com.ajjpj.asqlmapper.core;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+
+/**
+ * Provides connections for operations that a {@link SqlEngine} runs on threads other than the caller's: asynchronous
+ *  queries and updates (e.g. {@link AQuery#listAsync()}), injected properties that are loaded in parallel, and keyed
+ *  queries that are loaded in parallel.<p>
+ *
+ * Unlike the {@link SqlEngine#withDefaultConnectionSupplier(java.util.function.Supplier) default connection supplier}, a
+ *  ConnectionProvider hands out connections that the operation owns: {@link #acquire()} is called on the thread that uses
+ *  the connection, and {@link #release(Connection)} is called on the same thread in a {@code finally} block when the
+ *  operation is done, whether it succeeded or not.<p>
+ *
+ * Connections from a ConnectionProvider are separate from the caller's connection, so operations using them do not take
+ *  part in the caller's transaction and do not see its uncommitted changes.
+ */
+public interface ConnectionProvider {
+    Connection acquire() throws SQLException;
+    void release(Connection conn) throws SQLException;
+
+    /**
+     * @return a ConnectionProvider that takes connections from a {@link DataSource} (typically a connection pool) and closes
+     *  them when they are released
+     */
+    static ConnectionProvider fromDataSource(DataSource ds) {
+        return new ConnectionProvider() {
+            @Override public Connection acquire() throws SQLException {
+                return ds.getConnection();
+            }
+            @Override public void release(Connection conn) throws SQLException {
+                conn.close();
+            }
+        };
+    }
+}
@@ -2,6 +2,7 @@ package com.ajjpj.asqlmapper.core;
 
 import com.ajjpj.acollections.AMap;
 import com.ajjpj.acollections.immutable.AHashMap;
+import com.ajjpj.acollections.util.AOption;
 import com.ajjpj.asqlmapper.core.impl.CanHandleRegistry;
 
 import java.util.function.Function;
@@ -71,6 +72,16 @@ public class PrimitiveTypeRegistry {
         return handlers.handlerFor(cls).isDefined();
     }
 
+    /**
+     * Checks if a given application class is handled by the handler that {@link #defaults()} registers for it, i.e. if
+     *  no handler registered later overrides it. Row extractors use this to decide whether they can read numeric and
+     *  boolean values through {@link java.sql.ResultSet}'s primitive getters without changing the result.
+     */
+    public boolean hasDefaultHandler(Class<?> cls) {
+        final AOption<PrimitiveTypeHandler> handler = handlers.handlerFor(cls);
+        return handler.isDefined() && (handler.get() == NUMERIC_HANDLER || handler.get() == BOOLEAN_HANDLER);
+    }
+
     /**
      * Converts a raw value from a {@link java.sql.ResultSet#getObject(String) ResultSet.getObject()} to its default
      *  representation (e.g. {@link java.sql.Timestamp} to {@link java.time.Instant}). This method is called when no
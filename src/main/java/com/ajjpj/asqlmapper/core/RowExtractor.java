@@ -5,6 +5,7 @@ import com.ajjpj.asqlmapper.core.impl.CanHandle;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Map;
 
 
@@ -15,5 +16,13 @@ public interface RowExtractor extends CanHandle {
         return null;
     }
 
+    /**
+     * Creates a memento for rows that do not come from a ResultSet directly but have a known layout, e.g. the rows that a
+     *  {@link com.ajjpj.asqlmapper.core.common.ColumnSlice} extracts from a join's rows.
+     */
+    default Object mementoPerQuery(Class<?> cls, PrimitiveTypeRegistry primTypes, List<String> columnNames, boolean isStreaming) {
+        return null;
+    }
+
     <T> T fromSql (Class<T> cls, PrimitiveTypeRegistry primTypes, SqlRow row, Object mementoPerQuery, boolean isStreaming, Map<String,Object> injectedPropsValues) throws SQLException;
 }
@@ -4,20 +4,32 @@ import static com.ajjpj.asqlmapper.core.SqlSnippet.concat;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 import com.ajjpj.acollections.AList;
 import com.ajjpj.acollections.immutable.AVector;
 import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.common.KeyedResult;
 import com.ajjpj.asqlmapper.core.common.RawRowExtractor;
 import com.ajjpj.asqlmapper.core.common.ScalarRowExtractor;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
+import com.ajjpj.asqlmapper.core.impl.ADoubleQueryImpl;
+import com.ajjpj.asqlmapper.core.impl.AIntQueryImpl;
+import com.ajjpj.asqlmapper.core.impl.ALongQueryImpl;
 import com.ajjpj.asqlmapper.core.impl.AQueryImpl;
+import com.ajjpj.asqlmapper.core.impl.ARawQueryImpl;
+import com.ajjpj.asqlmapper.core.impl.AsyncHelper;
 import com.ajjpj.asqlmapper.core.impl.CanHandleRegistry;
 import com.ajjpj.asqlmapper.core.impl.Constants;
+import com.ajjpj.asqlmapper.core.impl.KeyedQueryHelper;
+import com.ajjpj.asqlmapper.core.impl.ResultCache;
+import com.ajjpj.asqlmapper.core.impl.StatementCache;
 import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
 
 /**
@@ -51,6 +63,9 @@ import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
  *      <li> {@link #withListener(SqlEngineEventListener)} registers a {@link SqlEngineEventListener}. This listener is called with details of SQL operations,
  *           allowing detailed logging or collection of statistics. {@link com.ajjpj.asqlmapper.core.listener.LoggingListener LoggingListener} provides
  *           default functionality that handles common cases, but application code can register their own listeners.
+ *      <li> {@link #withAsyncExecutor(java.util.concurrent.Executor)} registers an executor for the asynchronous variants of queries and updates
+ *           (e.g. {@link AQuery#listAsync()}), allowing independent statements to run concurrently. Their connections come from a
+ *           {@link ConnectionProvider} registered with {@link #withAsyncConnectionProvider(ConnectionProvider)}.
  *      <li> {@link #withRowExtractor(RowExtractor)} registers a {@link RowExtractor}, i.e. a transformation from a {@link SqlRow} to a given type. This
  *           allows for 'mapping' functionality. Note however that objects created this way are not implicitly linked to the database - changes to the object
  *           do *not* trigger database updates. {@link RowExtractor}s are one-way (from {@link SqlRow to Java object but not the other way round}, and they
@@ -65,7 +80,11 @@ public class SqlEngine {
     private final CanHandleRegistry<RowExtractor> rowExtractorRegistry;
     private final AVector<SqlEngineEventListener> listeners;
     private final AOption<Supplier<Connection>> defaultConnectionSupplier;
+    private final AsyncHelper async;
     private final int defaultFetchSize;
+    private final StatementCache statementCache;
+    private final ResultCache resultCache;
+    private final int injectedPropertiesParallelism;
 
     /**
      * Creates a SqlEngine initialized with default primitive type handlers. This is completely usable for simple cases, but building instances with a
@@ -81,18 +100,26 @@ public class SqlEngine {
      *  handlers being registered and do not want the defaults.
      */
     public static SqlEngine create(PrimitiveTypeRegistry primTypes) {
-        return new SqlEngine(primTypes, AOption.none(), CanHandleRegistry.empty(), AVector.empty(), AOption.empty(), Constants.DEFAULT_FETCH_SIZE);
+        return new SqlEngine(primTypes, AOption.none(), CanHandleRegistry.empty(), AVector.empty(), AOption.empty(), AsyncHelper.NONE,
+                Constants.DEFAULT_FETCH_SIZE, StatementCache.disabled(), ResultCache.disabled(), 1);
     }
 
     private SqlEngine(PrimitiveTypeRegistry primTypes, AOption<String> optDefaultPkName, CanHandleRegistry<RowExtractor> rowExtractorRegistry,
-                      AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier,
-                      int defaultFetchSize) {
+                      AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier, AsyncHelper async,
+                      int defaultFetchSize, StatementCache statementCache, ResultCache resultCache, int injectedPropertiesParallelism) {
+        if (injectedPropertiesParallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
         this.primTypes = primTypes;
         this.optDefaultPkName = optDefaultPkName;
         this.rowExtractorRegistry = rowExtractorRegistry;
         this.listeners = listeners;
         this.defaultConnectionSupplier = defaultConnectionSupplier;
+        this.async = async;
         this.defaultFetchSize = defaultFetchSize;
+        this.statementCache = statementCache;
+        this.resultCache = resultCache;
+        this.injectedPropertiesParallelism = injectedPropertiesParallelism;
     }
 
     /**
@@ -125,11 +152,11 @@ public class SqlEngine {
     //--------------------------- generic update statements, i.e. statements not returning a result set
 
     private AUpdate update(SqlSnippet sql, SqlSnippet... moreSql) {
-        return new AUpdateImpl(concat(sql, moreSql), primTypes, listeners, defaultConnectionSupplier);
+        return new AUpdateImpl(concat(sql, moreSql), primTypes, listeners, defaultConnectionSupplier, async(), statementCache, resultCache);
     }
 
     private AUpdate update(String sql, Object... params) {
-        return new AUpdateImpl(SqlSnippet.sql(sql, params), primTypes, listeners, defaultConnectionSupplier);
+        return new AUpdateImpl(SqlSnippet.sql(sql, params), primTypes, listeners, defaultConnectionSupplier, async(), statementCache, resultCache);
     }
 
     /**
@@ -206,6 +233,39 @@ public class SqlEngine {
         return update(sql, params).executeLarge(conn);
     }
 
+    /**
+     * The same as {@link #executeUpdate(SqlSnippet, SqlSnippet...)} except that the update is executed on the
+     *  {@link #withAsyncExecutor(Executor) async executor}, taking the connection from the
+     *  {@link #withAsyncConnectionProvider(ConnectionProvider) async connection provider} on the executor's thread.
+     *
+     * @throws IllegalStateException if no async executor is {@link #withAsyncExecutor(Executor) registered}
+     */
+    public CompletableFuture<Integer> executeUpdateAsync(SqlSnippet sql, SqlSnippet... moreSql) {
+        return update(sql, moreSql).executeAsync();
+    }
+    /**
+     * The same as {@link #executeUpdate(String, Object...)} except that the update is executed on the
+     *  {@link #withAsyncExecutor(Executor) async executor}, taking the connection from the
+     *  {@link #withAsyncConnectionProvider(ConnectionProvider) async connection provider} on the executor's thread.
+     *
+     * @throws IllegalStateException if no async executor is {@link #withAsyncExecutor(Executor) registered}
+     */
+    public CompletableFuture<Integer> executeUpdateAsync(String sql, Object... params) {
+        return update(sql, params).executeAsync();
+    }
+    /**
+     * The same as {@link #executeUpdateAsync(SqlSnippet, SqlSnippet...)} except that the number of affected rows is returned as a {@code long} value.
+     */
+    public CompletableFuture<Long> executeLargeUpdateAsync(SqlSnippet sql, SqlSnippet... moreSql) {
+        return update(sql, moreSql).executeLargeAsync();
+    }
+    /**
+     * The same as {@link #executeUpdateAsync(String, Object...)} except that the number of affected rows is returned as a {@code long} value.
+     */
+    public CompletableFuture<Long> executeLargeUpdateAsync(String sql, Object... params) {
+        return update(sql, params).executeLargeAsync();
+    }
+
     //TODO expected '1 row affected'?
 
     //--------------------------- batch updates
@@ -222,7 +282,7 @@ public class SqlEngine {
      * @throws IllegalStateException if no default connection supplier is {@link #withDefaultConnectionSupplier(Supplier) registered}
      */
     public int[] executeBatch(String sql, List<List<?>> params) {
-        return new ABatchUpdate(sql, params, primTypes, listeners, defaultConnectionSupplier).execute();
+        return new ABatchUpdate(sql, params, primTypes, listeners, defaultConnectionSupplier, statementCache, resultCache).execute();
     }
     /**
      * Executes a 'batch' of SQL statements in a single API call, taking a single (parameterized) SQL statement and a list of parameter lists.<p>
@@ -233,7 +293,7 @@ public class SqlEngine {
      * @return       The number of affected rows for each of the parameter lists. This array's size is the same as the param list's.
      */
     public int[] executeBatch(Connection conn, String sql, List<List<?>> params) {
-        return new ABatchUpdate(sql, params, primTypes, listeners, defaultConnectionSupplier).execute(conn);
+        return new ABatchUpdate(sql, params, primTypes, listeners, defaultConnectionSupplier, statementCache, resultCache).execute(conn);
     }
 
     /**
@@ -241,14 +301,14 @@ public class SqlEngine {
      *  allowing updates affecting more than {@link Integer#MAX_VALUE} rows.
      */
     public long[] executeLargeBatch(String sql, List<List<?>> params) {
-        return new ABatchUpdate(sql, params, primTypes, listeners, defaultConnectionSupplier).executeLarge();
+        return new ABatchUpdate(sql, params, primTypes, listeners, defaultConnectionSupplier, statementCache, resultCache).executeLarge();
     }
     /**
      * The same as {@link #executeBatch(Connection, String, List)} except that this method returns the number of affected rows as {@code long} values,
      *  allowing updates affecting more than {@link Integer#MAX_VALUE} rows.
      */
     public long[] executeLargeBatch(Connection conn, String sql, List<List<?>> params) {
-        return new ABatchUpdate(sql, params, primTypes, listeners, defaultConnectionSupplier).executeLarge(conn);
+        return new ABatchUpdate(sql, params, primTypes, listeners, defaultConnectionSupplier, statementCache, resultCache).executeLarge(conn);
     }
 
     /**
@@ -266,7 +326,7 @@ public class SqlEngine {
      * @throws IllegalStateException if no default connection supplier is {@link #withDefaultConnectionSupplier(Supplier) registered}
      */
     public int[] executeBatch(List<SqlSnippet> items) {
-        return new ABatchUpdate(items, primTypes, listeners, defaultConnectionSupplier).execute();
+        return new ABatchUpdate(items, primTypes, listeners, defaultConnectionSupplier, statementCache, resultCache).execute();
     }
     /**
      * Executes a 'batch' of SQL statements in a single API call.<p>
@@ -280,21 +340,21 @@ public class SqlEngine {
      * @return the number of rows affected by each of the batch items
      */
     public int[] executeBatch(Connection conn, List<SqlSnippet> items) {
-        return new ABatchUpdate(items, primTypes, listeners, defaultConnectionSupplier).execute(conn);
+        return new ABatchUpdate(items, primTypes, listeners, defaultConnectionSupplier, statementCache, resultCache).execute(conn);
     }
     /**
      * The same as {@link #executeBatch(List)} except that this method returns the number of affected rows as {@code long} values,
      *  allowing updates affecting more than {@link Integer#MAX_VALUE} rows.
      */
     public long[] executeLargeBatch(List<SqlSnippet> items) {
-        return new ABatchUpdate(items, primTypes, listeners, defaultConnectionSupplier).executeLarge();
+        return new ABatchUpdate(items, primTypes, listeners, defaultConnectionSupplier, statementCache, resultCache).executeLarge();
     }
     /**
      * The same as {@link #executeBatch(Connection, List)} except that this method returns the number of affected rows as {@code long} values,
      *  allowing updates affecting more than {@link Integer#MAX_VALUE} rows.
      */
     public long[] executeLargeBatch(Connection conn, List<SqlSnippet> items) {
-        return new ABatchUpdate(items, primTypes, listeners, defaultConnectionSupplier).executeLarge(conn);
+        return new ABatchUpdate(items, primTypes, listeners, defaultConnectionSupplier, statementCache, resultCache).executeLarge(conn);
     }
 
     //--------------------------- insert statements, i.e. statements returning a generated primary key
@@ -616,85 +676,107 @@ public class SqlEngine {
         return insert(pkType, rowExtractor, sql, AVector.<String>builder().add(colName1).addAll(colNames).build());
     }
     public <T> T insert(Class<T> pkType, RowExtractor rowExtractor, SqlSnippet sql, List<String> colNames) {
-        return new AInsertImpl<>(pkType, sql, primTypes, rowExtractor, colNames, listeners, defaultConnectionSupplier).executeSingle();
+        return new AInsertImpl<>(pkType, sql, primTypes, rowExtractor, colNames, listeners, defaultConnectionSupplier, statementCache, resultCache).executeSingle();
     }
 
     public <T> T insert(Connection conn, Class<T> pkType, RowExtractor rowExtractor, SqlSnippet sql, String colName1, String... colNames) {
         return insert(conn, pkType, rowExtractor, sql, AVector.<String>builder().add(colName1).addAll(colNames).build());
     }
     public <T> T insert(Connection conn, Class<T> pkType, RowExtractor rowExtractor, SqlSnippet sql, List<String> colNames) {
-        return new AInsertImpl<>(pkType, sql, primTypes, rowExtractor, colNames, listeners, defaultConnectionSupplier).executeSingle(conn);
+        return new AInsertImpl<>(pkType, sql, primTypes, rowExtractor, colNames, listeners, defaultConnectionSupplier, statementCache, resultCache).executeSingle(conn);
     }
 
     public <T> AList<T> insertMulti(Class<T> pkType, RowExtractor rowExtractor, SqlSnippet sql, String colName1, String... colNames) {
         return insertMulti(pkType, rowExtractor, sql, AVector.<String>builder().add(colName1).addAll(colNames).build());
     }
     public <T> AList<T> insertMulti(Class<T> pkType, RowExtractor rowExtractor, SqlSnippet sql, List<String> colNames) {
-        return new AInsertImpl<>(pkType, sql, primTypes, rowExtractor, colNames, listeners, defaultConnectionSupplier).executeMulti();
+        return new AInsertImpl<>(pkType, sql, primTypes, rowExtractor, colNames, listeners, defaultConnectionSupplier, statementCache, resultCache).executeMulti();
     }
 
     public <T> AList<T> insertMulti(Connection conn, Class<T> pkType, RowExtractor rowExtractor, SqlSnippet sql, String colName1, String... colNames) {
         return insertMulti(conn, pkType, rowExtractor, sql, AVector.<String>builder().add(colName1).addAll(colNames).build());
     }
     public <T> AList<T> insertMulti(Connection conn, Class<T> pkType, RowExtractor rowExtractor, SqlSnippet sql, List<String> colNames) {
-        return new AInsertImpl<>(pkType, sql, primTypes, rowExtractor, colNames, listeners, defaultConnectionSupplier).executeMulti(conn);
+        return new AInsertImpl<>(pkType, sql, primTypes, rowExtractor, colNames, listeners, defaultConnectionSupplier, statementCache, resultCache).executeMulti(conn);
+    }
+
+    /**
+     * Executes a single (parameterized) insert statement as a JDBC batch, with one row per parameter list, returning the values of a
+     *  number of columns - typically an auto-generated primary key - for every row. Unlike {@link #insertMulti(Class, RowExtractor, SqlSnippet, List)},
+     *  the SQL string does not depend on the number of rows, so the prepared statement can be reused, and no statement exceeds
+     *  database limits for the number of bind parameters.<p>
+     *
+     * This method uses the connection provided by the default connection supplier, which must be {@link #withDefaultConnectionSupplier(Supplier) registered}.
+     *
+     * @throws IllegalStateException if no {@link #withDefaultConnectionSupplier(Supplier) default connection supplier} is registered
+     */
+    public <T> AList<T> insertBatch(Class<T> pkType, RowExtractor rowExtractor, String sql, List<List<?>> params, List<String> colNames) {
+        return insertBatch(defaultConnection(), pkType, rowExtractor, sql, params, colNames);
+    }
+    /**
+     * Executes a single (parameterized) insert statement as a JDBC batch, with one row per parameter list, returning the values of a
+     *  number of columns - typically an auto-generated primary key - for every row, see {@link #insertBatch(Class, RowExtractor, String, List, List)}.
+     */
+    public <T> AList<T> insertBatch(Connection conn, Class<T> pkType, RowExtractor rowExtractor, String sql, List<List<?>> params, List<String> colNames) {
+        return new ABatchUpdate(sql, params, primTypes, listeners, defaultConnectionSupplier, statementCache, resultCache)
+                .executeReturningKeys(conn, pkType, rowExtractor, colNames);
     }
 
     // -------------------------- select statements
 
     public <T> AQuery<T> scalarQuery(Class<T> columnType, SqlSnippet sql, SqlSnippet... moreSql) {
         return new AQueryImpl<>(columnType, concat(sql, moreSql), primTypes, new ScalarRowExtractor(columnType), listeners, defaultConnectionSupplier,
-                AVector.empty(), defaultFetchSize);
+                async(), AVector.empty(), defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
     public <T> AQuery<T> scalarQuery(Class<T> columnType, String sql, Object... params) {
         return scalarQuery(columnType, SqlSnippet.sql(sql, params));
     }
 
-    public AQuery<Long> longQuery(SqlSnippet sql, SqlSnippet... moreSql) {
-        return new AQueryImpl<>(Long.class, concat(sql, moreSql), primTypes, ScalarRowExtractor.LONG_EXTRACTOR, listeners, defaultConnectionSupplier,
-                AVector.empty(), defaultFetchSize);
+    public ALongQuery longQuery(SqlSnippet sql, SqlSnippet... moreSql) {
+        return new ALongQueryImpl(concat(sql, moreSql), primTypes, ScalarRowExtractor.LONG_EXTRACTOR, listeners, defaultConnectionSupplier,
+                async(), AVector.empty(), defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
-    public AQuery<Long> longQuery(String sql, Object... params) {
+    public ALongQuery longQuery(String sql, Object... params) {
         return longQuery(SqlSnippet.sql(sql, params));
     }
-    public AQuery<Integer> intQuery(SqlSnippet sql, SqlSnippet... moreSql) {
-        return new AQueryImpl<>(Integer.class, concat(sql, moreSql), primTypes, ScalarRowExtractor.INT_EXTRACTOR, listeners, defaultConnectionSupplier,
-                AVector.empty(), defaultFetchSize);
+    public AIntQuery intQuery(SqlSnippet sql, SqlSnippet... moreSql) {
+        return new AIntQueryImpl(concat(sql, moreSql), primTypes, ScalarRowExtractor.INT_EXTRACTOR, listeners, defaultConnectionSupplier,
+                async(), AVector.empty(), defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
-    public AQuery<Integer> intQuery(String sql, Object... params) {
+    public AIntQuery intQuery(String sql, Object... params) {
         return intQuery(SqlSnippet.sql(sql, params));
     }
     public AQuery<String> stringQuery(SqlSnippet sql, SqlSnippet... moreSql) {
-        return new AQueryImpl<>(String.class, concat(sql, moreSql), primTypes, ScalarRowExtractor.STRING_EXTRACTOR, listeners, defaultConnectionSupplier,
-                AVector.empty(), defaultFetchSize);
+        return new AQueryImpl<>(String.class, concat(sql, moreSql), primTypes, ScalarRowExtractor.STRING_EXTRACTOR, listeners,
+                defaultConnectionSupplier, async(), AVector.empty(), defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
     public AQuery<String> stringQuery(String sql, Object... params) {
         return stringQuery(SqlSnippet.sql(sql, params));
     }
     public AQuery<UUID> uuidQuery(SqlSnippet sql, SqlSnippet... moreSql) {
         return new AQueryImpl<>(UUID.class, concat(sql, moreSql), primTypes, ScalarRowExtractor.UUID_EXTRACTOR, listeners, defaultConnectionSupplier,
-                AVector.empty(), defaultFetchSize);
+                async(), AVector.empty(), defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
     public AQuery<UUID> uuidQuery(String sql, Object... params) {
         return uuidQuery(SqlSnippet.sql(sql, params));
     }
-    public AQuery<Double> doubleQuery(SqlSnippet sql, SqlSnippet... moreSql) {
-        return new AQueryImpl<>(Double.class, concat(sql, moreSql), primTypes, ScalarRowExtractor.DOUBLE_EXTRACTOR, listeners, defaultConnectionSupplier,
-                AVector.empty(), defaultFetchSize);
+    public ADoubleQuery doubleQuery(SqlSnippet sql, SqlSnippet... moreSql) {
+        return new ADoubleQueryImpl(concat(sql, moreSql), primTypes, ScalarRowExtractor.DOUBLE_EXTRACTOR, listeners, defaultConnectionSupplier,
+                async(), AVector.empty(), defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
-    public AQuery<Double> doubleQuery(String sql, Object... params) {
+    public ADoubleQuery doubleQuery(String sql, Object... params) {
         return doubleQuery(SqlSnippet.sql(sql, params));
     }
     public AQuery<BigDecimal> bigDecimalQuery(SqlSnippet sql, SqlSnippet... moreSql) {
         return new AQueryImpl<>(BigDecimal.class, concat(sql, moreSql), primTypes, ScalarRowExtractor.BIG_DECIMAL_EXTRACTOR, listeners,
-                defaultConnectionSupplier, AVector.empty(), defaultFetchSize);
+                defaultConnectionSupplier, async(), AVector.empty(), defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
     public AQuery<BigDecimal> bigDecimalQuery(String sql, Object... params) {
         return bigDecimalQuery(SqlSnippet.sql(sql, params));
     }
     public AQuery<Boolean> booleanQuery(SqlSnippet sql, SqlSnippet... moreSql) {
         return new AQueryImpl<>(Boolean.class, concat(sql, moreSql), primTypes, ScalarRowExtractor.BOOLEAN_EXTRACTOR, listeners,
-                defaultConnectionSupplier, AVector.empty(), defaultFetchSize);
+                defaultConnectionSupplier, async(), AVector.empty(), defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
     public AQuery<Boolean> booleanQuery(String sql, Object... params) {
         return booleanQuery(SqlSnippet.sql(sql, params));
@@ -702,13 +784,13 @@ public class SqlEngine {
 
 
 
-    public AQuery<SqlRow> rawQuery(SqlSnippet sql, SqlSnippet... moreSql) {
-        return new AQueryImpl<>(SqlRow.class, concat(sql, moreSql), primTypes, RawRowExtractor.INSTANCE, listeners, defaultConnectionSupplier, AVector.empty(),
-                defaultFetchSize);
+    public ARawQuery rawQuery(SqlSnippet sql, SqlSnippet... moreSql) {
+        return new ARawQueryImpl(concat(sql, moreSql), primTypes, RawRowExtractor.INSTANCE, listeners, defaultConnectionSupplier, async(),
+                AVector.empty(), defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
-    public AQuery<SqlRow> rawQuery(String sql, Object... params) {
-        return new AQueryImpl<>(SqlRow.class, SqlSnippet.sql(sql, params), primTypes, RawRowExtractor.INSTANCE, listeners, defaultConnectionSupplier,
-                AVector.empty(), defaultFetchSize);
+    public ARawQuery rawQuery(String sql, Object... params) {
+        return new ARawQueryImpl(SqlSnippet.sql(sql, params), primTypes, RawRowExtractor.INSTANCE, listeners, defaultConnectionSupplier, async(),
+                AVector.empty(), defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
 
     public <T> AQuery<T> query(Class<T> targetType, SqlSnippet sql, SqlSnippet... moreSql) {
@@ -720,7 +802,58 @@ public class SqlEngine {
     }
 
     public <T> AQuery<T> query(Class<T> cls, RowExtractor rowExtractor, SqlSnippet sql, SqlSnippet... moreSql) { //TODO consistent ordering of parameters
-        return new AQueryImpl<>(cls, concat(sql, moreSql), primTypes, rowExtractor, listeners, defaultConnectionSupplier, AVector.empty(), defaultFetchSize);
+        return new AQueryImpl<>(cls, concat(sql, moreSql), primTypes, rowExtractor, listeners, defaultConnectionSupplier, async(),
+                AVector.empty(), defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
+    }
+
+    // -------------------------- lookup by keys
+
+    /**
+     * Loads rows for a collection of keys, returning a map from key to mapped row that also reports keys for which no row
+     *  was found. The keys are split into chunks of up to {@link KeyedQueryHelper#DEFAULT_MAX_CHUNK_SIZE} keys, and each chunk
+     *  is loaded with a separate statement, see {@link KeyedQueryHelper} for details.<p>
+     *
+     * The query is created by a template function that gets a condition of the form {@code keyColumn IN (...)} for a chunk
+     *  as its parameter, e.g. {@code cond -> concat(sql("SELECT * FROM person WHERE"), cond)}. The query must select the
+     *  key column, and its values must be unique.
+     */
+    public <K,T> KeyedResult<K,T> queryByKeys(Class<T> rowClass, String keyColumn, Collection<K> keys, Function<SqlSnippet, SqlSnippet> queryTemplate) {
+        return queryByKeys(defaultConnection(), rowClass, keyColumn, keys, queryTemplate);
+    }
+    public <K,T> KeyedResult<K,T> queryByKeys(Connection conn, Class<T> rowClass, String keyColumn, Collection<K> keys,
+                                               Function<SqlSnippet, SqlSnippet> queryTemplate) {
+        return queryByKeys(conn, rowClass, keyColumn, keys, KeyedQueryHelper.DEFAULT_MAX_CHUNK_SIZE, queryTemplate);
+    }
+    public <K,T> KeyedResult<K,T> queryByKeys(Connection conn, Class<T> rowClass, String keyColumn, Collection<K> keys, int maxChunkSize,
+                                               Function<SqlSnippet, SqlSnippet> queryTemplate) {
+        return KeyedQueryHelper.load(conn, keyColumn, keys, maxChunkSize, cond -> query(rowClass, queryTemplate.apply(cond)), (o, row) -> o);
+    }
+
+    /**
+     * The same as {@link #queryByKeys(Class, String, Collection, Function)}, but running the chunks' statements in parallel on the
+     *  {@link #withAsyncExecutor(Executor) async executor}. Each chunk is loaded with its own connection from the
+     *  {@link #withAsyncConnectionProvider(ConnectionProvider) async connection provider}, which is acquired and released on the
+     *  executor's thread.
+     *
+     * @throws IllegalStateException if no async executor or connection provider is configured
+     */
+    public <K,T> KeyedResult<K,T> queryByKeysInParallel(Class<T> rowClass, String keyColumn, Collection<K> keys, int maxChunkSize,
+                                                         Function<SqlSnippet, SqlSnippet> queryTemplate) {
+        return KeyedQueryHelper.loadInParallel(async(), keyColumn, keys, maxChunkSize,
+                cond -> query(rowClass, queryTemplate.apply(cond)), (o, row) -> o);
+    }
+
+    /**
+     * Loads a single column's value for each of a collection of keys, see {@link #queryByKeys(Class, String, Collection, Function)}.
+     */
+    public <K,V> KeyedResult<K,V> scalarQueryByKeys(Class<V> valueClass, String keyColumn, String valueColumn, Collection<K> keys,
+                                                     Function<SqlSnippet, SqlSnippet> queryTemplate) {
+        return scalarQueryByKeys(defaultConnection(), valueClass, keyColumn, valueColumn, keys, queryTemplate);
+    }
+    public <K,V> KeyedResult<K,V> scalarQueryByKeys(Connection conn, Class<V> valueClass, String keyColumn, String valueColumn, Collection<K> keys,
+                                                     Function<SqlSnippet, SqlSnippet> queryTemplate) {
+        return KeyedQueryHelper.load(conn, keyColumn, keys, KeyedQueryHelper.DEFAULT_MAX_CHUNK_SIZE, cond -> rawQuery(queryTemplate.apply(cond)),
+                (o, row) -> row.get(valueClass, valueColumn));
     }
 
     //TODO tuples as query results
@@ -740,33 +873,102 @@ public class SqlEngine {
                 .get();
     }
 
+    /**
+     * @return the configuration for operations running on other threads
+     */
+    public AsyncHelper async() {
+        return async;
+    }
+
     public AVector<SqlEngineEventListener> listeners() {
         return listeners;
     }
 
+    public StatementCache statementCache() {
+        return statementCache;
+    }
+
+    public ResultCache resultCache() {
+        return resultCache;
+    }
+
+    public int injectedPropertiesParallelism() {
+        return injectedPropertiesParallelism;
+    }
+
     public <T> SqlEngine withRawTypeMapping(Class<T> jdbcType, Function<T, Object> rawMapping) {
-        return new SqlEngine(primTypes.withRawTypeMapping(jdbcType, rawMapping), optDefaultPkName, rowExtractorRegistry, listeners, defaultConnectionSupplier,
-                defaultFetchSize);
+        return new SqlEngine(primTypes.withRawTypeMapping(jdbcType, rawMapping), optDefaultPkName, rowExtractorRegistry, listeners,
+                defaultConnectionSupplier, async, defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
     public SqlEngine withPrimitiveHandler(PrimitiveTypeHandler handler) {
-        return new SqlEngine(primTypes.withHandler(handler), optDefaultPkName, rowExtractorRegistry, listeners, defaultConnectionSupplier, defaultFetchSize);
+        return new SqlEngine(primTypes.withHandler(handler), optDefaultPkName, rowExtractorRegistry, listeners, defaultConnectionSupplier,
+                async, defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
 
     public SqlEngine withDefaultPkName(String pkName) {
-        return new SqlEngine(primTypes, AOption.of(pkName), rowExtractorRegistry, listeners, defaultConnectionSupplier, defaultFetchSize);
+        return new SqlEngine(primTypes, AOption.of(pkName), rowExtractorRegistry, listeners, defaultConnectionSupplier, async,
+                defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
 
     public SqlEngine withRowExtractor(RowExtractor rowExtractor) {
         return new SqlEngine(primTypes, optDefaultPkName, rowExtractorRegistry.withHandler(rowExtractor), listeners, defaultConnectionSupplier,
-                defaultFetchSize);
+                async, defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
 
     public SqlEngine withListener(SqlEngineEventListener listener) {
-        return new SqlEngine(primTypes, optDefaultPkName, rowExtractorRegistry, listeners.append(listener), defaultConnectionSupplier, defaultFetchSize);
+        return new SqlEngine(primTypes, optDefaultPkName, rowExtractorRegistry, listeners.append(listener), defaultConnectionSupplier, async,
+                defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
 
     public SqlEngine withDefaultFetchSize(int defaultFetchSize) {
-        return new SqlEngine(primTypes, optDefaultPkName, rowExtractorRegistry, listeners, defaultConnectionSupplier, defaultFetchSize);
+        return new SqlEngine(primTypes, optDefaultPkName, rowExtractorRegistry, listeners, defaultConnectionSupplier, async, defaultFetchSize,
+                statementCache, resultCache, injectedPropertiesParallelism);
+    }
+
+    /**
+     * Configures this engine to cache up to {@code maxSize} {@link java.sql.PreparedStatement}s (across all connections) and reuse them
+     *  when the same SQL is executed on the same connection again. Passing 0 disables caching.<p>
+     *
+     * Cached statements are kept open until they are evicted from the cache, so application code should call
+     *  {@link StatementCache#closeStatements(Connection)} before closing a connection or returning it to a pool if it uses
+     *  statement caching.
+     */
+    public SqlEngine withStatementCache(int maxSize) {
+        return new SqlEngine(primTypes, optDefaultPkName, rowExtractorRegistry, listeners, defaultConnectionSupplier, async, defaultFetchSize,
+                maxSize > 0 ? new StatementCache(maxSize) : StatementCache.disabled(), resultCache, injectedPropertiesParallelism);
+    }
+
+    /**
+     * Configures this engine to cache the results of up to {@code maxSize} queries that opt in to caching by calling
+     *  {@link AQuery#cached(java.time.Duration)}, evicting the least recently used results when the cache is full. Passing 0 disables
+     *  caching.<p>
+     *
+     * All statements executed through this engine that modify data (e.g. {@link #executeUpdate(String, Object...)} or the
+     *  {@code insert...} methods, and therefore also all modifications through a {@link com.ajjpj.asqlmapper.mapper.SqlMapper SqlMapper})
+     *  invalidate cached results that read from the modified table. Modifications bypassing this engine are only reflected when
+     *  cached results expire. Results are only cached for connections in auto-commit mode, so uncommitted data is never cached. See
+     *  {@link ResultCache} for details.
+     */
+    public SqlEngine withResultCache(int maxSize) {
+        return new SqlEngine(primTypes, optDefaultPkName, rowExtractorRegistry, listeners, defaultConnectionSupplier, async, defaultFetchSize,
+                statementCache, maxSize > 0 ? new ResultCache(maxSize) : ResultCache.disabled(), injectedPropertiesParallelism);
+    }
+
+    /**
+     * Configures queries with more than one {@link com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty injected property}
+     *  (e.g. several relations loaded by a {@link com.ajjpj.asqlmapper.mapper.SqlMapper SqlMapper}) to load up to {@code parallelism}
+     *  of them concurrently rather than one after the other, so a query's latency approaches that of its slowest injected property.
+     *  Passing 1 (the default) loads them sequentially.<p>
+     *
+     * The first injected property is loaded on the calling thread with the query's connection. The others are loaded on the
+     *  {@link #withAsyncExecutor(Executor) async executor}, each concurrent load with its own connection from the
+     *  {@link #withAsyncConnectionProvider(ConnectionProvider) async connection provider} - so the same requirements apply as for
+     *  asynchronous queries. If loading an injected property fails, no further injected
+     *  properties are started and the failure is rethrown.
+     */
+    public SqlEngine withInjectedPropertiesParallelism(int parallelism) {
+        return new SqlEngine(primTypes, optDefaultPkName, rowExtractorRegistry, listeners, defaultConnectionSupplier, async, defaultFetchSize,
+                statementCache, resultCache, parallelism);
     }
 
     /**
@@ -775,6 +977,34 @@ public class SqlEngine {
      * a thread pool or data source - that would cause a resource leak because the connection would never be closed.
      */
     public SqlEngine withDefaultConnectionSupplier(Supplier<Connection> supp) {
-        return new SqlEngine(primTypes, optDefaultPkName, rowExtractorRegistry, listeners, AOption.some(supp), defaultFetchSize);
+        return new SqlEngine(primTypes, optDefaultPkName, rowExtractorRegistry, listeners, AOption.some(supp), async, defaultFetchSize, statementCache,
+                resultCache, injectedPropertiesParallelism);
+    }
+
+    /**
+     * Registers an executor for asynchronous execution of queries (e.g. {@link AQuery#listAsync()}) and updates (e.g.
+     *  {@link #executeUpdateAsync(String, Object...)}). Asynchronous operations take their connections from the
+     *  {@link #withAsyncConnectionProvider(ConnectionProvider) async connection provider}, which must be registered as well: the
+     *  {@link #withDefaultConnectionSupplier(Supplier) default connection supplier} does not hand over ownership of its connections,
+     *  so it is never used on the executor's threads.<p>
+     *
+     * The SqlEngine does not manage the executor's life cycle, i.e. it never shuts it down. {@link AsyncHelper#newDefaultAsyncExecutor()}
+     *  creates an executor that is suitable for most applications.
+     */
+    public SqlEngine withAsyncExecutor(Executor asyncExecutor) {
+        return new SqlEngine(primTypes, optDefaultPkName, rowExtractorRegistry, listeners, defaultConnectionSupplier, async.withExecutor(asyncExecutor),
+                defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
+    }
+
+    /**
+     * Registers a {@link ConnectionProvider} for operations that run on the {@link #withAsyncExecutor(Executor) async executor}:
+     *  asynchronous queries and updates, injected properties that are {@link #withInjectedPropertiesParallelism(int) loaded in parallel},
+     *  and {@link #queryByKeysInParallel(Class, String, Collection, int, Function) keyed queries that are loaded in parallel}. Each
+     *  operation acquires its own connection on the executor's thread and releases it there when it is done, e.g. taking it from and
+     *  returning it to a connection pool with {@link ConnectionProvider#fromDataSource(javax.sql.DataSource)}.
+     */
+    public SqlEngine withAsyncConnectionProvider(ConnectionProvider connectionProvider) {
+        return new SqlEngine(primTypes, optDefaultPkName, rowExtractorRegistry, listeners, defaultConnectionSupplier,
+                async.withConnectionProvider(connectionProvider), defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
 }
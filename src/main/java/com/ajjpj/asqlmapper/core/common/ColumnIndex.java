@@ -0,0 +1,155 @@
+package com.ajjpj.asqlmapper.core.common;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.ajjpj.acollections.immutable.AVector;
+
+/**
+ * A snapshot of a ResultSet's column names, taken once per ResultSet. It maps column names to (zero-based) indexes,
+ *  looking up exact matches first and falling back to case-insensitive matching, like {@link ResultSet#getObject(String)}
+ *  does. If several columns have the same name, the first one wins.<p>
+ *
+ * A ColumnIndex is immutable, so it is shared by a {@link LiveSqlRow} and all {@link DetachedSqlRow}s detached from it.
+ */
+class ColumnIndex {
+    final AVector<String> columnNames;
+    /**
+     * a hash code for the column names that is consistent with {@link #hasSameColumnNames(ColumnIndex)}
+     */
+    final int columnNamesHash;
+    /** per column, a hash code for its name that is consistent with {@link String#equalsIgnoreCase(String)} */
+    final int[] nameHashes;
+    /**
+     * per column, the index of the next column with the same name (ignoring case), or -1. Rows with duplicate column names
+     *  are compared by pairing the n-th occurrence of a name in one row with its n-th occurrence in the other.
+     */
+    private final int[] nextWithSameName;
+    /** per column, the number of columns with the same name (ignoring case) that precede it */
+    private final int[] occurrence;
+    /** the first column for each name, ignoring case - unlike {@link #caseInsensitive}, this ignores labels */
+    private final Map<String, Integer> firstByName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final Map<String, Integer> exact = new HashMap<>();
+    private final Map<String, Integer> caseInsensitive = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    ColumnIndex (ResultSetMetaData rsMeta) throws SQLException {
+        final int numColumns = rsMeta.getColumnCount();
+        final AVector.Builder<String> names = AVector.builder();
+        for (int i=0; i<numColumns; i++) {
+            names.add(rsMeta.getColumnName(i+1));
+        }
+        this.columnNames = names.build();
+        this.columnNamesHash = caseInsensitiveHash(columnNames);
+        this.nameHashes = new int[numColumns];
+        this.nextWithSameName = new int[numColumns];
+        this.occurrence = new int[numColumns];
+        initSameNames();
+
+        // labels take precedence over names, as they do for ResultSet.getObject(String)
+        for (int i=0; i<numColumns; i++) {
+            register(rsMeta.getColumnLabel(i+1), i);
+        }
+        for (int i=0; i<numColumns; i++) {
+            register(columnNames.get(i), i);
+        }
+    }
+
+    ColumnIndex (List<String> columnNames) {
+        this.columnNames = AVector.from(columnNames);
+        this.columnNamesHash = caseInsensitiveHash(this.columnNames);
+        this.nameHashes = new int[columnNames.size()];
+        this.nextWithSameName = new int[columnNames.size()];
+        this.occurrence = new int[columnNames.size()];
+        initSameNames();
+        for (int i=0; i<columnNames.size(); i++) {
+            register(columnNames.get(i), i);
+        }
+    }
+
+    private void initSameNames() {
+        // the last column seen so far for each name
+        final Map<String, Integer> lastByName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i=0; i<columnNames.size(); i++) {
+            final String name = columnNames.get(i);
+            nameHashes[i] = caseInsensitiveHash(name);
+            nextWithSameName[i] = -1;
+            if (name == null) continue;
+
+            final Integer prev = lastByName.put(name, i);
+            if (prev == null) {
+                firstByName.put(name, i);
+            }
+            else {
+                nextWithSameName[prev] = i;
+                occurrence[i] = occurrence[prev] + 1;
+            }
+        }
+    }
+
+    private static int caseInsensitiveHash(List<String> columnNames) {
+        int result = 1;
+        for (String name: columnNames) {
+            result = 31*result + caseInsensitiveHash(name);
+        }
+        return result;
+    }
+
+    private static int caseInsensitiveHash(String name) {
+        if (name == null) return 0;
+        int result = 0;
+        for (int i=0; i<name.length(); i++) {
+            // this normalization is consistent with String.equalsIgnoreCase
+            result = 31*result + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+        return result;
+    }
+
+    /**
+     * @return true if and only if both indexes have the same column names in the same order, ignoring case
+     */
+    boolean hasSameColumnNames(ColumnIndex other) {
+        if (this == other) return true;
+        if (columnNamesHash != other.columnNamesHash || columnNames.size() != other.columnNames.size()) return false;
+
+        for (int i=0; i<columnNames.size(); i++) {
+            if (!columnNames.get(i).equalsIgnoreCase(other.columnNames.get(i)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the index of the column in this index that corresponds to a column of another index with the same name
+     *         (ignoring case) and the same occurrence of that name, or -1 if there is no such column
+     */
+    int matchingColumn(ColumnIndex other, int otherIdx) {
+        final String name = other.columnNames.get(otherIdx);
+        if (name == null) return -1;
+
+        final Integer first = firstByName.get(name);
+        int result = first != null ? first : -1;
+        for (int i=0; i<other.occurrence[otherIdx] && result >= 0; i++) {
+            result = nextWithSameName[result];
+        }
+        return result;
+    }
+
+    private void register(String name, int idx) {
+        if (name == null) return;
+        exact.putIfAbsent(name, idx);
+        caseInsensitive.putIfAbsent(name, idx);
+    }
+
+    int indexOf(String columnName) {
+        Integer result = exact.get(columnName);
+        if (result == null) {
+            result = caseInsensitive.get(columnName);
+        }
+        return result != null ? result : -1;
+    }
+}
@@ -0,0 +1,31 @@
+package com.ajjpj.asqlmapper.core.common;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Extracts a contiguous range of a row's columns into a row of their own, e.g. the columns belonging to one of the tables of a
+ *  join. The extracted columns get the names passed to the constructor, so a slice can also rename columns, and all rows
+ *  extracted by a slice share the index for looking up columns by name.
+ */
+public class ColumnSlice {
+    private final int fromIdx;
+    private final ColumnIndex columnIndex;
+
+    /**
+     * @param fromIdx     the (zero-based) index of the first column to extract
+     * @param columnNames the names of the extracted columns; their number determines the number of extracted columns
+     */
+    public ColumnSlice(int fromIdx, List<String> columnNames) {
+        this.fromIdx = fromIdx;
+        this.columnIndex = new ColumnIndex(columnNames);
+    }
+
+    public DetachedSqlRow apply(SqlRow row) {
+        final DetachedSqlRow detached = row.detach();
+        if (fromIdx + columnIndex.columnNames.size() > detached.numColumns()) {
+            throw new IllegalArgumentException("row has " + detached.numColumns() + " columns, slice requires " + (fromIdx + columnIndex.columnNames.size()));
+        }
+        return detached.slice(columnIndex, fromIdx);
+    }
+}
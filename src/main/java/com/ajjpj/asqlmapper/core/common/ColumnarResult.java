@@ -0,0 +1,302 @@
+package com.ajjpj.asqlmapper.core.common;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
+
+/**
+ * A query result stored column by column, with one array per column rather than one object per row. Numeric and boolean
+ *  columns are stored in primitive arrays (or a {@link BitSet} for booleans), which makes loops over a column's values
+ *  fast and cache friendly.<p>
+ *
+ * The storage type of each column is determined by the JDBC type reported by {@link ResultSetMetaData}, see
+ *  {@link ColumnType}. SQL NULL values are stored as {@code 0}, {@code false} or {@code null} respectively, and they are
+ *  marked in a per-column {@link #nulls(int) null bitmap}.<p>
+ *
+ * The arrays returned by the accessors are the internal storage and are not copied, so callers must not modify them. Their
+ *  length is exactly {@link #numRows()}.
+ */
+public class ColumnarResult {
+    /**
+     * The storage types for columns. They are derived from the JDBC types as follows:
+     * <ul>
+     *     <li> {@code BIGINT} is stored as {@link #LONG}
+     *     <li> {@code INTEGER}, {@code SMALLINT} and {@code TINYINT} are stored as {@link #INT}
+     *     <li> {@code DOUBLE}, {@code FLOAT} and {@code REAL} are stored as {@link #DOUBLE}
+     *     <li> {@code DECIMAL} and {@code NUMERIC} are stored as {@link #LONG} if they have no fractional digits and a declared
+     *          precision of at most 18 digits, and as {@link #DOUBLE} if they have a declared number of fractional digits. All
+     *          others, i.e. integers with more than 18 digits or with an unknown precision (e.g. PostgreSQL's unconstrained
+     *          {@code numeric} that {@code sum(bigint)} returns, or Oracle's {@code NUMBER}), are stored as {@link #OBJECT}
+     *          so that no precision is lost. Use a row-based query if you need exact values with fractional digits.
+     *     <li> {@code BOOLEAN} and {@code BIT} are stored as {@link #BOOLEAN}
+     *     <li> character types are stored as {@link #STRING}
+     *     <li> all other types are stored as {@link #OBJECT}, converted by the {@link PrimitiveTypeRegistry}
+     * </ul>
+     */
+    public enum ColumnType {
+        LONG, INT, DOUBLE, BOOLEAN, STRING, OBJECT;
+
+        static ColumnType forJdbcType(int jdbcType, int precision, int scale) {
+            switch (jdbcType) {
+                case Types.BIGINT:
+                    return LONG;
+                case Types.INTEGER:
+                case Types.SMALLINT:
+                case Types.TINYINT:
+                    return INT;
+                case Types.DOUBLE:
+                case Types.FLOAT:
+                case Types.REAL:
+                    return DOUBLE;
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    if (scale == 0 && precision > 0 && precision <= 18) {
+                        return LONG;
+                    }
+                    return (scale > 0 && precision > 0) ? DOUBLE : OBJECT;
+                case Types.BOOLEAN:
+                case Types.BIT:
+                    return BOOLEAN;
+                case Types.CHAR:
+                case Types.VARCHAR:
+                case Types.LONGVARCHAR:
+                case Types.NCHAR:
+                case Types.NVARCHAR:
+                case Types.LONGNVARCHAR:
+                    return STRING;
+                default:
+                    return OBJECT;
+            }
+        }
+    }
+
+    private final ColumnIndex columnIndex;
+    private final ColumnType[] columnTypes;
+    private final Object[] columns;
+    private final BitSet[] nulls;
+    private final int numRows;
+
+    private ColumnarResult (ColumnIndex columnIndex, ColumnType[] columnTypes, Object[] columns, BitSet[] nulls, int numRows) {
+        this.columnIndex = columnIndex;
+        this.columnTypes = columnTypes;
+        this.columns = columns;
+        this.nulls = nulls;
+        this.numRows = numRows;
+    }
+
+    public int numRows() {
+        return numRows;
+    }
+    public int numColumns() {
+        return columnTypes.length;
+    }
+    public List<String> columnNames() {
+        return columnIndex.columnNames;
+    }
+
+    /**
+     * @return the (zero-based) index of a column, matching names case insensitively if there is no exact match
+     * @throws IllegalArgumentException if there is no column with the given name
+     */
+    public int indexOf(String columnName) {
+        final int result = columnIndex.indexOf(columnName);
+        if (result < 0) {
+            throw new IllegalArgumentException("no column " + columnName + " - columns are " + columnIndex.columnNames);
+        }
+        return result;
+    }
+
+    public ColumnType columnType(int idx) {
+        return columnTypes[idx];
+    }
+    public ColumnType columnType(String columnName) {
+        return columnType(indexOf(columnName));
+    }
+
+    public long[] longColumn(int idx) {
+        return (long[]) column(idx, ColumnType.LONG);
+    }
+    public long[] longColumn(String columnName) {
+        return longColumn(indexOf(columnName));
+    }
+    public int[] intColumn(int idx) {
+        return (int[]) column(idx, ColumnType.INT);
+    }
+    public int[] intColumn(String columnName) {
+        return intColumn(indexOf(columnName));
+    }
+    public double[] doubleColumn(int idx) {
+        return (double[]) column(idx, ColumnType.DOUBLE);
+    }
+    public double[] doubleColumn(String columnName) {
+        return doubleColumn(indexOf(columnName));
+    }
+    /**
+     * @return a bitset with the bits set for rows with a {@code true} value
+     */
+    public BitSet booleanColumn(int idx) {
+        return (BitSet) column(idx, ColumnType.BOOLEAN);
+    }
+    public BitSet booleanColumn(String columnName) {
+        return booleanColumn(indexOf(columnName));
+    }
+    public String[] stringColumn(int idx) {
+        return (String[]) column(idx, ColumnType.STRING);
+    }
+    public String[] stringColumn(String columnName) {
+        return stringColumn(indexOf(columnName));
+    }
+    public Object[] objectColumn(int idx) {
+        return (Object[]) column(idx, ColumnType.OBJECT);
+    }
+    public Object[] objectColumn(String columnName) {
+        return objectColumn(indexOf(columnName));
+    }
+
+    private Object column(int idx, ColumnType expectedType) {
+        if (columnTypes[idx] != expectedType) {
+            throw new IllegalStateException("column " + columnIndex.columnNames.get(idx) + " is stored as " + columnTypes[idx] + ", not " + expectedType);
+        }
+        return columns[idx];
+    }
+
+    /**
+     * @return a bitset with the bits set for rows with a NULL value in the given column
+     */
+    public BitSet nulls(int idx) {
+        return nulls[idx];
+    }
+    public BitSet nulls(String columnName) {
+        return nulls(indexOf(columnName));
+    }
+    public boolean isNull(int columnIdx, int rowIdx) {
+        return nulls[columnIdx].get(rowIdx);
+    }
+
+    /**
+     * Creates a builder that reads rows from a given ResultSet, determining the column types from its meta data.
+     */
+    public static Builder builder(ResultSet rs, PrimitiveTypeRegistry primTypes, int initialCapacity) throws SQLException {
+        return new Builder(rs, primTypes, initialCapacity);
+    }
+
+    public static class Builder {
+        private final ResultSet rs;
+        private final PrimitiveTypeRegistry primTypes;
+        private final int initialCapacity;
+        private final ColumnIndex columnIndex;
+        private final ColumnType[] columnTypes;
+
+        private Object[] columns;
+        private BitSet[] nulls;
+        private int capacity;
+        private int numRows;
+
+        private Builder (ResultSet rs, PrimitiveTypeRegistry primTypes, int initialCapacity) throws SQLException {
+            this.rs = rs;
+            this.primTypes = primTypes;
+            this.initialCapacity = Math.max(initialCapacity, 1);
+
+            final ResultSetMetaData rsMeta = rs.getMetaData();
+            this.columnIndex = new ColumnIndex(rsMeta);
+            this.columnTypes = new ColumnType[rsMeta.getColumnCount()];
+            for (int i=0; i<columnTypes.length; i++) {
+                columnTypes[i] = ColumnType.forJdbcType(rsMeta.getColumnType(i+1), rsMeta.getPrecision(i+1), rsMeta.getScale(i+1));
+            }
+            reset();
+        }
+
+        private void reset() {
+            capacity = initialCapacity;
+            numRows = 0;
+            columns = new Object[columnTypes.length];
+            nulls = new BitSet[columnTypes.length];
+            for (int i=0; i<columnTypes.length; i++) {
+                columns[i] = newColumn(columnTypes[i], capacity);
+                nulls[i] = new BitSet();
+            }
+        }
+
+        private static Object newColumn(ColumnType type, int capacity) {
+            switch (type) {
+                case LONG:    return new long[capacity];
+                case INT:     return new int[capacity];
+                case DOUBLE:  return new double[capacity];
+                case BOOLEAN: return new BitSet();
+                case STRING:  return new String[capacity];
+                default:      return new Object[capacity];
+            }
+        }
+
+        private static Object resize(Object column, int newSize) {
+            if (column instanceof long[])   return Arrays.copyOf((long[]) column, newSize);
+            if (column instanceof int[])    return Arrays.copyOf((int[]) column, newSize);
+            if (column instanceof double[]) return Arrays.copyOf((double[]) column, newSize);
+            if (column instanceof String[]) return Arrays.copyOf((String[]) column, newSize);
+            if (column instanceof Object[]) return Arrays.copyOf((Object[]) column, newSize);
+            return column; // BitSets grow automatically
+        }
+
+        public int numRows() {
+            return numRows;
+        }
+
+        /**
+         * Adds the values of the ResultSet's current row.
+         */
+        public void addCurrentRow() throws SQLException {
+            if (numRows == capacity) {
+                capacity *= 2;
+                for (int i=0; i<columns.length; i++) {
+                    columns[i] = resize(columns[i], capacity);
+                }
+            }
+
+            for (int i=0; i<columnTypes.length; i++) {
+                final int jdbcIdx = i+1;
+                switch (columnTypes[i]) {
+                    case LONG:
+                        ((long[]) columns[i])[numRows] = rs.getLong(jdbcIdx);
+                        break;
+                    case INT:
+                        ((int[]) columns[i])[numRows] = rs.getInt(jdbcIdx);
+                        break;
+                    case DOUBLE:
+                        ((double[]) columns[i])[numRows] = rs.getDouble(jdbcIdx);
+                        break;
+                    case BOOLEAN:
+                        if (rs.getBoolean(jdbcIdx)) ((BitSet) columns[i]).set(numRows);
+                        break;
+                    case STRING:
+                        ((String[]) columns[i])[numRows] = rs.getString(jdbcIdx);
+                        break;
+                    default:
+                        ((Object[]) columns[i])[numRows] = primTypes.fromSql(rs.getObject(jdbcIdx));
+                }
+                if (rs.wasNull()) {
+                    nulls[i].set(numRows);
+                }
+            }
+            numRows += 1;
+        }
+
+        /**
+         * Returns the rows added so far and resets the builder, so it can be used for the next batch of rows.
+         */
+        public ColumnarResult build() {
+            final Object[] trimmed = new Object[columns.length];
+            for (int i=0; i<columns.length; i++) {
+                trimmed[i] = numRows == capacity ? columns[i] : resize(columns[i], numRows);
+            }
+            final ColumnarResult result = new ColumnarResult(columnIndex, columnTypes, trimmed, nulls, numRows);
+            reset();
+            return result;
+        }
+    }
+}
@@ -1,43 +1,127 @@
 package com.ajjpj.asqlmapper.core.common;
 
 import java.sql.ResultSet;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 import com.ajjpj.acollections.AList;
-import com.ajjpj.acollections.AMap;
 import com.ajjpj.acollections.util.AUnchecker;
 import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
 
 /**
  * A SqlRow implementation that copies row data, making it available independently of the
  *  ResultSet it originated from. This class is immutable and 'safe' to use in all contexts,
- *  incurring some additional cost for copying and storing field values.
+ *  incurring some additional cost for copying and storing field values.<p>
+ *
+ * The values are stored in an array, and all rows detached from the same ResultSet share their column names and
+ *  the index for looking up columns by name, so the per-row overhead is small.
  */
 public class DetachedSqlRow implements SqlRow {
-    private final AMap<String,Object> byLowerCaseColumn;
-    private final List<String> columnNames;
+    private final ColumnIndex columnIndex;
+    private final Object[] values;
     private final PrimitiveTypeRegistry primTypes;
 
     public DetachedSqlRow (ResultSet rs, AList<String> columnNames, PrimitiveTypeRegistry primTypes) {
-        this.byLowerCaseColumn = columnNames.fold(AMap.empty(),
-                (res, el) -> res.plus(el.toLowerCase(), AUnchecker.executeUnchecked(() -> rs.getObject(el))));
-        this.columnNames = columnNames;
+        this(new ColumnIndex(columnNames), readValues(rs, columnNames), primTypes);
+    }
+
+    DetachedSqlRow (ColumnIndex columnIndex, Object[] values, PrimitiveTypeRegistry primTypes) {
+        this.columnIndex = columnIndex;
+        this.values = values;
         this.primTypes = primTypes;
     }
 
+    private static Object[] readValues(ResultSet rs, List<String> columnNames) {
+        final Object[] result = new Object[columnNames.size()];
+        for (int i=0; i<result.length; i++) {
+            final String columnName = columnNames.get(i);
+            result[i] = AUnchecker.executeUnchecked(() -> rs.getObject(columnName));
+        }
+        return result;
+    }
+
     @Override public DetachedSqlRow detach () {
         return this;
     }
 
+    DetachedSqlRow slice (ColumnIndex sliceIndex, int fromIdx) {
+        return new DetachedSqlRow(sliceIndex, Arrays.copyOfRange(values, fromIdx, fromIdx + sliceIndex.columnNames.size()), primTypes);
+    }
+
+    @Override public int numColumns() {
+        return values.length;
+    }
+
     @Override public List<String> columnNames() {
-        return columnNames;
+        return columnIndex.columnNames;
+    }
+
+    @Override public int indexOf(String columnName) {
+        final int result = columnIndex.indexOf(columnName);
+        if (result < 0) {
+            throw new IllegalArgumentException("no column " + columnName + " - columns are " + columnIndex.columnNames);
+        }
+        return result;
+    }
+
+    private Object raw(String columnName) {
+        final int idx = columnIndex.indexOf(columnName);
+        return idx >= 0 ? values[idx] : null;
     }
 
     @Override public <T> T get(Class<T> cls, String columnName) {
-        return primTypes.fromSql(cls, byLowerCaseColumn.get(columnName.toLowerCase()));
+        return primTypes.fromSql(cls, raw(columnName));
     }
     @Override public Object get(String columnName) {
-        return primTypes.fromSql(byLowerCaseColumn.get(columnName.toLowerCase()));
+        return primTypes.fromSql(raw(columnName));
+    }
+
+    @Override public <T> T get(Class<T> cls, int idx) {
+        return primTypes.fromSql(cls, values[idx]);
+    }
+    @Override public Object get(int idx) {
+        return primTypes.fromSql(values[idx]);
+    }
+
+    @Override public boolean isNull(String columnName) {
+        return raw(columnName) == null;
+    }
+    @Override public boolean isNull(int idx) {
+        return values[idx] == null;
+    }
+
+    @Override public long getLongValue(String columnName) {
+        final Object raw = raw(columnName);
+        return raw instanceof Number ? ((Number) raw).longValue() : SqlRow.super.getLongValue(columnName);
+    }
+    @Override public long getLongValue(int idx) {
+        final Object raw = values[idx];
+        return raw instanceof Number ? ((Number) raw).longValue() : SqlRow.super.getLongValue(idx);
+    }
+    @Override public int getIntValue(String columnName) {
+        final Object raw = raw(columnName);
+        return raw instanceof Number ? ((Number) raw).intValue() : SqlRow.super.getIntValue(columnName);
+    }
+    @Override public int getIntValue(int idx) {
+        final Object raw = values[idx];
+        return raw instanceof Number ? ((Number) raw).intValue() : SqlRow.super.getIntValue(idx);
+    }
+    @Override public double getDoubleValue(String columnName) {
+        final Object raw = raw(columnName);
+        return raw instanceof Number ? ((Number) raw).doubleValue() : SqlRow.super.getDoubleValue(columnName);
+    }
+    @Override public double getDoubleValue(int idx) {
+        final Object raw = values[idx];
+        return raw instanceof Number ? ((Number) raw).doubleValue() : SqlRow.super.getDoubleValue(idx);
+    }
+    @Override public boolean getBooleanValue(String columnName) {
+        final Object raw = raw(columnName);
+        return raw instanceof Boolean ? (Boolean) raw : SqlRow.super.getBooleanValue(columnName);
+    }
+    @Override public boolean getBooleanValue(int idx) {
+        final Object raw = values[idx];
+        return raw instanceof Boolean ? (Boolean) raw : SqlRow.super.getBooleanValue(idx);
     }
 
     @Override public String toString () {
@@ -56,11 +140,41 @@ public class DetachedSqlRow implements SqlRow {
         return result.toString();
     }
 
+    /**
+     * Two rows are equal if they have the same column names (ignoring case and order), and equal values for each column.
+     *  If a row has several columns with the same name, they are matched in the order in which they occur.
+     */
     @Override public boolean equals(Object obj) {
         if(! (obj instanceof SqlRow)) {
             return false;
         }
 
-        return byLowerCaseColumn.equals(((SqlRow)obj).detach().byLowerCaseColumn);
+        final DetachedSqlRow other = ((SqlRow) obj).detach();
+        if (values.length != other.values.length) {
+            return false;
+        }
+        if (columnIndex.hasSameColumnNames(other.columnIndex)) {
+            // the common case, e.g. for rows detached from the same ResultSet: compare positionally
+            return Arrays.equals(values, other.values);
+        }
+
+        for (int i=0; i<values.length; i++) {
+            final int otherIdx = other.columnIndex.matchingColumn(columnIndex, i);
+            if (otherIdx < 0 || !Objects.equals(values[i], other.values[otherIdx])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The hash code is the sum of per-column hash codes, so it does not depend on the order of columns.
+     */
+    @Override public int hashCode() {
+        int result = 0;
+        for (int i=0; i<values.length; i++) {
+            result += columnIndex.nameHashes[i] ^ Objects.hashCode(values[i]);
+        }
+        return result;
     }
 }
@@ -0,0 +1,48 @@
+package com.ajjpj.asqlmapper.core.common;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The result of a lookup by a collection of keys, e.g. {@link com.ajjpj.asqlmapper.core.SqlEngine#queryByKeys(Class, String,
+ *  java.util.Collection, java.util.function.Function)}. It is an unmodifiable map from keys to the values found for them,
+ *  iterating in the order in which the keys were passed in, and it additionally reports the keys for which no row was found.
+ */
+public class KeyedResult<K,V> extends AbstractMap<K,V> {
+    private final Map<K,V> found;
+    private final Set<K> missingKeys;
+
+    public KeyedResult(Map<K,V> found, Set<K> missingKeys) {
+        this.found = Collections.unmodifiableMap(found);
+        this.missingKeys = Collections.unmodifiableSet(missingKeys);
+    }
+
+    /**
+     * @return the keys for which no row was found, in the order in which they were passed in
+     */
+    public Set<K> missingKeys() {
+        return missingKeys;
+    }
+
+    /**
+     * @return true if a row was found for every key
+     */
+    public boolean isComplete() {
+        return missingKeys.isEmpty();
+    }
+
+    @Override public Set<Entry<K, V>> entrySet() {
+        return found.entrySet();
+    }
+    @Override public int size() {
+        return found.size();
+    }
+    @Override public boolean containsKey(Object key) {
+        return found.containsKey(key);
+    }
+    @Override public V get(Object key) {
+        return found.get(key);
+    }
+}
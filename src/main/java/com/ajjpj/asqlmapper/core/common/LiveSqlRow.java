@@ -3,12 +3,10 @@ package com.ajjpj.asqlmapper.core.common;
 import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
 
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.util.AbstractList;
 import java.util.List;
 
-import com.ajjpj.acollections.AList;
+import com.ajjpj.acollections.util.AUnchecker;
 import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
 
 /**
@@ -24,52 +22,181 @@ import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
 public class LiveSqlRow implements SqlRow {
     private final PrimitiveTypeRegistry primTypes;
     private final ResultSet rs;
-    private final List<String> columnNames;
+    private final ColumnIndex columnIndex;
+
+    /** the (0-based) index of the column that was read last, or -1 if it is unknown; this is what rs.wasNull() refers to */
+    private int lastReadIdx = -1;
 
     public LiveSqlRow (PrimitiveTypeRegistry primTypes, ResultSet rs) throws SQLException {
         this.primTypes = primTypes;
         this.rs = rs;
-        this.columnNames = new LiveColumnNames(rs);
+        this.columnIndex = new ColumnIndex(rs.getMetaData());
     }
 
     @Override public DetachedSqlRow detach () {
-        return new DetachedSqlRow(rs, AList.from(columnNames()), primTypes);
+        final Object[] values = new Object[columnIndex.columnNames.size()];
+        try {
+            for (int i=0; i<values.length; i++) {
+                values[i] = rs.getObject(i+1);
+            }
+            lastReadIdx = values.length - 1;
+        }
+        catch (SQLException exc) {
+            AUnchecker.throwUnchecked(exc);
+        }
+        // all rows detached from this ResultSet share the same column index
+        return new DetachedSqlRow(columnIndex, values, primTypes);
     }
 
     @Override public List<String> columnNames () {
-        return columnNames;
+        return columnIndex.columnNames;
+    }
+
+    @Override public int indexOf (String columnName) {
+        final int result = columnIndex.indexOf(columnName);
+        if (result < 0) {
+            throw new IllegalArgumentException("no column " + columnName + " - columns are " + columnIndex.columnNames);
+        }
+        return result;
     }
 
     @Override public <T> T get (Class<T> cls, String columnName) {
-        return executeUnchecked(() -> primTypes.fromSql(cls, rs.getObject(columnName)));
+        return executeUnchecked(() -> primTypes.fromSql(cls, getObject(columnName)));
     }
 
     @Override public Object get (String columnName) {
-        return executeUnchecked(() -> primTypes.fromSql(rs.getObject(columnName)));
+        return executeUnchecked(() -> primTypes.fromSql(getObject(columnName)));
     }
 
     @Override public <T> T get (Class<T> cls, int idx) {
-        return executeUnchecked(() -> primTypes.fromSql(cls, rs.getObject(idx+1)));
+        return executeUnchecked(() -> primTypes.fromSql(cls, getObject(idx)));
     }
 
     @Override public Object get (int idx) {
-        return executeUnchecked(() -> primTypes.fromSql(rs.getObject(idx)));
+        return executeUnchecked(() -> primTypes.fromSql(getObject(idx)));
+    }
+
+    @Override public boolean isNull (String columnName) {
+        return executeUnchecked(() -> getObject(columnName) == null);
+    }
+    @Override public boolean isNull (int idx) {
+        return executeUnchecked(() -> getObject(idx) == null);
+    }
+    @Override public boolean wasNull (int idx) {
+        if (idx != lastReadIdx) {
+            // the ResultSet's wasNull() refers to a different column
+            return isNull(idx);
+        }
+        try {
+            return rs.wasNull();
+        }
+        catch (SQLException exc) {
+            AUnchecker.throwUnchecked(exc);
+            return false; // for the compiler
+        }
+    }
+
+    @Override public long getLongValue (String columnName) {
+        try {
+            final int idx = columnIndex.indexOf(columnName);
+            lastReadIdx = idx;
+            return idx >= 0 ? rs.getLong(idx+1) : rs.getLong(columnName);
+        }
+        catch (SQLException exc) {
+            AUnchecker.throwUnchecked(exc);
+            return 0; // for the compiler
+        }
+    }
+    @Override public long getLongValue (int idx) {
+        try {
+            lastReadIdx = idx;
+            return rs.getLong(idx+1);
+        }
+        catch (SQLException exc) {
+            AUnchecker.throwUnchecked(exc);
+            return 0; // for the compiler
+        }
     }
 
-    static class LiveColumnNames extends AbstractList<String> {
-        private final ResultSetMetaData rsMeta;
+    @Override public int getIntValue (String columnName) {
+        try {
+            final int idx = columnIndex.indexOf(columnName);
+            lastReadIdx = idx;
+            return idx >= 0 ? rs.getInt(idx+1) : rs.getInt(columnName);
+        }
+        catch (SQLException exc) {
+            AUnchecker.throwUnchecked(exc);
+            return 0; // for the compiler
+        }
+    }
+    @Override public int getIntValue (int idx) {
+        try {
+            lastReadIdx = idx;
+            return rs.getInt(idx+1);
+        }
+        catch (SQLException exc) {
+            AUnchecker.throwUnchecked(exc);
+            return 0; // for the compiler
+        }
+    }
 
-        LiveColumnNames (ResultSet rs) throws SQLException {
-            this.rsMeta = rs.getMetaData();
+    @Override public double getDoubleValue (String columnName) {
+        try {
+            final int idx = columnIndex.indexOf(columnName);
+            lastReadIdx = idx;
+            return idx >= 0 ? rs.getDouble(idx+1) : rs.getDouble(columnName);
+        }
+        catch (SQLException exc) {
+            AUnchecker.throwUnchecked(exc);
+            return 0; // for the compiler
+        }
+    }
+    @Override public double getDoubleValue (int idx) {
+        try {
+            lastReadIdx = idx;
+            return rs.getDouble(idx+1);
         }
+        catch (SQLException exc) {
+            AUnchecker.throwUnchecked(exc);
+            return 0; // for the compiler
+        }
+    }
 
-        @Override public String get (int index) {
-            return executeUnchecked(() -> rsMeta.getColumnName(index+1));
+    @Override public boolean getBooleanValue (String columnName) {
+        try {
+            final int idx = columnIndex.indexOf(columnName);
+            lastReadIdx = idx;
+            return idx >= 0 ? rs.getBoolean(idx+1) : rs.getBoolean(columnName);
+        }
+        catch (SQLException exc) {
+            AUnchecker.throwUnchecked(exc);
+            return false; // for the compiler
+        }
+    }
+    @Override public boolean getBooleanValue (int idx) {
+        try {
+            lastReadIdx = idx;
+            return rs.getBoolean(idx+1);
         }
+        catch (SQLException exc) {
+            AUnchecker.throwUnchecked(exc);
+            return false; // for the compiler
+        }
+    }
 
-        @Override public int size () {
-            return executeUnchecked(rsMeta::getColumnCount);
+    private Object getObject(String columnName) throws SQLException {
+        final int idx = columnIndex.indexOf(columnName);
+        lastReadIdx = idx;
+        if (idx < 0) {
+            // let the driver resolve the name, and report an unknown column in its own way
+            return rs.getObject(columnName);
         }
+        return rs.getObject(idx+1);
+    }
+
+    private Object getObject(int idx) throws SQLException {
+        lastReadIdx = idx;
+        return rs.getObject(idx+1);
     }
 
     @Override public boolean equals(Object obj) {
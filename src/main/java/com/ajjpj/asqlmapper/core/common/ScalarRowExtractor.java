@@ -1,7 +1,9 @@
 package com.ajjpj.asqlmapper.core.common;
 
 import java.math.BigDecimal;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -37,6 +39,46 @@ public class ScalarRowExtractor implements RowExtractor {
         if (! injectedPropsValues.isEmpty()) {
             log.warn("provided properties ignored for scalar queries");
         }
+        if (mementoPerQuery == Boolean.TRUE) {
+            return readPrimitiveValue(cls, row);
+        }
+        return row.get(cls, 0);
+    }
+
+    /**
+     * @return {@code true} if the result type is handled by its default {@link com.ajjpj.asqlmapper.core.PrimitiveTypeHandler},
+     *  so values can be read through the row's primitive getters
+     */
+    @Override public Object mementoPerQuery (Class<?> cls, PrimitiveTypeRegistry primTypes, ResultSet rs, boolean isStreaming) {
+        return primTypes.hasDefaultHandler(cls);
+    }
+    @Override public Object mementoPerQuery (Class<?> cls, PrimitiveTypeRegistry primTypes, List<String> columnNames, boolean isStreaming) {
+        return primTypes.hasDefaultHandler(cls);
+    }
+
+    /**
+     * Values of the common numeric types are read through the row's primitive getters, bypassing the generic
+     *  (and more expensive) conversion through {@link PrimitiveTypeRegistry}. This is done only if the registry
+     *  still holds the default handler for the type, so application specific handlers take precedence.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T readPrimitiveValue(Class<T> cls, SqlRow row) {
+        if (cls == Long.class) {
+            final long result = row.getLongValue(0);
+            return (result == 0 && row.wasNull(0)) ? null : (T) Long.valueOf(result);
+        }
+        if (cls == Integer.class) {
+            final int result = row.getIntValue(0);
+            return (result == 0 && row.wasNull(0)) ? null : (T) Integer.valueOf(result);
+        }
+        if (cls == Double.class) {
+            final double result = row.getDoubleValue(0);
+            return (result == 0 && row.wasNull(0)) ? null : (T) Double.valueOf(result);
+        }
+        if (cls == Boolean.class) {
+            final boolean result = row.getBooleanValue(0);
+            return (!result && row.wasNull(0)) ? null : (T) Boolean.valueOf(result);
+        }
         return row.get(cls, 0);
     }
 }
@@ -13,6 +13,24 @@ public interface SqlRow {
     }
     List<String> columnNames();
 
+    /**
+     * @return the (zero-based) index of a column, matching names case insensitively if there is no exact match
+     * @throws IllegalArgumentException if there is no column with the given name
+     */
+    default int indexOf(String columnName) {
+        final List<String> columnNames = columnNames();
+        int result = columnNames.indexOf(columnName);
+        for (int i=0; i<columnNames.size() && result < 0; i++) {
+            if (columnNames.get(i).equalsIgnoreCase(columnName)) {
+                result = i;
+            }
+        }
+        if (result < 0) {
+            throw new IllegalArgumentException("no column " + columnName + " - columns are " + columnNames);
+        }
+        return result;
+    }
+
     <T> T get(Class<T> cls, String columnName);
     Object get(String columnName);
 
@@ -43,4 +61,78 @@ public interface SqlRow {
     default Long getLong(int idx) {
         return get(Long.class, idx);
     }
+
+    default Double getDouble(String columnName) {
+        return get(Double.class, columnName);
+    }
+    default Double getDouble(int idx) {
+        return get(Double.class, idx);
+    }
+
+    default Boolean getBoolean(String columnName) {
+        return get(Boolean.class, columnName);
+    }
+    default Boolean getBoolean(int idx) {
+        return get(Boolean.class, idx);
+    }
+
+    /**
+     * @return true if and only if the column's value is SQL NULL. The {@code get...Value} methods return {@code 0} or
+     *  {@code false} for SQL NULL, so this method is needed to distinguish NULL from actual zero values.
+     */
+    default boolean isNull(String columnName) {
+        return get(columnName) == null;
+    }
+    default boolean isNull(int idx) {
+        return isNull(columnNames().get(idx));
+    }
+
+    /**
+     * Checks if the value that was just read from a column through one of the {@code get...Value} methods was SQL NULL.
+     *  It should be called immediately after reading the value: Implementations backed by a ResultSet delegate to
+     *  {@link java.sql.ResultSet#wasNull()} rather than reading the column a second time. If {@code idx} is not the column
+     *  that was read last, they check the column itself like {@link #isNull(int)} does.
+     *
+     * @param idx the index of the column that was just read
+     */
+    default boolean wasNull(int idx) {
+        return isNull(idx);
+    }
+
+    /**
+     * The {@code get...Value} methods return a column's value as a primitive, returning {@code 0} for SQL NULL like
+     *  {@link java.sql.ResultSet#getLong(int)} does. Implementations backed by a ResultSet read values through the
+     *  ResultSet's primitive getters, avoiding the boxing and type conversion overhead of {@link #get(Class, int)}.
+     */
+    default long getLongValue(String columnName) {
+        final Long result = getLong(columnName);
+        return result != null ? result : 0L;
+    }
+    default long getLongValue(int idx) {
+        return getLongValue(columnNames().get(idx));
+    }
+
+    default int getIntValue(String columnName) {
+        final Integer result = getInt(columnName);
+        return result != null ? result : 0;
+    }
+    default int getIntValue(int idx) {
+        return getIntValue(columnNames().get(idx));
+    }
+
+    default double getDoubleValue(String columnName) {
+        final Double result = getDouble(columnName);
+        return result != null ? result : 0.0;
+    }
+    default double getDoubleValue(int idx) {
+        return getDoubleValue(columnNames().get(idx));
+    }
+
+    default boolean getBooleanValue(String columnName) {
+        final Boolean result = getBoolean(columnName);
+        return result != null ? result : false;
+    }
+    default boolean getBooleanValue(int idx) {
+        return getBooleanValue(columnNames().get(idx));
+    }
 }
@@ -0,0 +1,80 @@
+package com.ajjpj.asqlmapper.core.impl;
+
+import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
+
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.ADoubleQuery;
+import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
+import com.ajjpj.asqlmapper.core.RowExtractor;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
+import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
+
+public class ADoubleQueryImpl extends APrimitiveQueryImpl<Double> implements ADoubleQuery {
+    public ADoubleQueryImpl(SqlSnippet sql, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
+                      AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier, AsyncHelper async,
+                      AVector<InjectedProperty> injectedProperties, int defaultFetchSize, StatementCache statementCache, ResultCache resultCache,
+                      int injectedPropertiesParallelism) {
+        super(Double.class, ADoubleQueryImpl::new, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, async, injectedProperties, defaultFetchSize,
+                statementCache, resultCache, injectedPropertiesParallelism);
+    }
+
+    @Override public double[] toDoubleArray() {
+        return toDoubleArray(defaultConnection());
+    }
+    @Override public double[] toDoubleArray(Connection conn) {
+        return doQuery(conn, rs -> executeUnchecked(() -> {
+            double[] result = new double[INITIAL_CAPACITY];
+            int count = 0;
+            while (rs.next()) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, 2*count);
+                }
+                result[count] = rs.getDouble(1);
+                count += 1;
+            }
+            afterIteration(count);
+            return count == result.length ? result : Arrays.copyOf(result, count);
+        }));
+    }
+
+    @Override public DoubleStream doubleStream() {
+        return doubleStream(defaultConnection());
+    }
+    @Override public DoubleStream doubleStream(Connection conn) {
+        return doubleStream(conn, defaultFetchSize());
+    }
+    @Override public DoubleStream doubleStream(int fetchSize) {
+        return doubleStream(defaultConnection(), fetchSize);
+    }
+    @Override public DoubleStream doubleStream(Connection conn, int fetchSize) {
+        final ResultSetSpliterator rss = new ResultSetSpliterator(conn, fetchSize);
+        return StreamSupport.doubleStream(new DoubleResultSetSpliterator(rss), false)
+                .onClose(rss::close);
+    }
+
+    private static class DoubleResultSetSpliterator extends FirstColumnSpliterator<DoubleConsumer> implements Spliterator.OfDouble {
+        DoubleResultSetSpliterator(AQueryImpl<?>.ResultSetSpliterator rss) {
+            super(rss);
+        }
+
+        @Override void accept(DoubleConsumer action, ResultSet rs) throws SQLException {
+            action.accept(rs.getDouble(1));
+        }
+
+        @Override public Spliterator.OfDouble trySplit() {
+            return null;
+        }
+    }
+}
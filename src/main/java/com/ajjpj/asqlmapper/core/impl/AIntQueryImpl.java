@@ -0,0 +1,80 @@
+package com.ajjpj.asqlmapper.core.impl;
+
+import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.AIntQuery;
+import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
+import com.ajjpj.asqlmapper.core.RowExtractor;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
+import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
+
+public class AIntQueryImpl extends APrimitiveQueryImpl<Integer> implements AIntQuery {
+    public AIntQueryImpl(SqlSnippet sql, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
+                      AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier, AsyncHelper async,
+                      AVector<InjectedProperty> injectedProperties, int defaultFetchSize, StatementCache statementCache, ResultCache resultCache,
+                      int injectedPropertiesParallelism) {
+        super(Integer.class, AIntQueryImpl::new, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, async, injectedProperties, defaultFetchSize,
+                statementCache, resultCache, injectedPropertiesParallelism);
+    }
+
+    @Override public int[] toIntArray() {
+        return toIntArray(defaultConnection());
+    }
+    @Override public int[] toIntArray(Connection conn) {
+        return doQuery(conn, rs -> executeUnchecked(() -> {
+            int[] result = new int[INITIAL_CAPACITY];
+            int count = 0;
+            while (rs.next()) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, 2*count);
+                }
+                result[count] = rs.getInt(1);
+                count += 1;
+            }
+            afterIteration(count);
+            return count == result.length ? result : Arrays.copyOf(result, count);
+        }));
+    }
+
+    @Override public IntStream intStream() {
+        return intStream(defaultConnection());
+    }
+    @Override public IntStream intStream(Connection conn) {
+        return intStream(conn, defaultFetchSize());
+    }
+    @Override public IntStream intStream(int fetchSize) {
+        return intStream(defaultConnection(), fetchSize);
+    }
+    @Override public IntStream intStream(Connection conn, int fetchSize) {
+        final ResultSetSpliterator rss = new ResultSetSpliterator(conn, fetchSize);
+        return StreamSupport.intStream(new IntResultSetSpliterator(rss), false)
+                .onClose(rss::close);
+    }
+
+    private static class IntResultSetSpliterator extends FirstColumnSpliterator<IntConsumer> implements Spliterator.OfInt {
+        IntResultSetSpliterator(AQueryImpl<?>.ResultSetSpliterator rss) {
+            super(rss);
+        }
+
+        @Override void accept(IntConsumer action, ResultSet rs) throws SQLException {
+            action.accept(rs.getInt(1));
+        }
+
+        @Override public Spliterator.OfInt trySplit() {
+            return null;
+        }
+    }
+}
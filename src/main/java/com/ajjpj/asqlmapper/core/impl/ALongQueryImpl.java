@@ -0,0 +1,80 @@
+package com.ajjpj.asqlmapper.core.impl;
+
+import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.ALongQuery;
+import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
+import com.ajjpj.asqlmapper.core.RowExtractor;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
+import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
+
+public class ALongQueryImpl extends APrimitiveQueryImpl<Long> implements ALongQuery {
+    public ALongQueryImpl(SqlSnippet sql, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
+                      AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier, AsyncHelper async,
+                      AVector<InjectedProperty> injectedProperties, int defaultFetchSize, StatementCache statementCache, ResultCache resultCache,
+                      int injectedPropertiesParallelism) {
+        super(Long.class, ALongQueryImpl::new, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, async, injectedProperties, defaultFetchSize,
+                statementCache, resultCache, injectedPropertiesParallelism);
+    }
+
+    @Override public long[] toLongArray() {
+        return toLongArray(defaultConnection());
+    }
+    @Override public long[] toLongArray(Connection conn) {
+        return doQuery(conn, rs -> executeUnchecked(() -> {
+            long[] result = new long[INITIAL_CAPACITY];
+            int count = 0;
+            while (rs.next()) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, 2*count);
+                }
+                result[count] = rs.getLong(1);
+                count += 1;
+            }
+            afterIteration(count);
+            return count == result.length ? result : Arrays.copyOf(result, count);
+        }));
+    }
+
+    @Override public LongStream longStream() {
+        return longStream(defaultConnection());
+    }
+    @Override public LongStream longStream(Connection conn) {
+        return longStream(conn, defaultFetchSize());
+    }
+    @Override public LongStream longStream(int fetchSize) {
+        return longStream(defaultConnection(), fetchSize);
+    }
+    @Override public LongStream longStream(Connection conn, int fetchSize) {
+        final ResultSetSpliterator rss = new ResultSetSpliterator(conn, fetchSize);
+        return StreamSupport.longStream(new LongResultSetSpliterator(rss), false)
+                .onClose(rss::close);
+    }
+
+    private static class LongResultSetSpliterator extends FirstColumnSpliterator<LongConsumer> implements Spliterator.OfLong {
+        LongResultSetSpliterator(AQueryImpl<?>.ResultSetSpliterator rss) {
+            super(rss);
+        }
+
+        @Override void accept(LongConsumer action, ResultSet rs) throws SQLException {
+            action.accept(rs.getLong(1));
+        }
+
+        @Override public Spliterator.OfLong trySplit() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.ajjpj.asqlmapper.core.impl;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.function.Supplier;
+
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
+import com.ajjpj.asqlmapper.core.RowExtractor;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
+import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
+
+/**
+ * Common plumbing for queries of a single column of primitive values that can be read into primitive arrays and streams
+ *  without boxing. Subclasses contribute only the typed array and stream methods.
+ */
+abstract class APrimitiveQueryImpl<T> extends AQueryImpl<T> {
+    static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * creates a modified copy of a query, typically a subclass' constructor
+     */
+    interface Factory<T> {
+        AQueryImpl<T> create(SqlSnippet sql, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
+                             AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier, AsyncHelper async,
+                             AVector<InjectedProperty> injectedProperties, int defaultFetchSize, StatementCache statementCache, ResultCache resultCache,
+                             int injectedPropertiesParallelism);
+    }
+
+    private final Factory<T> factory;
+
+    APrimitiveQueryImpl(Class<T> cls, Factory<T> factory, SqlSnippet sql, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
+                        AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier, AsyncHelper async,
+                        AVector<InjectedProperty> injectedProperties, int defaultFetchSize, StatementCache statementCache, ResultCache resultCache,
+                        int injectedPropertiesParallelism) {
+        super(cls, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, async, injectedProperties, defaultFetchSize,
+                statementCache, resultCache, injectedPropertiesParallelism);
+        this.factory = factory;
+    }
+
+    @Override protected AQueryImpl<T> build(Class<T> cls, SqlSnippet sql, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
+                                            AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier,
+                                            AsyncHelper async,
+                                            AVector<InjectedProperty> injectedProperties, int defaultFetchSize, StatementCache statementCache, ResultCache resultCache,
+                                            int injectedPropertiesParallelism) {
+        return factory.create(sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, async, injectedProperties,
+                defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
+    }
+
+    /**
+     * Reads the first column of a {@link ResultSetSpliterator}'s rows without mapping them. Subclasses implement the
+     *  primitive {@link Spliterator} interface for the consumer type {@code C}.
+     */
+    abstract static class FirstColumnSpliterator<C> {
+        private final AQueryImpl<?>.ResultSetSpliterator rss;
+
+        FirstColumnSpliterator(AQueryImpl<?>.ResultSetSpliterator rss) {
+            this.rss = rss;
+        }
+
+        /**
+         * passes the value of the current row's first column to a consumer
+         */
+        abstract void accept(C action, ResultSet rs) throws SQLException;
+
+        public boolean tryAdvance(C action) {
+            if (!rss.next()) {
+                return false;
+            }
+
+            try {
+                accept(action, rss.resultSet());
+                return true;
+            }
+            catch (Throwable th) {
+                rss.fail(th);
+                return false; // dead code - for the compiler
+            }
+        }
+
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+        public int characteristics() {
+            return Spliterator.ORDERED;
+        }
+    }
+}
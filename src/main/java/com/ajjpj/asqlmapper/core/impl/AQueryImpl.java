@@ -6,8 +6,21 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -19,13 +32,17 @@ import com.ajjpj.acollections.AList;
 import com.ajjpj.acollections.immutable.AVector;
 import com.ajjpj.acollections.util.AOption;
 import com.ajjpj.acollections.util.AUnchecker;
+import com.ajjpj.asqlmapper.core.AFlow;
 import com.ajjpj.asqlmapper.core.AQuery;
+import com.ajjpj.asqlmapper.core.ConnectionProvider;
 import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
 import com.ajjpj.asqlmapper.core.RowExtractor;
 import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.DetachedSqlRow;
 import com.ajjpj.asqlmapper.core.common.LiveSqlRow;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
+import com.ajjpj.asqlmapper.core.injectedproperties.OwningRows;
 import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
 
 public class AQueryImpl<T> implements AQuery<T> {
@@ -35,26 +52,38 @@ public class AQueryImpl<T> implements AQuery<T> {
     private final RowExtractor rowExtractor;
     private final AVector<SqlEngineEventListener> listeners;
     private final AOption<Supplier<Connection>> defaultConnectionSupplier;
+    private final AsyncHelper async;
     private final AVector<InjectedProperty> injectedProperties;
     private final int defaultFetchSize;
+    private final StatementCache statementCache;
+    private final ResultCache resultCache;
+    private final int injectedPropertiesParallelism;
 
     public AQueryImpl(Class<T> cls, SqlSnippet sql, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
-                      AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier,
-                      AVector<InjectedProperty> injectedProperties, int defaultFetchSize) {
+                      AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier, AsyncHelper async,
+                      AVector<InjectedProperty> injectedProperties, int defaultFetchSize, StatementCache statementCache, ResultCache resultCache,
+                      int injectedPropertiesParallelism) {
         this.rowClass = cls;
         this.sql = sql;
         this.primTypes = primTypes;
         this.rowExtractor = rowExtractor;
         this.listeners = listeners;
         this.defaultConnectionSupplier = defaultConnectionSupplier;
+        this.async = async;
         this.injectedProperties = injectedProperties;
         this.defaultFetchSize = defaultFetchSize;
+        this.statementCache = statementCache;
+        this.resultCache = resultCache;
+        this.injectedPropertiesParallelism = injectedPropertiesParallelism;
     }
 
     protected AQueryImpl<T> build(Class<T> cls, SqlSnippet sql, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
                                   AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier,
-                                  AVector<InjectedProperty> injectedProperties, int defaultFetchSize) {
-        return new AQueryImpl<>(cls, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, injectedProperties, defaultFetchSize);
+                                  AsyncHelper async,
+                                  AVector<InjectedProperty> injectedProperties, int defaultFetchSize, StatementCache statementCache, ResultCache resultCache,
+                                  int injectedPropertiesParallelism) {
+        return new AQueryImpl<>(cls, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, async, injectedProperties, defaultFetchSize,
+                statementCache, resultCache, injectedPropertiesParallelism);
     }
 
     @Override public AQuery<T> withInjectedProperty(InjectedProperty injectedProperty) {
@@ -62,62 +91,241 @@ public class AQueryImpl<T> implements AQuery<T> {
             throw new IllegalArgumentException("attempted to add a second injected property with name " + injectedProperty.propertyName());
         }
 
-        return build(rowClass, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, injectedProperties.append(injectedProperty), defaultFetchSize);
+        return build(rowClass, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, async,
+                injectedProperties.append(injectedProperty), defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
+    }
+
+    protected Class<T> rowClass() {
+        return rowClass;
+    }
+    protected SqlSnippet sql() {
+        return sql;
+    }
+    protected AVector<InjectedProperty> injectedProperties() {
+        return injectedProperties;
+    }
+
+    @Override public AQuery<T> cached(Duration ttl) {
+        return new CachedQuery<>(this, sql, rowClass, injectedProperties.map(InjectedProperty::propertyName), resultCache, listeners, defaultConnectionSupplier, async, ttl);
     }
 
     @Override public T single() {
         return single(defaultConnection());
     }
 
-    private Connection defaultConnection() {
+    Connection defaultConnection() {
         return defaultConnectionSupplier
                 .orElseThrow(() -> new IllegalStateException("no default connection supplier was configured"))
                 .get();
     }
 
     @Override public T single(Connection conn) {
-        return doQuery(conn, rs -> executeUnchecked(() -> {
-            if (!rs.next()) {
-                throw new NoSuchElementException("no result");
-            }
-            final Object memento = rowExtractor.mementoPerQuery(rowClass, primTypes, rs, false);
-            final T result = doExtract(conn, new LiveSqlRow(primTypes, rs), memento, false, injectedPropertyMementos(conn));
-            if (rs.next()) {
-                throw new IllegalStateException("more than one result row");
+        return doQuery(conn, (rs, queryNanos) -> executeUnchecked(() -> {
+            try (RowCursor cursor = new RowCursor(conn, rs, queryNanos)) {
+                if (!cursor.next()) {
+                    throw new NoSuchElementException("no result");
+                }
+                final Object memento = rowExtractor.mementoPerQuery(rowClass, primTypes, rs, false);
+                final T result = doExtract(conn, cursor.row(), memento, false, cursor.injectedPropsMementos());
+                if (cursor.next()) {
+                    throw new IllegalStateException("more than one result row");
+                }
+                afterIteration(1);
+                return result;
             }
-            afterIteration(1);
-            return result;
         }));
     }
 
     private Map<String, Object> injectedPropertyMementos(Connection conn) {
+        return injectedPropertyMementos(conn, null);
+    }
+
+    /**
+     * @param owningRows the query's rows if they were read before mapping, or null otherwise
+     */
+    private Map<String, Object> injectedPropertyMementos(Connection conn, OwningRows owningRows) {
         if (injectedProperties.isEmpty()) {
             return Collections.emptyMap();
         }
 
+        final BiFunction<Connection, InjectedProperty<?>, Object> loader = (c, ip) ->
+                owningRows != null ? ip.mementoPerQuery(c, rowClass, sql, owningRows) : ip.mementoPerQuery(c, rowClass, sql);
+        if (injectedPropertiesParallelism > 1 && injectedProperties.size() > 1) {
+            return injectedPropertyMementosInParallel(conn, loader);
+        }
+
         final Map<String, Object> result = new HashMap<>();
         for (InjectedProperty<?> ip : injectedProperties) {
-            result.put(ip.propertyName(), ip.mementoPerQuery(conn, rowClass, sql));
+            result.put(ip.propertyName(), loader.apply(conn, ip));
         }
         return result;
     }
 
-    private void afterIteration(int numRows) {
+    /**
+     * Loads injected properties' mementos with up to {@link #injectedPropertiesParallelism} workers: the calling thread using
+     *  the query's connection, and additional workers on the async executor, each with a connection from the async connection
+     *  provider that it acquires and releases on the executor's thread. Workers take injected properties from a shared queue,
+     *  so a failure stops all workers from starting further injected properties. This method waits for all workers to finish before it returns or rethrows a failure, so no
+     *  connection is used after it returns.<p>
+     *
+     * Workers' connections are released as soon as they are done, so mementos that {@link InjectedProperty#mementoKeepsConnection()
+     *  keep using their connection} (e.g. merge join cursors) are created by the calling thread with the query's connection.
+     */
+    private Map<String, Object> injectedPropertyMementosInParallel(Connection conn, BiFunction<Connection, InjectedProperty<?>, Object> loader) {
+        final Executor executor = async.executor();
+        final ConnectionProvider connectionProvider = async.connectionProvider();
+
+        final Queue<InjectedProperty<?>> pending = new ConcurrentLinkedQueue<>();
+        final Queue<InjectedProperty<?>> onQueryConnection = new ArrayDeque<>();
+        for (InjectedProperty<?> ip : injectedProperties) {
+            (ip.mementoKeepsConnection() ? onQueryConnection : pending).add(ip);
+        }
+        final Map<String, Object> result = Collections.synchronizedMap(new HashMap<>());
+        final AtomicBoolean failed = new AtomicBoolean(false);
+
+        final BiConsumer<Connection, Queue<InjectedProperty<?>>> worker = (c, queue) -> {
+            InjectedProperty<?> ip;
+            while (!failed.get() && (ip = queue.poll()) != null) {
+                try {
+                    result.put(ip.propertyName(), loader.apply(c, ip));
+                }
+                catch (Throwable th) {
+                    failed.set(true);
+                    throw th;
+                }
+            }
+        };
+
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        final int numAsyncWorkers = Math.min(injectedPropertiesParallelism - 1, pending.size() - (onQueryConnection.isEmpty() ? 1 : 0));
+        for (int i=0; i<numAsyncWorkers; i++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                if (!failed.get() && !pending.isEmpty()) {
+                    AsyncHelper.withConnection(connectionProvider, c -> {
+                        worker.accept(c, pending);
+                        return null;
+                    });
+                }
+            }, executor));
+        }
+
+        Throwable failure = null;
+        try {
+            worker.accept(conn, onQueryConnection);
+            worker.accept(conn, pending);
+        }
+        catch (Throwable th) {
+            failure = th;
+        }
+        for (CompletableFuture<Void> f : futures) {
+            if (failed.get()) {
+                f.cancel(false);
+            }
+            try {
+                f.join();
+            }
+            catch (CompletionException exc) {
+                if (failure == null) {
+                    failure = exc.getCause() != null ? exc.getCause() : exc;
+                }
+            }
+            catch (CancellationException exc) {
+                // the worker was not started because another one failed
+            }
+        }
+
+        if (failure != null) {
+            AUnchecker.throwUnchecked(failure);
+        }
+        return result;
+    }
+
+    /**
+     * Iterates over a query's rows. If an injected property {@link InjectedProperty#wantsOwningRows(SqlSnippet) wants the owning rows},
+     *  all rows are read and detached before the first one is returned, and they are passed to the injected properties.
+     *  Injected properties' mementos are created lazily, so no related data is loaded for empty results, and they are closed
+     *  with the cursor.
+     */
+    private class RowCursor implements AutoCloseable {
+        private final Connection conn;
+        private final ResultSet rs;
+        private final LiveSqlRow liveRow;
+        private final OwningRows owningRows;
+        private int bufferIdx = -1;
+        private Map<String, Object> injectedPropsMementos;
+
+        RowCursor(Connection conn, ResultSet rs, long queryNanos) throws SQLException {
+            this.conn = conn;
+            this.rs = rs;
+            this.liveRow = new LiveSqlRow(primTypes, rs);
+
+            if (injectedProperties.exists(p -> p.wantsOwningRows(sql))) {
+                final List<SqlRow> rows = new ArrayList<>();
+                while (rs.next()) {
+                    rows.add(liveRow.detach());
+                }
+                this.owningRows = new OwningRows(rows, queryNanos);
+                listeners.reverseIterator().forEachRemaining(l -> l.onOwningRowsRead(sql, rows.size(), queryNanos));
+            }
+            else {
+                this.owningRows = null;
+            }
+        }
+
+        boolean next() throws SQLException {
+            if (owningRows == null) {
+                return rs.next();
+            }
+            bufferIdx += 1;
+            return bufferIdx < owningRows.rows().size();
+        }
+
+        SqlRow row() {
+            return owningRows == null ? liveRow : owningRows.rows().get(bufferIdx);
+        }
+
+        Map<String, Object> injectedPropsMementos() {
+            if (injectedPropsMementos == null) {
+                injectedPropsMementos = injectedPropertyMementos(conn, owningRows);
+            }
+            return injectedPropsMementos;
+        }
+
+        @Override public void close() {
+            InjectedProperty.closeMementos(injectedPropsMementos);
+        }
+    }
+
+    void afterIteration(int numRows) {
         listeners.reverseIterator().forEachRemaining(l -> l.onAfterQueryIteration(numRows));
     }
 
-    private <X> X doQuery(Connection conn, Function<ResultSet, X> resultHandler) {
+    <X> X doQuery(Connection conn, Function<ResultSet, X> resultHandler) {
+        return doQuery(conn, (rs, queryNanos) -> resultHandler.apply(rs));
+    }
+
+    /**
+     * @param resultHandler is passed the ResultSet and the time it took to execute the query in nanoseconds
+     */
+    <X> X doQuery(Connection conn, BiFunction<ResultSet, Long, X> resultHandler) {
         listeners.forEach(l -> l.onBeforeQuery(sql, rowClass));
         try {
-            final PreparedStatement ps = conn.prepareStatement(sql.getSql());
+            final PreparedStatement ps = statementCache.prepare(conn, sql.getSql(), listeners);
+            ResultSet rs = null;
+            boolean success = false;
             try {
                 SqlHelper.bindParameters(ps, sql.getParams(), primTypes);
-                final ResultSet rs = ps.executeQuery();
+                final long startNanos = System.nanoTime();
+                rs = ps.executeQuery();
+                final long queryNanos = System.nanoTime() - startNanos;
                 listeners.reverseIterator().forEachRemaining(SqlEngineEventListener::onAfterQueryExecution);
-                return resultHandler.apply(rs);
+                final X result = resultHandler.apply(rs, queryNanos);
+                success = true;
+                return result;
             }
             finally {
-                SqlHelper.closeQuietly(ps);
+                SqlHelper.closeQuietly(rs);
+                statementCache.release(ps, success);
             }
         }
         catch (Throwable th) {
@@ -132,18 +340,20 @@ public class AQueryImpl<T> implements AQuery<T> {
     }
 
     @Override public AOption<T> optional(Connection conn) {
-        return doQuery(conn, rs -> executeUnchecked(() -> {
-            if (!rs.next()) {
-                afterIteration(0);
-                return AOption.empty();
-            }
-            final Object memento = rowExtractor.mementoPerQuery(rowClass, primTypes, rs, false);
-            final T result = doExtract(conn, new LiveSqlRow(primTypes, rs), memento, false, injectedPropertyMementos(conn));
-            if (rs.next()) {
-                throw new IllegalStateException("more than one result row");
+        return doQuery(conn, (rs, queryNanos) -> executeUnchecked(() -> {
+            try (RowCursor cursor = new RowCursor(conn, rs, queryNanos)) {
+                if (!cursor.next()) {
+                    afterIteration(0);
+                    return AOption.empty();
+                }
+                final Object memento = rowExtractor.mementoPerQuery(rowClass, primTypes, rs, false);
+                final T result = doExtract(conn, cursor.row(), memento, false, cursor.injectedPropsMementos());
+                if (cursor.next()) {
+                    throw new IllegalStateException("more than one result row");
+                }
+                afterIteration(1);
+                return AOption.some(result);
             }
-            afterIteration(1);
-            return AOption.some(result);
         }));
     }
 
@@ -152,15 +362,17 @@ public class AQueryImpl<T> implements AQuery<T> {
     }
 
     @Override public AOption<T> first(Connection conn) {
-        return doQuery(conn, rs -> executeUnchecked(() -> {
-            if (!rs.next()) {
-                afterIteration(0);
-                return AOption.empty();
+        return doQuery(conn, (rs, queryNanos) -> executeUnchecked(() -> {
+            try (RowCursor cursor = new RowCursor(conn, rs, queryNanos)) {
+                if (!cursor.next()) {
+                    afterIteration(0);
+                    return AOption.empty();
+                }
+                final Object memento = rowExtractor.mementoPerQuery(rowClass, primTypes, rs, false);
+                final T result = doExtract(conn, cursor.row(), memento, false, cursor.injectedPropsMementos());
+                afterIteration(1);
+                return AOption.some(result);
             }
-            final Object memento = rowExtractor.mementoPerQuery(rowClass, primTypes, rs, false);
-            final T result = doExtract(conn, new LiveSqlRow(primTypes, rs), memento, false, injectedPropertyMementos(conn));
-            afterIteration(1);
-            return AOption.some(result);
         }));
     }
 
@@ -168,17 +380,17 @@ public class AQueryImpl<T> implements AQuery<T> {
         return collect(defaultConnection(), collector);
     }
     @Override public <R,A> R collect(Connection conn, Collector<T, A, R> collector) {
-        return doQuery(conn, rs -> executeUnchecked(() -> {
+        return doQuery(conn, (rs, queryNanos) -> executeUnchecked(() -> {
             final A acc = collector.supplier().get();
             int count = 0;
 
             final Object memento = rowExtractor.mementoPerQuery(rowClass, primTypes, rs, false);
-            final Map<String, Object> injectedPropsMementos = injectedPropertyMementos(conn);
-            final LiveSqlRow row = new LiveSqlRow(primTypes, rs);
-            while (rs.next()) {
-                final T el = doExtract(conn, row, memento, false, injectedPropsMementos);
-                collector.accumulator().accept(acc, el);
-                count += 1;
+            try (RowCursor cursor = new RowCursor(conn, rs, queryNanos)) {
+                while (cursor.next()) {
+                    final T el = doExtract(conn, cursor.row(), memento, false, cursor.injectedPropsMementos());
+                    collector.accumulator().accept(acc, el);
+                    count += 1;
+                }
             }
             afterIteration(count);
             return collector.finisher().apply(acc);
@@ -192,6 +404,22 @@ public class AQueryImpl<T> implements AQuery<T> {
         return collect(conn, AVector.streamCollector());
     }
 
+    @Override public CompletableFuture<T> singleAsync() {
+        return async.supplyAsync(this::single);
+    }
+    @Override public CompletableFuture<AOption<T>> optionalAsync() {
+        return async.supplyAsync(this::optional);
+    }
+    @Override public CompletableFuture<AOption<T>> firstAsync() {
+        return async.supplyAsync(this::first);
+    }
+    @Override public CompletableFuture<AList<T>> listAsync() {
+        return async.supplyAsync(this::list);
+    }
+    @Override public <R, A> CompletableFuture<R> collectAsync(Collector<T, A, R> collector) {
+        return async.supplyAsync(conn -> collect(conn, collector));
+    }
+
     private Map<String, Object> injectedPropsValuesForRow(Connection conn, SqlRow currentRow, Map<String, Object> injectedPropsMementos) {
         if (injectedProperties.isEmpty()) {
             return Collections.emptyMap();
@@ -206,7 +434,7 @@ public class AQueryImpl<T> implements AQuery<T> {
         return result;
     }
 
-    private T doExtract(Connection conn, LiveSqlRow row, Object memento, boolean isStreaming, Map<String, Object> injectedPropsMementos) throws SQLException {
+    private T doExtract(Connection conn, SqlRow row, Object memento, boolean isStreaming, Map<String, Object> injectedPropsMementos) throws SQLException {
         final Map<String, Object> injectedPropsValues = injectedPropsValuesForRow(conn, row, injectedPropsMementos);
         return rowExtractor.fromSql(rowClass, primTypes, row, memento, isStreaming, injectedPropsValues);
     }
@@ -231,11 +459,49 @@ public class AQueryImpl<T> implements AQuery<T> {
         return stream(defaultConnection(), fetchSize);
     }
     @Override public Stream<T> stream(Connection conn, int fetchSize) {
-        final ResultSetSpliterator rss = new ResultSetSpliterator(conn, fetchSize);
+        return stream(conn, fetchSize, fetchSize);
+    }
+    @Override public Stream<T> stream(int fetchSize, int splitBatchSize) {
+        return stream(defaultConnection(), fetchSize, splitBatchSize);
+    }
+    @Override public Stream<T> stream(Connection conn, int fetchSize, int splitBatchSize) {
+        final ResultSetSpliterator rss = new ResultSetSpliterator(conn, fetchSize, splitBatchSize);
         return StreamSupport.stream(rss, false)
                 .onClose(rss::close);
     }
 
+    @Override public AFlow.Publisher<T> publish() {
+        return publish(defaultConnection());
+    }
+    @Override public AFlow.Publisher<T> publish(Connection conn) {
+        return publish(conn, defaultFetchSize);
+    }
+    @Override public AFlow.Publisher<T> publish(int fetchSize) {
+        return publish(defaultConnection(), fetchSize);
+    }
+    @Override public AFlow.Publisher<T> publish(Connection conn, int fetchSize) {
+        return subscriber -> {
+            Objects.requireNonNull(subscriber, "subscriber must not be null");
+            final ResultSetSpliterator rss = new ResultSetSpliterator(conn, fetchSize);
+            subscriber.onSubscribe(new ResultSetSubscription<>(rss, rss::close, subscriber));
+        };
+    }
+
+    @Override public Stream<T> streamWithPrefetch() {
+        return streamWithPrefetch(defaultConnection());
+    }
+    @Override public Stream<T> streamWithPrefetch(Connection conn) {
+        return streamWithPrefetch(conn, defaultFetchSize);
+    }
+    @Override public Stream<T> streamWithPrefetch(int fetchSize) {
+        return streamWithPrefetch(defaultConnection(), fetchSize);
+    }
+    @Override public Stream<T> streamWithPrefetch(Connection conn, int fetchSize) {
+        final PrefetchingSpliterator spliterator = new PrefetchingSpliterator(conn, fetchSize);
+        return StreamSupport.stream(spliterator, false)
+                .onClose(spliterator::close);
+    }
+
     @Override public void forEach(Consumer<T> consumer) {
         forEach(defaultConnection(), consumer);
     }
@@ -252,6 +518,21 @@ public class AQueryImpl<T> implements AQuery<T> {
 
     }
 
+    @Override public void forEachWithPrefetch(Consumer<T> consumer) {
+        forEachWithPrefetch(defaultConnection(), consumer);
+    }
+    @Override public void forEachWithPrefetch(Connection conn, Consumer<T> consumer) {
+        forEachWithPrefetch(conn, defaultFetchSize, consumer);
+    }
+    @Override public void forEachWithPrefetch(int fetchSize, Consumer<T> consumer) {
+        forEachWithPrefetch(defaultConnection(), fetchSize, consumer);
+    }
+    @Override public void forEachWithPrefetch(Connection conn, int fetchSize, Consumer<T> consumer) {
+        try (Stream<T> s = streamWithPrefetch(conn, fetchSize)) {
+            s.forEach(consumer);
+        }
+    }
+
     @Override public void forEachWithRowAccess(BiConsumer<T, SqlRow> consumer) {
         forEachWithRowAccess(defaultConnection(), consumer);
     }
@@ -268,25 +549,82 @@ public class AQueryImpl<T> implements AQuery<T> {
         }
     }
 
+    @Override public Stream<Map.Entry<T, SqlRow>> streamWithRowAccess(Connection conn) {
+        return streamWithRowAccess(conn, defaultFetchSize);
+    }
+    @Override public Stream<Map.Entry<T, SqlRow>> streamWithRowAccess(Connection conn, int fetchSize) {
+        final ResultSetSpliterator rss = new ResultSetSpliterator(conn, fetchSize);
+        return StreamSupport.stream(rss, false)
+                .onClose(rss::close)
+                .map(el -> new AbstractMap.SimpleImmutableEntry<>(el, rss.getCurrentRow()));
+    }
+
+    @Override public Stream<T> streamInWindows(int windowSize) {
+        return streamInWindows(defaultConnection(), windowSize);
+    }
+    @Override public Stream<T> streamInWindows(Connection conn, int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("window size must be positive");
+        }
+        final WindowedSpliterator spliterator = new WindowedSpliterator(conn, windowSize);
+        return StreamSupport.stream(spliterator, false)
+                .onClose(spliterator::close);
+    }
+
+    @Override public void forEachInWindows(int windowSize, Consumer<T> consumer) {
+        forEachInWindows(defaultConnection(), windowSize, consumer);
+    }
+    @Override public void forEachInWindows(Connection conn, int windowSize, Consumer<T> consumer) {
+        try (Stream<T> s = streamInWindows(conn, windowSize)) {
+            s.forEach(consumer);
+        }
+    }
+
     //TODO fail if injected properties are present
     //TODO special handling - 'raw' --> ohne zusätzliches Mapping, nur Wrapper --> rowExtractor == RawRowExtractor.INSTANCE
 
-    private class ResultSetSpliterator implements Spliterator<T> {
+    int defaultFetchSize() {
+        return defaultFetchSize;
+    }
+
+    class ResultSetSpliterator implements Spliterator<T> {
         private final Connection conn;
         private final int fetchSize;
+        private final int splitBatchSize;
+        private final boolean injectedPropsPerQuery;
         private PreparedStatement ps;
         private ResultSet rs;
         private LiveSqlRow row;
         private Object memento;
         private Map<String, Object> injectedPropsMementos;
+        private long queryNanos;
         private int numRows = 0;
+        /** the statement's fetch size before it was set for this query, restored before the statement goes back to the cache */
+        private int previousFetchSize;
 
         private boolean started = false;
         private boolean closed = false;
 
         ResultSetSpliterator(Connection conn, int fetchSize) {
+            this(conn, fetchSize, 0);
+        }
+
+        /**
+         * @param splitBatchSize the number of rows read from the ResultSet per {@link #trySplit()}, or 0 to disable splitting
+         */
+        ResultSetSpliterator(Connection conn, int fetchSize, int splitBatchSize) {
+            this(conn, fetchSize, splitBatchSize, true);
+        }
+
+        /**
+         * @param injectedPropsPerQuery false if the caller takes care of injected properties, so their mementos are not
+         *                              created when the query is executed
+         */
+        ResultSetSpliterator(Connection conn, int fetchSize, int splitBatchSize, boolean injectedPropsPerQuery) {
             this.conn = conn;
             this.fetchSize = fetchSize;
+            this.splitBatchSize = splitBatchSize;
+            this.injectedPropsPerQuery = injectedPropsPerQuery;
         }
 
         SqlRow getCurrentRow() {
@@ -307,24 +645,31 @@ public class AQueryImpl<T> implements AQuery<T> {
 
             try {
                 listeners.forEach(l -> l.onBeforeQuery(sql, rowClass));
-                ps = conn.prepareStatement(sql.getSql());
+                ps = statementCache.prepare(conn, sql.getSql(), listeners);
+                previousFetchSize = ps.getFetchSize();
                 ps.setFetchSize(fetchSize);
             }
             catch (Throwable th) {
+                statementCache.release(ps, false);
+                ps = null;
                 listeners.reverseIterator().forEachRemaining(l -> l.onFailed(th));
                 AUnchecker.throwUnchecked(th);
                 throw new Error(); // for the compiler
             }
             try {
                 SqlHelper.bindParameters(ps, sql.getParams(), primTypes);
+                final long startNanos = System.nanoTime();
                 rs = ps.executeQuery();
+                queryNanos = System.nanoTime() - startNanos;
                 row = new LiveSqlRow(primTypes, rs);
                 listeners.reverseIterator().forEachRemaining(SqlEngineEventListener::onAfterQueryExecution);
                 memento = rowExtractor.mementoPerQuery(rowClass, primTypes, rs, true);
-                injectedPropsMementos = injectedPropertyMementos(conn);
+                if (injectedPropsPerQuery) {
+                    injectedPropsMementos = injectedPropertyMementos(conn);
+                }
             }
             catch (Throwable th) {
-                releaseResources();
+                releaseResources(false);
                 listeners.reverseIterator().forEachRemaining(l -> l.onFailed(th));
                 AUnchecker.throwUnchecked(th);
                 throw new Error(); // for the compiler
@@ -332,6 +677,29 @@ public class AQueryImpl<T> implements AQuery<T> {
         }
 
         @Override public boolean tryAdvance(Consumer<? super T> action) {
+            if (!next()) {
+                return false;
+            }
+
+            try {
+                action.accept(doExtract(conn, row, memento, true, injectedPropsMementos));
+                return true;
+            }
+            catch (Throwable th) {
+                fail(th);
+                return false; // dead code - for the compiler
+            }
+        }
+
+        /**
+         * Moves the cursor to the next row, closing it after the last row.
+         *
+         * @return false if there are no more rows
+         */
+        boolean next() {
+            if (closed) {
+                return false;
+            }
             startLazily();
 
             try {
@@ -340,19 +708,34 @@ public class AQueryImpl<T> implements AQuery<T> {
                     return false;
                 }
                 numRows += 1;
-                action.accept(doExtract(conn, row, memento, true, injectedPropsMementos));
                 return true;
             }
             catch (Throwable th) {
-                listeners.reverseIterator().forEachRemaining(l -> l.onFailed(th));
-                releaseResources();
-                AUnchecker.throwUnchecked(th);
+                fail(th);
                 return false; // dead code - for the compiler
             }
         }
 
-        private void close() {
-            releaseResources();
+        /**
+         * @return the underlying ResultSet, positioned at the current row; this is for reading values without mapping them
+         */
+        ResultSet resultSet() {
+            return rs;
+        }
+
+        /**
+         * Notifies the listeners of a failure and releases all resources. The spliterator counts as closed afterwards, so a
+         *  later {@link #close()} does not report the iteration as finished.
+         */
+        void fail(Throwable th) {
+            closed = true;
+            listeners.reverseIterator().forEachRemaining(l -> l.onFailed(th));
+            releaseResources(false);
+            AUnchecker.throwUnchecked(th);
+        }
+
+        void close() {
+            releaseResources(true);
             if (!closed) {
                 //only call this once
                 afterIteration(numRows);
@@ -360,11 +743,368 @@ public class AQueryImpl<T> implements AQuery<T> {
             closed = true;
         }
 
-        private void releaseResources() {
-            SqlHelper.closeQuietly(rs);
-            SqlHelper.closeQuietly(ps);
-            rs = null;
-            ps = null;
+        private void releaseResources(boolean reusable) {
+            try {
+                InjectedProperty.closeMementos(injectedPropsMementos);
+            }
+            finally {
+                injectedPropsMementos = null;
+                SqlHelper.closeQuietly(rs);
+                statementCache.release(ps, reusable && restoreFetchSize());
+                rs = null;
+                ps = null;
+            }
+        }
+
+        /**
+         * @return false if the statement's fetch size could not be restored, so the statement must not be reused
+         */
+        private boolean restoreFetchSize() {
+            if (ps == null) {
+                return true;
+            }
+            try {
+                ps.setFetchSize(previousFetchSize);
+                return true;
+            }
+            catch (SQLException exc) {
+                return false;
+            }
+        }
+
+        /**
+         * Reading from the ResultSet is inherently sequential, but mapping rows can be expensive. So for parallel streams,
+         *  this method reads a batch of rows, detaching them from the ResultSet, and returns a spliterator that maps them
+         *  independently of the ResultSet. The batch is a prefix of the remaining rows, so encounter order is preserved.<p>
+         *
+         * Injected properties' values are resolved here, i.e. by the thread that currently owns the ResultSet, because that
+         *  can involve the query's connection, and JDBC connections are not thread safe.
+         */
+        @Override public Spliterator<T> trySplit() {
+            if (splitBatchSize <= 0) {
+                return null;
+            }
+
+            final DetachedRow[] batch = new DetachedRow[splitBatchSize];
+            int numInBatch = 0;
+            while (numInBatch < splitBatchSize && next()) {
+                try {
+                    final DetachedSqlRow detached = row.detach();
+                    batch[numInBatch] = new DetachedRow(detached, injectedPropsValuesForRow(conn, detached, injectedPropsMementos));
+                    numInBatch += 1;
+                }
+                catch (Throwable th) {
+                    fail(th);
+                }
+            }
+            if (numInBatch == 0) {
+                return null;
+            }
+            return new DetachedRowsSpliterator(Spliterators.spliterator(batch, 0, numInBatch, ORDERED), memento);
+        }
+        @Override public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+        @Override public int characteristics() {
+            return ORDERED;
+        }
+    }
+
+    /**
+     * A row that was detached from the ResultSet, together with its injected properties' values
+     */
+    private static class DetachedRow {
+        final DetachedSqlRow row;
+        final Map<String, Object> injectedPropsValues;
+
+        DetachedRow(DetachedSqlRow row, Map<String, Object> injectedPropsValues) {
+            this.row = row;
+            this.injectedPropsValues = injectedPropsValues;
+        }
+    }
+
+    /**
+     * Maps rows that were read and detached by {@link ResultSetSpliterator#trySplit()}. This touches neither the ResultSet
+     *  nor the connection, so it can run in parallel to reading further rows.
+     */
+    private class DetachedRowsSpliterator implements Spliterator<T> {
+        private final Spliterator<DetachedRow> rows;
+        private final Object memento;
+
+        /**
+         * @param memento the row extractor's memento, created for streaming by the ResultSetSpliterator
+         */
+        DetachedRowsSpliterator(Spliterator<DetachedRow> rows, Object memento) {
+            this.rows = rows;
+            this.memento = memento;
+        }
+
+        @Override public boolean tryAdvance(Consumer<? super T> action) {
+            return rows.tryAdvance(row -> action.accept(extract(row)));
+        }
+
+        private T extract(DetachedRow row) {
+            try {
+                return rowExtractor.fromSql(rowClass, primTypes, row.row, memento, true, row.injectedPropsValues);
+            }
+            catch (Throwable th) {
+                listeners.reverseIterator().forEachRemaining(l -> l.onFailed(th));
+                AUnchecker.throwUnchecked(th);
+                return null; // for the compiler
+            }
+        }
+
+        @Override public Spliterator<T> trySplit() {
+            final Spliterator<DetachedRow> prefix = rows.trySplit();
+            return prefix != null ? new DetachedRowsSpliterator(prefix, memento) : null;
+        }
+        @Override public long estimateSize() {
+            return rows.estimateSize();
+        }
+        @Override public int characteristics() {
+            return rows.characteristics() & (ORDERED | SIZED | SUBSIZED);
+        }
+    }
+
+    private static final AtomicInteger prefetchThreadCounter = new AtomicInteger();
+
+    /**
+     * Reads rows on a separate thread, detaching them into a bounded buffer, while the consuming thread maps and processes
+     *  them. This overlaps the driver's fetch round trips with the processing of rows that were already fetched.<p>
+     *
+     * The reader thread exclusively owns the ResultSet and the connection: it closes the ResultSet when all rows were read or
+     *  when the spliterator is {@link #close() closed}, and {@link #close()} waits for the reader to finish. Injected properties'
+     *  values are resolved by the reader while it detaches a row, as for {@link ResultSetSpliterator#trySplit()}, and they are
+     *  enqueued with the row. So the consuming thread maps rows without touching the connection or the injected properties'
+     *  mementos, which the reader closes together with the ResultSet after the last row.<p>
+     *
+     * Every spliterator starts a dedicated daemon thread for its reader rather than using the async executor: the reader
+     *  blocks while the buffer is full, and a bounded executor that is busy with other work (possibly with threads consuming
+     *  prefetched rows themselves) could otherwise stall the consumer indefinitely.
+     */
+    private class PrefetchingSpliterator implements Spliterator<T> {
+        private final Object endOfRows = new Object();
+
+        private final ResultSetSpliterator rss;
+        private final BlockingQueue<Object> buffer;
+        private final CountDownLatch readerDone = new CountDownLatch(1);
+        private volatile boolean stopped = false;
+        private boolean exhausted = false;
+
+        PrefetchingSpliterator(Connection conn, int fetchSize) {
+            this.rss = new ResultSetSpliterator(conn, fetchSize);
+            this.buffer = new ArrayBlockingQueue<>(Math.max(fetchSize, 1));
+
+            final Thread reader = new Thread(this::readRows, "a-sql-mapper-prefetch-" + prefetchThreadCounter.incrementAndGet());
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void readRows() {
+            try {
+                while (!stopped && rss.next()) {
+                    enqueue(detachCurrentRow());
+                }
+                if (stopped) {
+                    if (rss.started) {
+                        rss.close();
+                    }
+                }
+                else {
+                    enqueue(endOfRows);
+                }
+            }
+            catch (Throwable th) {
+                // the ResultSetSpliterator notified the listeners and released its resources
+                enqueue(new PrefetchFailure(th));
+            }
+            finally {
+                readerDone.countDown();
+            }
+        }
+
+        private DetachedRow detachCurrentRow() {
+            try {
+                final DetachedSqlRow detached = rss.row.detach();
+                return new DetachedRow(detached, injectedPropsValuesForRow(rss.conn, detached, rss.injectedPropsMementos));
+            }
+            catch (Throwable th) {
+                rss.fail(th);
+                return null; // dead code - for the compiler
+            }
+        }
+
+        private void enqueue(Object o) {
+            try {
+                while (!stopped) {
+                    if (buffer.offer(o, 10, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            }
+            catch (InterruptedException exc) {
+                stopped = true;
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override public boolean tryAdvance(Consumer<? super T> action) {
+            if (exhausted) {
+                return false;
+            }
+
+            final Object o;
+            try {
+                o = buffer.take();
+            }
+            catch (InterruptedException exc) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for prefetched rows", exc);
+            }
+
+            if (o == endOfRows) {
+                exhausted = true;
+                return false;
+            }
+            if (o instanceof PrefetchFailure) {
+                exhausted = true;
+                AUnchecker.throwUnchecked(((PrefetchFailure) o).cause);
+            }
+
+            // the row extractor's memento was created by the reader before it enqueued the first row, and the queue makes it
+            //  visible to this thread
+            final DetachedRow row = (DetachedRow) o;
+            try {
+                action.accept(rowExtractor.fromSql(rowClass, primTypes, row.row, rss.memento, true, row.injectedPropsValues));
+                return true;
+            }
+            catch (Throwable th) {
+                listeners.reverseIterator().forEachRemaining(l -> l.onFailed(th));
+                AUnchecker.throwUnchecked(th);
+                return false; // for the compiler
+            }
+        }
+
+        void close() {
+            stopped = true;
+            buffer.clear();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    readerDone.await();
+                    break;
+                }
+                catch (InterruptedException exc) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override public Spliterator<T> trySplit() {
+            return null;
+        }
+        @Override public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+        @Override public int characteristics() {
+            return ORDERED;
+        }
+    }
+
+    /**
+     * Reads rows in windows, detaching them, and creates injected properties' mementos for each window before mapping its
+     *  rows. Mementos of injected properties that do not {@link InjectedProperty#supportsWindows() support windows} are
+     *  created once, when the first window is read. Mementos are closed when they are no longer needed.
+     */
+    private class WindowedSpliterator implements Spliterator<T> {
+        private final ResultSetSpliterator rss;
+        private final int windowSize;
+        private final List<SqlRow> window = new ArrayList<>();
+        private int windowIdx = 0;
+        private Map<String, Object> perQueryMementos;
+        private Map<String, Object> windowMementos;
+
+        WindowedSpliterator(Connection conn, int windowSize) {
+            this.rss = new ResultSetSpliterator(conn, Math.min(windowSize, defaultFetchSize), 0, false);
+            this.windowSize = windowSize;
+        }
+
+        @Override public boolean tryAdvance(Consumer<? super T> action) {
+            if (windowIdx >= window.size() && !readWindow()) {
+                return false;
+            }
+
+            try {
+                action.accept(doExtract(rss.conn, window.get(windowIdx++), rss.memento, false, windowMementos));
+                return true;
+            }
+            catch (Throwable th) {
+                listeners.reverseIterator().forEachRemaining(l -> l.onFailed(th));
+                AUnchecker.throwUnchecked(th);
+                return false; // for the compiler
+            }
+        }
+
+        private boolean readWindow() {
+            // release the previous window before reading the next one
+            window.clear();
+            closeWindowMementos();
+            windowIdx = 0;
+
+            while (window.size() < windowSize && rss.next()) {
+                window.add(rss.row.detach());
+            }
+            if (window.isEmpty()) {
+                return false;
+            }
+
+            try {
+                if (perQueryMementos == null) {
+                    perQueryMementos = new HashMap<>();
+                    for (InjectedProperty<?> ip : injectedProperties) {
+                        if (!ip.supportsWindows()) {
+                            perQueryMementos.put(ip.propertyName(), ip.mementoPerQuery(rss.conn, rowClass, sql));
+                        }
+                    }
+                }
+
+                windowMementos = new HashMap<>(perQueryMementos);
+                final OwningRows owningRows = new OwningRows(new ArrayList<>(window), rss.queryNanos);
+                for (InjectedProperty<?> ip : injectedProperties) {
+                    if (ip.supportsWindows()) {
+                        windowMementos.put(ip.propertyName(), ip.mementoPerWindow(rss.conn, rowClass, sql, owningRows));
+                    }
+                }
+                return true;
+            }
+            catch (Throwable th) {
+                rss.fail(th);
+                return false; // dead code - for the compiler
+            }
+        }
+
+        private void closeWindowMementos() {
+            if (windowMementos != null) {
+                final Map<String, Object> windowSpecific = new HashMap<>(windowMementos);
+                windowSpecific.keySet().removeAll(perQueryMementos.keySet());
+                windowMementos = null;
+                InjectedProperty.closeMementos(windowSpecific);
+            }
+        }
+
+        void close() {
+            try {
+                closeWindowMementos();
+                InjectedProperty.closeMementos(perQueryMementos);
+            }
+            finally {
+                perQueryMementos = null;
+                rss.close();
+            }
         }
 
         @Override public Spliterator<T> trySplit() {
@@ -377,4 +1117,12 @@ public class AQueryImpl<T> implements AQuery<T> {
             return ORDERED;
         }
     }
+
+    private static class PrefetchFailure {
+        final Throwable cause;
+
+        PrefetchFailure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
 }
@@ -0,0 +1,91 @@
+package com.ajjpj.asqlmapper.core.impl;
+
+import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
+
+import java.sql.Connection;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.ARawQuery;
+import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
+import com.ajjpj.asqlmapper.core.RowExtractor;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.ColumnarResult;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
+import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
+
+public class ARawQueryImpl extends AQueryImpl<SqlRow> implements ARawQuery {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final PrimitiveTypeRegistry primTypes;
+
+    public ARawQueryImpl(SqlSnippet sql, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
+                         AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier, AsyncHelper async,
+                         AVector<InjectedProperty> injectedProperties, int defaultFetchSize, StatementCache statementCache, ResultCache resultCache,
+                         int injectedPropertiesParallelism) {
+        super(SqlRow.class, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, async, injectedProperties, defaultFetchSize,
+                statementCache, resultCache, injectedPropertiesParallelism);
+        this.primTypes = primTypes;
+    }
+
+    @Override protected AQueryImpl<SqlRow> build(Class<SqlRow> cls, SqlSnippet sql, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
+                                  AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier,
+                                  AsyncHelper async,
+                                  AVector<InjectedProperty> injectedProperties, int defaultFetchSize, StatementCache statementCache, ResultCache resultCache,
+                                  int injectedPropertiesParallelism) {
+        return new ARawQueryImpl(sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, async, injectedProperties,
+                defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
+    }
+
+    @Override public ColumnarResult toColumns() {
+        return toColumns(defaultConnection());
+    }
+    @Override public ColumnarResult toColumns(Connection conn) {
+        return doQuery(conn, rs -> executeUnchecked(() -> {
+            final ColumnarResult.Builder builder = ColumnarResult.builder(rs, primTypes, INITIAL_CAPACITY);
+            while (rs.next()) {
+                builder.addCurrentRow();
+            }
+            afterIteration(builder.numRows());
+            return builder.build();
+        }));
+    }
+
+    @Override public void forEachColumnBatch(int batchSize, Consumer<ColumnarResult> consumer) {
+        forEachColumnBatch(defaultConnection(), batchSize, consumer);
+    }
+    @Override public void forEachColumnBatch(Connection conn, int batchSize, Consumer<ColumnarResult> consumer) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batch size must be positive");
+        }
+
+        final ResultSetSpliterator rss = new ResultSetSpliterator(conn, batchSize);
+        try {
+            ColumnarResult.Builder builder = null;
+            while (rss.next()) {
+                try {
+                    if (builder == null) {
+                        builder = ColumnarResult.builder(rss.resultSet(), primTypes, batchSize);
+                    }
+                    builder.addCurrentRow();
+                }
+                catch (Throwable th) {
+                    rss.fail(th);
+                }
+                // exceptions thrown by the consumer are not query failures, they only close the query
+                if (builder.numRows() == batchSize) {
+                    consumer.accept(builder.build());
+                }
+            }
+            if (builder != null && builder.numRows() > 0) {
+                consumer.accept(builder.build());
+            }
+        }
+        finally {
+            rss.close();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.ajjpj.asqlmapper.core.impl;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.acollections.util.AUnchecker;
+import com.ajjpj.asqlmapper.core.ConnectionProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds a SqlEngine's configuration for running operations on other threads: an {@link Executor} and a
+ *  {@link ConnectionProvider} for the connections that these operations use. Both are optional, and operations that need
+ *  one of them fail with an {@link IllegalStateException} if it was not configured.<p>
+ *
+ * The engine neither creates nor shuts down the executor: its life cycle is up to application code.<p>
+ *
+ * Instances are immutable, {@code with...} methods return modified copies.
+ */
+public class AsyncHelper {
+    private static final Logger log = LoggerFactory.getLogger(AsyncHelper.class);
+
+    public static final AsyncHelper NONE = new AsyncHelper(AOption.empty(), AOption.empty());
+
+    private final AOption<Executor> executor;
+    private final AOption<ConnectionProvider> connectionProvider;
+
+    private AsyncHelper(AOption<Executor> executor, AOption<ConnectionProvider> connectionProvider) {
+        this.executor = executor;
+        this.connectionProvider = connectionProvider;
+    }
+
+    public AsyncHelper withExecutor(Executor executor) {
+        return new AsyncHelper(AOption.some(executor), connectionProvider);
+    }
+    public AsyncHelper withConnectionProvider(ConnectionProvider connectionProvider) {
+        return new AsyncHelper(executor, AOption.some(connectionProvider));
+    }
+
+    public Executor executor() {
+        return executor.orElseThrow(() -> new IllegalStateException("no async executor was configured"));
+    }
+
+    public ConnectionProvider connectionProvider() {
+        return connectionProvider.orElseThrow(() -> new IllegalStateException("no connection provider for asynchronous operations was configured"));
+    }
+
+    /**
+     * Runs an operation on the executor with a connection from the connection provider, which is acquired and released on the
+     *  executor's thread.
+     */
+    public <X> CompletableFuture<X> supplyAsync(Function<Connection, X> operation) {
+        final Executor executor = executor();
+        final ConnectionProvider connectionProvider = connectionProvider();
+        return CompletableFuture.supplyAsync(() -> withConnection(connectionProvider, operation), executor);
+    }
+
+    /**
+     * Runs an operation with a connection from a connection provider on the calling thread, releasing the connection afterwards.
+     */
+    static <X> X withConnection(ConnectionProvider connectionProvider, Function<Connection, X> operation) {
+        final Connection conn;
+        try {
+            conn = connectionProvider.acquire();
+        }
+        catch (Exception exc) {
+            AUnchecker.throwUnchecked(exc);
+            return null; // for the compiler
+        }
+
+        Throwable failure = null;
+        try {
+            return operation.apply(conn);
+        }
+        catch (Throwable th) {
+            failure = th;
+            throw th;
+        }
+        finally {
+            try {
+                connectionProvider.release(conn);
+            }
+            catch (Throwable th) {
+                if (failure != null) {
+                    failure.addSuppressed(th);
+                }
+                else {
+                    AUnchecker.throwUnchecked(th);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates an executor that runs each task in a new virtual thread if the JVM supports them (Java 21 and later), and
+     *  falls back to a cached pool of daemon threads otherwise. The check is done reflectively so that the library
+     *  can remain compatible with Java 8.<p>
+     *
+     * The caller owns the returned executor and is responsible for shutting it down.
+     */
+    public static ExecutorService newDefaultAsyncExecutor() {
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        }
+        catch (NoSuchMethodException exc) {
+            log.debug("virtual threads are not available - using a cached thread pool for asynchronous execution");
+        }
+        catch (Exception exc) {
+            log.warn("could not create a virtual thread executor - using a cached thread pool for asynchronous execution", exc);
+        }
+
+        final AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            final Thread result = new Thread(r, "a-sql-mapper-async-" + threadCounter.incrementAndGet());
+            result.setDaemon(true);
+            return result;
+        });
+    }
+}
@@ -0,0 +1,221 @@
+package com.ajjpj.asqlmapper.core.impl;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+import com.ajjpj.acollections.AList;
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.AFlow;
+import com.ajjpj.asqlmapper.core.AQuery;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
+import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
+
+
+/**
+ * A query that serves {@code single}, {@code optional}, {@code first} and {@code list} from a {@link ResultCache}. The
+ *  other collection based operations work on the cached list, while operations that need access to the ResultSet or
+ *  are intended for results too big to hold in memory (publishing, prefetching, windowed streaming, row access) are passed to the
+ *  underlying query without caching.
+ */
+public class CachedQuery<T> implements AQuery<T> {
+    private final AQuery<T> inner;
+    private final SqlSnippet sql;
+    private final Class<T> rowClass;
+    private final AVector<String> injectedPropertyNames;
+    private final ResultCache resultCache;
+    private final AVector<SqlEngineEventListener> listeners;
+    private final AOption<Supplier<Connection>> defaultConnectionSupplier;
+    private final AsyncHelper async;
+    private final Duration ttl;
+
+    public CachedQuery(AQuery<T> inner, SqlSnippet sql, Class<T> rowClass, AVector<String> injectedPropertyNames, ResultCache resultCache,
+                       AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier, AsyncHelper async,
+                       Duration ttl) {
+        this.inner = inner;
+        this.sql = sql;
+        this.rowClass = rowClass;
+        this.injectedPropertyNames = injectedPropertyNames;
+        this.resultCache = resultCache;
+        this.listeners = listeners;
+        this.defaultConnectionSupplier = defaultConnectionSupplier;
+        this.async = async;
+        this.ttl = ttl;
+    }
+
+    @Override public AQuery<T> withInjectedProperty(InjectedProperty injectedProperty) {
+        return new CachedQuery<>(inner.withInjectedProperty(injectedProperty), sql, rowClass, injectedPropertyNames.append(injectedProperty.propertyName()),
+                resultCache, listeners, defaultConnectionSupplier, async, ttl);
+    }
+
+    @Override public AQuery<T> cached(Duration ttl) {
+        return new CachedQuery<>(inner, sql, rowClass, injectedPropertyNames, resultCache, listeners, defaultConnectionSupplier, async, ttl);
+    }
+
+    @Override public T single(Connection conn) {
+        return resultCache.get(conn, sql, rowClass, injectedPropertyNames, "single", ttl, listeners, () -> inner.single(conn));
+    }
+    @Override public T single() {
+        return single(defaultConnection());
+    }
+    @Override public AOption<T> optional(Connection conn) {
+        return resultCache.get(conn, sql, rowClass, injectedPropertyNames, "optional", ttl, listeners, () -> inner.optional(conn));
+    }
+    @Override public AOption<T> optional() {
+        return optional(defaultConnection());
+    }
+    @Override public AOption<T> first(Connection conn) {
+        return resultCache.get(conn, sql, rowClass, injectedPropertyNames, "first", ttl, listeners, () -> inner.first(conn));
+    }
+    @Override public AOption<T> first() {
+        return first(defaultConnection());
+    }
+    @Override public AList<T> list(Connection conn) {
+        return resultCache.get(conn, sql, rowClass, injectedPropertyNames, "list", ttl, listeners, () -> inner.list(conn));
+    }
+    @Override public AList<T> list() {
+        return list(defaultConnection());
+    }
+
+    private Connection defaultConnection() {
+        return defaultConnectionSupplier
+                .orElseThrow(() -> new IllegalStateException("no default connection supplier was configured"))
+                .get();
+    }
+
+    @Override public <R, A> R collect(Connection conn, Collector<T, A, R> collector) {
+        return list(conn).stream().collect(collector);
+    }
+    @Override public <R, A> R collect(Collector<T, A, R> collector) {
+        return list().stream().collect(collector);
+    }
+
+    @Override public CompletableFuture<T> singleAsync() {
+        return async.supplyAsync(this::single);
+    }
+    @Override public CompletableFuture<AOption<T>> optionalAsync() {
+        return async.supplyAsync(this::optional);
+    }
+    @Override public CompletableFuture<AOption<T>> firstAsync() {
+        return async.supplyAsync(this::first);
+    }
+    @Override public CompletableFuture<AList<T>> listAsync() {
+        return async.supplyAsync(this::list);
+    }
+    @Override public <R, A> CompletableFuture<R> collectAsync(Collector<T, A, R> collector) {
+        return async.supplyAsync(conn -> collect(conn, collector));
+    }
+
+    @Override public Stream<T> stream(Connection conn) {
+        return list(conn).stream();
+    }
+    @Override public Stream<T> stream() {
+        return list().stream();
+    }
+    @Override public Stream<T> stream(int fetchSize) {
+        return list().stream();
+    }
+    @Override public Stream<T> stream(Connection conn, int fetchSize) {
+        return list(conn).stream();
+    }
+    @Override public Stream<T> stream(int fetchSize, int splitBatchSize) {
+        return list().stream();
+    }
+    @Override public Stream<T> stream(Connection conn, int fetchSize, int splitBatchSize) {
+        return list(conn).stream();
+    }
+
+    @Override public AFlow.Publisher<T> publish() {
+        return inner.publish();
+    }
+    @Override public AFlow.Publisher<T> publish(Connection conn) {
+        return inner.publish(conn);
+    }
+    @Override public AFlow.Publisher<T> publish(int fetchSize) {
+        return inner.publish(fetchSize);
+    }
+    @Override public AFlow.Publisher<T> publish(Connection conn, int fetchSize) {
+        return inner.publish(conn, fetchSize);
+    }
+
+    @Override public void forEach(Connection conn, Consumer<T> consumer) {
+        list(conn).forEach(consumer);
+    }
+    @Override public void forEach(Consumer<T> consumer) {
+        list().forEach(consumer);
+    }
+    @Override public void forEach(int fetchSize, Consumer<T> consumer) {
+        list().forEach(consumer);
+    }
+    @Override public void forEach(Connection conn, int fetchSize, Consumer<T> consumer) {
+        list(conn).forEach(consumer);
+    }
+
+    @Override public Stream<T> streamWithPrefetch() {
+        return inner.streamWithPrefetch();
+    }
+    @Override public Stream<T> streamWithPrefetch(Connection conn) {
+        return inner.streamWithPrefetch(conn);
+    }
+    @Override public Stream<T> streamWithPrefetch(int fetchSize) {
+        return inner.streamWithPrefetch(fetchSize);
+    }
+    @Override public Stream<T> streamWithPrefetch(Connection conn, int fetchSize) {
+        return inner.streamWithPrefetch(conn, fetchSize);
+    }
+
+    @Override public void forEachWithPrefetch(Consumer<T> consumer) {
+        inner.forEachWithPrefetch(consumer);
+    }
+    @Override public void forEachWithPrefetch(Connection conn, Consumer<T> consumer) {
+        inner.forEachWithPrefetch(conn, consumer);
+    }
+    @Override public void forEachWithPrefetch(int fetchSize, Consumer<T> consumer) {
+        inner.forEachWithPrefetch(fetchSize, consumer);
+    }
+    @Override public void forEachWithPrefetch(Connection conn, int fetchSize, Consumer<T> consumer) {
+        inner.forEachWithPrefetch(conn, fetchSize, consumer);
+    }
+
+    @Override public Stream<T> streamInWindows(int windowSize) {
+        return inner.streamInWindows(windowSize);
+    }
+    @Override public Stream<T> streamInWindows(Connection conn, int windowSize) {
+        return inner.streamInWindows(conn, windowSize);
+    }
+
+    @Override public void forEachInWindows(int windowSize, Consumer<T> consumer) {
+        inner.forEachInWindows(windowSize, consumer);
+    }
+    @Override public void forEachInWindows(Connection conn, int windowSize, Consumer<T> consumer) {
+        inner.forEachInWindows(conn, windowSize, consumer);
+    }
+
+    @Override public void forEachWithRowAccess(Connection conn, BiConsumer<T, SqlRow> consumer) {
+        inner.forEachWithRowAccess(conn, consumer);
+    }
+    @Override public void forEachWithRowAccess(BiConsumer<T, SqlRow> consumer) {
+        inner.forEachWithRowAccess(consumer);
+    }
+    @Override public void forEachWithRowAccess(int fetchSize, BiConsumer<T, SqlRow> consumer) {
+        inner.forEachWithRowAccess(fetchSize, consumer);
+    }
+    @Override public void forEachWithRowAccess(Connection conn, int fetchSize, BiConsumer<T, SqlRow> consumer) {
+        inner.forEachWithRowAccess(conn, fetchSize, consumer);
+    }
+    @Override public Stream<Map.Entry<T, SqlRow>> streamWithRowAccess(Connection conn) {
+        return inner.streamWithRowAccess(conn);
+    }
+    @Override public Stream<Map.Entry<T, SqlRow>> streamWithRowAccess(Connection conn, int fetchSize) {
+        return inner.streamWithRowAccess(conn, fetchSize);
+    }
+}
@@ -0,0 +1,156 @@
+package com.ajjpj.asqlmapper.core.impl;
+
+import static com.ajjpj.asqlmapper.core.SqlSnippet.concat;
+import static com.ajjpj.asqlmapper.core.SqlSnippet.in;
+import static com.ajjpj.asqlmapper.core.SqlSnippet.sql;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.ajjpj.acollections.util.AUnchecker;
+import com.ajjpj.asqlmapper.core.AQuery;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.KeyedResult;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+
+
+/**
+ * Loads rows for a collection of keys. The keys are split into chunks of a maximum size, and each chunk is loaded with a
+ *  separate statement with an {@code IN} clause for the chunk's keys - rather than a single statement combining all chunks
+ *  with {@code OR} as {@link SqlSnippet#chunkedIn(SqlSnippet, Iterable, int)} does, which can be hard on the query planner
+ *  for large numbers of keys.<p>
+ *
+ * Key values are read from the key column with the type of the keys that are passed in, so all keys must be non-null and have
+ *  the same type; this is checked before any statement is executed. The key column is expected to be unique in the result, and a key matching more than one row is an error.
+ */
+public class KeyedQueryHelper {
+    public static final int DEFAULT_MAX_CHUNK_SIZE = 1000;
+
+    /**
+     * Loads all chunks sequentially using a given connection.
+     *
+     * @param queryFactory   creates the query for a chunk, getting the condition {@code keyColumn IN (...)} as a parameter
+     * @param valueExtractor extracts the value to be stored in the result from a row's mapped object and the raw row
+     */
+    public static <K,T,V> KeyedResult<K,V> load(Connection conn, String keyColumn, Collection<K> keys, int maxChunkSize,
+                                                 Function<SqlSnippet, AQuery<T>> queryFactory, BiFunction<T, SqlRow, V> valueExtractor) {
+        final Set<K> distinctKeys = new LinkedHashSet<>(keys);
+        final Class<?> keyClass = keyClass(distinctKeys);
+        final Map<K,V> found = new HashMap<>();
+        for (List<K> chunk : chunks(distinctKeys, maxChunkSize)) {
+            loadChunk(conn, keyColumn, keyClass, chunk, queryFactory, valueExtractor, found);
+        }
+        return toResult(distinctKeys, found);
+    }
+
+    /**
+     * Loads the chunks in parallel on the async executor, each chunk with its own connection that is acquired from and
+     *  released to the async connection provider on the executor's thread. If loading a chunk fails, chunks that were not started yet are cancelled and the failure is
+     *  rethrown.
+     */
+    public static <K,T,V> KeyedResult<K,V> loadInParallel(AsyncHelper async, String keyColumn,
+                                                           Collection<K> keys, int maxChunkSize, Function<SqlSnippet, AQuery<T>> queryFactory,
+                                                           BiFunction<T, SqlRow, V> valueExtractor) {
+        final Set<K> distinctKeys = new LinkedHashSet<>(keys);
+        final Class<?> keyClass = keyClass(distinctKeys);
+        final List<CompletableFuture<Map<K,V>>> futures = new ArrayList<>();
+        for (List<K> chunk : chunks(distinctKeys, maxChunkSize)) {
+            futures.add(async.supplyAsync(conn -> {
+                final Map<K,V> chunkResult = new HashMap<>();
+                loadChunk(conn, keyColumn, keyClass, chunk, queryFactory, valueExtractor, chunkResult);
+                return chunkResult;
+            }));
+        }
+
+        final Map<K,V> found = new HashMap<>();
+        try {
+            for (CompletableFuture<Map<K,V>> f : futures) {
+                found.putAll(f.join());
+            }
+        }
+        catch (CompletionException exc) {
+            futures.forEach(f -> f.cancel(false));
+            AUnchecker.throwUnchecked(exc.getCause() != null ? exc.getCause() : exc);
+        }
+        return toResult(distinctKeys, found);
+    }
+
+    private static <K,T,V> void loadChunk(Connection conn, String keyColumn, Class<?> keyClass, List<K> chunk, Function<SqlSnippet, AQuery<T>> queryFactory,
+                                          BiFunction<T, SqlRow, V> valueExtractor, Map<K,V> target) {
+        queryFactory.apply(concat(sql(keyColumn), in(chunk))).forEachWithRowAccess(conn, (o, row) -> {
+            //noinspection unchecked
+            final K key = (K) row.get(keyClass, keyColumn);
+            if (target.containsKey(key)) {
+                throw new IllegalStateException("more than one row for key " + key + " in column " + keyColumn);
+            }
+            final V value = valueExtractor.apply(o, row);
+            // raw rows are 'live' during iteration, so they must be detached before being stored
+            //noinspection unchecked
+            target.put(key, value instanceof SqlRow ? (V) ((SqlRow) value).detach() : value);
+        });
+    }
+
+    /**
+     * @return the type of all keys, which is used for reading key values from the key column, or null if there are no keys
+     */
+    private static Class<?> keyClass(Set<?> keys) {
+        Class<?> result = null;
+        for (Object key : keys) {
+            if (key == null) {
+                throw new IllegalArgumentException("keys must not be null");
+            }
+            if (result == null) {
+                result = key.getClass();
+            }
+            else if (key.getClass() != result) {
+                throw new IllegalArgumentException("all keys must have the same type, but there are keys of type " + result.getName() + " and " + key.getClass().getName());
+            }
+        }
+        return result;
+    }
+
+    private static <K> List<List<K>> chunks(Set<K> keys, int maxChunkSize) {
+        if (maxChunkSize <= 0) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+
+        final List<List<K>> result = new ArrayList<>();
+        List<K> current = new ArrayList<>();
+        for (K key : keys) {
+            current.add(key);
+            if (current.size() == maxChunkSize) {
+                result.add(current);
+                current = new ArrayList<>();
+            }
+        }
+        if (!current.isEmpty()) {
+            result.add(current);
+        }
+        return result;
+    }
+
+    private static <K,V> KeyedResult<K,V> toResult(Set<K> keys, Map<K,V> found) {
+        final Map<K,V> ordered = new LinkedHashMap<>();
+        final Set<K> missing = new LinkedHashSet<>();
+        for (K key : keys) {
+            if (found.containsKey(key)) {
+                ordered.put(key, found.get(key));
+            }
+            else {
+                missing.add(key);
+            }
+        }
+        return new KeyedResult<>(ordered, missing);
+    }
+}
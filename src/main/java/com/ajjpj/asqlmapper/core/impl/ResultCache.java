@@ -0,0 +1,191 @@
+package com.ajjpj.asqlmapper.core.impl;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
+
+/**
+ * A cache for query results, keyed by SQL string, parameters, row class and the operation that produced the result (e.g.
+ *  {@code list} or {@code single}). Results are only cached for queries that explicitly {@link com.ajjpj.asqlmapper.core.AQuery#cached(Duration)
+ *  opt in}, and each entry expires after the time-to-live specified by the query.<p>
+ *
+ * Every statement executed through the SqlEngine that modifies data invalidates all cached results that read from the
+ *  modified table, as determined by {@link SqlTableExtractor}. Statements for which no table can be determined (e.g. DDL)
+ *  invalidate the entire cache.<p>
+ *
+ * Results are only cached for, and served to, connections in auto-commit mode: a transaction could otherwise publish data
+ *  that it has not committed (and may roll back), or read cached data that does not reflect its own modifications. Queries
+ *  on connections with an open transaction are always executed. Invalidation happens when a statement is executed, not when
+ *  its transaction is committed, so a result that is read through another connection after a modification but before its
+ *  commit is cached with the data before the modification, and it is stale until it expires or the table is modified again.<p>
+ *
+ * The cache is bounded, evicting the least recently used entry when it is full. A cache with a maximum size of 0 or less
+ *  is {@link #disabled() disabled}, executing every query.<p>
+ *
+ * Cached results are shared between callers, so they should only be used for immutable result types.
+ */
+public class ResultCache {
+    private static final ResultCache DISABLED = new ResultCache(0);
+
+    private final int maxSize;
+    private final Map<Key, CachedResult> cached;
+
+    /**
+     * incremented by every invalidation, so that results read concurrently with an invalidation are not cached
+     */
+    private long generation = 0;
+
+    public static ResultCache disabled() {
+        return DISABLED;
+    }
+
+    public ResultCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.cached = new LinkedHashMap<Key, CachedResult>(16, .75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+                return size() > ResultCache.this.maxSize;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public synchronized int size() {
+        return cached.size();
+    }
+
+    /**
+     * Returns a cached result if there is one that is not expired, and calls the loader to execute the query otherwise. If the
+     *  connection is not in auto-commit mode, this bypasses the cache.
+     */
+    public <X> X get(Connection conn, SqlSnippet sql, Class<?> rowClass, AVector<String> injectedPropertyNames, String operation, Duration ttl,
+                     AVector<SqlEngineEventListener> listeners, Supplier<X> loader) {
+        if (!isEnabled() || !SqlHelper.isAutoCommit(conn)) {
+            return loader.get();
+        }
+
+        final Key key = new Key(sql.getSql(), sql.getParams(), rowClass, injectedPropertyNames, operation);
+        final long startGeneration;
+        synchronized (this) {
+            final CachedResult hit = cached.get(key);
+            if (hit != null && hit.expiresAtNanos - System.nanoTime() > 0) {
+                listeners.forEach(l -> l.onResultCacheHit(key.sql));
+                //noinspection unchecked
+                return (X) hit.value;
+            }
+            startGeneration = generation;
+        }
+
+        listeners.forEach(l -> l.onResultCacheMiss(key.sql));
+        final X result = loader.get();
+        // parsing the SQL is done outside the lock, so it does not hold up concurrent lookups
+        final CachedResult entry = new CachedResult(result, SqlTableExtractor.readTables(key.sql), System.nanoTime() + ttl.toNanos());
+        synchronized (this) {
+            if (generation == startGeneration) {
+                cached.put(key, entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Invalidates all cached results that may be affected by a given data modifying SQL statement.
+     */
+    public void invalidateFor(String sql) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        final AOption<String> optTable = SqlTableExtractor.writtenTable(sql);
+        if (optTable.isDefined()) {
+            invalidateTable(optTable.get());
+        }
+        else {
+            clear();
+        }
+    }
+
+    /**
+     * Invalidates all cached results of queries reading from a given table, and of all queries for which the tables could
+     *  not be determined.
+     */
+    public synchronized void invalidateTable(String tableName) {
+        generation += 1;
+        final String normalized = SqlTableExtractor.normalizedTableName(tableName);
+        final Iterator<CachedResult> it = cached.values().iterator();
+        while (it.hasNext()) {
+            final Set<String> tables = it.next().tables;
+            if (tables.isEmpty() || tables.contains(normalized)) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        generation += 1;
+        cached.clear();
+    }
+
+    private static class CachedResult {
+        final Object value;
+        final Set<String> tables;
+        final long expiresAtNanos;
+
+        CachedResult(Object value, Set<String> tables, long expiresAtNanos) {
+            this.value = value;
+            this.tables = tables;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private static class Key {
+        final String sql;
+        final List<?> params;
+        final Class<?> rowClass;
+        final AVector<String> injectedPropertyNames;
+        final String operation;
+
+        Key(String sql, List<?> params, Class<?> rowClass, AVector<String> injectedPropertyNames, String operation) {
+            this.sql = sql;
+            this.params = params;
+            this.rowClass = rowClass;
+            this.injectedPropertyNames = injectedPropertyNames;
+            this.operation = operation;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return sql.equals(key.sql) &&
+                    params.equals(key.params) &&
+                    rowClass == key.rowClass &&
+                    injectedPropertyNames.equals(key.injectedPropertyNames) &&
+                    operation.equals(key.operation);
+        }
+
+        @Override public int hashCode() {
+            int result = sql.hashCode();
+            result = 31 * result + params.hashCode();
+            result = 31 * result + rowClass.hashCode();
+            result = 31 * result + injectedPropertyNames.hashCode();
+            return 31 * result + operation.hashCode();
+        }
+    }
+}
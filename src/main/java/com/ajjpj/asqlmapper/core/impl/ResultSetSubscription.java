@@ -0,0 +1,132 @@
+package com.ajjpj.asqlmapper.core.impl;
+
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ajjpj.asqlmapper.core.AFlow;
+
+
+/**
+ * Pushes the rows of a {@link AQueryImpl.ResultSetSpliterator} (or of a spliterator built on top of one) to a subscriber as it
+ *  requests them. Rows are read from the ResultSet only when there is outstanding demand, so a slow subscriber holds no more
+ *  than the driver's fetch buffer in memory.<p>
+ *
+ * The spliterator is expected to release its resources by itself after the last row and when it fails, the way
+ *  {@link AQueryImpl.ResultSetSpliterator} does. The subscription calls a separate {@code close} action only if it is
+ *  terminated before that, i.e. when it is cancelled or when the subscriber fails.<p>
+ *
+ * Rows are read and sent on the thread calling {@link #request(long)}. Calls to {@link #request(long)} or {@link #cancel()} from
+ *  within {@code onNext} or from other threads while rows are being sent do not read rows themselves but are picked up by the
+ *  sending thread, so the ResultSet is never accessed concurrently, and it is closed as soon as the row being sent is done.<p>
+ *
+ * If the subscriber throws an exception from {@code onNext}, the subscription is terminated and the exception is passed to
+ *  {@code onError}.
+ */
+public class ResultSetSubscription<T> implements AFlow.Subscription {
+    private final Spliterator<T> rows;
+    private final Runnable close;
+    private final AFlow.Subscriber<? super T> subscriber;
+
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger workInProgress = new AtomicInteger();
+    private volatile boolean cancelled = false;
+    private volatile Throwable invalidRequest;
+
+    // only accessed by the thread that is sending rows
+    private boolean started = false;
+    private boolean done = false;
+    private T current;
+
+    public ResultSetSubscription(Spliterator<T> rows, Runnable close, AFlow.Subscriber<? super T> subscriber) {
+        this.rows = rows;
+        this.close = close;
+        this.subscriber = subscriber;
+    }
+
+    @Override public void request(long n) {
+        if (n <= 0) {
+            invalidRequest = new IllegalArgumentException("requested " + n + " elements - the number must be positive");
+        }
+        else {
+            demand.accumulateAndGet(n, (prev, added) -> prev + added < 0 ? Long.MAX_VALUE : prev + added);
+        }
+        drain();
+    }
+
+    @Override public void cancel() {
+        cancelled = true;
+        drain();
+    }
+
+    private void drain() {
+        if (workInProgress.getAndIncrement() != 0) {
+            // another call is sending rows, and it will pick up the changed state
+            return;
+        }
+
+        int missed = 1;
+        while (true) {
+            while (!done && !cancelled && invalidRequest == null && demand.get() > 0) {
+                sendNext();
+            }
+
+            if (!done && invalidRequest != null) {
+                terminate();
+                subscriber.onError(invalidRequest);
+            }
+            if (!done && cancelled) {
+                terminate();
+            }
+
+            missed = workInProgress.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private void sendNext() {
+        started = true;
+        final boolean hasNext;
+        try {
+            hasNext = rows.tryAdvance(el -> current = el);
+        }
+        catch (Throwable th) {
+            // the spliterator notified the listeners and released its resources
+            done = true;
+            subscriber.onError(th);
+            return;
+        }
+
+        if (!hasNext) {
+            // the spliterator closed itself after the last row
+            done = true;
+            subscriber.onComplete();
+            return;
+        }
+
+        final T el = current;
+        current = null;
+        if (demand.get() != Long.MAX_VALUE) {
+            demand.decrementAndGet();
+        }
+
+        try {
+            subscriber.onNext(el);
+        }
+        catch (Throwable th) {
+            // the subscriber violated the protocol, so we consider the subscription cancelled. The failure is reported through
+            //  onError rather than rethrown so that drain() terminates regularly, and later calls to request() or cancel() are no-ops
+            terminate();
+            subscriber.onError(th);
+        }
+    }
+
+    private void terminate() {
+        done = true;
+        if (started) {
+            close.run();
+        }
+    }
+}
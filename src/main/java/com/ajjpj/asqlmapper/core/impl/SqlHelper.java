@@ -4,6 +4,7 @@ import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.List;
@@ -20,6 +21,20 @@ public class SqlHelper {
         }
     }
 
+    /**
+     * Caches shared between connections must neither store nor serve data for connections with an open transaction, since that data
+     *  may be uncommitted, or it may miss the transaction's own modifications. If the auto-commit mode can not be determined, this
+     *  conservatively returns false.
+     */
+    public static boolean isAutoCommit(Connection conn) {
+        try {
+            return conn.getAutoCommit();
+        }
+        catch (SQLException exc) {
+            return false;
+        }
+    }
+
     public static void closeQuietly(AutoCloseable cl) {
         try {
             if (cl != null) cl.close();
@@ -0,0 +1,180 @@
+package com.ajjpj.asqlmapper.core.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import com.ajjpj.acollections.util.AOption;
+
+
+/**
+ * A lightweight, best effort extraction of table names from SQL statements, used for invalidating cached query results.
+ *  It does not parse SQL but looks at the tokens following keywords like {@code FROM}, {@code JOIN} or {@code UPDATE}.
+ *  Table names are normalized to lower case without quotes or schema prefixes, so tables with the same name in different
+ *  schemas are treated as the same table - which can only cause additional invalidations, never missing ones.
+ */
+public class SqlTableExtractor {
+    /**
+     * @return the names of all tables a query reads from
+     */
+    public static Set<String> readTables(String sql) {
+        final List<String> tokens = tokenize(sql);
+        final Set<String> result = new HashSet<>();
+
+        for (int i=0; i<tokens.size(); i++) {
+            final String token = tokens.get(i);
+            if (token.equals("join")) {
+                addIfIdentifier(result, tokens, i+1);
+            }
+            else if (token.equals("from")) {
+                // FROM a x, b y, ...
+                int idx = i+1;
+                while (addIfIdentifier(result, tokens, idx)) {
+                    idx += 1;
+                    while (idx < tokens.size() && !tokens.get(idx).equals(",") && !isClauseEnd(tokens.get(idx))) {
+                        idx += 1;
+                    }
+                    if (idx >= tokens.size() || !tokens.get(idx).equals(",")) {
+                        break;
+                    }
+                    idx += 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the table modified by an INSERT, UPDATE, DELETE, MERGE or TRUNCATE statement, or {@code none} if the statement
+     *          is of a different kind or its table could not be determined
+     */
+    public static AOption<String> writtenTable(String sql) {
+        final List<String> tokens = tokenize(sql);
+        if (tokens.isEmpty()) {
+            return AOption.none();
+        }
+
+        switch (tokens.get(0)) {
+            case "insert":
+            case "merge":
+                return tokenAfter(tokens, "into");
+            case "delete":
+                return tokenAfter(tokens, "from");
+            case "update":
+                return identifierAt(tokens, 1);
+            case "truncate":
+                return tokens.size() > 1 && tokens.get(1).equals("table") ? identifierAt(tokens, 2) : identifierAt(tokens, 1);
+            default:
+                return AOption.none();
+        }
+    }
+
+    /**
+     * Normalizes a table name the way table names in SQL statements are normalized, i.e. without quotes or schema prefix and
+     *  in lower case.
+     */
+    public static String normalizedTableName(String tableName) {
+        final String withoutQuotes = tableName.replace("\"", "").replace("`", "");
+        return withoutQuotes.substring(withoutQuotes.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static AOption<String> tokenAfter(List<String> tokens, String keyword) {
+        final int idx = tokens.indexOf(keyword);
+        return idx >= 0 ? identifierAt(tokens, idx+1) : AOption.none();
+    }
+
+    private static AOption<String> identifierAt(List<String> tokens, int idx) {
+        if (idx >= tokens.size() || !isIdentifier(tokens.get(idx))) {
+            return AOption.none();
+        }
+        return AOption.some(tokens.get(idx));
+    }
+
+    private static boolean addIfIdentifier(Set<String> result, List<String> tokens, int idx) {
+        if (idx < tokens.size() && isIdentifier(tokens.get(idx))) {
+            result.add(tokens.get(idx));
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isIdentifier(String token) {
+        return !token.isEmpty() && (Character.isLetter(token.charAt(0)) || token.charAt(0) == '_') && !isClauseEnd(token) && !token.equals("select");
+    }
+
+    private static boolean isClauseEnd(String token) {
+        switch (token) {
+            case "where": case "join": case "inner": case "left": case "right": case "full": case "cross": case "on": case "group":
+            case "order": case "having": case "limit": case "offset": case "union": case "except": case "intersect": case "for":
+            case "fetch": case "(": case ")": case ";":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Splits a statement into lower case words and single-character punctuation tokens, skipping string literals and
+     *  comments. Qualified names are reduced to their last segment, and quotes around identifiers are removed.
+     */
+    static List<String> tokenize(String sql) {
+        final List<String> result = new ArrayList<>();
+        final int len = sql.length();
+        int i = 0;
+        while (i < len) {
+            final char ch = sql.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                i += 1;
+            }
+            else if (ch == '\'') {
+                // string literal, with '' as an escaped quote
+                i += 1;
+                while (i < len) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i+1 < len && sql.charAt(i+1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i += 1;
+                }
+                i += 1;
+            }
+            else if (ch == '-' && i+1 < len && sql.charAt(i+1) == '-') {
+                while (i < len && sql.charAt(i) != '\n') {
+                    i += 1;
+                }
+            }
+            else if (ch == '/' && i+1 < len && sql.charAt(i+1) == '*') {
+                final int end = sql.indexOf("*/", i+2);
+                i = end < 0 ? len : end+2;
+            }
+            else if (isNamePart(ch)) {
+                final StringBuilder name = new StringBuilder();
+                while (i < len && (isNamePart(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    final char c = sql.charAt(i);
+                    if (c == '.') {
+                        name.setLength(0);
+                    }
+                    else if (c != '"' && c != '`') {
+                        name.append(c);
+                    }
+                    i += 1;
+                }
+                result.add(name.toString().toLowerCase(Locale.ROOT));
+            }
+            else {
+                result.add(String.valueOf(ch));
+                i += 1;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isNamePart(char ch) {
+        return Character.isLetterOrDigit(ch) || ch == '_' || ch == '$' || ch == '"' || ch == '`';
+    }
+}
@@ -0,0 +1,261 @@
+package com.ajjpj.asqlmapper.core.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
+
+/**
+ * A cache for {@link PreparedStatement}s, keyed by connection, SQL string and the list of columns with generated keys that
+ *  are requested from the statement. Reusing prepared statements saves a round trip to the database and the work of parsing
+ *  the SQL for frequently executed statements.<p>
+ *
+ * Statements are 'checked out' by {@link #prepare(Connection, String, List, AVector)} and must be handed back by calling
+ *  {@link #release(PreparedStatement, boolean)} when the caller is done with them. A statement is never shared between
+ *  callers while it is checked out: if the same SQL is executed again on the same connection while a previous execution
+ *  is still in progress (e.g. a stream that is not yet closed), a new statement is prepared.<p>
+ *
+ * The cache is bounded, evicting (and closing) the least recently used statement when it is full. The bound is global, i.e.
+ *  shared across all connections. After every {@link #CLOSED_CONNECTIONS_SWEEP_INTERVAL} cache misses, statements of
+ *  connections that were closed in the meantime are removed, so the cache does not keep closed connections reachable. This
+ *  calls {@link Connection#isClosed()} for every cached connection, so it is not done on every miss.
+ *  Application code can call {@link #closeStatements(Connection)} to release them eagerly before closing a connection or
+ *  returning it to a pool.<p>
+ *
+ * Statements are closed outside of the cache's lock, since closing a statement can involve a round trip to the database.<p>
+ *
+ * A cache with a maximum size of 0 or less is {@link #disabled() disabled}: it prepares a new statement for every call and
+ *  closes it on release, which is the behavior without a cache.
+ */
+public class StatementCache {
+    public static final int CLOSED_CONNECTIONS_SWEEP_INTERVAL = 100;
+
+    private static final StatementCache DISABLED = new StatementCache(0);
+
+    private final int maxSize;
+
+    private final Map<Key, PreparedStatement> cached;
+    private final Map<PreparedStatement, Key> checkedOut = new IdentityHashMap<>();
+    /** statements that were evicted while holding the lock, and that are closed after releasing it */
+    private final List<PreparedStatement> evicted = new ArrayList<>();
+    private int missesSinceSweep;
+
+    public static StatementCache disabled() {
+        return DISABLED;
+    }
+
+    public StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.cached = new LinkedHashMap<Key, PreparedStatement>(16, .75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Key, PreparedStatement> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    evicted.add(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of statements that are currently held in the cache, i.e. that are not checked out
+     */
+    public synchronized int size() {
+        return cached.size();
+    }
+
+    public PreparedStatement prepare(Connection conn, String sql, AVector<SqlEngineEventListener> listeners) throws SQLException {
+        return prepare(conn, sql, AVector.empty(), listeners);
+    }
+
+    public PreparedStatement prepare(Connection conn, String sql, List<String> generatedKeyColumns, AVector<SqlEngineEventListener> listeners)
+            throws SQLException {
+        if (!isEnabled()) {
+            return doPrepare(conn, sql, generatedKeyColumns);
+        }
+
+        final Key key = new Key(conn, sql, generatedKeyColumns);
+        synchronized (this) {
+            final PreparedStatement ps = cached.remove(key);
+            if (ps != null && !ps.isClosed()) {
+                checkedOut.put(ps, key);
+                listeners.forEach(l -> l.onStatementCacheHit(sql));
+                return ps;
+            }
+        }
+
+        listeners.forEach(l -> l.onStatementCacheMiss(sql));
+        if (isSweepDue()) {
+            removeClosedConnections();
+        }
+        final PreparedStatement result = doPrepare(conn, sql, generatedKeyColumns);
+        synchronized (this) {
+            checkedOut.put(result, key);
+        }
+        return result;
+    }
+
+    private static PreparedStatement doPrepare(Connection conn, String sql, List<String> generatedKeyColumns) throws SQLException {
+        if (generatedKeyColumns.isEmpty()) {
+            return conn.prepareStatement(sql);
+        }
+        return conn.prepareStatement(sql, generatedKeyColumns.toArray(new String[0]));
+    }
+
+    /**
+     * Hands a statement back to the cache after use. This method never throws an exception.
+     *
+     * @param reusable {@code false} if the statement should be closed rather than cached, e.g. because an error occurred
+     *                  while it was in use
+     */
+    public void release(PreparedStatement ps, boolean reusable) {
+        if (ps == null) {
+            return;
+        }
+
+        final Key key;
+        synchronized (this) {
+            key = checkedOut.remove(ps);
+        }
+        if (key == null || !reusable) {
+            SqlHelper.closeQuietly(ps);
+            return;
+        }
+
+        try {
+            ps.clearParameters();
+            ps.clearBatch();
+        }
+        catch (SQLException exc) {
+            SqlHelper.closeQuietly(ps);
+            return;
+        }
+
+        final boolean wasCached;
+        synchronized (this) {
+            // keep the statement that is already cached for this key, if any
+            wasCached = cached.putIfAbsent(key, ps) == null;
+        }
+        if (!wasCached) {
+            SqlHelper.closeQuietly(ps);
+        }
+        closeEvicted();
+    }
+
+    private void closeEvicted() {
+        final List<PreparedStatement> toClose;
+        synchronized (this) {
+            if (evicted.isEmpty()) {
+                return;
+            }
+            toClose = new ArrayList<>(evicted);
+            evicted.clear();
+        }
+        toClose.forEach(SqlHelper::closeQuietly);
+    }
+
+    private synchronized boolean isSweepDue() {
+        missesSinceSweep += 1;
+        if (missesSinceSweep < CLOSED_CONNECTIONS_SWEEP_INTERVAL) {
+            return false;
+        }
+        missesSinceSweep = 0;
+        return true;
+    }
+
+    /**
+     * Removes and closes cached statements of connections that were closed.
+     */
+    private void removeClosedConnections() {
+        final Set<Connection> connections = Collections.newSetFromMap(new IdentityHashMap<>());
+        synchronized (this) {
+            cached.keySet().forEach(k -> connections.add(k.conn));
+        }
+        for (Connection conn : connections) {
+            if (isClosed(conn)) {
+                closeStatements(conn);
+            }
+        }
+    }
+
+    private static boolean isClosed(Connection conn) {
+        try {
+            return conn.isClosed();
+        }
+        catch (SQLException exc) {
+            return true;
+        }
+    }
+
+    /**
+     * Closes and removes all cached statements for a given connection. Application code can call this before closing a
+     *  connection or returning it to a pool.
+     */
+    public void closeStatements(Connection conn) {
+        final List<PreparedStatement> toClose = new ArrayList<>();
+        synchronized (this) {
+            cached.entrySet().removeIf(e -> {
+                if (e.getKey().conn == conn) {
+                    toClose.add(e.getValue());
+                    return true;
+                }
+                return false;
+            });
+        }
+        toClose.forEach(SqlHelper::closeQuietly);
+    }
+
+    /**
+     * Closes and removes all cached statements
+     */
+    public void clear() {
+        final List<PreparedStatement> toClose;
+        synchronized (this) {
+            toClose = new ArrayList<>(cached.values());
+            cached.clear();
+        }
+        toClose.forEach(SqlHelper::closeQuietly);
+    }
+
+    private static class Key {
+        final Connection conn;
+        final String sql;
+        final List<String> generatedKeyColumns;
+
+        Key(Connection conn, String sql, List<String> generatedKeyColumns) {
+            this.conn = conn;
+            this.sql = sql;
+            this.generatedKeyColumns = generatedKeyColumns;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return conn == key.conn &&
+                    sql.equals(key.sql) &&
+                    generatedKeyColumns.equals(key.generatedKeyColumns);
+        }
+
+        @Override public int hashCode() {
+            return 31 * (31 * System.identityHashCode(conn) + sql.hashCode()) + generatedKeyColumns.hashCode();
+        }
+    }
+}
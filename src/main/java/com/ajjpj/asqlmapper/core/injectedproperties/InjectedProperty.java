@@ -1,8 +1,10 @@
 package com.ajjpj.asqlmapper.core.injectedproperties;
 
 import java.sql.Connection;
+import java.util.Map;
 
 import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.acollections.util.AUnchecker;
 import com.ajjpj.asqlmapper.core.SqlSnippet;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
 
@@ -24,12 +26,91 @@ import com.ajjpj.asqlmapper.core.common.SqlRow;
  *  denominator is that a 'property' value is provided for each row of a query's result.<p>
  *
  * The concept of 'property' is distinct from that of a 'column'. Columns contain primitive values which are
- *  mapped by a PrimitiveTypeHandler, while 'properties' can have any Java type.
+ *  mapped by a PrimitiveTypeHandler, while 'properties' can have any Java type.<p>
+ *
+ * Mementos that hold resources (e.g. an open ResultSet) can implement {@link AutoCloseable}: they are closed when the owning
+ *  query's results were processed, or when processing them failed.
  *
  * @param <M> the memento's type
  */
 public interface InjectedProperty<M> {
     String propertyName();
     M mementoPerQuery(Connection conn, Class<?> owningClass, SqlSnippet owningQuery);
+
+    /**
+     * An injected property can ask for the owning query's rows to be read before any of them are mapped, e.g. to load
+     *  related data by the owning rows' keys without executing the owning query a second time. If any of a query's injected
+     *  properties returns true, {@link #mementoPerQuery(Connection, Class, SqlSnippet, OwningRows)} is called for all of them.<p>
+     *
+     * Owning rows are only available for queries whose results are collected (e.g. {@code list} or {@code single}), not for
+     *  streaming, where {@link #mementoPerQuery(Connection, Class, SqlSnippet)} is always called.
+     */
+    default boolean wantsOwningRows(SqlSnippet owningQuery) {
+        return false;
+    }
+
+    default M mementoPerQuery(Connection conn, Class<?> owningClass, SqlSnippet owningQuery, OwningRows owningRows) {
+        return mementoPerQuery(conn, owningClass, owningQuery);
+    }
+
+    /**
+     * An injected property that loads its values based on the owning rows (rather than on the owning query as a whole) can
+     *  support loading them separately for each window of owning rows when a query is streamed in windows, see
+     *  {@link com.ajjpj.asqlmapper.core.AQuery#streamInWindows(int)}. For such properties,
+     *  {@link #mementoPerWindow(Connection, Class, SqlSnippet, OwningRows)} is called once per window; for all others,
+     *  {@link #mementoPerQuery(Connection, Class, SqlSnippet)} is called once for the entire query.
+     */
+    default boolean supportsWindows() {
+        return false;
+    }
+
+    /**
+     * @param window the owning rows of the current window
+     */
+    default M mementoPerWindow(Connection conn, Class<?> owningClass, SqlSnippet owningQuery, OwningRows window) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support windows");
+    }
+
+    /**
+     * A memento that keeps using the connection it was created with after {@code mementoPerQuery} returned (e.g. reading an
+     *  open ResultSet while the owning rows are mapped) must be created with the owning query's connection, because connections
+     *  of other threads are released when the memento was created. If this returns true, the memento is created on the
+     *  owning query's thread and connection also if injected properties are
+     *  {@link com.ajjpj.asqlmapper.core.SqlEngine#withInjectedPropertiesParallelism(int) loaded in parallel}.
+     */
+    default boolean mementoKeepsConnection() {
+        return false;
+    }
+
     AOption<Object> value(Connection conn, SqlRow currentRow, M memento);
+
+    /**
+     * Closes all mementos that implement {@link AutoCloseable}. If closing a memento fails, the others are closed nonetheless,
+     *  and the first failure is rethrown.
+     */
+    static void closeMementos(Map<String, Object> mementos) {
+        if (mementos == null) {
+            return;
+        }
+
+        Throwable failure = null;
+        for (Object memento: mementos.values()) {
+            if (memento instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) memento).close();
+                }
+                catch (Throwable th) {
+                    if (failure == null) {
+                        failure = th;
+                    }
+                    else {
+                        failure.addSuppressed(th);
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            AUnchecker.throwUnchecked(failure);
+        }
+    }
 }
@@ -1,17 +1,16 @@
 package com.ajjpj.asqlmapper.core.injectedproperties;
 
 import java.sql.Connection;
-import java.util.HashMap;
-import java.util.Map;
 
 import com.ajjpj.acollections.util.AOption;
 import com.ajjpj.asqlmapper.core.AQuery;
+import com.ajjpj.asqlmapper.core.ConnectionProvider;
 import com.ajjpj.asqlmapper.core.SqlSnippet;
 import com.ajjpj.asqlmapper.core.common.CollectionBuildStrategy;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
 
 
-public class InjectedToManyProperty<T,C,B> implements InjectedProperty<Map<Object,C>> {
+public class InjectedToManyProperty<T,C,B> implements InjectedProperty<RelationMemento<C>> {
     private final String propertyName;
     private final String masterKeyName;
     private final Class<?> keyType;
@@ -20,46 +19,95 @@ public class InjectedToManyProperty<T,C,B> implements InjectedProperty<Map<Objec
 
     private final CollectionBuildStrategy<T,B,C> collectionBuildStrategy;
 
+    private final boolean mergeJoin;
+    private final AOption<ConnectionProvider> detailConnectionProvider;
+
     public InjectedToManyProperty (String propertyName, String masterKeyName, Class<?> keyType, String detailKeyName, AQuery<T> detailQuery,
                                    CollectionBuildStrategy<T,B,C> collectionBuildStrategy) {
+        this(propertyName, masterKeyName, keyType, detailKeyName, detailQuery, collectionBuildStrategy, false, AOption.empty());
+    }
+    private InjectedToManyProperty (String propertyName, String masterKeyName, Class<?> keyType, String detailKeyName, AQuery<T> detailQuery,
+                                    CollectionBuildStrategy<T,B,C> collectionBuildStrategy, boolean mergeJoin,
+                                    AOption<ConnectionProvider> detailConnectionProvider) {
         this.propertyName = propertyName;
         this.masterKeyName = masterKeyName;
         this.keyType = keyType;
         this.detailKeyName = detailKeyName;
         this.detailQuery = detailQuery;
         this.collectionBuildStrategy = collectionBuildStrategy;
+        this.mergeJoin = mergeJoin;
+        this.detailConnectionProvider = detailConnectionProvider;
+    }
+
+    /**
+     * Returns a copy of this property that loads its values with a merge join: rather than reading all details into a map
+     *  before the first owning row is mapped, the detail query is read in lockstep with the owning rows, keeping memory usage
+     *  constant regardless of the number of rows. This requires both the owning query and the detail query to be ordered by
+     *  the key - the detail query is not modified, so it must have an {@code ORDER BY} for the detail key column. See
+     *  {@link MergeJoinCursor} for details.<p>
+     *
+     * The detail query is executed on the owning query's connection, which requires the JDBC driver to support several open
+     *  ResultSets per connection.
+     */
+    public InjectedToManyProperty<T,C,B> withMergeJoin() {
+        return new InjectedToManyProperty<>(propertyName, masterKeyName, keyType, detailKeyName, detailQuery, collectionBuildStrategy, true, AOption.empty());
+    }
+
+    /**
+     * Like {@link #withMergeJoin()}, but the detail query is executed on a separate connection. The connection is acquired from
+     *  the given provider when the owning query starts loading its injected properties, and it is released when the merge join's
+     *  cursor is closed.
+     */
+    public InjectedToManyProperty<T,C,B> withMergeJoin(ConnectionProvider detailConnectionProvider) {
+        return new InjectedToManyProperty<>(propertyName, masterKeyName, keyType, detailKeyName, detailQuery, collectionBuildStrategy, true,
+                AOption.some(detailConnectionProvider));
     }
 
     @Override public String propertyName () {
         return propertyName;
     }
 
-    @Override public Map<Object,C> mementoPerQuery (Connection conn, Class<?> owningClass, SqlSnippet owningQuery) {
-        final Map<Object,B> resultRaw = new HashMap<>();
+    /**
+     * A merge join's cursor reads the detail query's ResultSet while the owning rows are mapped.
+     */
+    @Override public boolean mementoKeepsConnection () {
+        return mergeJoin;
+    }
+
+    @Override public RelationMemento<C> mementoPerQuery (Connection conn, Class<?> owningClass, SqlSnippet owningQuery) {
+        if (mergeJoin) {
+            return new MergeJoinCursor<>(MergeJoinCursor.details(detailQuery, conn, detailConnectionProvider), keyType, detailKeyName, details -> {
+                final B builder = collectionBuildStrategy.createBuilder();
+                details.forEach(el -> collectionBuildStrategy.addElement(builder, el));
+                //noinspection unchecked
+                return collectionBuildStrategy.requiresFinalization() ? collectionBuildStrategy.finalizeBuilder(builder) : (C) builder;
+            });
+        }
+
+        final KeyMap<Object> result = KeyMap.forKeyType(keyType);
+        final int[] detailKeyIdx = { -1 };
 
         detailQuery.forEachWithRowAccess(conn, (el, row) -> {
-            final Object key = row.get(keyType, detailKeyName);
-            final B coll = resultRaw.computeIfAbsent(key, k -> collectionBuildStrategy.createBuilder());
-            collectionBuildStrategy.addElement(coll, el);
+            if (detailKeyIdx[0] < 0) {
+                detailKeyIdx[0] = row.indexOf(detailKeyName);
+            }
+            //noinspection unchecked
+            final B coll = (B) result.computeIfAbsent(row, detailKeyIdx[0], collectionBuildStrategy::createBuilder);
+            if (coll != null) {
+                collectionBuildStrategy.addElement(coll, el);
+            }
         });
 
-        final Map<Object,C> result;
         if(collectionBuildStrategy.requiresFinalization()) {
-            result = new HashMap<>();
-            for(Map.Entry<Object,B> e: resultRaw.entrySet()) {
-                result.put(e.getKey(), collectionBuildStrategy.finalizeBuilder(e.getValue()));
-            }
-        }
-        else {
             //noinspection unchecked
-            result = (Map<Object, C>) resultRaw;
+            result.replaceAll(b -> collectionBuildStrategy.finalizeBuilder((B) b));
         }
-
-        return result;
+        //noinspection unchecked
+        return (KeyMap<C>) result;
     }
 
-    @Override public AOption<Object> value (Connection conn, SqlRow currentRow, Map<Object,C> memento) {
-        final Object curMasterKey = currentRow.get(keyType, masterKeyName);
-        return memento.containsKey(curMasterKey) ? AOption.some(memento.get(curMasterKey)) : AOption.some(collectionBuildStrategy.empty());
+    @Override public AOption<Object> value (Connection conn, SqlRow currentRow, RelationMemento<C> memento) {
+        final C result = memento.get(currentRow, masterKeyName);
+        return AOption.some(result != null ? result : collectionBuildStrategy.empty());
     }
 }
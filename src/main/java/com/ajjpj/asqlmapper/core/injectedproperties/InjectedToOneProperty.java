@@ -1,47 +1,86 @@
 package com.ajjpj.asqlmapper.core.injectedproperties;
 
 import java.sql.Connection;
-import java.util.HashMap;
-import java.util.Map;
 
 import com.ajjpj.acollections.util.AOption;
 import com.ajjpj.asqlmapper.core.AQuery;
+import com.ajjpj.asqlmapper.core.ConnectionProvider;
 import com.ajjpj.asqlmapper.core.SqlSnippet;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
 
-public class InjectedToOneProperty<T> implements InjectedProperty<Map<Object,T>> {
+public class InjectedToOneProperty<T> implements InjectedProperty<RelationMemento<T>> {
     private final String propertyName;
     private final String masterKeyName;
     private final Class<?> keyType;
     private final String detailKeyName;
     private final AQuery<T> detailQuery;
 
+    private final boolean mergeJoin;
+    private final AOption<ConnectionProvider> detailConnectionProvider;
+
     public InjectedToOneProperty(String propertyName, String masterKeyName, Class<?> keyType, String detailKeyName, AQuery<T> detailQuery) {
+        this(propertyName, masterKeyName, keyType, detailKeyName, detailQuery, false, AOption.empty());
+    }
+    private InjectedToOneProperty(String propertyName, String masterKeyName, Class<?> keyType, String detailKeyName, AQuery<T> detailQuery,
+                                  boolean mergeJoin, AOption<ConnectionProvider> detailConnectionProvider) {
         this.propertyName = propertyName;
         this.masterKeyName = masterKeyName;
         this.keyType = keyType;
         this.detailKeyName = detailKeyName;
         this.detailQuery = detailQuery;
+        this.mergeJoin = mergeJoin;
+        this.detailConnectionProvider = detailConnectionProvider;
+    }
+
+    /**
+     * Returns a copy of this property that loads its values with a merge join, see
+     *  {@link InjectedToManyProperty#withMergeJoin()}. The detail query must be ordered by the detail key column.
+     */
+    public InjectedToOneProperty<T> withMergeJoin() {
+        return new InjectedToOneProperty<>(propertyName, masterKeyName, keyType, detailKeyName, detailQuery, true, AOption.empty());
+    }
+
+    /**
+     * Like {@link #withMergeJoin()}, but the detail query is executed on a separate connection from a given provider, see
+     *  {@link InjectedToManyProperty#withMergeJoin(ConnectionProvider)}.
+     */
+    public InjectedToOneProperty<T> withMergeJoin(ConnectionProvider detailConnectionProvider) {
+        return new InjectedToOneProperty<>(propertyName, masterKeyName, keyType, detailKeyName, detailQuery, true, AOption.some(detailConnectionProvider));
     }
 
     @Override public String propertyName () {
         return propertyName;
     }
 
-    @Override public Map<Object,T> mementoPerQuery (Connection conn, Class<?> owningClass, SqlSnippet owningQuery) {
-        final Map<Object,T> result = new HashMap<>();
+    /**
+     * A merge join's cursor reads the detail query's ResultSet while the owning rows are mapped.
+     */
+    @Override public boolean mementoKeepsConnection () {
+        return mergeJoin;
+    }
+
+    @Override public RelationMemento<T> mementoPerQuery (Connection conn, Class<?> owningClass, SqlSnippet owningQuery) {
+        if (mergeJoin) {
+            // if there are several details for a key, the last one wins, as it does for mementos in a map
+            return new MergeJoinCursor<>(MergeJoinCursor.details(detailQuery, conn, detailConnectionProvider), keyType, detailKeyName,
+                    details -> details.get(details.size() - 1));
+        }
+
+        final KeyMap<T> result = KeyMap.forKeyType(keyType);
+        final int[] detailKeyIdx = { -1 };
 
         detailQuery.forEachWithRowAccess(conn, (el, row) -> {
-            final Object key = row.get(keyType, detailKeyName);
-            result.put(key, el);
+            if (detailKeyIdx[0] < 0) {
+                detailKeyIdx[0] = row.indexOf(detailKeyName);
+            }
+            result.put(row, detailKeyIdx[0], el);
             //TODO warn about duplicates?
         });
 
         return result;
     }
 
-    @Override public AOption<Object> value (Connection conn, SqlRow currentRow, Map<Object,T> memento) {
-        final Object curMasterKey = currentRow.get(keyType, masterKeyName);
-        return memento.containsKey(curMasterKey) ? AOption.some(memento.get(curMasterKey)) : AOption.none();
+    @Override public AOption<Object> value (Connection conn, SqlRow currentRow, RelationMemento<T> memento) {
+        return AOption.of(memento.get(currentRow, masterKeyName));
     }
 }
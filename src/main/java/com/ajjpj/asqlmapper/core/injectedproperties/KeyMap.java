@@ -0,0 +1,319 @@
+package com.ajjpj.asqlmapper.core.injectedproperties;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+
+/**
+ * A map from key values to values, for the mementos of relations. Keys are read from a given column of a {@link SqlRow},
+ *  and SQL NULL keys never match anything.<p>
+ *
+ * Relations can have millions of detail rows, so for {@code long}, {@code int} and {@link UUID} keys there are specialized
+ *  implementations that store keys in primitive arrays using open addressing: this avoids boxing keys and allocating
+ *  an entry object per key. All other key types are stored in a {@link HashMap}.
+ */
+public abstract class KeyMap<V> implements RelationMemento<V> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int masterKeyIdx = -1;
+
+    public static <V> KeyMap<V> forKeyType(Class<?> keyType) {
+        if (keyType == Long.class || keyType == long.class || keyType == Integer.class || keyType == int.class) {
+            return new LongKeyMap<>();
+        }
+        if (keyType == UUID.class) {
+            return new UuidKeyMap<>();
+        }
+        return new ObjectKeyMap<>(keyType);
+    }
+
+    @Override public abstract V get(SqlRow row, int keyIdx);
+
+    @Override public V get(SqlRow row, String keyName) {
+        if (masterKeyIdx < 0) {
+            masterKeyIdx = row.indexOf(keyName);
+        }
+        return get(row, masterKeyIdx);
+    }
+
+    /**
+     * @return the value for the key in a given column of a row, storing a new value if there is none; null if the key is SQL NULL
+     */
+    public abstract V computeIfAbsent(SqlRow row, int keyIdx, Supplier<V> factory);
+
+    /**
+     * Stores a (non-null) value for the key in a given column of a row, replacing a previous value. Values for SQL NULL keys are
+     *  ignored.
+     */
+    public abstract void put(SqlRow row, int keyIdx, V value);
+
+    /**
+     * Adds all entries of another map, which must have been created for the same key type.
+     */
+    public abstract void putAll(KeyMap<V> other);
+
+    public abstract void replaceAll(UnaryOperator<V> f);
+
+    public abstract int size();
+
+    static int mix(long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Stores {@code long} keys and {@code int} keys, which are widened to {@code long}. Empty slots are marked by a null value.
+     */
+    static class LongKeyMap<V> extends KeyMap<V> {
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Object[] values = new Object[INITIAL_CAPACITY];
+        private int size;
+
+        private static boolean isNullKey(SqlRow row, int keyIdx, long key) {
+            // wasNull refers to the key that was just read, and it is only relevant if the primitive value is 0
+            return key == 0 && row.wasNull(keyIdx);
+        }
+
+        /**
+         * @return the slot containing the key if it is present, or else the empty slot where it belongs
+         */
+        private int slot(long key) {
+            final int mask = keys.length - 1;
+            int idx = mix(key) & mask;
+            while (values[idx] != null && keys[idx] != key) {
+                idx = (idx + 1) & mask;
+            }
+            return idx;
+        }
+
+        @Override public V get(SqlRow row, int keyIdx) {
+            final long key = row.getLongValue(keyIdx);
+            if (isNullKey(row, keyIdx, key)) {
+                return null;
+            }
+            //noinspection unchecked
+            return (V) values[slot(key)];
+        }
+
+        @Override public V computeIfAbsent(SqlRow row, int keyIdx, Supplier<V> factory) {
+            final long key = row.getLongValue(keyIdx);
+            if (isNullKey(row, keyIdx, key)) {
+                return null;
+            }
+            final int idx = slot(key);
+            if (values[idx] != null) {
+                //noinspection unchecked
+                return (V) values[idx];
+            }
+            final V result = factory.get();
+            insert(idx, key, result);
+            return result;
+        }
+
+        @Override public void put(SqlRow row, int keyIdx, V value) {
+            final long key = row.getLongValue(keyIdx);
+            if (!isNullKey(row, keyIdx, key)) {
+                put(key, value);
+            }
+        }
+
+        private void put(long key, Object value) {
+            final int idx = slot(key);
+            if (values[idx] != null) {
+                values[idx] = Objects.requireNonNull(value);
+            }
+            else {
+                insert(idx, key, value);
+            }
+        }
+
+        private void insert(int idx, long key, Object value) {
+            keys[idx] = key;
+            values[idx] = Objects.requireNonNull(value);
+            size += 1;
+            if (2*size > keys.length) {
+                final long[] oldKeys = keys;
+                final Object[] oldValues = values;
+                keys = new long[2*oldKeys.length];
+                values = new Object[2*oldValues.length];
+                for (int i=0; i<oldKeys.length; i++) {
+                    if (oldValues[i] != null) {
+                        final int newIdx = slot(oldKeys[i]);
+                        keys[newIdx] = oldKeys[i];
+                        values[newIdx] = oldValues[i];
+                    }
+                }
+            }
+        }
+
+        @Override public void putAll(KeyMap<V> other) {
+            final LongKeyMap<V> o = (LongKeyMap<V>) other;
+            for (int i=0; i<o.keys.length; i++) {
+                if (o.values[i] != null) {
+                    put(o.keys[i], o.values[i]);
+                }
+            }
+        }
+
+        @Override public void replaceAll(UnaryOperator<V> f) {
+            for (int i=0; i<values.length; i++) {
+                if (values[i] != null) {
+                    //noinspection unchecked
+                    values[i] = Objects.requireNonNull(f.apply((V) values[i]));
+                }
+            }
+        }
+
+        @Override public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Stores {@link UUID} keys as pairs of {@code long}s. Empty slots are marked by a null value.
+     */
+    static class UuidKeyMap<V> extends KeyMap<V> {
+        private long[] mostSigBits = new long[INITIAL_CAPACITY];
+        private long[] leastSigBits = new long[INITIAL_CAPACITY];
+        private Object[] values = new Object[INITIAL_CAPACITY];
+        private int size;
+
+        private int slot(long msb, long lsb) {
+            final int mask = values.length - 1;
+            int idx = mix(msb ^ lsb) & mask;
+            while (values[idx] != null && (mostSigBits[idx] != msb || leastSigBits[idx] != lsb)) {
+                idx = (idx + 1) & mask;
+            }
+            return idx;
+        }
+
+        @Override public V get(SqlRow row, int keyIdx) {
+            final UUID key = row.get(UUID.class, keyIdx);
+            if (key == null) {
+                return null;
+            }
+            //noinspection unchecked
+            return (V) values[slot(key.getMostSignificantBits(), key.getLeastSignificantBits())];
+        }
+
+        @Override public V computeIfAbsent(SqlRow row, int keyIdx, Supplier<V> factory) {
+            final UUID key = row.get(UUID.class, keyIdx);
+            if (key == null) {
+                return null;
+            }
+            final int idx = slot(key.getMostSignificantBits(), key.getLeastSignificantBits());
+            if (values[idx] != null) {
+                //noinspection unchecked
+                return (V) values[idx];
+            }
+            final V result = factory.get();
+            insert(idx, key.getMostSignificantBits(), key.getLeastSignificantBits(), result);
+            return result;
+        }
+
+        @Override public void put(SqlRow row, int keyIdx, V value) {
+            final UUID key = row.get(UUID.class, keyIdx);
+            if (key != null) {
+                put(key.getMostSignificantBits(), key.getLeastSignificantBits(), value);
+            }
+        }
+
+        private void put(long msb, long lsb, Object value) {
+            final int idx = slot(msb, lsb);
+            if (values[idx] != null) {
+                values[idx] = Objects.requireNonNull(value);
+            }
+            else {
+                insert(idx, msb, lsb, value);
+            }
+        }
+
+        private void insert(int idx, long msb, long lsb, Object value) {
+            mostSigBits[idx] = msb;
+            leastSigBits[idx] = lsb;
+            values[idx] = Objects.requireNonNull(value);
+            size += 1;
+            if (2*size > values.length) {
+                final long[] oldMsb = mostSigBits;
+                final long[] oldLsb = leastSigBits;
+                final Object[] oldValues = values;
+                mostSigBits = new long[2*oldValues.length];
+                leastSigBits = new long[2*oldValues.length];
+                values = new Object[2*oldValues.length];
+                for (int i=0; i<oldValues.length; i++) {
+                    if (oldValues[i] != null) {
+                        final int newIdx = slot(oldMsb[i], oldLsb[i]);
+                        mostSigBits[newIdx] = oldMsb[i];
+                        leastSigBits[newIdx] = oldLsb[i];
+                        values[newIdx] = oldValues[i];
+                    }
+                }
+            }
+        }
+
+        @Override public void putAll(KeyMap<V> other) {
+            final UuidKeyMap<V> o = (UuidKeyMap<V>) other;
+            for (int i=0; i<o.values.length; i++) {
+                if (o.values[i] != null) {
+                    put(o.mostSigBits[i], o.leastSigBits[i], o.values[i]);
+                }
+            }
+        }
+
+        @Override public void replaceAll(UnaryOperator<V> f) {
+            for (int i=0; i<values.length; i++) {
+                if (values[i] != null) {
+                    //noinspection unchecked
+                    values[i] = Objects.requireNonNull(f.apply((V) values[i]));
+                }
+            }
+        }
+
+        @Override public int size() {
+            return size;
+        }
+    }
+
+    static class ObjectKeyMap<V> extends KeyMap<V> {
+        private final Class<?> keyType;
+        private final Map<Object,V> map = new HashMap<>();
+
+        ObjectKeyMap(Class<?> keyType) {
+            this.keyType = keyType;
+        }
+
+        @Override public V get(SqlRow row, int keyIdx) {
+            final Object key = row.get(keyType, keyIdx);
+            return key != null ? map.get(key) : null;
+        }
+
+        @Override public V computeIfAbsent(SqlRow row, int keyIdx, Supplier<V> factory) {
+            final Object key = row.get(keyType, keyIdx);
+            return key != null ? map.computeIfAbsent(key, k -> factory.get()) : null;
+        }
+
+        @Override public void put(SqlRow row, int keyIdx, V value) {
+            final Object key = row.get(keyType, keyIdx);
+            if (key != null) {
+                map.put(key, Objects.requireNonNull(value));
+            }
+        }
+
+        @Override public void putAll(KeyMap<V> other) {
+            map.putAll(((ObjectKeyMap<V>) other).map);
+        }
+
+        @Override public void replaceAll(UnaryOperator<V> f) {
+            map.replaceAll((k, v) -> f.apply(v));
+        }
+
+        @Override public int size() {
+            return map.size();
+        }
+    }
+}
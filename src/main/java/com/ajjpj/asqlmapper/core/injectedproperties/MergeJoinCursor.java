@@ -0,0 +1,159 @@
+package com.ajjpj.asqlmapper.core.injectedproperties;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.acollections.util.AUnchecker;
+import com.ajjpj.asqlmapper.core.AQuery;
+import com.ajjpj.asqlmapper.core.ConnectionProvider;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+
+/**
+ * Reads a relation's details in lockstep with the owning rows, for relations loaded with a merge join: both the owning query
+ *  and the detail query must be ordered by the key, and the details for an owning row are read when its value is
+ *  requested. So memory usage is independent of the number of rows, and only the details of a single owning row are held
+ *  at any time.<p>
+ *
+ * Keys are compared by their natural ordering, which must agree with the ordering of the database; this is the case for
+ *  numeric keys, but e.g. string collations or UUID orderings may differ. Owning rows and details with out-of-order keys
+ *  cause an {@link IllegalStateException}, so values must be requested sequentially in the owning rows' order, and a
+ *  cursor must not be used by parallel streams. SQL NULL keys never match.<p>
+ *
+ * The cursor keeps the detail query's ResultSet open until it is closed, which happens when the owning query's results were
+ *  processed, see {@link InjectedProperty#closeMementos(Map)}. If the detail query runs on a connection of its own, closing
+ *  the cursor releases that connection as well.
+ */
+public class MergeJoinCursor<T,V> implements RelationMemento<V>, AutoCloseable {
+    private final Stream<Map.Entry<T, SqlRow>> details;
+    private final Iterator<Map.Entry<T, SqlRow>> detailIterator;
+    private final Class<?> keyType;
+    private final String detailKeyName;
+    private final Function<List<T>, V> valueFactory;
+
+    private int detailKeyIdx = -1;
+    private int masterKeyIdx = -1;
+
+    /** the key and mapped value of the first detail that was read but not yet matched, or null if there is none */
+    private Comparable<Object> nextDetailKey;
+    private T nextDetail;
+    private Comparable<Object> prevDetailKey;
+
+    private Comparable<Object> prevMasterKey;
+    private V prevValue;
+
+    /**
+     * @param details      the detail query's mapped rows together with their raw rows, ordered by {@code detailKeyName}
+     * @param valueFactory creates the value for an owning row from its (non-empty) list of details
+     */
+    public MergeJoinCursor(Stream<Map.Entry<T, SqlRow>> details, Class<?> keyType, String detailKeyName, Function<List<T>, V> valueFactory) {
+        this.details = details;
+        this.detailIterator = details.iterator();
+        this.keyType = keyType;
+        this.detailKeyName = detailKeyName;
+        this.valueFactory = valueFactory;
+    }
+
+    /**
+     * Streams a detail query's rows for a merge join, either on the owning query's connection or on a separate connection from
+     *  a provider. A separate connection is released when the returned stream is closed, after the detail query's ResultSet.
+     */
+    static <T> Stream<Map.Entry<T, SqlRow>> details(AQuery<T> detailQuery, Connection owningConn, AOption<ConnectionProvider> detailConnectionProvider) {
+        if (detailConnectionProvider.isEmpty()) {
+            return detailQuery.streamWithRowAccess(owningConn);
+        }
+
+        final ConnectionProvider provider = detailConnectionProvider.get();
+        final Connection detailConn = AUnchecker.executeUnchecked(provider::acquire);
+        try {
+            return detailQuery.streamWithRowAccess(detailConn)
+                    .onClose(() -> AUnchecker.executeUnchecked(() -> provider.release(detailConn)));
+        }
+        catch (Throwable th) {
+            try {
+                provider.release(detailConn);
+            }
+            catch (Throwable releaseFailure) {
+                th.addSuppressed(releaseFailure);
+            }
+            AUnchecker.throwUnchecked(th);
+            return null; // for the compiler
+        }
+    }
+
+    @Override public V get(SqlRow row, String keyName) {
+        if (masterKeyIdx < 0) {
+            masterKeyIdx = row.indexOf(keyName);
+        }
+        return get(row, masterKeyIdx);
+    }
+
+    @Override public V get(SqlRow row, int keyIdx) {
+        //noinspection unchecked
+        final Comparable<Object> masterKey = (Comparable<Object>) row.get(keyType, keyIdx);
+        if (masterKey == null) {
+            return null;
+        }
+        if (prevMasterKey != null) {
+            final int cmp = masterKey.compareTo(prevMasterKey);
+            if (cmp == 0) {
+                return prevValue;
+            }
+            if (cmp < 0) {
+                throw new IllegalStateException("owning rows are not ordered by their key for a merge join: " + masterKey + " after " + prevMasterKey);
+            }
+        }
+
+        final List<T> matches = new ArrayList<>();
+        while (peek() && nextDetailKey.compareTo(masterKey) <= 0) {
+            if (nextDetailKey.compareTo(masterKey) == 0) {
+                matches.add(nextDetail);
+            }
+            nextDetailKey = null;
+            nextDetail = null;
+        }
+
+        prevMasterKey = masterKey;
+        prevValue = matches.isEmpty() ? null : valueFactory.apply(matches);
+        return prevValue;
+    }
+
+    /**
+     * Makes sure the next detail with a non-null key was read, if there is one.
+     *
+     * @return false if there are no more details
+     */
+    private boolean peek() {
+        while (nextDetailKey == null) {
+            if (!detailIterator.hasNext()) {
+                return false;
+            }
+            final Map.Entry<T, SqlRow> next = detailIterator.next();
+            if (detailKeyIdx < 0) {
+                detailKeyIdx = next.getValue().indexOf(detailKeyName);
+            }
+            // the raw row is live, so its key must be read before advancing
+            //noinspection unchecked
+            final Comparable<Object> key = (Comparable<Object>) next.getValue().get(keyType, detailKeyIdx);
+            if (key == null) {
+                continue;
+            }
+            if (prevDetailKey != null && key.compareTo(prevDetailKey) < 0) {
+                throw new IllegalStateException("details are not ordered by " + detailKeyName + " for a merge join: " + key + " after " + prevDetailKey);
+            }
+            prevDetailKey = key;
+            nextDetailKey = key;
+            nextDetail = next.getKey();
+        }
+        return true;
+    }
+
+    @Override public void close() {
+        details.close();
+    }
+}
@@ -0,0 +1,47 @@
+package com.ajjpj.asqlmapper.core.injectedproperties;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+
+/**
+ * The rows of an owning query, read (and detached) before any of them are mapped, so that injected properties can use them
+ *  for loading their values - e.g. by binding the owning rows' keys as parameters instead of re-executing the owning query
+ *  as a subquery. See {@link InjectedProperty#wantsOwningRows(com.ajjpj.asqlmapper.core.SqlSnippet)}.
+ */
+public class OwningRows {
+    private final List<SqlRow> rows;
+    private final long queryNanos;
+
+    public OwningRows(List<SqlRow> rows, long queryNanos) {
+        this.rows = rows;
+        this.queryNanos = queryNanos;
+    }
+
+    public List<SqlRow> rows() {
+        return rows;
+    }
+
+    /**
+     * @return the time it took to execute the owning query, i.e. until its ResultSet was available
+     */
+    public long queryNanos() {
+        return queryNanos;
+    }
+
+    /**
+     * @return the distinct non-null values of a given column, in the order of their first occurrence
+     */
+    public <K> Set<K> distinctValues(Class<K> type, String columnName) {
+        final Set<K> result = new LinkedHashSet<>();
+        for (SqlRow row : rows) {
+            final K value = row.get(type, columnName);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+package com.ajjpj.asqlmapper.core.injectedproperties;
+
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+
+/**
+ * The memento of a relation, providing the related value(s) for the owning rows: either a {@link KeyMap} with all related values,
+ *  or a {@link MergeJoinCursor} reading them in lockstep with the owning rows.
+ */
+public interface RelationMemento<V> {
+    /**
+     * @return the related value for the key in a given column of an owning row, or null if there is none
+     */
+    V get(SqlRow row, int keyIdx);
+
+    /**
+     * @return the related value for the key in a named column of an owning row, or null if there is none. All owning rows of a
+     *  query have the same columns, so the column's index is resolved for the first row only.
+     */
+    V get(SqlRow row, String keyName);
+}
@@ -97,6 +97,27 @@ public class LoggingListener implements SqlEngineEventListener {
         start.remove();
         curSnippet.remove();
     }
+
+    @Override public void onBulkInsertProgress(Class<?> beanType, long numInserted) {
+        log.debug("bulk insert of {}: {} rows inserted", beanType, numInserted);
+    }
+
+    @Override public void onStatementCacheHit(String sql) {
+        log.trace("reusing cached prepared statement for {}", sql);
+        if (statisticsTracker != null) statisticsTracker.registerStatementCacheHit();
+    }
+    @Override public void onStatementCacheMiss(String sql) {
+        log.trace("no cached prepared statement for {}", sql);
+        if (statisticsTracker != null) statisticsTracker.registerStatementCacheMiss();
+    }
+
+    @Override public void onResultCacheHit(String sql) {
+        log.debug("using cached result for {}", sql);
+    }
+    @Override public void onResultCacheMiss(String sql) {
+        log.trace("no cached result for {}", sql);
+    }
+
     @Override public void onFailed (Throwable th) {
         final Instant startInstant = start.get();
 
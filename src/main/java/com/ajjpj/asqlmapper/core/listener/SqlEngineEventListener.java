@@ -10,6 +10,13 @@ public interface SqlEngineEventListener {
     }
     default void onAfterQueryIteration(int numRows) {
     }
+    /**
+     * Called when a query's rows were all read before mapping them because an injected property
+     *  {@link com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty#wantsOwningRows(SqlSnippet) wants the owning rows}.
+     *  This is called once per execution, regardless of the number of injected properties using the rows.
+     */
+    default void onOwningRowsRead(SqlSnippet sql, int numRows, long queryNanos) {
+    }
     default void onBeforeInsert(SqlSnippet sql, Class<?> pkCls, AVector<String> columnNames) {
     }
     default void onAfterInsert(Object result) {
@@ -22,6 +29,22 @@ public interface SqlEngineEventListener {
     }
     default void onAfterBatchUpdate() {
     }
+    /**
+     * Called by {@link com.ajjpj.asqlmapper.mapper.SqlMapper#insertAll(java.util.Iterator) bulk inserts} after each chunk of rows was
+     *  inserted, with the total number of rows inserted so far.
+     */
+    default void onBulkInsertProgress(Class<?> beanType, long numInserted) {
+    }
+
+    default void onStatementCacheHit(String sql) {
+    }
+    default void onStatementCacheMiss(String sql) {
+    }
+
+    default void onResultCacheHit(String sql) {
+    }
+    default void onResultCacheMiss(String sql) {
+    }
 
     default void onFailed(Throwable th) {
     }
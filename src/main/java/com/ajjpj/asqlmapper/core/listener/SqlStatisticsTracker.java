@@ -19,7 +19,7 @@ class SqlStatisticsTracker {
     }
 
     private void init() {
-        statistics.set(new SqlStatistics(Instant.now(), Instant.now(), 0, 0, 0, 0, 0, 0, firstNLimit, AMap.empty()));
+        statistics.set(new SqlStatistics(Instant.now(), Instant.now(), 0, 0, 0, 0, 0, 0, 0, 0, firstNLimit, AMap.empty()));
     }
 
     void clear() {
@@ -40,6 +40,31 @@ class SqlStatisticsTracker {
         doRegister(sql, durationMillis, UPDATE);
     }
 
+    void registerStatementCacheHit() {
+        SqlStatistics before, after;
+        do {
+            before = statistics.get();
+            after = new SqlStatistics(before.getStartOfTracking(), Instant.now(),
+                    before.getNumQueries(), before.getNumInserts(), before.getNumUpdates(),
+                    before.getTotalQueryMillis(), before.getTotalInsertMillis(), before.getTotalUpdateMillis(),
+                    before.getNumStatementCacheHits() + 1, before.getNumStatementCacheMisses(),
+                    firstNLimit, before.getStatisticsByStatement());
+        }
+        while (! statistics.compareAndSet(before, after));
+    }
+    void registerStatementCacheMiss() {
+        SqlStatistics before, after;
+        do {
+            before = statistics.get();
+            after = new SqlStatistics(before.getStartOfTracking(), Instant.now(),
+                    before.getNumQueries(), before.getNumInserts(), before.getNumUpdates(),
+                    before.getTotalQueryMillis(), before.getTotalInsertMillis(), before.getTotalUpdateMillis(),
+                    before.getNumStatementCacheHits(), before.getNumStatementCacheMisses() + 1,
+                    firstNLimit, before.getStatisticsByStatement());
+        }
+        while (! statistics.compareAndSet(before, after));
+    }
+
     private void doRegister(String sql, long durationMillis, int kind) {
         SqlStatistics before, after;
         do {
@@ -68,6 +93,7 @@ class SqlStatisticsTracker {
             after = new SqlStatistics(before.getStartOfTracking(), Instant.now(),
                     newNumQueries, newNumInserts, newNumUpdates,
                     newTotalQueryMillis, newTotalInsertMillis, newTotalUpdateMillis,
+                    before.getNumStatementCacheHits(), before.getNumStatementCacheMisses(),
                     firstNLimit, newStatisticsByStatement);
         }
         while (! statistics.compareAndSet(before, after));
@@ -0,0 +1,223 @@
+package com.ajjpj.asqlmapper.javabeans;
+
+import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.ajjpj.acollections.util.AUnchecker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates functional wrappers for invoking bean methods and constructors, avoiding the overhead of reflective calls
+ *  on the hot path of mapping rows to beans.<p>
+ *
+ * Methods of public classes that are visible from this library's class loader are wrapped with
+ *  {@link LambdaMetafactory}, which allows the JIT to inline them like regular lambdas. Other methods (e.g. non-public
+ *  setters made accessible by {@link java.lang.reflect.AccessibleObject#setAccessible(boolean) setAccessible}) are
+ *  called through {@link MethodHandle}s, and if even that fails, the wrappers fall back to plain reflection.
+ */
+public final class BeanAccessors {
+    private static final Logger log = LoggerFactory.getLogger(BeanAccessors.class);
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private BeanAccessors() {
+    }
+
+    /**
+     * @return a function calling a given instance method without parameters (e.g. a getter) on its argument
+     */
+    @SuppressWarnings("unchecked")
+    public static Function<Object, Object> instanceMethod(Method mtd) {
+        try {
+            final MethodHandle target = lookup.unreflect(mtd);
+            if (canUseLambdaMetafactory(mtd)) {
+                try {
+                    final CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+                            MethodType.methodType(Object.class, Object.class), target, target.type().wrap());
+                    return (Function<Object, Object>) site.getTarget().invoke();
+                }
+                catch (Throwable th) {
+                    log.debug("falling back to method handle for " + mtd, th);
+                }
+            }
+
+            final MethodHandle mh = target.asType(MethodType.genericMethodType(1));
+            return o -> {
+                try {
+                    return mh.invokeExact(o);
+                }
+                catch (Throwable th) {
+                    AUnchecker.throwUnchecked(th);
+                    return null; // for the compiler
+                }
+            };
+        }
+        catch (IllegalAccessException exc) {
+            log.debug("falling back to reflection for " + mtd, exc);
+            return o -> executeUnchecked(() -> mtd.invoke(o));
+        }
+    }
+
+    /**
+     * @return a function calling a given instance method with one parameter (e.g. a setter) on its first argument, passing
+     *  in its second argument and returning the method's result - or {@code null} if the method is {@code void}
+     */
+    @SuppressWarnings("unchecked")
+    public static BiFunction<Object, Object, Object> instanceMethodWithArg(Method mtd) {
+        try {
+            final MethodHandle target = lookup.unreflect(mtd);
+            if (canUseLambdaMetafactory(mtd)) {
+                try {
+                    if (mtd.getReturnType() == void.class) {
+                        final CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+                                MethodType.methodType(void.class, Object.class, Object.class), target, target.type().wrap().changeReturnType(void.class));
+                        final BiConsumer<Object, Object> consumer = (BiConsumer<Object, Object>) site.getTarget().invoke();
+                        return (o, arg) -> {
+                            consumer.accept(o, arg);
+                            return null;
+                        };
+                    }
+
+                    final CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(BiFunction.class),
+                            MethodType.methodType(Object.class, Object.class, Object.class), target, target.type().wrap());
+                    return (BiFunction<Object, Object, Object>) site.getTarget().invoke();
+                }
+                catch (Throwable th) {
+                    log.debug("falling back to method handle for " + mtd, th);
+                }
+            }
+
+            final MethodHandle mh = target.asType(MethodType.genericMethodType(2));
+            return (o, arg) -> {
+                try {
+                    return mh.invokeExact(o, arg);
+                }
+                catch (Throwable th) {
+                    AUnchecker.throwUnchecked(th);
+                    return null; // for the compiler
+                }
+            };
+        }
+        catch (IllegalAccessException exc) {
+            log.debug("falling back to reflection for " + mtd, exc);
+            return (o, arg) -> executeUnchecked(() -> mtd.invoke(o, arg));
+        }
+    }
+
+    /**
+     * @return a supplier calling a given static method without parameters (e.g. a builder factory)
+     */
+    public static Supplier<Object> staticMethod(Method mtd) {
+        try {
+            return supplierFor(mtd, lookup.unreflect(mtd));
+        }
+        catch (IllegalAccessException exc) {
+            log.debug("falling back to reflection for " + mtd, exc);
+            return () -> executeUnchecked(() -> mtd.invoke(null));
+        }
+    }
+
+    /**
+     * @return a supplier calling a given constructor without parameters
+     */
+    public static Supplier<Object> constructor(Constructor<?> ctor) {
+        try {
+            return supplierFor(ctor, lookup.unreflectConstructor(ctor));
+        }
+        catch (IllegalAccessException exc) {
+            log.debug("falling back to reflection for " + ctor, exc);
+            return () -> executeUnchecked(() -> ctor.newInstance());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Object> supplierFor(Member member, MethodHandle target) {
+        if (canUseLambdaMetafactory(member)) {
+            try {
+                final CallSite site = LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class), target, target.type().wrap());
+                return (Supplier<Object>) site.getTarget().invoke();
+            }
+            catch (Throwable th) {
+                log.debug("falling back to method handle for " + member, th);
+            }
+        }
+
+        final MethodHandle mh = target.asType(MethodType.genericMethodType(0));
+        return () -> {
+            try {
+                return mh.invokeExact();
+            }
+            catch (Throwable th) {
+                AUnchecker.throwUnchecked(th);
+                return null; // for the compiler
+            }
+        };
+    }
+
+    /**
+     * Wraps a method in an arbitrary functional interface using {@link LambdaMetafactory}, e.g. for calling a setter with
+     *  a primitive parameter type through an {@link java.util.function.ObjLongConsumer ObjLongConsumer} without boxing.
+     *  Unlike the other methods in this class, this method has no fallback.
+     *
+     * @param samType the erased signature of the functional interface's method
+     * @throws IllegalArgumentException if the method can not be wrapped in this way
+     */
+    @SuppressWarnings("unchecked")
+    public static <F> F lambdaFor(Method mtd, Class<F> functionalInterface, String samName, MethodType samType) {
+        if (!canUseLambdaMetafactory(mtd)) {
+            throw new IllegalArgumentException("method " + mtd + " can not be wrapped with LambdaMetafactory");
+        }
+
+        try {
+            final MethodHandle target = lookup.unreflect(mtd);
+            final MethodType instantiatedType = samType.returnType() == void.class
+                    ? target.type().changeReturnType(void.class)
+                    : target.type().changeReturnType(target.type().wrap().returnType());
+            final CallSite site = LambdaMetafactory.metafactory(lookup, samName, MethodType.methodType(functionalInterface), samType, target,
+                    instantiatedType);
+            return (F) site.getTarget().invoke();
+        }
+        catch (Throwable th) {
+            throw new IllegalArgumentException("could not wrap method " + mtd + " in " + functionalInterface.getName(), th);
+        }
+    }
+
+    /**
+     * Classes generated by {@link LambdaMetafactory} call their target directly, so access is checked from this class
+     *  rather than by the method handle - and that check fails only when the generated code is first called. So we only
+     *  use it for public members of public classes that this class can see.
+     */
+    private static boolean canUseLambdaMetafactory(Member member) {
+        if (!Modifier.isPublic(member.getModifiers())) {
+            return false;
+        }
+        for (Class<?> cls = member.getDeclaringClass(); cls != null; cls = cls.getDeclaringClass()) {
+            if (!Modifier.isPublic(cls.getModifiers())) {
+                return false;
+            }
+        }
+
+        final Class<?> declaringClass = member.getDeclaringClass();
+        try {
+            return Class.forName(declaringClass.getName(), false, BeanAccessors.class.getClassLoader()) == declaringClass;
+        }
+        catch (ClassNotFoundException | LinkageError exc) {
+            return false;
+        }
+    }
+}
@@ -1,22 +1,130 @@
 package com.ajjpj.asqlmapper.javabeans;
 
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import com.ajjpj.acollections.immutable.AVector;
 import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
 import com.ajjpj.asqlmapper.core.RowExtractor;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 class BeanMetaDataBasedRowExtractor implements RowExtractor {
+    private static final Logger log = LoggerFactory.getLogger(BeanMetaDataBasedRowExtractor.class);
+
+    /** the default maximum number of cached mapping plans */
+    public static final int DEFAULT_MAX_PLANS = 1000;
+
     private final BeanMetaDataRegistry beanRegistry;
+    private final boolean specialized;
+
+    /**
+     * A query's column names (and the bean type) determine its mapping plan, so plans are reused across executions. Ad-hoc
+     *  queries can have arbitrarily many column layouts, so the cache is bounded, evicting the least recently used plan.
+     */
+    private final Map<PlanKey, RowMappingPlan> planCache;
 
     public BeanMetaDataBasedRowExtractor (BeanMetaDataRegistry beanRegistry) {
+        this(beanRegistry, false);
+    }
+
+    /**
+     * @param specialized if true, a {@link SpecializedBeanRowMapper} is created per bean type and column layout rather than a
+     *                    generic plan
+     */
+    public BeanMetaDataBasedRowExtractor (BeanMetaDataRegistry beanRegistry, boolean specialized) {
+        this(beanRegistry, specialized, DEFAULT_MAX_PLANS);
+    }
+
+    /**
+     * @param maxPlans the maximum number of cached mapping plans
+     */
+    public BeanMetaDataBasedRowExtractor (BeanMetaDataRegistry beanRegistry, boolean specialized, int maxPlans) {
         this.beanRegistry = beanRegistry;
+        this.specialized = specialized;
+        this.planCache = new LinkedHashMap<PlanKey, RowMappingPlan>(16, .75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<PlanKey, RowMappingPlan> eldest) {
+                return size() > maxPlans;
+            }
+        };
+    }
+
+    /**
+     * Discards all cached mapping plans, e.g. after bean meta data changed.
+     */
+    public synchronized void clearPlanCache() {
+        planCache.clear();
+    }
+
+    public synchronized int planCacheSize() {
+        return planCache.size();
     }
 
     @Override public boolean canHandle (Class<?> cls) {
         return beanRegistry.canHandle(cls);
     }
 
+    @Override public Object mementoPerQuery (Class<?> cls, PrimitiveTypeRegistry primTypes, ResultSet rs, boolean isStreaming) throws SQLException {
+        final ResultSetMetaData rsMeta = rs.getMetaData();
+        final AVector.Builder<String> columnNames = AVector.builder();
+        for (int i=1; i<=rsMeta.getColumnCount(); i++) {
+            columnNames.add(rsMeta.getColumnName(i));
+        }
+        return plan(cls, primTypes, columnNames.build());
+    }
+
+    @Override public Object mementoPerQuery (Class<?> cls, PrimitiveTypeRegistry primTypes, List<String> columnNames, boolean isStreaming) {
+        return plan(cls, primTypes, AVector.from(columnNames));
+    }
+
+    private RowMappingPlan plan(Class<?> cls, PrimitiveTypeRegistry primTypes, AVector<String> columnNames) {
+        final PlanKey key = new PlanKey(cls, columnNames, hasDefaultPrimitiveHandlers(primTypes));
+        synchronized (this) {
+            final RowMappingPlan cached = planCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        // plans are created outside the lock because that may involve bytecode generation
+        final RowMappingPlan plan = createPlan(key);
+        synchronized (this) {
+            final RowMappingPlan concurrentlyCreated = planCache.putIfAbsent(key, plan);
+            return concurrentlyCreated != null ? concurrentlyCreated : plan;
+        }
+    }
+
+    /**
+     * Plans read primitive properties through the row's primitive getters only if that makes no difference, i.e. if
+     *  no application specific handlers override the defaults for these types.
+     */
+    private static boolean hasDefaultPrimitiveHandlers(PrimitiveTypeRegistry primTypes) {
+        return primTypes.hasDefaultHandler(long.class) &&
+                primTypes.hasDefaultHandler(int.class) &&
+                primTypes.hasDefaultHandler(double.class) &&
+                primTypes.hasDefaultHandler(boolean.class);
+    }
+
+    private RowMappingPlan createPlan(PlanKey key) {
+        final BeanMetaData beanMetaData = beanRegistry.getBeanMetaData(key.beanType);
+        if (specialized) {
+            try {
+                return SpecializedBeanRowMapper.create(beanMetaData, key.columnNames, key.primitiveGetters);
+            }
+            catch (Exception exc) {
+                log.warn("could not create a specialized row mapper for " + key.beanType.getName() + " - falling back to generic mapping", exc);
+            }
+        }
+        return ColumnMappingPlan.create(beanMetaData, key.columnNames, key.primitiveGetters);
+    }
+
     @Override public <T> T fromSql (Class<T> cls, PrimitiveTypeRegistry primTypes, SqlRow row, Object mementoPerQuery, boolean isStreaming,
                                     Map<String,Object> injectedPropsValues) {
         final BeanMetaData beanMetaData = beanRegistry.getBeanMetaData(cls);
@@ -27,16 +135,134 @@ class BeanMetaDataBasedRowExtractor implements RowExtractor {
             //TODO better reporting for "not found"
         }
 
-        for(String colName: row.columnNames()) {
-            final BeanProperty prop = beanMetaData.getBeanPropertyForColumnName(colName);
-            if(prop == null)
-                continue;
-            if(injectedPropsValues.containsKey(prop.name()))
-                continue;
+        if (mementoPerQuery instanceof RowMappingPlan) {
+            builder = ((RowMappingPlan) mementoPerQuery).apply(builder, row, injectedPropsValues);
+        }
+        else {
+            for(String colName: row.columnNames()) {
+                final BeanProperty prop = beanMetaData.getBeanPropertyForColumnName(colName);
+                if(prop == null)
+                    continue;
+                if(injectedPropsValues.containsKey(prop.name()))
+                    continue;
 
-            builder = prop.setOnBuilder(builder, row.get(prop.propClass(), colName));
+                builder = prop.setOnBuilder(builder, row.get(prop.propClass(), colName));
+            }
         }
         //noinspection unchecked
         return (T) beanMetaData.finalizeBuilder(builder);
     }
+
+    /**
+     * The mapping of a query's columns to bean properties, resolved once so that mapping a row requires no column name
+     *  lookups.
+     */
+    interface RowMappingPlan {
+        /**
+         * Transfers a row's values to a bean builder, skipping properties with injected values.
+         *
+         * @return the builder, which may be a different instance for fluent builders
+         */
+        Object apply(Object builder, SqlRow row, Map<String,Object> injectedPropsValues);
+    }
+
+    static class ColumnMappingPlan implements RowMappingPlan {
+        private final int[] columnIndexes;
+        private final BeanProperty[] properties;
+        private final boolean primitiveGetters;
+
+        private ColumnMappingPlan (int[] columnIndexes, BeanProperty[] properties, boolean primitiveGetters) {
+            this.columnIndexes = columnIndexes;
+            this.properties = properties;
+            this.primitiveGetters = primitiveGetters;
+        }
+
+        static ColumnMappingPlan create(BeanMetaData beanMetaData, AVector<String> columnNames, boolean primitiveGetters) {
+            final int[] indexBuffer = new int[columnNames.size()];
+            final BeanProperty[] propBuffer = new BeanProperty[columnNames.size()];
+            final Set<String> mappedProperties = new HashSet<>();
+            int numMapped = 0;
+
+            for (int i=0; i<columnNames.size(); i++) {
+                final BeanProperty prop = beanMetaData.getBeanPropertyForColumnName(columnNames.get(i));
+                if (prop == null)
+                    continue;
+                // for duplicate column names, the first column wins like for JDBC's lookup by name
+                if (!mappedProperties.add(prop.name()))
+                    continue;
+                indexBuffer[numMapped] = i;
+                propBuffer[numMapped] = prop;
+                numMapped += 1;
+            }
+
+            final int[] columnIndexes = new int[numMapped];
+            final BeanProperty[] properties = new BeanProperty[numMapped];
+            System.arraycopy(indexBuffer, 0, columnIndexes, 0, numMapped);
+            System.arraycopy(propBuffer, 0, properties, 0, numMapped);
+            return new ColumnMappingPlan(columnIndexes, properties, primitiveGetters);
+        }
+
+        @Override public Object apply(Object builder, SqlRow row, Map<String,Object> injectedPropsValues) {
+            final boolean hasInjectedProps = !injectedPropsValues.isEmpty();
+            for (int i=0; i<columnIndexes.length; i++) {
+                final BeanProperty prop = properties[i];
+                if (hasInjectedProps && injectedPropsValues.containsKey(prop.name()))
+                    continue;
+
+                builder = prop.setOnBuilder(builder, readColumn(row, prop.propClass(), columnIndexes[i]));
+            }
+            return builder;
+        }
+
+        /**
+         * Primitive-typed properties are read through the row's primitive getters, bypassing the generic conversion
+         *  through {@link PrimitiveTypeRegistry}, unless the registry has application specific handlers for them.
+         */
+        private Object readColumn(SqlRow row, Class<?> propClass, int idx) {
+            if (!primitiveGetters || !propClass.isPrimitive()) {
+                return row.get(propClass, idx);
+            }
+
+            if (propClass == long.class) {
+                final long result = row.getLongValue(idx);
+                return (result == 0 && row.wasNull(idx)) ? null : result;
+            }
+            if (propClass == int.class) {
+                final int result = row.getIntValue(idx);
+                return (result == 0 && row.wasNull(idx)) ? null : result;
+            }
+            if (propClass == double.class) {
+                final double result = row.getDoubleValue(idx);
+                return (result == 0 && row.wasNull(idx)) ? null : result;
+            }
+            if (propClass == boolean.class) {
+                final boolean result = row.getBooleanValue(idx);
+                return (!result && row.wasNull(idx)) ? null : result;
+            }
+            return row.get(propClass, idx);
+        }
+    }
+
+    private static class PlanKey {
+        final Class<?> beanType;
+        final AVector<String> columnNames;
+        final boolean primitiveGetters;
+
+        PlanKey (Class<?> beanType, AVector<String> columnNames, boolean primitiveGetters) {
+            this.beanType = beanType;
+            this.columnNames = columnNames;
+            this.primitiveGetters = primitiveGetters;
+        }
+
+        @Override public boolean equals (Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final PlanKey planKey = (PlanKey) o;
+            return beanType == planKey.beanType && primitiveGetters == planKey.primitiveGetters && columnNames.equals(planKey.columnNames);
+        }
+
+        @Override public int hashCode () {
+            return 31 * (31 * beanType.hashCode() + columnNames.hashCode()) + Boolean.hashCode(primitiveGetters);
+        }
+    }
 }
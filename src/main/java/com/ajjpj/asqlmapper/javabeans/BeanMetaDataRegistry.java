@@ -9,4 +9,13 @@ public interface BeanMetaDataRegistry extends CanHandle {
     default RowExtractor asRowExtractor() {
         return new BeanMetaDataBasedRowExtractor(this);
     }
+
+    /**
+     * Returns a row extractor that creates a dedicated mapper per bean type and column layout, calling void setters
+     *  through generated lambdas and passing primitive values without boxing them. It falls back to generic mapping
+     *  for properties (or beans) where this is not possible.
+     */
+    default RowExtractor asSpecializedRowExtractor() {
+        return new BeanMetaDataBasedRowExtractor(this, true);
+    }
 }
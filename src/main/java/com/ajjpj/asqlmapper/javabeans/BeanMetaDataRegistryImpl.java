@@ -3,20 +3,35 @@ package com.ajjpj.asqlmapper.javabeans;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import com.ajjpj.asqlmapper.core.RowExtractor;
 import com.ajjpj.asqlmapper.javabeans.extractors.BeanMetaDataExtractor;
 
 public class BeanMetaDataRegistryImpl implements BeanMetaDataRegistry {
     private final BeanMetaDataExtractor extractor;
+    private final boolean specializedRowExtractor;
     private final Map<Class<?>, BeanMetaData> cache = new ConcurrentHashMap<>();
 
     public BeanMetaDataRegistryImpl (BeanMetaDataExtractor extractor) {
+        this(extractor, false);
+    }
+
+    /**
+     * @param specializedRowExtractor if true, {@link #asRowExtractor()} returns a
+     *                                {@link BeanMetaDataRegistry#asSpecializedRowExtractor() specialized} row extractor
+     */
+    public BeanMetaDataRegistryImpl (BeanMetaDataExtractor extractor, boolean specializedRowExtractor) {
         this.extractor = extractor;
+        this.specializedRowExtractor = specializedRowExtractor;
     }
 
     @Override public boolean canHandle (Class<?> cls) {
         return extractor.canHandle(cls);
     }
 
+    @Override public RowExtractor asRowExtractor () {
+        return specializedRowExtractor ? asSpecializedRowExtractor() : new BeanMetaDataBasedRowExtractor(this);
+    }
+
     @Override public BeanMetaData getBeanMetaData (Class<?> beanType) {
         return cache.computeIfAbsent(beanType,
                 bt -> new BeanMetaData(
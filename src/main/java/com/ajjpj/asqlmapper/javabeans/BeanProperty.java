@@ -1,32 +1,44 @@
 package com.ajjpj.asqlmapper.javabeans;
 
-import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
-
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import com.ajjpj.acollections.ASet;
 import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.javabeans.extractors.BeanExtractorUtils;
 import com.ajjpj.asqlmapper.mapper.util.BeanReflectionHelper;
 
 public class BeanProperty {
     private final Class<?> beanClass;
     private final Class<?> settablePropClass;
-    private final Type propType;
     private final String name;
     private final String columnName;
 
-    private final Method getterMethod;
-    private final Optional<Method> setterMethod;
     private final boolean setterReturnsBean;
-    private final Optional<Field> field;
-
-    private final Method builderSetterMethod;
     private final boolean builderSetterReturnsBean;
 
+    /**
+     * reflective meta data, i.e. {@link Method}s, {@link Field} and generic type. This is resolved lazily for properties
+     *  created by generated code, which access the bean through plain method calls and need reflection only for
+     *  annotations and generic property types.
+     */
+    private volatile ReflectiveMetaData reflective;
+    private final Supplier<ReflectiveMetaData> reflectiveResolver;
+
+    private final Function<Object,Object> getter;
+    private final Optional<BiFunction<Object,Object,Object>> setter;
+    private final BiFunction<Object,Object,Object> builderSetter;
+
+    private final Map<Class<?>, Optional<?>> annotationCache = new ConcurrentHashMap<>();
+
     public BeanProperty(Class<?> beanClass, Class<?> settablePropClass, Type propType,
                         String name, String columnName, Method getterMethod, Optional<Method> setterMethod,
                         boolean setterReturnsBean,
@@ -34,28 +46,110 @@ public class BeanProperty {
                         Method builderSetterMethod, boolean builderSetterReturnsBean) {
         this.beanClass = beanClass;
         this.settablePropClass = settablePropClass;
-        this.propType = propType;
         this.name = name;
         this.columnName = columnName;
-        this.getterMethod = getterMethod;
-        this.setterMethod = setterMethod;
         this.setterReturnsBean = setterReturnsBean;
-        this.field = field;
-        this.builderSetterMethod = builderSetterMethod;
         this.builderSetterReturnsBean = builderSetterReturnsBean;
+
+        this.reflective = new ReflectiveMetaData(propType, getterMethod, setterMethod, field, builderSetterMethod);
+        this.reflectiveResolver = null;
+
+        this.getter = BeanAccessors.instanceMethod(getterMethod);
+        this.setter = setterMethod.map(BeanAccessors::instanceMethodWithArg);
+        this.builderSetter = BeanAccessors.instanceMethodWithArg(builderSetterMethod);
+    }
+
+    /**
+     * This constructor is intended for code generated at compile time, see
+     *  {@link com.ajjpj.asqlmapper.javabeans.processor.BeanMetaDataProcessor BeanMetaDataProcessor}. It takes the functions
+     *  for accessing a JavaBeans property explicitly, and it looks up the getter and setter {@link Method}s by name
+     *  only when they are actually needed, e.g. for reading annotations. The column name is {@code null} unless it is
+     *  given explicitly by a {@link com.ajjpj.asqlmapper.javabeans.annotations.Column @Column} annotation; it is then
+     *  derived at runtime, see {@link #withColumnName(String)}.
+     */
+    public BeanProperty(Class<?> beanClass, Class<?> settablePropClass, String name, String columnName, String getterName, String setterName,
+                        Function<Object,Object> getter, BiFunction<Object,Object,Object> setter) {
+        this.beanClass = beanClass;
+        this.settablePropClass = settablePropClass;
+        this.name = name;
+        this.columnName = columnName;
+        this.setterReturnsBean = false;
+        this.builderSetterReturnsBean = false;
+
+        this.reflective = null;
+        this.reflectiveResolver = () -> {
+            try {
+                final Method getterMethod = beanClass.getMethod(getterName);
+                final Method setterMethod = beanClass.getMethod(setterName, settablePropClass);
+                return new ReflectiveMetaData(getterMethod.getGenericReturnType(), getterMethod, Optional.of(setterMethod),
+                        BeanExtractorUtils.propField(beanClass, name), setterMethod);
+            }
+            catch (NoSuchMethodException exc) {
+                throw new IllegalStateException("generated meta data for " + beanClass.getName() + " does not match the compiled class", exc);
+            }
+        };
+
+        this.getter = getter;
+        this.setter = Optional.of(setter);
+        this.builderSetter = setter;
+    }
+
+    private BeanProperty(BeanProperty orig, String columnName) {
+        this.beanClass = orig.beanClass;
+        this.settablePropClass = orig.settablePropClass;
+        this.name = orig.name;
+        this.columnName = columnName;
+        this.setterReturnsBean = orig.setterReturnsBean;
+        this.builderSetterReturnsBean = orig.builderSetterReturnsBean;
+
+        this.reflective = orig.reflective;
+        this.reflectiveResolver = orig.reflectiveResolver;
+
+        this.getter = orig.getter;
+        this.setter = orig.setter;
+        this.builderSetter = orig.builderSetter;
+    }
+
+    /**
+     * @return a copy of this property that is mapped to a different column
+     */
+    public BeanProperty withColumnName(String columnName) {
+        return new BeanProperty(this, columnName);
+    }
+
+    private ReflectiveMetaData reflective() {
+        ReflectiveMetaData result = reflective;
+        if (result == null) {
+            // resolving concurrently is harmless since the result is always the same
+            result = reflectiveResolver.get();
+            reflective = result;
+        }
+        return result;
     }
 
     public Class<?> propClass() {
         return settablePropClass;
     }
     public Type propType() {
-        return propType;
+        return reflective().propType;
     }
     public String columnName() {
         return columnName;
     }
+    public Method getterMethod() {
+        return reflective().getterMethod;
+    }
 
     public <T extends Annotation> Optional<T> getAnnotation(Class<T> annotationClass) {
+        // looking at all super methods is expensive, and annotations do not change at runtime
+        //noinspection unchecked
+        return (Optional<T>) annotationCache.computeIfAbsent(annotationClass, cls -> findAnnotation(annotationClass));
+    }
+
+    private <T extends Annotation> Optional<T> findAnnotation(Class<T> annotationClass) {
+        final Method getterMethod = reflective().getterMethod;
+        final Optional<Field> field = reflective().field;
+
         T mtdAnnotation = getterMethod.getAnnotation(annotationClass);
         if (mtdAnnotation != null) {
             return Optional.of(mtdAnnotation);
@@ -83,41 +177,80 @@ public class BeanProperty {
     }
 
     public Object get(Object bean) {
-        return executeUnchecked(() -> getterMethod.invoke(bean));
+        return getter.apply(bean);
     }
 
     public Object set(Object bean, Object value) {
-        final Method mtd = setterMethod
-                .orElseThrow(() -> new IllegalStateException("no setter for property " + name + " in bean " + getterMethod.getDeclaringClass().getName()));
+        final BiFunction<Object,Object,Object> f = setter
+                .orElseThrow(() -> new IllegalStateException("no setter for property " + name + " in bean " + beanClass.getName()));
 
-        return executeUnchecked(() -> {
-            final Object result = mtd.invoke(bean, value);
-            return setterReturnsBean ? result : bean;
-        });
+        checkNotNullForPrimitive(value);
+        final Object result = f.apply(bean, value);
+        return setterReturnsBean ? result : bean;
     }
 
     public Object setOnBuilder(Object builder, Object value) {
-        return executeUnchecked(() -> {
-            final Object result = builderSetterMethod.invoke(builder, value);
-            return builderSetterReturnsBean ? result : builder;
-        });
+        checkNotNullForPrimitive(value);
+        final Object result = builderSetter.apply(builder, value);
+        return builderSetterReturnsBean ? result : builder;
     }
 
     public String name() {
         return name;
     }
 
+    /**
+     * Reflective calls rejected null for primitive parameters with an {@link IllegalArgumentException}, while generated accessors
+     *  fail with a {@link NullPointerException} when unboxing. This keeps the reflective behavior, with a more helpful message.
+     */
+    private void checkNotNullForPrimitive(Object value) {
+        if (value == null && settablePropClass.isPrimitive()) {
+            throw nullForPrimitive(beanClass, name);
+        }
+    }
+
+    static IllegalArgumentException nullForPrimitive(Class<?> beanClass, String propertyName) {
+        return new IllegalArgumentException("null can not be assigned to property " + propertyName + " of primitive type in bean " + beanClass.getName());
+    }
+
+    Class<?> beanClass() {
+        return beanClass;
+    }
+
+    Method builderSetterMethod() {
+        return reflective().builderSetterMethod;
+    }
+    boolean builderSetterReturnsBean() {
+        return builderSetterReturnsBean;
+    }
+
     @Override
     public String toString() {
         return "BeanProperty{" +
-                "propType=" + propType +
+                "propType=" + reflective().propType +
                 ", name='" + name + '\'' +
                 ", columnName=" + columnName +
-                ", getterMethod=" + getterMethod +
-                ", setterMethod=" + setterMethod +
+                ", getterMethod=" + reflective().getterMethod +
+                ", setterMethod=" + reflective().setterMethod +
                 ", setterReturnsBean=" + setterReturnsBean +
-                ", builderSetterMethod=" + builderSetterMethod +
+                ", builderSetterMethod=" + reflective().builderSetterMethod +
                 ", builderSetterReturnsBean=" + builderSetterReturnsBean +
                 '}';
     }
+
+    private static class ReflectiveMetaData {
+        final Type propType;
+        final Method getterMethod;
+        final Optional<Method> setterMethod;
+        final Optional<Field> field;
+        final Method builderSetterMethod;
+
+        ReflectiveMetaData(Type propType, Method getterMethod, Optional<Method> setterMethod, Optional<Field> field, Method builderSetterMethod) {
+            this.propType = propType;
+            this.getterMethod = getterMethod;
+            this.setterMethod = setterMethod;
+            this.field = field;
+            this.builderSetterMethod = builderSetterMethod;
+        }
+    }
 }
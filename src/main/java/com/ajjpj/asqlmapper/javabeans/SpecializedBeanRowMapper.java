@@ -0,0 +1,232 @@
+package com.ajjpj.asqlmapper.javabeans;
+
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+
+/**
+ * A row mapping plan that is specialized for a given bean class and column layout. It holds a dedicated
+ *  {@link ColumnWriter} per mapped column, and for void setters these writers call the setter through a lambda
+ *  generated by {@link BeanAccessors#lambdaFor(Method, Class, String, MethodType)}. Primitive values are read
+ *  through the row's primitive getters like {@link SqlRow#getLongValue(int)} and passed to the setter without boxing,
+ *  unless the {@link com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry} has application specific handlers for them.<p>
+ *
+ * Columns for which no specialized writer can be created (e.g. because the setter is not public) are written through
+ *  {@link BeanProperty#setOnBuilder(Object, Object)}, so creating a specialized mapper never fails because of a single
+ *  property.<p>
+ *
+ * SQL NULL in a column mapped to a primitive property causes an {@link IllegalArgumentException}, like for generic mapping.
+ */
+class SpecializedBeanRowMapper implements BeanMetaDataBasedRowExtractor.RowMappingPlan {
+    private final ColumnWriter[] writers;
+    private final String[] propertyNames;
+
+    private SpecializedBeanRowMapper (ColumnWriter[] writers, String[] propertyNames) {
+        this.writers = writers;
+        this.propertyNames = propertyNames;
+    }
+
+    static SpecializedBeanRowMapper create(BeanMetaData beanMetaData, AVector<String> columnNames, boolean primitiveGetters) {
+        final AVector.Builder<ColumnWriter> writers = AVector.builder();
+        final AVector.Builder<String> propertyNames = AVector.builder();
+        final Set<String> mappedProperties = new HashSet<>();
+
+        for (int i=0; i<columnNames.size(); i++) {
+            final BeanProperty prop = beanMetaData.getBeanPropertyForColumnName(columnNames.get(i));
+            if (prop == null)
+                continue;
+            // for duplicate column names, the first column wins like for generic mapping
+            if (!mappedProperties.add(prop.name()))
+                continue;
+            writers.add(writerFor(prop, i, primitiveGetters));
+            propertyNames.add(prop.name());
+        }
+
+        return new SpecializedBeanRowMapper(writers.build().toArray(new ColumnWriter[0]), propertyNames.build().toArray(new String[0]));
+    }
+
+    private static ColumnWriter writerFor(BeanProperty prop, int columnIndex, boolean primitiveGetters) {
+        if (prop.builderSetterReturnsBean() || (prop.propClass().isPrimitive() && !primitiveGetters)) {
+            return new GenericWriter(prop, columnIndex);
+        }
+        final Method setter = prop.builderSetterMethod();
+
+        try {
+            final Class<?> paramType = setter.getParameterTypes()[0];
+            if (paramType == long.class) {
+                //noinspection unchecked
+                return new LongWriter(BeanAccessors.lambdaFor(setter, ObjLongConsumer.class, "accept",
+                        MethodType.methodType(void.class, Object.class, long.class)), prop, columnIndex);
+            }
+            if (paramType == int.class) {
+                //noinspection unchecked
+                return new IntWriter(BeanAccessors.lambdaFor(setter, ObjIntConsumer.class, "accept",
+                        MethodType.methodType(void.class, Object.class, int.class)), prop, columnIndex);
+            }
+            if (paramType == double.class) {
+                //noinspection unchecked
+                return new DoubleWriter(BeanAccessors.lambdaFor(setter, ObjDoubleConsumer.class, "accept",
+                        MethodType.methodType(void.class, Object.class, double.class)), prop, columnIndex);
+            }
+            if (paramType == boolean.class) {
+                return new BooleanWriter(BeanAccessors.lambdaFor(setter, ObjBooleanConsumer.class, "accept",
+                        MethodType.methodType(void.class, Object.class, boolean.class)), prop, columnIndex);
+            }
+            if (!paramType.isPrimitive()) {
+                //noinspection unchecked
+                return new ReferenceWriter(BeanAccessors.lambdaFor(setter, BiConsumer.class, "accept",
+                        MethodType.methodType(void.class, Object.class, Object.class)), prop.propClass(), columnIndex);
+            }
+        }
+        catch (IllegalArgumentException exc) {
+            // fall through to the generic writer
+        }
+        return new GenericWriter(prop, columnIndex);
+    }
+
+    @Override public Object apply(Object builder, SqlRow row, Map<String, Object> injectedPropsValues) {
+        final boolean hasInjectedProps = !injectedPropsValues.isEmpty();
+        for (int i=0; i<writers.length; i++) {
+            if (hasInjectedProps && injectedPropsValues.containsKey(propertyNames[i]))
+                continue;
+            builder = writers[i].write(builder, row);
+        }
+        return builder;
+    }
+
+
+    interface ObjBooleanConsumer<T> {
+        void accept(T t, boolean value);
+    }
+
+    interface ColumnWriter {
+        /**
+         * @return the builder, which may be a different instance for fluent builders
+         */
+        Object write(Object builder, SqlRow row);
+    }
+
+    private static class GenericWriter implements ColumnWriter {
+        private final BeanProperty prop;
+        private final int columnIndex;
+
+        GenericWriter (BeanProperty prop, int columnIndex) {
+            this.prop = prop;
+            this.columnIndex = columnIndex;
+        }
+
+        @Override public Object write(Object builder, SqlRow row) {
+            return prop.setOnBuilder(builder, row.get(prop.propClass(), columnIndex));
+        }
+    }
+
+    private static class ReferenceWriter implements ColumnWriter {
+        private final BiConsumer<Object,Object> setter;
+        private final Class<?> propClass;
+        private final int columnIndex;
+
+        ReferenceWriter (BiConsumer<Object, Object> setter, Class<?> propClass, int columnIndex) {
+            this.setter = setter;
+            this.propClass = propClass;
+            this.columnIndex = columnIndex;
+        }
+
+        @Override public Object write(Object builder, SqlRow row) {
+            setter.accept(builder, row.get(propClass, columnIndex));
+            return builder;
+        }
+    }
+
+    private static class LongWriter implements ColumnWriter {
+        private final ObjLongConsumer<Object> setter;
+        private final BeanProperty prop;
+        private final int columnIndex;
+
+        LongWriter (ObjLongConsumer<Object> setter, BeanProperty prop, int columnIndex) {
+            this.setter = setter;
+            this.prop = prop;
+            this.columnIndex = columnIndex;
+        }
+
+        @Override public Object write(Object builder, SqlRow row) {
+            final long value = row.getLongValue(columnIndex);
+            if (value == 0 && row.wasNull(columnIndex)) {
+                throw BeanProperty.nullForPrimitive(prop.beanClass(), prop.name());
+            }
+            setter.accept(builder, value);
+            return builder;
+        }
+    }
+
+    private static class IntWriter implements ColumnWriter {
+        private final ObjIntConsumer<Object> setter;
+        private final BeanProperty prop;
+        private final int columnIndex;
+
+        IntWriter (ObjIntConsumer<Object> setter, BeanProperty prop, int columnIndex) {
+            this.setter = setter;
+            this.prop = prop;
+            this.columnIndex = columnIndex;
+        }
+
+        @Override public Object write(Object builder, SqlRow row) {
+            final int value = row.getIntValue(columnIndex);
+            if (value == 0 && row.wasNull(columnIndex)) {
+                throw BeanProperty.nullForPrimitive(prop.beanClass(), prop.name());
+            }
+            setter.accept(builder, value);
+            return builder;
+        }
+    }
+
+    private static class DoubleWriter implements ColumnWriter {
+        private final ObjDoubleConsumer<Object> setter;
+        private final BeanProperty prop;
+        private final int columnIndex;
+
+        DoubleWriter (ObjDoubleConsumer<Object> setter, BeanProperty prop, int columnIndex) {
+            this.setter = setter;
+            this.prop = prop;
+            this.columnIndex = columnIndex;
+        }
+
+        @Override public Object write(Object builder, SqlRow row) {
+            final double value = row.getDoubleValue(columnIndex);
+            if (value == 0 && row.wasNull(columnIndex)) {
+                throw BeanProperty.nullForPrimitive(prop.beanClass(), prop.name());
+            }
+            setter.accept(builder, value);
+            return builder;
+        }
+    }
+
+    private static class BooleanWriter implements ColumnWriter {
+        private final ObjBooleanConsumer<Object> setter;
+        private final BeanProperty prop;
+        private final int columnIndex;
+
+        BooleanWriter (ObjBooleanConsumer<Object> setter, BeanProperty prop, int columnIndex) {
+            this.setter = setter;
+            this.prop = prop;
+            this.columnIndex = columnIndex;
+        }
+
+        @Override public Object write(Object builder, SqlRow row) {
+            final boolean value = row.getBooleanValue(columnIndex);
+            if (!value && row.wasNull(columnIndex)) {
+                throw BeanProperty.nullForPrimitive(prop.beanClass(), prop.name());
+            }
+            setter.accept(builder, value);
+            return builder;
+        }
+    }
+}
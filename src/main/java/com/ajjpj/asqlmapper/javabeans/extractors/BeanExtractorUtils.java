@@ -17,6 +17,7 @@ import java.util.stream.Stream;
 
 import com.ajjpj.acollections.ASet;
 import com.ajjpj.acollections.util.AUnchecker;
+import com.ajjpj.asqlmapper.javabeans.BeanAccessors;
 import com.ajjpj.asqlmapper.javabeans.annotations.Ignore;
 import com.ajjpj.asqlmapper.mapper.util.BeanReflectionHelper;
 import org.slf4j.Logger;
@@ -165,7 +166,7 @@ public class BeanExtractorUtils {
                 throw new IllegalArgumentException("method " + mtd + " is a candidate for a builder method, but it is not static");
             }
 
-            return () -> unchecked(() -> mtd.invoke(null));
+            return BeanAccessors.staticMethod(mtd);
         });
     }
 
@@ -183,7 +184,7 @@ public class BeanExtractorUtils {
                     throw new IllegalArgumentException("builder finalizer method " + mtd + " is static");
                 }
 
-                return builder -> unchecked(() -> mtd.invoke(builder));
+                return BeanAccessors.instanceMethod(mtd);
             }
             catch (NoSuchMethodException exc) {
                 throw new IllegalArgumentException(
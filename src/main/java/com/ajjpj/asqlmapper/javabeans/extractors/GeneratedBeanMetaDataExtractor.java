@@ -0,0 +1,83 @@
+package com.ajjpj.asqlmapper.javabeans.extractors;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.javabeans.BeanProperty;
+import com.ajjpj.asqlmapper.javabeans.columnnames.ColumnNameExtractor;
+
+/**
+ * A {@link BeanMetaDataExtractor} that uses extractors generated at compile time by
+ *  {@link com.ajjpj.asqlmapper.javabeans.processor.BeanMetaDataProcessor BeanMetaDataProcessor}, avoiding reflective
+ *  analysis of bean classes at runtime. For bean classes without a generated extractor, it delegates to a fallback
+ *  extractor.<p>
+ *
+ * Generated extractors are found by naming convention: For a bean class {@code com.example.Person}, the generated
+ *  extractor is {@code com.example.Person_BeanMetaData}, and for a nested class {@code com.example.Outer.Inner} it is
+ *  {@code com.example.Outer_Inner_BeanMetaData}.<p>
+ *
+ * Generated extractors contain only column names given explicitly by
+ *  {@link com.ajjpj.asqlmapper.javabeans.annotations.Column @Column} annotations. All other column names are derived
+ *  here with the {@link ColumnNameExtractor} configured at runtime, so generated and reflective meta data always agree.
+ */
+public class GeneratedBeanMetaDataExtractor implements BeanMetaDataExtractor {
+    public static final String GENERATED_CLASS_SUFFIX = "_BeanMetaData";
+
+    private final BeanMetaDataExtractor fallback;
+    private final ColumnNameExtractor columnNameExtractor;
+    private final Map<Class<?>, AOption<BeanMetaDataExtractor>> generatedExtractors = new ConcurrentHashMap<>();
+
+    public GeneratedBeanMetaDataExtractor(BeanMetaDataExtractor fallback, ColumnNameExtractor columnNameExtractor) {
+        this.fallback = fallback;
+        this.columnNameExtractor = columnNameExtractor;
+    }
+
+    public static String generatedClassNameFor(String binaryBeanClassName) {
+        return binaryBeanClassName.replace('$', '_') + GENERATED_CLASS_SUFFIX;
+    }
+
+    private AOption<BeanMetaDataExtractor> generatedExtractorFor(Class<?> beanType) {
+        return generatedExtractors.computeIfAbsent(beanType, bt -> {
+            try {
+                final Class<?> generated = Class.forName(generatedClassNameFor(bt.getName()), true, bt.getClassLoader());
+                return AOption.some((BeanMetaDataExtractor) generated.getConstructor().newInstance());
+            }
+            catch (ClassNotFoundException exc) {
+                return AOption.empty();
+            }
+            catch (Exception exc) {
+                throw new IllegalStateException("could not instantiate generated meta data extractor for " + bt.getName(), exc);
+            }
+        });
+    }
+
+    private BeanMetaDataExtractor extractorFor(Class<?> beanType) {
+        return generatedExtractorFor(beanType).orElse(fallback);
+    }
+
+    @Override public boolean canHandle(Class<?> cls) {
+        return generatedExtractorFor(cls).isDefined() || fallback.canHandle(cls);
+    }
+
+    @Override public AVector<BeanProperty> beanProperties(Class<?> beanType) {
+        final AOption<BeanMetaDataExtractor> generated = generatedExtractorFor(beanType);
+        if (!generated.isDefined())
+            return fallback.beanProperties(beanType);
+
+        return generated.get().beanProperties(beanType).map(prop -> prop.columnName() != null
+                ? prop
+                : prop.withColumnName(columnNameExtractor.columnNameFor(beanType, prop.getterMethod(), prop.name())));
+    }
+
+    @Override public Supplier<Object> builderFactoryFor(Class<?> beanType) {
+        return extractorFor(beanType).builderFactoryFor(beanType);
+    }
+
+    @Override public Function<Object, Object> builderFinalizerFor(Class<?> beanType) {
+        return extractorFor(beanType).builderFinalizerFor(beanType);
+    }
+}
@@ -9,6 +9,7 @@ import java.util.function.Function;
 import java.util.function.Supplier;
 
 import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.asqlmapper.javabeans.BeanAccessors;
 import com.ajjpj.asqlmapper.javabeans.BeanProperty;
 import com.ajjpj.asqlmapper.javabeans.columnnames.ColumnNameExtractor;
 
@@ -71,7 +72,7 @@ public class JavaBeansMetaDataExtractor implements BeanMetaDataExtractor {
 
     @Override
     public Supplier<Object> builderFactoryFor(Class<?> beanType) {
-        return () -> executeUnchecked(() -> beanType.getConstructor().newInstance());
+        return BeanAccessors.constructor(executeUnchecked(() -> beanType.getConstructor()));
     }
 
     @Override
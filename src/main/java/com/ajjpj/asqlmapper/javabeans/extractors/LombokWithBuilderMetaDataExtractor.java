@@ -9,6 +9,7 @@ import java.util.function.Function;
 import java.util.function.Supplier;
 
 import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.asqlmapper.javabeans.BeanAccessors;
 import com.ajjpj.asqlmapper.javabeans.BeanProperty;
 import com.ajjpj.asqlmapper.javabeans.annotations.Ignore;
 import com.ajjpj.asqlmapper.javabeans.columnnames.ColumnNameExtractor;
@@ -97,7 +98,7 @@ public class LombokWithBuilderMetaDataExtractor implements BeanMetaDataExtractor
         return executeUnchecked(() -> {
             final Method mtd = beanType.getMethod(builderFactoryName);
             mtd.setAccessible(true);
-            return () -> executeUnchecked(() -> mtd.invoke(null));
+            return BeanAccessors.staticMethod(mtd);
         });
     }
 
@@ -107,8 +108,7 @@ public class LombokWithBuilderMetaDataExtractor implements BeanMetaDataExtractor
             final Class<?> builderClass = builderFactoryFor(beanType).get().getClass();
             final Method mtd = builderClass.getMethod(builderFinalizeMethodName);
 
-            return builder -> executeUnchecked(() -> mtd.invoke(builder));
-            //TODO InvocationTargetException
+            return BeanAccessors.instanceMethod(mtd);
         });
     }
 }
@@ -0,0 +1,309 @@
+package com.ajjpj.asqlmapper.javabeans.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import com.ajjpj.asqlmapper.javabeans.annotations.Column;
+import com.ajjpj.asqlmapper.javabeans.annotations.Ignore;
+import com.ajjpj.asqlmapper.javabeans.extractors.GeneratedBeanMetaDataExtractor;
+
+/**
+ * An annotation processor that generates a {@link com.ajjpj.asqlmapper.javabeans.extractors.BeanMetaDataExtractor}
+ *  for every class annotated with {@link com.ajjpj.asqlmapper.javabeans.annotations.Table @Table} at compile time.
+ *  The generated extractors access properties through plain method calls rather than reflection, and they are picked
+ *  up at runtime by {@link GeneratedBeanMetaDataExtractor} (see
+ *  {@link com.ajjpj.asqlmapper.SqlMapperBuilder#withGeneratedMetaData(boolean)}). Reflection is used only lazily for
+ *  reading annotations and generic property types.<p>
+ *
+ * The processor supports classes following JavaBeans conventions, i.e. public classes with a public no-args
+ *  constructor and public getters and setters. Other classes are skipped with a note, and they are handled by
+ *  runtime reflection as before.<p>
+ *
+ * The processor is not registered as a service, so it must be configured explicitly, e.g. with javac's
+ *  {@code -processor} option or in the {@code annotationProcessorPaths} of Maven's compiler plugin. Only column names
+ *  from {@link Column @Column} annotations are generated; all other column names are derived at runtime by
+ *  {@link GeneratedBeanMetaDataExtractor} with the configured
+ *  {@link com.ajjpj.asqlmapper.javabeans.columnnames.ColumnNameExtractor ColumnNameExtractor}.
+ */
+@SupportedAnnotationTypes("com.ajjpj.asqlmapper.javabeans.annotations.Table")
+public class BeanMetaDataProcessor extends AbstractProcessor {
+    private static final Set<String> specialMethodNames = new HashSet<>(Arrays.asList("getClass"));
+
+    @Override public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation: annotations) {
+            for (Element el: roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (el.getKind() == ElementKind.CLASS) {
+                    processBeanClass((TypeElement) el);
+                }
+            }
+        }
+        return false;
+    }
+
+    private void processBeanClass(TypeElement beanType) {
+        if (!isSupportedBeanClass(beanType)) {
+            note(beanType, "no meta data generated for " + beanType.getQualifiedName() + ": only public JavaBeans classes with a public no-args constructor are supported");
+            return;
+        }
+
+        final List<PropertyInfo> properties = new ArrayList<>();
+        for (ExecutableElement getter: ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(beanType))) {
+            if (!isGetter(getter))
+                continue;
+
+            final PropertyInfo prop = propertyFor(beanType, getter);
+            if (prop != null)
+                properties.add(prop);
+        }
+
+        final String generatedName = GeneratedBeanMetaDataExtractor.generatedClassNameFor(processingEnv.getElementUtils().getBinaryName(beanType).toString());
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(generatedName, beanType).openWriter())) {
+            writeExtractor(out, beanType, generatedName, properties);
+        }
+        catch (IOException exc) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "could not write " + generatedName + ": " + exc, beanType);
+        }
+    }
+
+    private boolean isSupportedBeanClass(TypeElement beanType) {
+        if (beanType.getModifiers().contains(Modifier.ABSTRACT))
+            return false;
+
+        for (Element el = beanType; el instanceof TypeElement; el = el.getEnclosingElement()) {
+            if (!el.getModifiers().contains(Modifier.PUBLIC))
+                return false;
+            if (((TypeElement) el).getNestingKind() == NestingKind.MEMBER && !el.getModifiers().contains(Modifier.STATIC))
+                return false;
+            if (((TypeElement) el).getNestingKind() != NestingKind.TOP_LEVEL && ((TypeElement) el).getNestingKind() != NestingKind.MEMBER)
+                return false;
+        }
+
+        return ElementFilter.constructorsIn(beanType.getEnclosedElements())
+                .stream()
+                .anyMatch(ctor -> ctor.getParameters().isEmpty() && ctor.getModifiers().contains(Modifier.PUBLIC));
+    }
+
+    private boolean isGetter(ExecutableElement mtd) {
+        final String name = mtd.getSimpleName().toString();
+        return name.startsWith("get") &&
+                name.length() > 3 &&
+                !specialMethodNames.contains(name) &&
+                mtd.getParameters().isEmpty() &&
+                mtd.getReturnType().getKind() != TypeKind.VOID &&
+                mtd.getModifiers().contains(Modifier.PUBLIC) &&
+                !mtd.getModifiers().contains(Modifier.STATIC);
+    }
+
+    private PropertyInfo propertyFor(TypeElement beanType, ExecutableElement getter) {
+        final String getterName = getter.getSimpleName().toString();
+        final String propertyName = propertyNameFor(getterName);
+        final VariableElement field = publicField(beanType, propertyName);
+
+        final List<ExecutableElement> getterHierarchy = methodHierarchy(beanType, getterName);
+        if (isIgnored(getterHierarchy, field))
+            return null;
+
+        final DeclaredType beanTypeMirror = (DeclaredType) beanType.asType();
+        final TypeMirror propertyType = ((ExecutableType) processingEnv.getTypeUtils().asMemberOf(beanTypeMirror, getter)).getReturnType();
+
+        final String setterName = "set" + getterName.substring(3);
+        for (ExecutableElement setter: ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(beanType))) {
+            if (!setter.getSimpleName().contentEquals(setterName) ||
+                    setter.getParameters().size() != 1 ||
+                    !setter.getModifiers().contains(Modifier.PUBLIC) ||
+                    setter.getModifiers().contains(Modifier.STATIC))
+                continue;
+
+            final TypeMirror paramType = ((ExecutableType) processingEnv.getTypeUtils().asMemberOf(beanTypeMirror, setter)).getParameterTypes().get(0);
+            if (!processingEnv.getTypeUtils().isSameType(paramType, propertyType))
+                continue;
+
+            final String columnName = columnNameFor(getterHierarchy, getter);
+            return new PropertyInfo(propertyName, columnName, getter, setter, propertyType);
+        }
+        return null;
+    }
+
+    private static String propertyNameFor(String getterName) {
+        final String raw = getterName.substring(3);
+        if (raw.length() == 1) {
+            return raw.toLowerCase();
+        }
+        // e.g. property name 'URL' for method getURL
+        if (Character.isUpperCase(raw.charAt(1))) {
+            return raw;
+        }
+        return Character.toLowerCase(raw.charAt(0)) + raw.substring(1);
+    }
+
+    private VariableElement publicField(TypeElement beanType, String propertyName) {
+        for (VariableElement field: ElementFilter.fieldsIn(processingEnv.getElementUtils().getAllMembers(beanType))) {
+            if (field.getSimpleName().contentEquals(propertyName) && field.getModifiers().contains(Modifier.PUBLIC))
+                return field;
+        }
+        return null;
+    }
+
+    /**
+     * @return all parameterless methods with a given name in the bean class and its supertypes, i.e. the getter and all
+     *  methods it overrides - this mirrors {@link com.ajjpj.asqlmapper.mapper.util.BeanReflectionHelper#allSuperMethods}
+     */
+    private List<ExecutableElement> methodHierarchy(TypeElement beanType, String methodName) {
+        final List<ExecutableElement> result = new ArrayList<>();
+        for (TypeElement type: allSuperTypes(beanType, new LinkedHashSet<>())) {
+            for (ExecutableElement mtd: ElementFilter.methodsIn(type.getEnclosedElements())) {
+                if (mtd.getSimpleName().contentEquals(methodName) && mtd.getParameters().isEmpty() && !mtd.getModifiers().contains(Modifier.PRIVATE))
+                    result.add(mtd);
+            }
+        }
+        return result;
+    }
+
+    private Set<TypeElement> allSuperTypes(TypeElement type, Set<TypeElement> result) {
+        if (result.add(type)) {
+            for (TypeMirror superType: processingEnv.getTypeUtils().directSupertypes(type.asType())) {
+                if (superType.getKind() == TypeKind.DECLARED)
+                    allSuperTypes((TypeElement) ((DeclaredType) superType).asElement(), result);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isIgnored(List<ExecutableElement> getterHierarchy, VariableElement field) {
+        for (ExecutableElement mtd: getterHierarchy) {
+            final Ignore ignore = mtd.getAnnotation(Ignore.class);
+            if (ignore != null && ignore.value())
+                return true;
+        }
+        return field != null && field.getAnnotation(Ignore.class) != null && field.getAnnotation(Ignore.class).value();
+    }
+
+    /**
+     * @return the column name from an explicit {@link Column @Column} annotation, or {@code null} if there is none
+     */
+    private String columnNameFor(List<ExecutableElement> getterHierarchy, ExecutableElement getter) {
+        final Set<String> fromAnnotations = new LinkedHashSet<>();
+        for (ExecutableElement mtd: getterHierarchy) {
+            final Column column = mtd.getAnnotation(Column.class);
+            if (column != null)
+                fromAnnotations.add(column.value());
+        }
+
+        switch (fromAnnotations.size()) {
+            case 0:
+                return null;
+            case 1:
+                return fromAnnotations.iterator().next();
+            default:
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "there are conflicting @Column annotations on overridden methods of " + getter, getter);
+                return null;
+        }
+    }
+
+    private void writeExtractor(PrintWriter out, TypeElement beanType, String generatedName, List<PropertyInfo> properties) {
+        final int idxLastDot = generatedName.lastIndexOf('.');
+        final String beanClass = beanType.getQualifiedName().toString();
+
+        out.println("// generated by " + BeanMetaDataProcessor.class.getName() + " - do not edit");
+        if (idxLastDot >= 0) {
+            out.println("package " + generatedName.substring(0, idxLastDot) + ";");
+            out.println();
+        }
+        out.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+        out.println("public final class " + generatedName.substring(idxLastDot+1) + " implements com.ajjpj.asqlmapper.javabeans.extractors.BeanMetaDataExtractor {");
+        out.println("    @Override public boolean canHandle(Class<?> cls) {");
+        out.println("        return cls == " + beanClass + ".class;");
+        out.println("    }");
+        out.println();
+        out.println("    @Override public com.ajjpj.acollections.immutable.AVector<com.ajjpj.asqlmapper.javabeans.BeanProperty> beanProperties(Class<?> beanType) {");
+        out.println("        final com.ajjpj.acollections.immutable.AVector.Builder<com.ajjpj.asqlmapper.javabeans.BeanProperty> result = com.ajjpj.acollections.immutable.AVector.builder();");
+        for (PropertyInfo prop: properties) {
+            writeProperty(out, beanClass, prop);
+        }
+        out.println("        return result.build();");
+        out.println("    }");
+        out.println();
+        out.println("    @Override public java.util.function.Supplier<Object> builderFactoryFor(Class<?> beanType) {");
+        out.println("        return " + beanClass + "::new;");
+        out.println("    }");
+        out.println();
+        out.println("    @Override public java.util.function.Function<Object, Object> builderFinalizerFor(Class<?> beanType) {");
+        out.println("        return x -> x;");
+        out.println("    }");
+        out.println("}");
+    }
+
+    private void writeProperty(PrintWriter out, String beanClass, PropertyInfo prop) {
+        final String propClass = erasedName(prop.propertyType);
+        final String valueCast = prop.propertyType.getKind().isPrimitive()
+                ? processingEnv.getTypeUtils().boxedClass((PrimitiveType) prop.propertyType).getQualifiedName().toString()
+                : propClass;
+
+        out.println("        result.add(new com.ajjpj.asqlmapper.javabeans.BeanProperty(" + beanClass + ".class, " + propClass + ".class, \"" + prop.name + "\", " +
+                (prop.columnName != null ? "\"" + escape(prop.columnName) + "\"" : "null") + ",");
+        out.println("                \"" + prop.getter.getSimpleName() + "\", \"" + prop.setter.getSimpleName() + "\",");
+        out.println("                bean -> ((" + beanClass + ") bean)." + prop.getter.getSimpleName() + "(),");
+        out.println("                (bean, value) -> {");
+        out.println("                    ((" + beanClass + ") bean)." + prop.setter.getSimpleName() + "((" + valueCast + ") value);");
+        out.println("                    return null;");
+        out.println("                }));");
+    }
+
+    private String erasedName(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private void note(Element el, String msg) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, msg, el);
+    }
+
+    private static class PropertyInfo {
+        final String name;
+        final String columnName;
+        final ExecutableElement getter;
+        final ExecutableElement setter;
+        final TypeMirror propertyType;
+
+        PropertyInfo(String name, String columnName, ExecutableElement getter, ExecutableElement setter, TypeMirror propertyType) {
+            this.name = name;
+            this.columnName = columnName;
+            this.getter = getter;
+            this.setter = setter;
+            this.propertyType = propertyType;
+        }
+    }
+}
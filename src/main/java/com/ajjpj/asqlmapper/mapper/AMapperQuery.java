@@ -8,5 +8,14 @@ public interface AMapperQuery<T> extends AQuery<T> {
 
     AMapperQuery<T> withManyToMany(String propertyName);
     AMapperQuery<T> withOneToMany(String propertyName);
+
+    /**
+     * Like {@link #withOneToMany(String)}, but the relation is loaded with the owning rows in a single query, joining the detail
+     *  table to this query. This avoids a second round trip and executing this query a second time, and it is preferable if
+     *  there are few details per owning row. Results are ordered by the owning rows' primary key, see {@link JoinFetchQuery}.<p>
+     *
+     * Only one relation per query can be loaded this way.
+     */
+    AMapperQuery<T> withOneToManyJoined(String propertyName);
     AMapperQuery<T> withToOne(String propertyName);
 }
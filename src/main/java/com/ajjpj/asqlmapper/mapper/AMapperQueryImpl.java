@@ -9,6 +9,9 @@ import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
 import com.ajjpj.asqlmapper.core.RowExtractor;
 import com.ajjpj.asqlmapper.core.SqlSnippet;
 import com.ajjpj.asqlmapper.core.impl.AQueryImpl;
+import com.ajjpj.asqlmapper.core.impl.AsyncHelper;
+import com.ajjpj.asqlmapper.core.impl.ResultCache;
+import com.ajjpj.asqlmapper.core.impl.StatementCache;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
 import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
 
@@ -18,10 +21,12 @@ public class AMapperQueryImpl<T> extends AQueryImpl<T> implements AMapperQuery<T
     public AMapperQueryImpl(SqlMapper mapper, Class<T> cls, SqlSnippet sql, PrimitiveTypeRegistry primTypes,
                             RowExtractor rowExtractor,
                             AVector<SqlEngineEventListener> listeners,
-                            AOption<Supplier<Connection>> defaultConnectionSupplier,
+                            AOption<Supplier<Connection>> defaultConnectionSupplier, AsyncHelper async,
                             AVector<InjectedProperty> injectedProperties,
-                            int defaultFetchSize) {
-        super(cls, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, injectedProperties, defaultFetchSize);
+                            int defaultFetchSize,
+                            StatementCache statementCache, ResultCache resultCache, int injectedPropertiesParallelism) {
+        super(cls, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, async, injectedProperties, defaultFetchSize, statementCache, resultCache,
+                injectedPropertiesParallelism);
         this.mapper = mapper;
     }
     @Override public AMapperQuery<T> withManyToMany(String propertyName) {
@@ -30,14 +35,20 @@ public class AMapperQueryImpl<T> extends AQueryImpl<T> implements AMapperQuery<T
     @Override public AMapperQuery<T> withOneToMany(String propertyName) {
         return withInjectedProperty(mapper.oneToMany(propertyName));
     }
+    @Override public AMapperQuery<T> withOneToManyJoined(String propertyName) {
+        return new JoinFetchQuery<>(mapper, rowClass(), sql(), propertyName, injectedProperties());
+    }
     @Override public AMapperQuery<T> withToOne(String propertyName) {
         return withInjectedProperty(mapper.toOne(propertyName));
     }
 
     @Override protected AQueryImpl<T> build(Class<T> cls, SqlSnippet sql, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
                                             AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier,
-                                            AVector<InjectedProperty> injectedProperties, int defaultFetchSize) {
-        return new AMapperQueryImpl<>(mapper, cls, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, injectedProperties, defaultFetchSize);
+                                            AsyncHelper async,
+                                            AVector<InjectedProperty> injectedProperties, int defaultFetchSize, StatementCache statementCache, ResultCache resultCache,
+                                            int injectedPropertiesParallelism) {
+        return new AMapperQueryImpl<>(mapper, cls, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, async,
+                injectedProperties, defaultFetchSize, statementCache, resultCache, injectedPropertiesParallelism);
     }
 
     @Override public AMapperQuery<T> withInjectedProperty(InjectedProperty injectedProperty) {
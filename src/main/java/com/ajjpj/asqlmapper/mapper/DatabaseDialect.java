@@ -17,13 +17,35 @@ public interface DatabaseDialect {
         return tableName;
     }
 
+    /**
+     * The maximum number of bind parameters in a single statement. Some drivers rewrite JDBC batches of inserts into multi-row
+     *  statements (e.g. PostgreSQL with {@code reWriteBatchedInserts}), so this limits the size of batches as well.
+     */
+    default int maxBindParameters() {
+        return 32767;
+    }
+
+    /**
+     * The number of rows that {@link SqlMapper#insertMany(java.util.List)} inserts per JDBC batch, for a table with a given number of
+     *  inserted columns. Larger batches save round trips, but drivers buffer an entire batch (and its generated keys) in memory.
+     */
+    default int insertBatchSize(int numColumns) {
+        return Math.max(1, Math.min(1000, maxBindParameters() / Math.max(1, numColumns)));
+    }
+
     class PostgresqlDialect implements DatabaseDialect {
     }
 
     class OracleDialect implements DatabaseDialect {
+        @Override public int maxBindParameters() {
+            return 65535;
+        }
     }
 
     class SqlServerDialect implements DatabaseDialect {
+        @Override public int maxBindParameters() {
+            return 2099;
+        }
     }
 
     class H2Dialect implements DatabaseDialect {
@@ -0,0 +1,496 @@
+package com.ajjpj.asqlmapper.mapper;
+
+import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
+import static com.ajjpj.asqlmapper.core.SqlSnippet.concat;
+import static com.ajjpj.asqlmapper.core.SqlSnippet.sql;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.ajjpj.acollections.AList;
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.AFlow;
+import com.ajjpj.asqlmapper.core.AQuery;
+import com.ajjpj.asqlmapper.core.RowExtractor;
+import com.ajjpj.asqlmapper.core.SqlEngine;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.CollectionBuildStrategy;
+import com.ajjpj.asqlmapper.core.common.ColumnSlice;
+import com.ajjpj.asqlmapper.core.common.DetachedSqlRow;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+import com.ajjpj.asqlmapper.core.impl.CachedQuery;
+import com.ajjpj.asqlmapper.core.impl.ResultSetSubscription;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
+import com.ajjpj.asqlmapper.mapper.beans.relations.OneToManySpec;
+import com.ajjpj.asqlmapper.mapper.schema.ColumnMetaData;
+
+
+/**
+ * A query that loads a one-to-many relation together with the owning rows in a single statement, joining the detail table
+ *  to the owning query: {@code SELECT X.*, D.* FROM (<owning query>) X LEFT JOIN <detail table> D ON D.fk=X.pk ORDER BY X.pk}.
+ *  This saves a second round trip and executing the owning query a second time, which pays off if there are few details
+ *  per owning row - each owning row's columns are transferred once per detail.<p>
+ *
+ * The joined rows are grouped into owning rows incrementally while they are read, based on the owning row's primary key,
+ *  so results can be streamed. Results are therefore ordered by the primary key, regardless of the owning query's ordering.
+ *  The detail table's columns are identified by their position at the end of the joined rows, so the owning query must not
+ *  depend on the detail table's metadata in any way that changes the number of its columns between executions.<p>
+ *
+ * Other injected properties are loaded with separate queries as usual.
+ */
+public class JoinFetchQuery<T> implements AMapperQuery<T> {
+    private final SqlMapper mapper;
+    private final Class<T> rowClass;
+    private final SqlSnippet sql;
+    private final String propertyName;
+    private final AVector<InjectedProperty> injectedProperties;
+
+    public JoinFetchQuery(SqlMapper mapper, Class<T> rowClass, SqlSnippet sql, String propertyName, AVector<InjectedProperty> injectedProperties) {
+        this.mapper = mapper;
+        this.rowClass = rowClass;
+        this.sql = sql;
+        this.propertyName = propertyName;
+        this.injectedProperties = injectedProperties;
+    }
+
+    private SqlEngine engine() {
+        return mapper.engine();
+    }
+
+    @Override public AMapperQuery<T> withInjectedProperty(InjectedProperty injectedProperty) {
+        return new JoinFetchQuery<>(mapper, rowClass, sql, propertyName, injectedProperties.append(injectedProperty));
+    }
+    @Override public AMapperQuery<T> withManyToMany(String propertyName) {
+        return withInjectedProperty(mapper.manyToMany(propertyName));
+    }
+    @Override public AMapperQuery<T> withOneToMany(String propertyName) {
+        return withInjectedProperty(mapper.oneToMany(propertyName));
+    }
+    @Override public AMapperQuery<T> withOneToManyJoined(String propertyName) {
+        throw new IllegalStateException("only one relation can be loaded by joining - " + this.propertyName + " is joined already");
+    }
+    @Override public AMapperQuery<T> withToOne(String propertyName) {
+        return withInjectedProperty(mapper.toOne(propertyName));
+    }
+
+    @Override public AQuery<T> cached(Duration ttl) {
+        final AVector<String> injectedPropertyNames = injectedProperties.map(InjectedProperty::propertyName).append(propertyName + " (joined)");
+        return new CachedQuery<>(this, sql, rowClass, injectedPropertyNames, engine().resultCache(), engine().listeners(),
+                engine().defaultConnectionSupplier(), engine().async(), ttl);
+    }
+
+    @Override public T single() {
+        return single(engine().defaultConnection());
+    }
+    @Override public T single(Connection conn) {
+        try (Stream<T> s = stream(conn)) {
+            final Iterator<T> it = s.iterator();
+            if (!it.hasNext()) {
+                throw new NoSuchElementException("no result");
+            }
+            final T result = it.next();
+            if (it.hasNext()) {
+                throw new IllegalStateException("more than one result row");
+            }
+            return result;
+        }
+    }
+
+    @Override public AOption<T> optional() {
+        return optional(engine().defaultConnection());
+    }
+    @Override public AOption<T> optional(Connection conn) {
+        try (Stream<T> s = stream(conn)) {
+            final Iterator<T> it = s.iterator();
+            if (!it.hasNext()) {
+                return AOption.empty();
+            }
+            final T result = it.next();
+            if (it.hasNext()) {
+                throw new IllegalStateException("more than one result row");
+            }
+            return AOption.some(result);
+        }
+    }
+
+    @Override public AOption<T> first() {
+        return first(engine().defaultConnection());
+    }
+    @Override public AOption<T> first(Connection conn) {
+        try (Stream<T> s = stream(conn)) {
+            final Iterator<T> it = s.iterator();
+            return it.hasNext() ? AOption.some(it.next()) : AOption.empty();
+        }
+    }
+
+    @Override public AList<T> list() {
+        return list(engine().defaultConnection());
+    }
+    @Override public AList<T> list(Connection conn) {
+        return collect(conn, AVector.streamCollector());
+    }
+
+    @Override public <R, A> R collect(Collector<T, A, R> collector) {
+        return collect(engine().defaultConnection(), collector);
+    }
+    @Override public <R, A> R collect(Connection conn, Collector<T, A, R> collector) {
+        try (Stream<T> s = stream(conn)) {
+            return s.collect(collector);
+        }
+    }
+
+    @Override public CompletableFuture<T> singleAsync() {
+        return engine().async().supplyAsync(this::single);
+    }
+    @Override public CompletableFuture<AOption<T>> optionalAsync() {
+        return engine().async().supplyAsync(this::optional);
+    }
+    @Override public CompletableFuture<AOption<T>> firstAsync() {
+        return engine().async().supplyAsync(this::first);
+    }
+    @Override public CompletableFuture<AList<T>> listAsync() {
+        return engine().async().supplyAsync(this::list);
+    }
+    @Override public <R, A> CompletableFuture<R> collectAsync(Collector<T, A, R> collector) {
+        return engine().async().supplyAsync(conn -> collect(conn, collector));
+    }
+
+    @Override public Stream<T> stream() {
+        return stream(engine().defaultConnection());
+    }
+    @Override public Stream<T> stream(Connection conn) {
+        return stream(conn, engine().defaultFetchSize());
+    }
+    @Override public Stream<T> stream(int fetchSize) {
+        return stream(engine().defaultConnection(), fetchSize);
+    }
+    @Override public Stream<T> stream(Connection conn, int fetchSize) {
+        final OneToManySpec rel = mapper.getBeanMappingRegistry().resolveOneToMany(conn, rowClass, propertyName);
+        return grouped(conn, rel, engine().rawQuery(joinedSql(conn, rel)).stream(conn, fetchSize));
+    }
+
+    /**
+     * Grouping joined rows is inherently sequential, so parallel streams are split in batches of grouped rows, regardless of
+     *  {@code splitBatchSize}.
+     */
+    @Override public Stream<T> stream(int fetchSize, int splitBatchSize) {
+        return stream(fetchSize);
+    }
+    @Override public Stream<T> stream(Connection conn, int fetchSize, int splitBatchSize) {
+        return stream(conn, fetchSize);
+    }
+
+    @Override public AFlow.Publisher<T> publish() {
+        return publish(engine().defaultConnection());
+    }
+    @Override public AFlow.Publisher<T> publish(Connection conn) {
+        return publish(conn, engine().defaultFetchSize());
+    }
+    @Override public AFlow.Publisher<T> publish(int fetchSize) {
+        return publish(engine().defaultConnection(), fetchSize);
+    }
+    @Override public AFlow.Publisher<T> publish(Connection conn, int fetchSize) {
+        return subscriber -> {
+            Objects.requireNonNull(subscriber, "subscriber must not be null");
+            final OneToManySpec rel = mapper.getBeanMappingRegistry().resolveOneToMany(conn, rowClass, propertyName);
+            final GroupingSpliterator spliterator = new GroupingSpliterator(conn, rel, engine().rawQuery(joinedSql(conn, rel)).stream(conn, fetchSize));
+            subscriber.onSubscribe(new ResultSetSubscription<>(spliterator, spliterator::close, subscriber));
+        };
+    }
+
+    @Override public void forEach(Consumer<T> consumer) {
+        forEach(engine().defaultConnection(), consumer);
+    }
+    @Override public void forEach(Connection conn, Consumer<T> consumer) {
+        forEach(conn, engine().defaultFetchSize(), consumer);
+    }
+    @Override public void forEach(int fetchSize, Consumer<T> consumer) {
+        forEach(engine().defaultConnection(), fetchSize, consumer);
+    }
+    @Override public void forEach(Connection conn, int fetchSize, Consumer<T> consumer) {
+        try (Stream<T> s = stream(conn, fetchSize)) {
+            s.forEach(consumer);
+        }
+    }
+
+    @Override public Stream<T> streamWithPrefetch() {
+        return streamWithPrefetch(engine().defaultConnection());
+    }
+    @Override public Stream<T> streamWithPrefetch(Connection conn) {
+        return streamWithPrefetch(conn, engine().defaultFetchSize());
+    }
+    @Override public Stream<T> streamWithPrefetch(int fetchSize) {
+        return streamWithPrefetch(engine().defaultConnection(), fetchSize);
+    }
+    @Override public Stream<T> streamWithPrefetch(Connection conn, int fetchSize) {
+        final OneToManySpec rel = mapper.getBeanMappingRegistry().resolveOneToMany(conn, rowClass, propertyName);
+        return grouped(conn, rel, engine().rawQuery(joinedSql(conn, rel)).streamWithPrefetch(conn, fetchSize));
+    }
+
+    @Override public void forEachWithPrefetch(Consumer<T> consumer) {
+        forEachWithPrefetch(engine().defaultConnection(), consumer);
+    }
+    @Override public void forEachWithPrefetch(Connection conn, Consumer<T> consumer) {
+        forEachWithPrefetch(conn, engine().defaultFetchSize(), consumer);
+    }
+    @Override public void forEachWithPrefetch(int fetchSize, Consumer<T> consumer) {
+        forEachWithPrefetch(engine().defaultConnection(), fetchSize, consumer);
+    }
+    @Override public void forEachWithPrefetch(Connection conn, int fetchSize, Consumer<T> consumer) {
+        try (Stream<T> s = streamWithPrefetch(conn, fetchSize)) {
+            s.forEach(consumer);
+        }
+    }
+
+    /**
+     * The joined relation's details are read with the owning rows anyway, so streaming in windows only makes a difference for
+     *  other injected properties, which are loaded once per query here.
+     */
+    @Override public Stream<T> streamInWindows(int windowSize) {
+        return streamInWindows(engine().defaultConnection(), windowSize);
+    }
+    @Override public Stream<T> streamInWindows(Connection conn, int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("window size must be positive");
+        }
+        return stream(conn);
+    }
+
+    @Override public void forEachInWindows(int windowSize, Consumer<T> consumer) {
+        forEachInWindows(engine().defaultConnection(), windowSize, consumer);
+    }
+    @Override public void forEachInWindows(Connection conn, int windowSize, Consumer<T> consumer) {
+        try (Stream<T> s = streamInWindows(conn, windowSize)) {
+            s.forEach(consumer);
+        }
+    }
+
+    /**
+     * The row passed to the consumer contains the owning query's columns, without the joined detail columns.
+     */
+    @Override public void forEachWithRowAccess(BiConsumer<T, SqlRow> consumer) {
+        forEachWithRowAccess(engine().defaultConnection(), consumer);
+    }
+    @Override public void forEachWithRowAccess(Connection conn, BiConsumer<T, SqlRow> consumer) {
+        forEachWithRowAccess(conn, engine().defaultFetchSize(), consumer);
+    }
+    @Override public void forEachWithRowAccess(int fetchSize, BiConsumer<T, SqlRow> consumer) {
+        forEachWithRowAccess(engine().defaultConnection(), fetchSize, consumer);
+    }
+    @Override public void forEachWithRowAccess(Connection conn, int fetchSize, BiConsumer<T, SqlRow> consumer) {
+        try (Stream<Map.Entry<T, SqlRow>> s = streamWithRowAccess(conn, fetchSize)) {
+            s.forEach(e -> consumer.accept(e.getKey(), e.getValue()));
+        }
+    }
+
+    @Override public Stream<Map.Entry<T, SqlRow>> streamWithRowAccess(Connection conn) {
+        return streamWithRowAccess(conn, engine().defaultFetchSize());
+    }
+    @Override public Stream<Map.Entry<T, SqlRow>> streamWithRowAccess(Connection conn, int fetchSize) {
+        final OneToManySpec rel = mapper.getBeanMappingRegistry().resolveOneToMany(conn, rowClass, propertyName);
+        final GroupingSpliterator spliterator = new GroupingSpliterator(conn, rel, engine().rawQuery(joinedSql(conn, rel)).stream(conn, fetchSize));
+        return StreamSupport.stream(spliterator, false)
+                .onClose(spliterator::close)
+                .map(el -> new AbstractMap.SimpleImmutableEntry<>(el, spliterator.currentMasterRow));
+    }
+
+    private SqlSnippet joinedSql(Connection conn, OneToManySpec rel) {
+        final String detailColumns = mapper.getSchemaRegistry().getRequiredTableMetaData(conn, rel.foreignKeySpec().fkTableName())
+                .columns()
+                .stream()
+                .map(c -> "D." + c.colName())
+                .collect(Collectors.joining(", "));
+        final String pk = rel.foreignKeySpec().pkColumnName();
+        return concat(
+                sql("SELECT X.*, " + detailColumns + " FROM ("),
+                sql,
+                sql(") X LEFT JOIN " + rel.foreignKeySpec().fkTableName() + " D ON D." + rel.foreignKeySpec().fkColumnName() + "=X." + pk + " ORDER BY X." + pk)
+        );
+    }
+
+    private Stream<T> grouped(Connection conn, OneToManySpec rel, Stream<SqlRow> rawRows) {
+        final GroupingSpliterator spliterator = new GroupingSpliterator(conn, rel, rawRows);
+        return StreamSupport.stream(spliterator, false)
+                .onClose(spliterator::close);
+    }
+
+    /**
+     * Reads joined rows and combines consecutive rows with the same owning primary key into a single mapped object. The
+     *  joined rows' owning and detail columns are separated by position, based on the detail table's metadata, and each of
+     *  the two column layouts gets its row extractor memento. Other injected properties' mementos are created lazily, so no
+     *  related data is loaded for empty results.<p>
+     *
+     * The spliterator releases its resources after the last row and when it fails, and closing it is idempotent.
+     */
+    private class GroupingSpliterator extends Spliterators.AbstractSpliterator<T> {
+        private final Connection conn;
+        private final OneToManySpec rel;
+        private final Stream<SqlRow> rawStream;
+        private final Iterator<SqlRow> rawRows;
+        private Map<String,Object> injectedPropsMementos;
+        private boolean closed = false;
+
+        private final RowExtractor masterExtractor;
+        private final RowExtractor detailExtractor;
+        private ColumnSlice masterSlice;
+        private ColumnSlice detailSlice;
+        private Object masterMemento;
+        private Object detailMemento;
+
+        /** the owning and detail columns of the first joined row that was read but not yet processed, or null */
+        private DetachedSqlRow nextMasterRow;
+        private DetachedSqlRow nextDetailRow;
+
+        SqlRow currentMasterRow;
+
+        GroupingSpliterator(Connection conn, OneToManySpec rel, Stream<SqlRow> rawStream) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.conn = conn;
+            this.rel = rel;
+            this.rawStream = rawStream;
+            this.rawRows = rawStream.iterator();
+            this.masterExtractor = engine().rowExtractorFor(rowClass);
+            this.detailExtractor = engine().rowExtractorFor(rel.elementClass());
+        }
+
+        private Map<String,Object> injectedPropsMementos() {
+            if (injectedPropsMementos == null) {
+                injectedPropsMementos = new HashMap<>();
+                for (InjectedProperty ip: injectedProperties) {
+                    //noinspection unchecked
+                    injectedPropsMementos.put(ip.propertyName(), ip.mementoPerQuery(conn, rowClass, sql));
+                }
+            }
+            return injectedPropsMementos;
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                InjectedProperty.closeMementos(injectedPropsMementos);
+            }
+            finally {
+                rawStream.close();
+            }
+        }
+
+        private boolean readRow() {
+            if (!rawRows.hasNext()) {
+                return false;
+            }
+            // the row is read and converted once, and both slices copy their ranges from the detached values
+            final DetachedSqlRow row = rawRows.next().detach();
+            if (masterSlice == null) {
+                final AVector<String> detailColumnNames = mapper.getSchemaRegistry().getRequiredTableMetaData(conn, rel.foreignKeySpec().fkTableName())
+                        .columns()
+                        .map(ColumnMetaData::colName);
+                final int numMasterColumns = row.numColumns() - detailColumnNames.size();
+                final List<String> masterColumnNames = row.columnNames().subList(0, numMasterColumns);
+                masterSlice = new ColumnSlice(0, masterColumnNames);
+                detailSlice = new ColumnSlice(numMasterColumns, detailColumnNames);
+                masterMemento = masterExtractor.mementoPerQuery(rowClass, engine().primitiveTypeRegistry(), masterColumnNames, false);
+                detailMemento = detailExtractor.mementoPerQuery(rel.elementClass(), engine().primitiveTypeRegistry(), detailColumnNames, false);
+            }
+            nextMasterRow = masterSlice.apply(row);
+            nextDetailRow = detailSlice.apply(row);
+            return true;
+        }
+
+        @Override public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (!doTryAdvance(action)) {
+                    close();
+                    return false;
+                }
+                return true;
+            }
+            catch (Throwable th) {
+                close();
+                throw th;
+            }
+        }
+
+        private boolean doTryAdvance(Consumer<? super T> action) {
+            if (nextMasterRow == null && !readRow()) {
+                return false;
+            }
+
+            final DetachedSqlRow masterRow = nextMasterRow;
+            final Object masterKey = masterRow.get(rel.keyType(), rel.foreignKeySpec().pkColumnName());
+            final CollectionBuildStrategy<Object,Object,Object> strategy = rel.collectionBuildStrategy();
+            final Object builder = strategy.createBuilder();
+            boolean hasDetails = addDetail(strategy, builder, nextDetailRow);
+            nextMasterRow = null;
+
+            while (readRow()) {
+                if (!Objects.equals(masterKey, nextMasterRow.get(rel.keyType(), rel.foreignKeySpec().pkColumnName()))) {
+                    break;
+                }
+                hasDetails |= addDetail(strategy, builder, nextDetailRow);
+                nextMasterRow = null;
+            }
+
+            final Object details;
+            if (!hasDetails) {
+                details = strategy.empty();
+            }
+            else {
+                details = strategy.requiresFinalization() ? strategy.finalizeBuilder(builder) : builder;
+            }
+
+            currentMasterRow = masterRow;
+            action.accept(extractMaster(masterRow, details));
+            return true;
+        }
+
+        /**
+         * @return false if the row does not contain a detail, i.e. it is the result of the LEFT JOIN for an owning row without details
+         */
+        private boolean addDetail(CollectionBuildStrategy<Object,Object,Object> strategy, Object builder, SqlRow detailRow) {
+            if (detailRow.isNull(rel.foreignKeySpec().fkColumnName())) {
+                return false;
+            }
+            final Class<?> elementClass = rel.elementClass();
+            strategy.addElement(builder, executeUnchecked(() -> detailExtractor
+                    .fromSql(elementClass, engine().primitiveTypeRegistry(), detailRow, detailMemento, false, Collections.emptyMap())));
+            return true;
+        }
+
+        private T extractMaster(SqlRow masterRow, Object details) {
+            final Map<String,Object> injectedPropsValues = new HashMap<>();
+            injectedPropsValues.put(propertyName, details);
+            for (InjectedProperty ip: injectedProperties) {
+                //noinspection unchecked
+                final AOption<Object> optValue = ip.value(conn, masterRow, injectedPropsMementos().get(ip.propertyName()));
+                optValue.forEach(o -> injectedPropsValues.put(ip.propertyName(), o));
+            }
+
+            return executeUnchecked(() -> masterExtractor
+                    .fromSql(rowClass, engine().primitiveTypeRegistry(), masterRow, masterMemento, false, injectedPropsValues));
+        }
+    }
+}
@@ -5,9 +5,16 @@ import static com.ajjpj.asqlmapper.core.SqlSnippet.*;
 
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import com.ajjpj.acollections.AList;
 import com.ajjpj.acollections.immutable.AVector;
@@ -16,6 +23,9 @@ import com.ajjpj.acollections.util.AOption;
 import com.ajjpj.asqlmapper.core.SqlBuilder;
 import com.ajjpj.asqlmapper.core.SqlEngine;
 import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.KeyedResult;
+import com.ajjpj.asqlmapper.core.impl.KeyedQueryHelper;
+import com.ajjpj.asqlmapper.core.impl.SqlHelper;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
 import com.ajjpj.asqlmapper.javabeans.BeanProperty;
 import com.ajjpj.asqlmapper.mapper.beans.BeanMapping;
@@ -24,9 +34,11 @@ import com.ajjpj.asqlmapper.mapper.beans.relations.ManyToManySpec;
 import com.ajjpj.asqlmapper.mapper.beans.relations.OneToManySpec;
 import com.ajjpj.asqlmapper.mapper.beans.relations.ToOneSpec;
 import com.ajjpj.asqlmapper.mapper.beans.tablename.TableNameExtractor;
+import com.ajjpj.asqlmapper.mapper.cache.EntityCache;
 import com.ajjpj.asqlmapper.mapper.injectedproperties.MappedManyToMany;
 import com.ajjpj.asqlmapper.mapper.injectedproperties.MappedOneToMany;
 import com.ajjpj.asqlmapper.mapper.injectedproperties.MappedToOne;
+import com.ajjpj.asqlmapper.mapper.injectedproperties.RelationLoadingStatistics;
 import com.ajjpj.asqlmapper.mapper.schema.SchemaRegistry;
 
 public class SqlMapper {
@@ -34,12 +46,21 @@ public class SqlMapper {
     private final BeanMappingRegistry mappingRegistry;
     private final SchemaRegistry schemaRegistry;
     private final TableNameExtractor tableNameExtractor;
+    private final EntityCache entityCache;
+    private final RelationLoadingStatistics relationLoadingStatistics = new RelationLoadingStatistics();
 
     public SqlMapper(SqlEngine sqlEngine, BeanMappingRegistry mappingRegistry, SchemaRegistry schemaRegistry, TableNameExtractor tableNameExtractor) {
+        this(sqlEngine, mappingRegistry, schemaRegistry, tableNameExtractor, EntityCache.empty());
+    }
+    public SqlMapper(SqlEngine sqlEngine, BeanMappingRegistry mappingRegistry, SchemaRegistry schemaRegistry, TableNameExtractor tableNameExtractor,
+                     EntityCache entityCache) {
         this.schemaRegistry = schemaRegistry;
         this.tableNameExtractor = tableNameExtractor;
-        this.sqlEngine = sqlEngine.withRowExtractor(mappingRegistry.metaDataRegistry().asRowExtractor());
+        this.sqlEngine = sqlEngine
+                .withRowExtractor(mappingRegistry.metaDataRegistry().asRowExtractor())
+                .withListener(relationLoadingStatistics);
         this.mappingRegistry = mappingRegistry;
+        this.entityCache = entityCache;
     }
 
     public SqlEngine engine() {
@@ -50,6 +71,27 @@ public class SqlMapper {
         return mappingRegistry;
     }
 
+    public SchemaRegistry getSchemaRegistry() {
+        return schemaRegistry;
+    }
+
+    /**
+     * The cache used by {@link #findByPk(Class, Object)} and {@link #findByPks(Class, Collection)}. Application code that
+     *  modifies cached tables without going through this SqlMapper can use it to invalidate affected beans.
+     */
+    public EntityCache entityCache() {
+        return entityCache;
+    }
+
+    /**
+     * The row counts and execution times observed for owning queries of relations, which are the basis for choosing how
+     *  relations with {@link com.ajjpj.asqlmapper.mapper.beans.relations.RelationLoadingStrategy#ADAPTIVE adaptive} loading
+     *  are loaded.
+     */
+    public RelationLoadingStatistics relationLoadingStatistics() {
+        return relationLoadingStatistics;
+    }
+
     public SqlSnippet tableName(Class<?> beanType) {
         return tableName(engine().defaultConnection(), beanType);
     }
@@ -59,32 +101,139 @@ public class SqlMapper {
 
     public <T> AMapperQuery<T> query(Class<T> beanType, SqlSnippet sql, SqlSnippet... moreSql) {
         return new AMapperQueryImpl<>(this, beanType, concat(sql, moreSql), engine().primitiveTypeRegistry(), engine().rowExtractorFor(beanType),
-                engine().listeners(), engine().defaultConnectionSupplier(), AVector.empty(), engine().defaultFetchSize());
+                engine().listeners(), engine().defaultConnectionSupplier(), engine().async(), AVector.empty(), engine().defaultFetchSize(),
+                engine().statementCache(), engine().resultCache(), engine().injectedPropertiesParallelism());
     }
     public <T> AMapperQuery<T> query(Class<T> beanType, String sql, Object... params) {
         return new AMapperQueryImpl<>(this, beanType, sql(sql, params), engine().primitiveTypeRegistry(), engine().rowExtractorFor(beanType),
-                engine().listeners(), engine().defaultConnectionSupplier(), AVector.empty(), engine().defaultFetchSize());
+                engine().listeners(), engine().defaultConnectionSupplier(), engine().async(), AVector.empty(), engine().defaultFetchSize(),
+                engine().statementCache(), engine().resultCache(), engine().injectedPropertiesParallelism());
     }
 
     public MappedOneToMany oneToMany(String propertyName) {
-        return new MappedOneToMany(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.empty());
+        return new MappedOneToMany(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.empty(), relationLoadingStatistics);
     }
     public MappedOneToMany oneToMany(String propertyName, OneToManySpec spec) {
-        return new MappedOneToMany(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.ofNullable(spec));
+        return new MappedOneToMany(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.ofNullable(spec), relationLoadingStatistics);
     }
 
     public MappedManyToMany manyToMany(String propertyName) {
-        return new MappedManyToMany(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.empty());
+        return new MappedManyToMany(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.empty(), relationLoadingStatistics);
     }
     public MappedManyToMany manyToMany(String propertyName, ManyToManySpec spec) {
-        return new MappedManyToMany(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.ofNullable(spec));
+        return new MappedManyToMany(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.ofNullable(spec), relationLoadingStatistics);
     }
 
     public InjectedProperty toOne(String propertyName) {
-        return new MappedToOne(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.empty());
+        return new MappedToOne(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.empty(), relationLoadingStatistics);
     }
     public InjectedProperty toOne(String propertyName, ToOneSpec spec) {
-        return new MappedToOne(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.ofNullable(spec));
+        return new MappedToOne(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.ofNullable(spec), relationLoadingStatistics);
+    }
+
+    /**
+     * Loads a bean by its primary key, using the {@link #entityCache() entity cache} if it is configured for the bean type. The
+     *  cache is bypassed on connections that are not in auto-commit mode, so a transaction's uncommitted modifications are never
+     *  cached, and the transaction always sees its own modifications.
+     */
+    public <T> AOption<T> findByPk(Class<T> beanType, Object pk) {
+        return findByPk(engine().defaultConnection(), beanType, pk);
+    }
+    public <T> AOption<T> findByPk(Connection conn, Class<T> beanType, Object pk) {
+        final boolean useCache = SqlHelper.isAutoCommit(conn);
+        if (useCache) {
+            final AOption<AOption<T>> cached = entityCache.get(beanType, pk);
+            if (cached.isDefined()) {
+                return cached.get();
+            }
+        }
+
+        final long loadingToken = entityCache.startLoading(beanType);
+        final BeanMapping beanMapping = mappingRegistry.getBeanMapping(conn, beanType);
+        final AOption<T> result = query(beanType, "SELECT * FROM " + beanMapping.tableName() + " WHERE " + beanMapping.pkProperty().columnName() + "=?", pk)
+                .optional(conn);
+        if (useCache) {
+            entityCache.put(beanType, pk, result, loadingToken);
+        }
+        return result;
+    }
+
+    /**
+     * Loads beans for a number of primary keys, using the {@link #entityCache() entity cache} if it is configured for the bean type
+     *  and loading the remaining beans with a single query. The result contains an entry for every primary key for which a
+     *  bean exists, in the order of the primary keys that were passed in. Like {@link #findByPk(Connection, Class, Object)}, this
+     *  bypasses the cache on connections that are not in auto-commit mode.
+     */
+    public <T, K> Map<K, T> findByPks(Class<T> beanType, Collection<K> pks) {
+        return findByPks(engine().defaultConnection(), beanType, pks);
+    }
+    public <T, K> Map<K, T> findByPks(Connection conn, Class<T> beanType, Collection<K> pks) {
+        final boolean useCache = SqlHelper.isAutoCommit(conn);
+        final Map<K, AOption<T>> found = new HashMap<>();
+        final List<K> toLoad = new ArrayList<>();
+        for (K pk : pks) {
+            final AOption<AOption<T>> cached = useCache ? entityCache.get(beanType, pk) : AOption.empty();
+            if (cached.isDefined()) {
+                found.put(pk, cached.get());
+            }
+            else {
+                toLoad.add(pk);
+            }
+        }
+
+        if (!toLoad.isEmpty()) {
+            final long loadingToken = entityCache.startLoading(beanType);
+            final BeanMapping beanMapping = mappingRegistry.getBeanMapping(conn, beanType);
+            final BeanProperty pkProperty = beanMapping.pkProperty();
+
+            final Map<Object, T> loaded = new HashMap<>();
+            query(beanType, concat(sql("SELECT * FROM " + beanMapping.tableName() + " WHERE"), chunkedIn(sql(pkProperty.columnName()), toLoad)))
+                    .forEach(conn, bean -> loaded.put(EntityCache.normalizedPk(pkProperty.get(bean)), bean));
+
+            for (K pk : toLoad) {
+                final AOption<T> bean = AOption.of(loaded.get(EntityCache.normalizedPk(pk)));
+                if (useCache) {
+                    entityCache.put(beanType, pk, bean, loadingToken);
+                }
+                found.put(pk, bean);
+            }
+        }
+
+        final Map<K, T> result = new LinkedHashMap<>();
+        for (K pk : pks) {
+            found.get(pk).forEach(bean -> result.put(pk, bean));
+        }
+        return result;
+    }
+
+    /**
+     * Loads the beans for a collection of values of a unique column, e.g. a business key. This is a convenience for
+     *  {@link SqlEngine#queryByKeys(Class, String, Collection, Function)} with a query selecting all columns of the bean's table.
+     */
+    public <K,T> KeyedResult<K,T> queryByKeys(Class<T> beanType, String keyColumn, Collection<K> keys) {
+        return queryByKeys(engine().defaultConnection(), beanType, keyColumn, keys);
+    }
+    public <K,T> KeyedResult<K,T> queryByKeys(Connection conn, Class<T> beanType, String keyColumn, Collection<K> keys) {
+        return KeyedQueryHelper.load(conn, keyColumn, keys, KeyedQueryHelper.DEFAULT_MAX_CHUNK_SIZE,
+                cond -> query(beanType, selectAllWhere(conn, beanType, cond)), (o, row) -> o);
+    }
+
+    /**
+     * The same as {@link #queryByKeys(Class, String, Collection)}, but running the chunks' statements in parallel, see
+     *  {@link SqlEngine#queryByKeysInParallel(Class, String, Collection, int, Function)}.
+     */
+    public <K,T> KeyedResult<K,T> queryByKeysInParallel(Class<T> beanType, String keyColumn, Collection<K> keys, int maxChunkSize) {
+        final SqlSnippet selectAll = sql("SELECT * FROM " + mappingRegistry.getBeanMapping(engine().defaultConnection(), beanType).tableName() + " WHERE");
+        return KeyedQueryHelper.loadInParallel(engine().async(), keyColumn, keys, maxChunkSize,
+                cond -> query(beanType, selectAll, cond), (o, row) -> o);
+    }
+
+    private SqlSnippet selectAllWhere(Connection conn, Class<?> beanType, SqlSnippet condition) {
+        return concat(sql("SELECT * FROM " + mappingRegistry.getBeanMapping(conn, beanType).tableName() + " WHERE"), condition);
+    }
+
+    private void invalidateCachedBean(BeanMapping beanMapping, Object bean) {
+        entityCache.invalidate(bean.getClass(), beanMapping.pkProperty().get(bean));
     }
 
     public <T> AList<T> insertMany(List<T> os) {
@@ -96,79 +245,168 @@ public class SqlMapper {
         }
 
         final BeanMapping beanMapping = mappingRegistry.getBeanMapping(conn, os.get(0).getClass());
-        if (beanMapping.pkStrategy().isAutoIncrement()) {
-            return insertManyAutoGenerated(conn, beanMapping, os);
-        } else {
-            return insertManyProvidingPk(conn, beanMapping, os);
+        final int batchSize = insertBatchSize(beanMapping);
+
+        final AVector.Builder<T> result = AVector.builder();
+        for (int i = 0; i < os.size(); i += batchSize) {
+            insertChunk(conn, beanMapping, os.subList(i, Math.min(os.size(), i + batchSize)), result::add);
         }
+        return result.build();
+    }
+
+    /**
+     * Inserts all beans from a stream, see {@link #insertAll(Connection, Iterator, int, Consumer)}. This method uses the default connection,
+     *  does not commit, and does not pass the inserted beans to a callback.
+     *
+     * @return the number of inserted beans
+     */
+    public <T> long insertAll(Stream<T> beans) {
+        return insertAll(beans.iterator());
+    }
+    /**
+     * Inserts all beans from an iterator, see {@link #insertAll(Connection, Iterator, int, Consumer)}. This method uses the default connection,
+     *  does not commit, and does not pass the inserted beans to a callback.
+     *
+     * @return the number of inserted beans
+     */
+    public <T> long insertAll(Iterator<T> beans) {
+        return insertAll(engine().defaultConnection(), beans, 0, bean -> {});
+    }
+    /**
+     * Inserts all beans from a stream, see {@link #insertAll(Connection, Iterator, int, Consumer)}. The stream is not closed.
+     */
+    public <T> long insertAll(Connection conn, Stream<T> beans, int commitEveryChunks, Consumer<? super T> onInserted) {
+        return insertAll(conn, beans.iterator(), commitEveryChunks, onInserted);
     }
-    private <T> AVector<T> insertManyAutoGenerated(Connection conn, BeanMapping beanMapping, List<T> os) {
+    /**
+     * Inserts all beans from an iterator with bounded memory usage, for bulk imports that do not fit into memory. Beans are pulled
+     *  from the iterator in chunks of {@link DatabaseDialect#insertBatchSize(int)} beans, and each chunk is inserted as a single
+     *  JDBC batch like for {@link #insertMany(List)}. No references to beans are kept after their chunk was inserted. All beans must
+     *  be of the same type.<p>
+     *
+     * After each chunk, the total number of inserted beans is reported to
+     *  {@link com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener#onBulkInsertProgress(Class, long) listeners}.
+     *
+     * @param commitEveryChunks if this is positive, the connection is committed after that number of chunks and after the last chunk,
+     *                          so rows inserted before a failure remain in the database; 0 means this method does not commit. This
+     *                          is ignored for connections in auto-commit mode, which commit every statement anyway
+     * @param onInserted        is called with every inserted bean, including its primary key if it was generated
+     * @return the number of inserted beans
+     */
+    public <T> long insertAll(Connection conn, Iterator<T> beans, int commitEveryChunks, Consumer<? super T> onInserted) {
+        if (commitEveryChunks < 0) {
+            throw new IllegalArgumentException("commitEveryChunks must not be negative");
+        }
+
         return executeUnchecked(() -> {
-            final BeanProperty pkProperty = beanMapping.pkProperty();
+            // committing a connection in auto-commit mode is redundant, and JDBC drivers may reject it
+            final boolean periodicCommits = commitEveryChunks > 0 && !conn.getAutoCommit();
+
+            final List<T> chunk = new ArrayList<>();
+            BeanMapping beanMapping = null;
+            int batchSize = 0;
+            long numInserted = 0;
+            int numChunks = 0;
+
+            while (beans.hasNext()) {
+                final T bean = beans.next();
+                if (beanMapping == null) {
+                    beanMapping = mappingRegistry.getBeanMapping(conn, bean.getClass());
+                    batchSize = insertBatchSize(beanMapping);
+                }
+                chunk.add(bean);
 
-            final SqlBuilder builder = SqlSnippet.builder();
-            boolean first = true;
-            for (T o : os) {
-                if (beanMapping != mappingRegistry.getBeanMapping(conn, o.getClass())) {
-                    throw new IllegalArgumentException("multi-insert only for beans of the same type");
+                if (chunk.size() >= batchSize || !beans.hasNext()) {
+                    insertChunk(conn, beanMapping, chunk, onInserted);
+                    numInserted += chunk.size();
+                    numChunks += 1;
+                    chunk.clear();
+
+                    if (periodicCommits && (numChunks % commitEveryChunks == 0 || !beans.hasNext())) {
+                        conn.commit();
+                    }
+
+                    final Class<?> beanType = bean.getClass();
+                    final long progress = numInserted;
+                    engine().listeners().reverseIterator().forEachRemaining(l -> l.onBulkInsertProgress(beanType, progress));
                 }
-                appendInsertFragmentForElement(beanMapping, builder, first, o, false);
-                first = false;
             }
+            return numInserted;
+        });
+    }
+
+    private int insertBatchSize(BeanMapping beanMapping) {
+        final AList<String> properties = beanMapping.pkStrategy().isAutoIncrement() ? beanMapping.mappedPropertiesWithoutPk() : beanMapping.mappedProperties();
+        return schemaRegistry.dialect().insertBatchSize(properties.size());
+    }
+
+    /**
+     * Inserts a chunk of beans as a single JDBC batch, passing the inserted beans (with their primary keys) to a callback in order.
+     */
+    private <T> void insertChunk(Connection conn, BeanMapping beanMapping, List<T> chunk, Consumer<? super T> onInserted) {
+        if (beanMapping.pkStrategy().isAutoIncrement()) {
+            insertChunkAutoGenerated(conn, beanMapping, chunk, onInserted);
+        } else {
+            insertChunkProvidingPk(conn, beanMapping, chunk, onInserted);
+        }
+    }
+    private <T> void insertChunkAutoGenerated(Connection conn, BeanMapping beanMapping, List<T> chunk, Consumer<? super T> onInserted) {
+        executeUnchecked(() -> {
+            final BeanProperty pkProperty = beanMapping.pkProperty();
+            final String sql = insertStatement(beanMapping, chunk.get(0), false).getSql();
+            final List<List<?>> params = insertParams(conn, beanMapping, beanMapping.mappedPropertiesWithoutPk(), chunk);
 
             if (pkProperty != null) {
-                final List<?> pkValues = sqlEngine.insertMulti(conn, pkProperty.propClass(),
-                        engine().rowExtractorFor(pkProperty.propClass()),
-                        builder.build(), pkProperty.columnName());
-                if (pkValues.size() != os.size()) {
-                    throw new IllegalStateException("inserting " + os.size() + " rows returned " + pkValues.size() + " - mismatch");
+                final List<?> pkValues = sqlEngine.insertBatch(conn, pkProperty.propClass(), engine().rowExtractorFor(pkProperty.propClass()),
+                        sql, params, AVector.of(pkProperty.columnName()));
+                if (pkValues.size() != chunk.size()) {
+                    throw new IllegalStateException("inserting " + chunk.size() + " rows returned " + pkValues.size() + " - mismatch");
                 }
 
-                final AVector.Builder<T> result = AVector.builder();
-                for (int i = 0; i < os.size(); i++) {
+                for (int i = 0; i < chunk.size(); i++) {
                     //noinspection unchecked
-                    result.add((T) pkProperty.set(os.get(i), pkValues.get(i)));
+                    final T withPk = (T) pkProperty.set(chunk.get(i), pkValues.get(i));
+                    invalidateCachedBean(beanMapping, withPk);
+                    onInserted.accept(withPk);
                 }
-                return result.build();
             } else {
-                sqlEngine.executeUpdate(conn, builder.build());
-                return AVector.from(os);
+                sqlEngine.executeBatch(conn, sql, params);
+                chunk.forEach(onInserted);
             }
+            return null;
         });
     }
 
-    private <T> void appendInsertFragmentForElement(BeanMapping beanMapping, SqlBuilder builder, boolean first, T o, boolean includePkColumn) {
-        if (first) {
-            builder.append(insertStatement(beanMapping, o, includePkColumn));
-        } else {
-            final AList<String> properties = includePkColumn ? beanMapping.mappedProperties() : beanMapping.mappedPropertiesWithoutPk();
-
-            builder
-                    .append(",(")
-                    .append(params(properties.map(p -> beanMapping.beanProperty(p).get(o))))
-                    .append(")")
-            ;
+    /**
+     * @return the parameters of a single-row insert statement for each of the beans, which must all be mapped by the same {@link BeanMapping}
+     */
+    private List<List<?>> insertParams(Connection conn, BeanMapping beanMapping, AList<String> properties, List<?> beans) {
+        final List<List<?>> result = new ArrayList<>(beans.size());
+        for (Object o : beans) {
+            if (beanMapping != mappingRegistry.getBeanMapping(conn, o.getClass())) {
+                throw new IllegalArgumentException("multi-insert only for beans of the same type");
+            }
+            result.add(properties.map(p -> beanMapping.beanProperty(p).get(o)));
         }
+        return result;
     }
 
-    private <T> AVector<T> insertManyProvidingPk(Connection conn, BeanMapping beanMapping, List<T> os) {
-        return executeUnchecked(() -> {
-            final AVector.Builder<T> result = AVector.builder();
-
-            final SqlBuilder builder = SqlSnippet.builder();
-            boolean first = true;
-            for (Object withoutPk : os) {
-                if (beanMapping != mappingRegistry.getBeanMapping(conn, withoutPk.getClass())) {
-                    throw new IllegalArgumentException("multi-insert only for beans of the same type");
-                }
+    private <T> void insertChunkProvidingPk(Connection conn, BeanMapping beanMapping, List<T> chunk, Consumer<? super T> onInserted) {
+        executeUnchecked(() -> {
+            final List<T> withPks = new ArrayList<>(chunk.size());
+            for (Object withoutPk : chunk) {
                 final AOption<Object> optPk = beanMapping.pkStrategy().newPrimaryKey(conn);
-                final Object withPk = optPk.fold(withoutPk, (res, el) -> beanMapping.pkProperty().set(res, el));
-                appendInsertFragmentForElement(beanMapping, builder, first, withPk, true);
-                first = false;
+                //noinspection unchecked
+                withPks.add((T) optPk.fold(withoutPk, (res, el) -> beanMapping.pkProperty().set(res, el)));
             }
 
-            sqlEngine.executeUpdate(conn, builder.build());
-            return result.build();
+            final String sql = insertStatement(beanMapping, withPks.get(0), true).getSql();
+            sqlEngine.executeBatch(conn, sql, insertParams(conn, beanMapping, beanMapping.mappedProperties(), withPks));
+            for (T withPk : withPks) {
+                invalidateCachedBean(beanMapping, withPk);
+                onInserted.accept(withPk);
+            }
+            return null;
         });
     }
 
@@ -190,7 +428,9 @@ public class SqlMapper {
             final BeanProperty pkProperty = beanMapping.pkProperty();
             final Object pkValue = sqlEngine.insertSingleColPkInCol(conn, pkProperty.columnName(), pkProperty.propClass(), insertStmt);
             //noinspection unchecked
-            return (T) pkProperty.set(o, pkValue);
+            final T result = (T) pkProperty.set(o, pkValue);
+            invalidateCachedBean(beanMapping, result);
+            return result;
         });
     }
     private SqlSnippet insertStatement(BeanMapping beanMapping, Object bean, boolean withPk) {
@@ -215,6 +455,7 @@ public class SqlMapper {
             final SqlSnippet insertStmt = insertStatement(beanMapping, beanWithPk, true);
 
             sqlEngine.executeUpdate(conn, insertStmt);
+            invalidateCachedBean(beanMapping, beanWithPk);
             //noinspection unchecked
             return (T) beanWithPk;
         });
@@ -240,7 +481,9 @@ public class SqlMapper {
     }
 
     public boolean update(Connection conn, Object bean) {
-        return sqlEngine.executeUpdate(conn, updateSnippet(conn, bean)) == 1;
+        final boolean result = sqlEngine.executeUpdate(conn, updateSnippet(conn, bean)) == 1;
+        invalidateCachedBean(mappingRegistry.getBeanMapping(conn, bean.getClass()), bean);
+        return result;
     }
 
     /**
@@ -257,6 +500,7 @@ public class SqlMapper {
                 .wrap(beans)
                 .map(b -> updateSnippet(conn, b));
         final int[] results = sqlEngine.executeBatch(conn, snippets);
+        beans.forEach(b -> invalidateCachedBean(mappingRegistry.getBeanMapping(conn, b.getClass()), b));
         final List<Boolean> result = new ArrayList<>(results.length);
         for(int r: results) {
             result.add(r == 1);
@@ -271,9 +515,11 @@ public class SqlMapper {
         final BeanMapping beanMapping = mappingRegistry.getBeanMapping(conn, bean.getClass());
         final BeanProperty pkProperty = beanMapping.pkProperty();
 
-        return executeUnchecked(() ->
+        final boolean result = executeUnchecked(() ->
                 sqlEngine.executeUpdate(conn, "DELETE FROM " + beanMapping.tableName() + " WHERE " + pkProperty.columnName() + "=?", pkProperty.get(bean)) == 1
         );
+        invalidateCachedBean(beanMapping, bean);
+        return result;
     }
     public boolean delete(Class<?> beanType, Object pk) {
         return delete(engine().defaultConnection(), beanType, pk);
@@ -282,9 +528,11 @@ public class SqlMapper {
         final BeanMapping beanMapping = mappingRegistry.getBeanMapping(conn, beanType);
         final BeanProperty pkProperty = beanMapping.pkProperty();
 
-        return executeUnchecked(() ->
+        final boolean result = executeUnchecked(() ->
                 sqlEngine.executeUpdate(conn, "DELETE FROM " + beanMapping.tableName() + " WHERE " + pkProperty.columnName() + "=?", pk) == 1
         );
+        entityCache.invalidate(beanType, pk);
+        return result;
     }
 
     public boolean patch(Class<?> beanType, Object pk, Map<String, Object> newValues) {
@@ -321,8 +569,10 @@ public class SqlMapper {
         }
         builder.append("WHERE " + pkProperty.columnName() + "=?", pk);
 
-        return executeUnchecked(() ->
+        final boolean result = executeUnchecked(() ->
                 sqlEngine.executeUpdate(conn, builder.build()) == 1
         );
+        entityCache.invalidate(beanType, pk);
+        return result;
     }
 }
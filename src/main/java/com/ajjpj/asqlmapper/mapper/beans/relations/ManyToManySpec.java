@@ -17,9 +17,15 @@ public class ManyToManySpec {
     private final Class<?> elementClass;
     private final CollectionBuildStrategy collectionBuildStrategy;
     private final Class<?> keyType;
+    private final RelationLoadingStrategy loadingStrategy;
 
     public ManyToManySpec (String manyManyTable, String fkToOwner, String fkToCollection, String ownerPk,
                            String collTable, String collPk, Class<?> elementClass, CollectionBuildStrategy collectionBuildStrategy, Class<?> keyType) {
+        this(manyManyTable, fkToOwner, fkToCollection, ownerPk, collTable, collPk, elementClass, collectionBuildStrategy, keyType, RelationLoadingStrategy.ADAPTIVE);
+    }
+    public ManyToManySpec (String manyManyTable, String fkToOwner, String fkToCollection, String ownerPk,
+                           String collTable, String collPk, Class<?> elementClass, CollectionBuildStrategy collectionBuildStrategy, Class<?> keyType,
+                           RelationLoadingStrategy loadingStrategy) {
         this.manyManyTable = manyManyTable;
         this.fkToOwner = fkToOwner;
         this.fkToCollection = fkToCollection;
@@ -29,6 +35,7 @@ public class ManyToManySpec {
         this.elementClass = elementClass;
         this.collectionBuildStrategy = collectionBuildStrategy;
         this.keyType = keyType;
+        this.loadingStrategy = loadingStrategy;
     }
 
     public String manyManyTable () {
@@ -67,6 +74,14 @@ public class ManyToManySpec {
         return keyType;
     }
 
+    public RelationLoadingStrategy loadingStrategy () {
+        return loadingStrategy;
+    }
+
+    public ManyToManySpec withLoadingStrategy (RelationLoadingStrategy loadingStrategy) {
+        return new ManyToManySpec(manyManyTable, fkToOwner, fkToCollection, ownerPk, collTable, collPk, elementClass, collectionBuildStrategy, keyType, loadingStrategy);
+    }
+
     @Override public boolean equals (Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
@@ -79,11 +94,12 @@ public class ManyToManySpec {
                 Objects.equals(collPk, that.collPk) &&
                 Objects.equals(elementClass, that.elementClass) &&
                 Objects.equals(collectionBuildStrategy, that.collectionBuildStrategy) &&
-                Objects.equals(keyType, that.keyType);
+                Objects.equals(keyType, that.keyType) &&
+                loadingStrategy == that.loadingStrategy;
     }
 
     @Override public int hashCode () {
-        return Objects.hash(manyManyTable, fkToOwner, fkToCollection, ownerPk, collTable, collPk, elementClass, collectionBuildStrategy, keyType);
+        return Objects.hash(manyManyTable, fkToOwner, fkToCollection, ownerPk, collTable, collPk, elementClass, collectionBuildStrategy, keyType, loadingStrategy);
     }
 
     @Override public String toString () {
@@ -97,6 +113,7 @@ public class ManyToManySpec {
                 ", elementClass=" + elementClass +
                 ", collectionBuildStrategy=" + collectionBuildStrategy +
                 ", keyType=" + keyType +
+                ", loadingStrategy=" + loadingStrategy +
                 '}';
     }
 }
@@ -10,12 +10,18 @@ public class OneToManySpec {
     private final Class<?> elementClass;
     private final CollectionBuildStrategy collectionBuildStrategy;
     private final Class<?> keyType;
+    private final RelationLoadingStrategy loadingStrategy;
 
     public OneToManySpec (ForeignKeySpec foreignKeySpec, Class<?> elementClass, CollectionBuildStrategy collectionBuildStrategy, Class<?> keyType) {
+        this(foreignKeySpec, elementClass, collectionBuildStrategy, keyType, RelationLoadingStrategy.ADAPTIVE);
+    }
+    public OneToManySpec (ForeignKeySpec foreignKeySpec, Class<?> elementClass, CollectionBuildStrategy collectionBuildStrategy, Class<?> keyType,
+                          RelationLoadingStrategy loadingStrategy) {
         this.foreignKeySpec = foreignKeySpec;
         this.elementClass = elementClass;
         this.collectionBuildStrategy = collectionBuildStrategy;
         this.keyType = keyType;
+        this.loadingStrategy = loadingStrategy;
     }
 
     public ForeignKeySpec foreignKeySpec () {
@@ -34,6 +40,14 @@ public class OneToManySpec {
         return keyType;
     }
 
+    public RelationLoadingStrategy loadingStrategy () {
+        return loadingStrategy;
+    }
+
+    public OneToManySpec withLoadingStrategy (RelationLoadingStrategy loadingStrategy) {
+        return new OneToManySpec(foreignKeySpec, elementClass, collectionBuildStrategy, keyType, loadingStrategy);
+    }
+
     @Override public boolean equals (Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
@@ -41,11 +55,12 @@ public class OneToManySpec {
         return Objects.equals(foreignKeySpec, that.foreignKeySpec) &&
                 Objects.equals(elementClass, that.elementClass) &&
                 Objects.equals(collectionBuildStrategy, that.collectionBuildStrategy) &&
-                Objects.equals(keyType, that.keyType);
+                Objects.equals(keyType, that.keyType) &&
+                loadingStrategy == that.loadingStrategy;
     }
 
     @Override public int hashCode () {
-        return Objects.hash(foreignKeySpec, elementClass, collectionBuildStrategy, keyType);
+        return Objects.hash(foreignKeySpec, elementClass, collectionBuildStrategy, keyType, loadingStrategy);
     }
 
     @Override public String toString () {
@@ -54,6 +69,7 @@ public class OneToManySpec {
                 ", elementClass=" + elementClass +
                 ", collectionBuildStrategy=" + collectionBuildStrategy +
                 ", keyType=" + keyType +
+                ", loadingStrategy=" + loadingStrategy +
                 '}';
     }
 }
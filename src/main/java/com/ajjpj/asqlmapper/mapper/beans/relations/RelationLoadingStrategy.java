@@ -0,0 +1,49 @@
+package com.ajjpj.asqlmapper.mapper.beans.relations;
+
+/**
+ * Determines how the details of a relation are loaded for the rows of an owning query.
+ */
+public enum RelationLoadingStrategy {
+    /**
+     * The detail query filters by the keys of the owning query's rows, embedding the owning query as a subquery:
+     *  {@code ... WHERE fk IN (SELECT pk FROM (<owning query>) X)}. This executes the owning query a second time, but it
+     *  does not depend on the number of owning rows.
+     */
+    SUBQUERY,
+
+    /**
+     * Like {@link #SUBQUERY}, but as a correlated semi-join: {@code ... WHERE EXISTS (SELECT 1 FROM (<owning query>) X WHERE X.pk=fk)}.
+     *  Depending on the database and the query, the planner may handle this better than {@code IN}.
+     */
+    SEMI_JOIN,
+
+    /**
+     * The owning query's rows are read before any of them are mapped, and their keys are bound as parameters of the detail
+     *  query, in chunks of {@link com.ajjpj.asqlmapper.mapper.injectedproperties.RelationLoadingStatistics#KEY_LIST_CHUNK_SIZE}
+     *  keys per statement. This avoids executing the owning query a second time. It requires the owning query's results to be
+     *  collected rather than streamed, and it falls back to {@link #SUBQUERY} for streamed results.<p>
+     *
+     * Results that are streamed in windows ({@link com.ajjpj.asqlmapper.core.AQuery#streamInWindows(int)}) always bind the
+     *  keys of each window, regardless of the strategy.
+     */
+    KEY_LIST,
+
+    /**
+     * The detail query embeds the owning query as a {@link #SUBQUERY subquery} and is ordered by the key, and it is read in
+     *  lockstep with the owning query's rows, so the details do not need to be held in memory for the entire query - memory
+     *  usage is independent of the number of rows. This requires the owning query to be ordered by its key column (ascending),
+     *  and its rows to be mapped sequentially, i.e. not in a parallel stream; out-of-order rows cause an exception. The detail
+     *  query is executed on the owning query's connection while the owning query's ResultSet is open. See
+     *  {@link com.ajjpj.asqlmapper.core.injectedproperties.MergeJoinCursor}.<p>
+     *
+     * Results that are streamed in windows use key lists as for {@link #KEY_LIST}.
+     */
+    MERGE_JOIN,
+
+    /**
+     * Chooses between {@link #KEY_LIST} and {@link #SUBQUERY} for every execution of the owning query, based on the row counts
+     *  and execution times observed for previous executions, see
+     *  {@link com.ajjpj.asqlmapper.mapper.injectedproperties.RelationLoadingStatistics}. This is the default.
+     */
+    ADAPTIVE
+}
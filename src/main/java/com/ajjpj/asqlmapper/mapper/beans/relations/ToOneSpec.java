@@ -8,11 +8,16 @@ public class ToOneSpec {
     private final ForeignKeySpec foreignKeySpec;
     private final Class<?> referencedClass;
     private final Class<?> keyType;
+    private final RelationLoadingStrategy loadingStrategy;
 
     public ToOneSpec(ForeignKeySpec foreignKeySpec, Class<?> referencedClass,Class<?> keyType) {
+        this(foreignKeySpec, referencedClass, keyType, RelationLoadingStrategy.ADAPTIVE);
+    }
+    public ToOneSpec(ForeignKeySpec foreignKeySpec, Class<?> referencedClass, Class<?> keyType, RelationLoadingStrategy loadingStrategy) {
         this.foreignKeySpec = foreignKeySpec;
         this.referencedClass = referencedClass;
         this.keyType = keyType;
+        this.loadingStrategy = loadingStrategy;
     }
 
     public ForeignKeySpec foreignKeySpec () {
@@ -27,17 +32,26 @@ public class ToOneSpec {
         return keyType;
     }
 
+    public RelationLoadingStrategy loadingStrategy () {
+        return loadingStrategy;
+    }
+
+    public ToOneSpec withLoadingStrategy (RelationLoadingStrategy loadingStrategy) {
+        return new ToOneSpec(foreignKeySpec, referencedClass, keyType, loadingStrategy);
+    }
+
     @Override public boolean equals (Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ToOneSpec that = (ToOneSpec) o;
         return Objects.equals(foreignKeySpec, that.foreignKeySpec) &&
                 Objects.equals(referencedClass, that.referencedClass) &&
-                Objects.equals(keyType, that.keyType);
+                Objects.equals(keyType, that.keyType) &&
+                loadingStrategy == that.loadingStrategy;
     }
 
     @Override public int hashCode () {
-        return Objects.hash(foreignKeySpec, referencedClass, keyType);
+        return Objects.hash(foreignKeySpec, referencedClass, keyType, loadingStrategy);
     }
 
     @Override public String toString () {
@@ -45,6 +59,7 @@ public class ToOneSpec {
                 "foreignKeySpec=" + foreignKeySpec +
                 ", referencedClass=" + referencedClass +
                 ", keyType=" + keyType +
+                ", loadingStrategy=" + loadingStrategy +
                 '}';
     }
 }
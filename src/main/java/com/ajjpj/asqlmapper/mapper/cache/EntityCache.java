@@ -0,0 +1,234 @@
+package com.ajjpj.asqlmapper.mapper.cache;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.ajjpj.acollections.util.AOption;
+
+/**
+ * A cache for beans loaded by their primary key through {@link com.ajjpj.asqlmapper.mapper.SqlMapper#findByPk(Class, Object)},
+ *  with a separate, bounded LRU cache for each bean type that is configured for caching. Bean types without a configuration
+ *  are not cached.<p>
+ *
+ * {@link com.ajjpj.asqlmapper.mapper.SqlMapper}'s {@code insert}, {@code update}, {@code delete} and {@code patch} operations
+ *  invalidate the entries for the primary keys they modify. Modifications done by other means (e.g. plain SQL statements
+ *  or a different application) are not detected, so code doing them must {@link #invalidate(Class, Object) invalidate}
+ *  affected entries explicitly, or rely on expiry. Entries are shared between all callers and transactions, so caching
+ *  should only be configured for immutable bean types.<p>
+ *
+ * The cache is only used for connections in auto-commit mode, so data that a transaction has not committed yet is never
+ *  cached. Invalidation happens when the modification is executed, not when it is committed, so a bean that is loaded through
+ *  a different connection in between is cached with its state before the modification, and it is stale until it expires.<p>
+ *
+ * Primary keys of the integral types {@code byte}, {@code short}, {@code int} and {@code long} are treated as equal if they
+ *  have the same numeric value, so it does not matter if a {@code long} primary key is looked up with an {@code int} value.
+ */
+public class EntityCache {
+    private static final EntityCache EMPTY = new EntityCache(Collections.emptyMap());
+
+    /**
+     * The cache configuration for a bean type.
+     */
+    public static class Config {
+        final int maxSize;
+        final Duration ttl;
+        final boolean cacheMisses;
+
+        /**
+         * @param maxSize     the maximum number of entries for this bean type, including cached misses
+         * @param ttl         the time after which an entry expires
+         * @param cacheMisses if true, the information that there is no bean with a given primary key is cached as well
+         */
+        public Config(int maxSize, Duration ttl, boolean cacheMisses) {
+            if (maxSize <= 0) {
+                throw new IllegalArgumentException("maximum cache size must be positive");
+            }
+            this.maxSize = maxSize;
+            this.ttl = ttl;
+            this.cacheMisses = cacheMisses;
+        }
+    }
+
+    private static final Object NOT_FOUND = new Object();
+
+    private final Map<Class<?>, BeanTypeCache> caches;
+
+    public static EntityCache empty() {
+        return EMPTY;
+    }
+
+    public EntityCache(Map<Class<?>, Config> configs) {
+        final Map<Class<?>, BeanTypeCache> caches = new HashMap<>();
+        configs.forEach((beanType, config) -> caches.put(beanType, new BeanTypeCache(config)));
+        this.caches = caches;
+    }
+
+    public boolean isCached(Class<?> beanType) {
+        return caches.containsKey(beanType);
+    }
+
+    /**
+     * @return {@code none} if there is no cached information for the primary key, {@code some(none)} if it is cached that
+     *          there is no bean for the primary key, and {@code some(some(bean))} if a bean is cached.
+     */
+    public <T> AOption<AOption<T>> get(Class<T> beanType, Object pk) {
+        final BeanTypeCache cache = caches.get(beanType);
+        if (cache == null) {
+            return AOption.none();
+        }
+        final Object result = cache.get(normalizedPk(pk));
+        if (result == null) {
+            return AOption.none();
+        }
+        //noinspection unchecked
+        return AOption.some(result == NOT_FOUND ? AOption.none() : AOption.some((T) result));
+    }
+
+    /**
+     * Returns a token to be passed to {@link #put(Class, Object, AOption, long)} after loading a bean from the database.
+     *  It ensures that a bean loaded concurrently with an invalidation is not cached.
+     */
+    public long startLoading(Class<?> beanType) {
+        final BeanTypeCache cache = caches.get(beanType);
+        return cache == null ? 0 : cache.generation();
+    }
+
+    /**
+     * Stores the result of loading a bean. If there is no bean for the primary key, this is only cached if the bean type
+     *  is configured to cache misses.
+     */
+    public void put(Class<?> beanType, Object pk, AOption<?> bean, long loadingToken) {
+        final BeanTypeCache cache = caches.get(beanType);
+        if (cache == null || (bean.isEmpty() && !cache.config.cacheMisses)) {
+            return;
+        }
+        cache.put(normalizedPk(pk), bean.isDefined() ? bean.get() : NOT_FOUND, loadingToken);
+    }
+
+    public void invalidate(Class<?> beanType, Object pk) {
+        final BeanTypeCache cache = caches.get(beanType);
+        if (cache != null) {
+            cache.invalidate(normalizedPk(pk));
+        }
+    }
+
+    public void invalidateAll(Class<?> beanType) {
+        final BeanTypeCache cache = caches.get(beanType);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    public void clear() {
+        caches.values().forEach(BeanTypeCache::clear);
+    }
+
+    /**
+     * @return the statistics for a given bean type, or {@code none} if the bean type is not cached
+     */
+    public AOption<EntityCacheStatistics> statistics(Class<?> beanType) {
+        return AOption.of(caches.get(beanType)).map(BeanTypeCache::statistics);
+    }
+
+    /**
+     * @return the statistics summed up over all cached bean types
+     */
+    public EntityCacheStatistics statistics() {
+        EntityCacheStatistics result = new EntityCacheStatistics(0, 0, 0, 0);
+        for (BeanTypeCache cache : caches.values()) {
+            result = result.plus(cache.statistics());
+        }
+        return result;
+    }
+
+    /**
+     * Maps primary keys of all integral types to {@code long} values, leaving other primary keys unchanged.
+     */
+    public static Object normalizedPk(Object pk) {
+        if (pk instanceof Integer || pk instanceof Short || pk instanceof Byte) {
+            return ((Number) pk).longValue();
+        }
+        return pk;
+    }
+
+    private static class BeanTypeCache {
+        final Config config;
+        final Map<Object, CachedBean> cached;
+
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+
+        /**
+         * incremented by every invalidation, so that beans loaded concurrently with an invalidation are not cached
+         */
+        private long generation = 0;
+
+        BeanTypeCache(Config config) {
+            this.config = config;
+            this.cached = new LinkedHashMap<Object, CachedBean>(16, .75f, true) {
+                @Override protected boolean removeEldestEntry(Map.Entry<Object, CachedBean> eldest) {
+                    if (size() > BeanTypeCache.this.config.maxSize) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized long generation() {
+            return generation;
+        }
+
+        synchronized Object get(Object pk) {
+            final CachedBean entry = cached.get(pk);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (entry.expiresAtNanos - System.nanoTime() <= 0) {
+                cached.remove(pk);
+                evictions.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+
+        synchronized void put(Object pk, Object value, long loadingGeneration) {
+            if (generation == loadingGeneration) {
+                cached.put(pk, new CachedBean(value, System.nanoTime() + config.ttl.toNanos()));
+            }
+        }
+
+        synchronized void invalidate(Object pk) {
+            generation += 1;
+            cached.remove(pk);
+        }
+
+        synchronized void clear() {
+            generation += 1;
+            cached.clear();
+        }
+
+        synchronized EntityCacheStatistics statistics() {
+            return new EntityCacheStatistics(hits.sum(), misses.sum(), evictions.sum(), cached.size());
+        }
+    }
+
+    private static class CachedBean {
+        final Object value;
+        final long expiresAtNanos;
+
+        CachedBean(Object value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
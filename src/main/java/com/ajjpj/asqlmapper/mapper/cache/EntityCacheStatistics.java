@@ -0,0 +1,45 @@
+package com.ajjpj.asqlmapper.mapper.cache;
+
+/**
+ * A snapshot of an {@link EntityCache}'s counters. Evictions include entries removed because the cache was full and
+ *  entries that were found to be expired, but not entries that were invalidated because their bean was modified.
+ */
+public class EntityCacheStatistics {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+
+    public EntityCacheStatistics(long hits, long misses, long evictions, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    public long hits() {
+        return hits;
+    }
+    public long misses() {
+        return misses;
+    }
+    public long evictions() {
+        return evictions;
+    }
+    public int size() {
+        return size;
+    }
+
+    public double hitRatio() {
+        final long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    EntityCacheStatistics plus(EntityCacheStatistics other) {
+        return new EntityCacheStatistics(hits + other.hits, misses + other.misses, evictions + other.evictions, size + other.size);
+    }
+
+    @Override public String toString() {
+        return "EntityCacheStatistics{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", size=" + size + "}";
+    }
+}
@@ -5,7 +5,7 @@ import static com.ajjpj.asqlmapper.core.SqlSnippet.concat;
 import static com.ajjpj.asqlmapper.core.SqlSnippet.sql;
 
 import java.sql.Connection;
-import java.util.Map;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.BiFunction;
 
@@ -16,10 +16,14 @@ import com.ajjpj.asqlmapper.core.common.CollectionBuildStrategy;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedToManyProperty;
+import com.ajjpj.asqlmapper.core.injectedproperties.KeyMap;
+import com.ajjpj.asqlmapper.core.injectedproperties.OwningRows;
+import com.ajjpj.asqlmapper.core.injectedproperties.RelationMemento;
 import com.ajjpj.asqlmapper.mapper.beans.BeanMapping;
 import com.ajjpj.asqlmapper.mapper.beans.BeanMappingRegistry;
 import com.ajjpj.asqlmapper.mapper.beans.relations.ManyToManySpec;
 import com.ajjpj.asqlmapper.mapper.beans.relations.OneToManySpec;
+import com.ajjpj.asqlmapper.mapper.beans.relations.RelationLoadingStrategy;
 
 @SuppressWarnings("unchecked")
 public class MappedManyToMany implements InjectedProperty {
@@ -28,41 +32,96 @@ public class MappedManyToMany implements InjectedProperty {
     private final BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory;
 
     private final Optional<ManyToManySpec> spec;
+    private final RelationLoadingStatistics statistics;
 
     private InjectedToManyProperty inner;
 
     public MappedManyToMany(String propertyName, BeanMappingRegistry beanMappingRegistry, BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory,
                             Optional<ManyToManySpec> spec) {
+        this(propertyName, beanMappingRegistry, queryFactory, spec, new RelationLoadingStatistics());
+    }
+    public MappedManyToMany(String propertyName, BeanMappingRegistry beanMappingRegistry, BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory,
+                            Optional<ManyToManySpec> spec, RelationLoadingStatistics statistics) {
         this.propertyName = propertyName;
         this.beanMappingRegistry = beanMappingRegistry;
         this.queryFactory = queryFactory;
         this.spec = spec;
+        this.statistics = statistics;
     }
 
     @Override public String propertyName() {
         return propertyName;
     }
 
+    private RelationLoadingStrategy loadingStrategy() {
+        return spec.map(ManyToManySpec::loadingStrategy).orElse(RelationLoadingStrategy.ADAPTIVE);
+    }
+
+    @Override public boolean wantsOwningRows(SqlSnippet owningQuery) {
+        return RelationLoading.wantsOwningRows(loadingStrategy(), statistics, owningQuery);
+    }
+
+    @Override public boolean mementoKeepsConnection() {
+        return loadingStrategy() == RelationLoadingStrategy.MERGE_JOIN;
+    }
+
     @Override
     public Object mementoPerQuery(Connection conn, Class owningClass, SqlSnippet owningQuery) {
+        return mementoPerQuery(conn, owningClass, owningQuery, null);
+    }
+
+    @Override
+    public Object mementoPerQuery(Connection conn, Class owningClass, SqlSnippet owningQuery, OwningRows owningRows) {
+        final ManyToManySpec rel = spec.orElseGet(() -> beanMappingRegistry.resolveManyToMany(conn, owningClass, propertyName));
+
+        return loadDetails(conn, owningClass, owningQuery, rel, RelationLoading.detailConditions(loadingStrategy(), statistics, owningQuery, owningRows,
+                rel.ownerPk(), rel.keyType(), "b." + rel.fkToOwner()),
+                loadingStrategy() == RelationLoadingStrategy.MERGE_JOIN);
+    }
+
+    @Override public boolean supportsWindows() {
+        return true;
+    }
+
+    @Override
+    public Object mementoPerWindow(Connection conn, Class owningClass, SqlSnippet owningQuery, OwningRows window) {
         final ManyToManySpec rel = spec.orElseGet(() -> beanMappingRegistry.resolveManyToMany(conn, owningClass, propertyName));
+        return loadDetails(conn, owningClass, owningQuery, rel, RelationLoading.windowConditions(window, rel.ownerPk(), rel.keyType(), "b." + rel.fkToOwner()),
+                false);
+    }
 
+    private RelationMemento<Object> loadDetails(Connection conn, Class owningClass, SqlSnippet owningQuery, ManyToManySpec rel, List<SqlSnippet> conditions,
+                                                boolean mergeJoin) {
         final String fkToOwnerAlias = "$$" + rel.fkToOwner();
 
-        final SqlSnippet detailSql = concat(
-                sql("SELECT b." + rel.fkToOwner() + " AS \"" + fkToOwnerAlias + "\", a.*"),
-                sql("FROM " + rel.collTable() + " a INNER JOIN " + rel.manyManyTable() + " b ON a." + rel.collPk() + "=b." + rel.fkToCollection()),
-                sql("WHERE b." + rel.fkToOwner() + " IN (SELECT " + rel.ownerPk() + " FROM ("),
-                owningQuery,
-                sql(") x)")
-        );
-        final AQuery<?> detailQuery = queryFactory.apply(rel.elementClass(), detailSql);
-
-        inner = new InjectedToManyProperty(propertyName, rel.ownerPk(), rel.keyType(), fkToOwnerAlias, detailQuery, rel.collectionBuildStrategy());
-        return inner.mementoPerQuery(conn, owningClass, owningQuery);
+        RelationMemento<Object> result = null;
+        for (SqlSnippet condition: conditions) {
+            final SqlSnippet detailSql = concat(
+                    sql("SELECT b." + rel.fkToOwner() + " AS \"" + fkToOwnerAlias + "\", a.*"),
+                    sql("FROM " + rel.collTable() + " a INNER JOIN " + rel.manyManyTable() + " b ON a." + rel.collPk() + "=b." + rel.fkToCollection()),
+                    sql("WHERE"),
+                    condition,
+                    mergeJoin ? sql("ORDER BY b." + rel.fkToOwner()) : SqlSnippet.EMPTY
+            );
+            final AQuery<?> detailQuery = queryFactory.apply(rel.elementClass(), detailSql);
+
+            inner = new InjectedToManyProperty(propertyName, rel.ownerPk(), rel.keyType(), fkToOwnerAlias, detailQuery, rel.collectionBuildStrategy());
+            if (mergeJoin) {
+                inner = inner.withMergeJoin();
+            }
+            final RelationMemento<Object> chunkResult = inner.mementoPerQuery(conn, owningClass, owningQuery);
+            if (result == null) {
+                result = chunkResult;
+            }
+            else {
+                // there are several chunks only for key lists, which are never merge joined
+                ((KeyMap<Object>) result).putAll((KeyMap<Object>) chunkResult);
+            }
+        }
+        return result;
     }
 
     @Override public AOption<Object> value(Connection conn, SqlRow currentRow, Object memento) {
-        return inner.value(conn, currentRow, (Map) memento);
+        return inner.value(conn, currentRow, (RelationMemento) memento);
     }
 }
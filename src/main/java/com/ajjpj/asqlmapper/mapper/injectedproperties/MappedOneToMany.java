@@ -4,7 +4,7 @@ import static com.ajjpj.asqlmapper.core.SqlSnippet.concat;
 import static com.ajjpj.asqlmapper.core.SqlSnippet.sql;
 
 import java.sql.Connection;
-import java.util.Map;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.BiFunction;
 
@@ -14,8 +14,12 @@ import com.ajjpj.asqlmapper.core.SqlSnippet;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedToManyProperty;
+import com.ajjpj.asqlmapper.core.injectedproperties.KeyMap;
+import com.ajjpj.asqlmapper.core.injectedproperties.OwningRows;
+import com.ajjpj.asqlmapper.core.injectedproperties.RelationMemento;
 import com.ajjpj.asqlmapper.mapper.beans.BeanMappingRegistry;
 import com.ajjpj.asqlmapper.mapper.beans.relations.OneToManySpec;
+import com.ajjpj.asqlmapper.mapper.beans.relations.RelationLoadingStrategy;
 
 
 @SuppressWarnings("unchecked")
@@ -25,37 +29,95 @@ public class MappedOneToMany implements InjectedProperty {
     private final BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory;
 
     private final Optional<OneToManySpec> spec;
+    private final RelationLoadingStatistics statistics;
 
     private InjectedToManyProperty inner;
 
     public MappedOneToMany(String propertyName, BeanMappingRegistry beanMappingRegistry, BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory,
                            Optional<OneToManySpec> spec) {
+        this(propertyName, beanMappingRegistry, queryFactory, spec, new RelationLoadingStatistics());
+    }
+    public MappedOneToMany(String propertyName, BeanMappingRegistry beanMappingRegistry, BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory,
+                           Optional<OneToManySpec> spec, RelationLoadingStatistics statistics) {
         this.propertyName = propertyName;
         this.beanMappingRegistry = beanMappingRegistry;
         this.queryFactory = queryFactory;
         this.spec = spec;
+        this.statistics = statistics;
     }
 
     @Override public String propertyName () {
         return propertyName;
     }
 
+    private RelationLoadingStrategy loadingStrategy() {
+        return spec.map(OneToManySpec::loadingStrategy).orElse(RelationLoadingStrategy.ADAPTIVE);
+    }
+
+    @Override public boolean wantsOwningRows (SqlSnippet owningQuery) {
+        return RelationLoading.wantsOwningRows(loadingStrategy(), statistics, owningQuery);
+    }
+
+    @Override public boolean mementoKeepsConnection () {
+        return loadingStrategy() == RelationLoadingStrategy.MERGE_JOIN;
+    }
+
     @Override
     public Object mementoPerQuery (Connection conn, Class owningClass, SqlSnippet owningQuery) {
+        return mementoPerQuery(conn, owningClass, owningQuery, null);
+    }
+
+    @Override
+    public Object mementoPerQuery (Connection conn, Class owningClass, SqlSnippet owningQuery, OwningRows owningRows) {
+        final OneToManySpec rel = spec.orElseGet(() -> beanMappingRegistry.resolveOneToMany(conn, owningClass, propertyName));
+        return loadDetails(conn, owningClass, owningQuery, rel, RelationLoading.detailConditions(loadingStrategy(), statistics, owningQuery, owningRows,
+                rel.foreignKeySpec().pkColumnName(), rel.keyType(), detailKeyExpr(rel)),
+                loadingStrategy() == RelationLoadingStrategy.MERGE_JOIN);
+    }
+
+    @Override public boolean supportsWindows () {
+        return true;
+    }
+
+    @Override
+    public Object mementoPerWindow (Connection conn, Class owningClass, SqlSnippet owningQuery, OwningRows window) {
         final OneToManySpec rel = spec.orElseGet(() -> beanMappingRegistry.resolveOneToMany(conn, owningClass, propertyName));
+        return loadDetails(conn, owningClass, owningQuery, rel,
+                RelationLoading.windowConditions(window, rel.foreignKeySpec().pkColumnName(), rel.keyType(), detailKeyExpr(rel)), false);
+    }
+
+    private String detailKeyExpr (OneToManySpec rel) {
+        return rel.foreignKeySpec().fkTableName() + "." + rel.foreignKeySpec().fkColumnName();
+    }
 
-        final SqlSnippet detailSql = concat(
-                sql("SELECT * FROM " + rel.foreignKeySpec().fkTableName() + " WHERE " + rel.foreignKeySpec().fkColumnName() + " IN (SELECT " + rel.foreignKeySpec().pkColumnName() + " FROM ("),
-                owningQuery,
-                sql(") X)")
-        );
-        final AQuery<?> detailQuery = queryFactory.apply(rel.elementClass(), detailSql);
+    private RelationMemento<Object> loadDetails (Connection conn, Class owningClass, SqlSnippet owningQuery, OneToManySpec rel, List<SqlSnippet> conditions,
+                                                 boolean mergeJoin) {
+        RelationMemento<Object> result = null;
+        for (SqlSnippet condition: conditions) {
+            final SqlSnippet detailSql = concat(
+                    sql("SELECT * FROM " + rel.foreignKeySpec().fkTableName() + " WHERE"),
+                    condition,
+                    mergeJoin ? sql("ORDER BY " + detailKeyExpr(rel)) : SqlSnippet.EMPTY
+            );
+            final AQuery<?> detailQuery = queryFactory.apply(rel.elementClass(), detailSql);
 
-        inner = new InjectedToManyProperty(propertyName, rel.foreignKeySpec().pkColumnName(), rel.keyType(), rel.foreignKeySpec().fkColumnName(), detailQuery, rel.collectionBuildStrategy());
-        return inner.mementoPerQuery(conn, owningClass, owningQuery);
+            inner = new InjectedToManyProperty(propertyName, rel.foreignKeySpec().pkColumnName(), rel.keyType(), rel.foreignKeySpec().fkColumnName(), detailQuery, rel.collectionBuildStrategy());
+            if (mergeJoin) {
+                inner = inner.withMergeJoin();
+            }
+            final RelationMemento<Object> chunkResult = inner.mementoPerQuery(conn, owningClass, owningQuery);
+            if (result == null) {
+                result = chunkResult;
+            }
+            else {
+                // there are several chunks only for key lists, which are never merge joined
+                ((KeyMap<Object>) result).putAll((KeyMap<Object>) chunkResult);
+            }
+        }
+        return result;
     }
 
     @Override public AOption<Object> value (Connection conn, SqlRow currentRow, Object memento) {
-        return inner.value(conn, currentRow, (Map) memento);
+        return inner.value(conn, currentRow, (RelationMemento) memento);
     }
 }
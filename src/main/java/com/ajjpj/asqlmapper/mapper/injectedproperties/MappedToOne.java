@@ -3,7 +3,7 @@ package com.ajjpj.asqlmapper.mapper.injectedproperties;
 import static com.ajjpj.asqlmapper.core.SqlSnippet.*;
 
 import java.sql.Connection;
-import java.util.Map;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.BiFunction;
 
@@ -13,7 +13,11 @@ import com.ajjpj.asqlmapper.core.SqlSnippet;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedToOneProperty;
+import com.ajjpj.asqlmapper.core.injectedproperties.KeyMap;
+import com.ajjpj.asqlmapper.core.injectedproperties.OwningRows;
+import com.ajjpj.asqlmapper.core.injectedproperties.RelationMemento;
 import com.ajjpj.asqlmapper.mapper.beans.BeanMappingRegistry;
+import com.ajjpj.asqlmapper.mapper.beans.relations.RelationLoadingStrategy;
 import com.ajjpj.asqlmapper.mapper.beans.relations.ToOneSpec;
 
 @SuppressWarnings("unchecked")
@@ -23,38 +27,97 @@ public class MappedToOne implements InjectedProperty {
     private final BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory;
 
     private final Optional<ToOneSpec> spec;
+    private final RelationLoadingStatistics statistics;
 
     private InjectedToOneProperty inner;
 
     public MappedToOne(String propertyName, BeanMappingRegistry beanMappingRegistry, BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory,
                        Optional<ToOneSpec> spec) {
+        this(propertyName, beanMappingRegistry, queryFactory, spec, new RelationLoadingStatistics());
+    }
+    public MappedToOne(String propertyName, BeanMappingRegistry beanMappingRegistry, BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory,
+                       Optional<ToOneSpec> spec, RelationLoadingStatistics statistics) {
         this.propertyName = propertyName;
         this.beanMappingRegistry = beanMappingRegistry;
         this.queryFactory = queryFactory;
         this.spec = spec;
+        this.statistics = statistics;
     }
 
     @Override public String propertyName () {
         return propertyName;
     }
 
+    private RelationLoadingStrategy loadingStrategy() {
+        return spec.map(ToOneSpec::loadingStrategy).orElse(RelationLoadingStrategy.ADAPTIVE);
+    }
+
+    @Override public boolean wantsOwningRows (SqlSnippet owningQuery) {
+        return RelationLoading.wantsOwningRows(loadingStrategy(), statistics, owningQuery);
+    }
+
+    @Override public boolean mementoKeepsConnection () {
+        return loadingStrategy() == RelationLoadingStrategy.MERGE_JOIN;
+    }
+
     @Override
     public Object mementoPerQuery (Connection conn, Class owningClass, SqlSnippet owningQuery) {
+        return mementoPerQuery(conn, owningClass, owningQuery, null);
+    }
+
+    @Override
+    public Object mementoPerQuery (Connection conn, Class owningClass, SqlSnippet owningQuery, OwningRows owningRows) {
         final ToOneSpec rel = spec.orElseGet(() -> beanMappingRegistry.resolveToOne(conn, owningClass, propertyName));
 
         //TODO ensure (in the mapper?) that the 'master' foreign key is part of the owning query - back propagation?
-        final SqlSnippet detailSql = concat(
-                sql("SELECT * FROM " + rel.foreignKeySpec().pkTableName() + " WHERE " + rel.foreignKeySpec().pkColumnName() + " IN (SELECT " + rel.foreignKeySpec().fkColumnName() + " FROM ("),
-                owningQuery,
-                sql(") X)")
-        );
-        final AQuery<?> detailQuery = queryFactory.apply(rel.elementClass(), detailSql);
+        return loadDetails(conn, owningClass, owningQuery, rel, RelationLoading.detailConditions(loadingStrategy(), statistics, owningQuery, owningRows,
+                rel.foreignKeySpec().fkColumnName(), rel.keyType(), detailKeyExpr(rel)),
+                loadingStrategy() == RelationLoadingStrategy.MERGE_JOIN);
+    }
+
+    @Override public boolean supportsWindows () {
+        return true;
+    }
+
+    @Override
+    public Object mementoPerWindow (Connection conn, Class owningClass, SqlSnippet owningQuery, OwningRows window) {
+        final ToOneSpec rel = spec.orElseGet(() -> beanMappingRegistry.resolveToOne(conn, owningClass, propertyName));
+        return loadDetails(conn, owningClass, owningQuery, rel,
+                RelationLoading.windowConditions(window, rel.foreignKeySpec().fkColumnName(), rel.keyType(), detailKeyExpr(rel)), false);
+    }
+
+    private String detailKeyExpr (ToOneSpec rel) {
+        return rel.foreignKeySpec().pkTableName() + "." + rel.foreignKeySpec().pkColumnName();
+    }
+
+    private RelationMemento<Object> loadDetails (Connection conn, Class owningClass, SqlSnippet owningQuery, ToOneSpec rel, List<SqlSnippet> conditions,
+                                                 boolean mergeJoin) {
+        RelationMemento<Object> result = null;
+        for (SqlSnippet condition: conditions) {
+            final SqlSnippet detailSql = concat(
+                    sql("SELECT * FROM " + rel.foreignKeySpec().pkTableName() + " WHERE"),
+                    condition,
+                    mergeJoin ? sql("ORDER BY " + detailKeyExpr(rel)) : SqlSnippet.EMPTY
+            );
+            final AQuery<?> detailQuery = queryFactory.apply(rel.elementClass(), detailSql);
 
-        inner = new InjectedToOneProperty(propertyName, rel.foreignKeySpec().fkColumnName(), rel.keyType(), rel.foreignKeySpec().pkColumnName(), detailQuery);
-        return inner.mementoPerQuery(conn, owningClass, owningQuery);
+            inner = new InjectedToOneProperty(propertyName, rel.foreignKeySpec().fkColumnName(), rel.keyType(), rel.foreignKeySpec().pkColumnName(), detailQuery);
+            if (mergeJoin) {
+                inner = inner.withMergeJoin();
+            }
+            final RelationMemento<Object> chunkResult = inner.mementoPerQuery(conn, owningClass, owningQuery);
+            if (result == null) {
+                result = chunkResult;
+            }
+            else {
+                // there are several chunks only for key lists, which are never merge joined
+                ((KeyMap<Object>) result).putAll((KeyMap<Object>) chunkResult);
+            }
+        }
+        return result;
     }
 
     @Override public AOption<Object> value (Connection conn, SqlRow currentRow, Object memento) {
-        return inner.value(conn, currentRow, (Map) memento);
+        return inner.value(conn, currentRow, (RelationMemento) memento);
     }
 }
@@ -0,0 +1,77 @@
+package com.ajjpj.asqlmapper.mapper.injectedproperties;
+
+import static com.ajjpj.asqlmapper.core.SqlSnippet.concat;
+import static com.ajjpj.asqlmapper.core.SqlSnippet.in;
+import static com.ajjpj.asqlmapper.core.SqlSnippet.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.injectedproperties.OwningRows;
+import com.ajjpj.asqlmapper.mapper.beans.relations.RelationLoadingStrategy;
+
+/**
+ * Creates the conditions restricting a relation's detail query to the rows of the owning query, based on a
+ *  {@link RelationLoadingStrategy}.
+ */
+class RelationLoading {
+    static boolean wantsOwningRows(RelationLoadingStrategy strategy, RelationLoadingStatistics statistics, SqlSnippet owningQuery) {
+        switch (strategy) {
+            case KEY_LIST: return true;
+            case ADAPTIVE: return statistics.prefersKeyList(owningQuery.getSql());
+            default:       return false;
+        }
+    }
+
+    /**
+     * @param owningRows    the owning query's rows if they were read before mapping, null otherwise
+     * @param masterKeyName the name of the owning query's key column
+     * @param detailKeyExpr the SQL expression for the detail query's key, which must match the owning query's key
+     * @return one or more conditions for the detail query; if there is more than one, each of them requires a separate detail
+     *          query, and their results are disjoint
+     */
+    static List<SqlSnippet> detailConditions(RelationLoadingStrategy strategy, RelationLoadingStatistics statistics, SqlSnippet owningQuery,
+                                             OwningRows owningRows, String masterKeyName, Class<?> keyType, String detailKeyExpr) {
+        if (owningRows != null) {
+            if (strategy == RelationLoadingStrategy.KEY_LIST ||
+                    (strategy == RelationLoadingStrategy.ADAPTIVE && statistics.prefersKeyList(owningRows.rows().size(), owningRows.queryNanos()))) {
+                return keyListConditions(new ArrayList<>(owningRows.distinctValues(keyType, masterKeyName)), detailKeyExpr);
+            }
+        }
+
+        if (strategy == RelationLoadingStrategy.SEMI_JOIN) {
+            return Collections.singletonList(concat(
+                    sql("EXISTS (SELECT 1 FROM ("),
+                    owningQuery,
+                    sql(") X WHERE X." + masterKeyName + "=" + detailKeyExpr + ")")
+            ));
+        }
+        return Collections.singletonList(concat(
+                sql(detailKeyExpr + " IN (SELECT " + masterKeyName + " FROM ("),
+                owningQuery,
+                sql(") X)")
+        ));
+    }
+
+    /**
+     * @return conditions restricting the detail query to the keys of a window of owning rows, regardless of the strategy
+     */
+    static List<SqlSnippet> windowConditions(OwningRows window, String masterKeyName, Class<?> keyType, String detailKeyExpr) {
+        return keyListConditions(new ArrayList<>(window.distinctValues(keyType, masterKeyName)), detailKeyExpr);
+    }
+
+    private static List<SqlSnippet> keyListConditions(List<?> keys, String detailKeyExpr) {
+        if (keys.isEmpty()) {
+            return Collections.singletonList(SqlSnippet.FALSE);
+        }
+
+        final List<SqlSnippet> result = new ArrayList<>();
+        for (int i=0; i<keys.size(); i+=RelationLoadingStatistics.KEY_LIST_CHUNK_SIZE) {
+            final List<?> chunk = keys.subList(i, Math.min(keys.size(), i + RelationLoadingStatistics.KEY_LIST_CHUNK_SIZE));
+            result.add(concat(sql(detailKeyExpr), in(chunk)));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,134 @@
+package com.ajjpj.asqlmapper.mapper.injectedproperties;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
+import com.ajjpj.asqlmapper.mapper.beans.relations.RelationLoadingStrategy;
+
+/**
+ * Observed row counts and execution times of owning queries, used for choosing a {@link RelationLoadingStrategy} for relations
+ *  with {@link RelationLoadingStrategy#ADAPTIVE adaptive} loading. A SqlMapper keeps one instance for all its relations.<p>
+ *
+ * Binding the owning rows' keys ({@link RelationLoadingStrategy#KEY_LIST}) saves executing the owning query a second time, but
+ *  it requires reading all owning rows before mapping them, and it means binding one parameter per row. So it is chosen if
+ *  the owning query returned at most {@link #maxKeyListRows()} rows on average, or if it is slow, i.e. took at least
+ *  {@link #slowQueryMillis()} on average - for slow owning queries, executing them twice costs more than binding many keys.
+ *  Otherwise the owning query is embedded as a {@link RelationLoadingStrategy#SUBQUERY subquery}. For owning queries that were
+ *  not observed yet, key lists are used, which also yields a first observation.<p>
+ *
+ * Observations are averaged with exponential decay, so the choice adapts if the data changes over time. Since observations
+ *  can only be made when the owning rows are read before mapping, this is also done for a small random sample of executions
+ *  for which the subquery is preferred - but only if the owning query returned at most twice {@link #maxKeyListRows()} rows
+ *  on average, so that queries known to be large are never read into memory for sampling.<p>
+ *
+ * Observations are registered as an {@link SqlEngineEventListener} whenever an owning query's rows were read before
+ *  mapping, once per execution regardless of the number of relations loaded for it. A SqlMapper registers its instance with
+ *  its SqlEngine.
+ */
+public class RelationLoadingStatistics implements SqlEngineEventListener {
+    public static final int KEY_LIST_CHUNK_SIZE = 1000;
+    public static final int DEFAULT_MAX_KEY_LIST_ROWS = 10_000;
+    public static final long DEFAULT_SLOW_QUERY_MILLIS = 100;
+
+    /**
+     * the number of distinct owning queries for which observations are kept; this is a safeguard against unbounded growth
+     *  for dynamically generated SQL
+     */
+    private static final int MAX_NUM_QUERIES = 1000;
+    private static final double DECAY = 0.2;
+    private static final int RESAMPLE_INTERVAL = 20;
+    private static final int RESAMPLE_MAX_ROWS_FACTOR = 2;
+
+    private final int maxKeyListRows;
+    private final long slowQueryMillis;
+    private final Map<String, Observation> observations = new ConcurrentHashMap<>();
+
+    public RelationLoadingStatistics() {
+        this(DEFAULT_MAX_KEY_LIST_ROWS, DEFAULT_SLOW_QUERY_MILLIS);
+    }
+    public RelationLoadingStatistics(int maxKeyListRows, long slowQueryMillis) {
+        this.maxKeyListRows = maxKeyListRows;
+        this.slowQueryMillis = slowQueryMillis;
+    }
+
+    public int maxKeyListRows() {
+        return maxKeyListRows;
+    }
+    public long slowQueryMillis() {
+        return slowQueryMillis;
+    }
+
+    /**
+     * @return true if relations of the given owning query should be loaded by binding the owning rows' keys, based on previous
+     *          observations
+     */
+    public boolean prefersKeyList(String owningSql) {
+        final Observation observation = observations.get(owningSql);
+        return observation == null
+                || prefersKeyList((int) observation.avgNumRows, (long) observation.avgQueryNanos)
+                || (isNearThreshold(observation) && ThreadLocalRandom.current().nextInt(RESAMPLE_INTERVAL) == 0);
+    }
+
+    private boolean isNearThreshold(Observation observation) {
+        return observation.avgNumRows <= (double) RESAMPLE_MAX_ROWS_FACTOR * maxKeyListRows;
+    }
+
+    /**
+     * @return true if relations should be loaded by binding the owning rows' keys for a given execution of an owning query
+     */
+    public boolean prefersKeyList(int numRows, long queryNanos) {
+        return numRows <= maxKeyListRows || queryNanos >= TimeUnit.MILLISECONDS.toNanos(slowQueryMillis);
+    }
+
+    @Override public void onOwningRowsRead(SqlSnippet sql, int numRows, long queryNanos) {
+        register(sql.getSql(), numRows, queryNanos);
+    }
+
+    public void register(String owningSql, int numRows, long queryNanos) {
+        if (observations.size() >= MAX_NUM_QUERIES && !observations.containsKey(owningSql)) {
+            observations.clear();
+        }
+        observations.merge(owningSql, new Observation(1, numRows, queryNanos), Observation::plus);
+    }
+
+    public AOption<Observation> observation(String owningSql) {
+        return AOption.of(observations.get(owningSql));
+    }
+
+    public static class Observation {
+        private final long numExecutions;
+        private final double avgNumRows;
+        private final double avgQueryNanos;
+
+        Observation(long numExecutions, double avgNumRows, double avgQueryNanos) {
+            this.numExecutions = numExecutions;
+            this.avgNumRows = avgNumRows;
+            this.avgQueryNanos = avgQueryNanos;
+        }
+
+        public long numExecutions() {
+            return numExecutions;
+        }
+        public double avgNumRows() {
+            return avgNumRows;
+        }
+        public double avgQueryMillis() {
+            return avgQueryNanos / 1_000_000;
+        }
+
+        Observation plus(Observation o) {
+            return new Observation(numExecutions + o.numExecutions,
+                    (1-DECAY) * avgNumRows + DECAY * o.avgNumRows,
+                    (1-DECAY) * avgQueryNanos + DECAY * o.avgQueryNanos);
+        }
+
+        @Override public String toString() {
+            return "Observation{numExecutions=" + numExecutions + ", avgNumRows=" + avgNumRows + ", avgQueryMillis=" + avgQueryMillis() + "}";
+        }
+    }
+}
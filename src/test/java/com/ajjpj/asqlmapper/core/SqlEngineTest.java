@@ -1,19 +1,44 @@
 package com.ajjpj.asqlmapper.core;
 
+import static com.ajjpj.asqlmapper.core.SqlSnippet.concat;
 import static com.ajjpj.asqlmapper.core.SqlSnippet.sql;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import com.ajjpj.acollections.AList;
+import com.ajjpj.acollections.immutable.AVector;
 import com.ajjpj.acollections.util.AOption;
 import com.ajjpj.asqlmapper.AbstractDatabaseTest;
+import com.ajjpj.asqlmapper.core.common.ColumnarResult;
 import com.ajjpj.asqlmapper.core.common.CommonPrimitiveHandlers;
+import com.ajjpj.asqlmapper.core.common.DetachedSqlRow;
+import com.ajjpj.asqlmapper.core.common.KeyedResult;
 import com.ajjpj.asqlmapper.core.common.RawRowExtractor;
 import com.ajjpj.asqlmapper.core.common.ScalarRowExtractor;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
+import com.ajjpj.asqlmapper.core.impl.StatementCache;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
+import com.ajjpj.asqlmapper.core.injectedproperties.OwningRows;
+import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
@@ -471,6 +496,58 @@ public class SqlEngineTest extends AbstractDatabaseTest {
         assertEquals(AList.of(1, 2, 1, 2), result);
     }
 
+    @Test void testLiveSqlRowColumnAccess() {
+        createPerson(1, "Arno");
+
+        final List<String> result = new ArrayList<>();
+        SqlEngine.create().rawQuery("SELECT id, name AS nickname FROM person").forEachWithRowAccess(conn, (r, row) -> {
+            assertEquals(2, row.numColumns());
+            assertEquals(1L, ((Number) row.get(0)).longValue());
+            assertEquals(row.get(0), row.get("id"));
+            assertEquals(row.get(0), row.get("ID"));
+            assertEquals("Arno", row.get(1));
+            assertEquals("Arno", row.get("nickname"));
+            assertEquals("Arno", row.getString("NickName"));
+            result.add(row.getString(1));
+        });
+        assertEquals(AList.of("Arno"), result);
+    }
+
+    @Test void testPrimitiveRowAccess() {
+        createPerson(1, "Arno");
+
+        final List<DetachedSqlRow> detached = new ArrayList<>();
+        SqlEngine.create().rawQuery("SELECT id, CAST(NULL AS BIGINT) AS nothing, 2.5 AS ratio, TRUE AS flag FROM person").forEachWithRowAccess(conn, (r, row) -> {
+            assertEquals(1L, row.getLongValue(0));
+            assertEquals(1, row.getIntValue("id"));
+            assertFalse(row.isNull("id"));
+
+            assertEquals(0L, row.getLongValue("nothing"));
+            assertTrue(row.isNull(1));
+            assertNull(row.getLong("nothing"));
+
+            // wasNull refers to the column that was read last, and checks other columns directly
+            assertEquals(0L, row.getLongValue(1));
+            assertTrue(row.wasNull(1));
+            assertFalse(row.wasNull(0));
+            assertEquals(1L, row.getLongValue(0));
+            assertTrue(row.wasNull(1));
+
+            assertEquals(2.5, row.getDoubleValue("ratio"));
+            assertTrue(row.getBooleanValue(3));
+            detached.add(row.detach());
+        });
+
+        final DetachedSqlRow row = detached.get(0);
+        assertEquals(1L, row.getLongValue(0));
+        assertTrue(row.isNull("NOTHING"));
+        assertEquals(0L, row.getLongValue("nothing"));
+        assertEquals(2.5, row.getDoubleValue(2));
+        assertTrue(row.getBooleanValue("flag"));
+
+        assertEquals(AList.of(1L, null), SqlEngine.create().longQuery("SELECT id FROM person UNION ALL SELECT NULL").list(conn));
+    }
+
     @Test void testAQueryCollect() {
         createPerson(1, "Arno");
         createPerson(2, "Arno");
@@ -498,12 +575,506 @@ public class SqlEngineTest extends AbstractDatabaseTest {
         assertEquals(AList.of(1, 2), e2.intQuery("SELECT id FROM person WHERE name=?", "Arno").stream().collect(Collectors.toList()));
     }
 
+    @Test void testParallelStream() {
+        final List<Integer> expected = new ArrayList<>();
+        for (int i=1; i<=500; i++) {
+            createPerson(i, "Arno" + i);
+            expected.add(i);
+        }
+
+        final SqlEngine e = SqlEngine.create();
+
+        try (Stream<Integer> s = e.intQuery("SELECT id FROM person ORDER BY id").stream(conn, 50, 7)) {
+            assertEquals(expected, s.parallel().collect(Collectors.toList()));
+        }
+        try (Stream<SqlRow> s = e.rawQuery("SELECT id, name FROM person ORDER BY id").stream(conn)) {
+            assertEquals(expected, s.parallel().map(row -> row.getInt("id")).collect(Collectors.toList()));
+        }
+    }
+
+    @Test void testParallelStreamWithInjectedProperty() {
+        for (int i=1; i<=200; i++) {
+            createPerson(i, "Arno" + i);
+        }
+
+        // values are resolved by the thread reading the ResultSet, so they are never resolved concurrently
+        final AtomicInteger concurrentCalls = new AtomicInteger();
+        final AtomicInteger maxConcurrentCalls = new AtomicInteger();
+        final InjectedProperty<Object> timesTen = new InjectedProperty<Object>() {
+            @Override public String propertyName() {
+                return "timesTen";
+            }
+            @Override public Object mementoPerQuery(Connection conn, Class<?> owningClass, SqlSnippet owningQuery) {
+                return null;
+            }
+            @Override public AOption<Object> value(Connection conn, SqlRow currentRow, Object memento) {
+                maxConcurrentCalls.accumulateAndGet(concurrentCalls.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(1);
+                    return AOption.some(currentRow.getLong("id") * 10);
+                }
+                catch (InterruptedException exc) {
+                    throw new RuntimeException(exc);
+                }
+                finally {
+                    concurrentCalls.decrementAndGet();
+                }
+            }
+        };
+        final RowExtractor extractor = new RowExtractor() {
+            @Override public boolean canHandle(Class<?> cls) {
+                return cls == Long.class;
+            }
+            @SuppressWarnings("unchecked")
+            @Override public <T> T fromSql(Class<T> cls, PrimitiveTypeRegistry primTypes, SqlRow row, Object mementoPerQuery, boolean isStreaming,
+                                           Map<String, Object> injectedPropsValues) {
+                return (T) injectedPropsValues.get("timesTen");
+            }
+        };
+
+        final List<Long> expected = LongStream.rangeClosed(1, 200).mapToObj(i -> i*10).collect(Collectors.toList());
+        try (Stream<Long> s = SqlEngine.create().query(Long.class, extractor, sql("SELECT id FROM person ORDER BY id"))
+                .withInjectedProperty(timesTen)
+                .stream(conn, 50, 7)) {
+            assertEquals(expected, s.parallel().collect(Collectors.toList()));
+        }
+        assertEquals(1, maxConcurrentCalls.get());
+    }
+
+    @Test void testPrimitiveQueryResults() {
+        for (int i=1; i<=100; i++) {
+            createPerson(i, "Arno" + i);
+        }
+
+        final SqlEngine e = SqlEngine.create();
+
+        final long[] ids = e.longQuery("SELECT id FROM person ORDER BY id").toLongArray(conn);
+        assertEquals(100, ids.length);
+        assertEquals(1L, ids[0]);
+        assertEquals(100L, ids[99]);
+
+        assertArrayEquals(new int[] {1, 2}, e.intQuery("SELECT id FROM person WHERE id<3 ORDER BY id").toIntArray(conn));
+        assertArrayEquals(new double[0], e.doubleQuery("SELECT id FROM person WHERE id<0").toDoubleArray(conn));
+
+        try (LongStream s = e.longQuery("SELECT id FROM person").longStream(conn)) {
+            assertEquals(5050L, s.sum());
+        }
+        try (IntStream s = e.intQuery("SELECT id FROM person WHERE id<=3").intStream(conn, 2)) {
+            assertEquals(6, s.sum());
+        }
+        //noinspection ResultOfMethodCallIgnored
+        assertThrows(IllegalStateException.class, () -> e.longQuery("SELECT id FROM person").toLongArray());
+    }
+
+    @Test void testAsyncExecution() throws Exception {
+        createPerson(1, "Arno1");
+        createPerson(2, "Arno2");
+
+        assertThrows(IllegalStateException.class, () -> SqlEngine.create().withDefaultConnectionSupplier(() -> conn).longQuery("SELECT id FROM person").listAsync());
+
+        // a single thread because all operations share the test's connection
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // the default connection supplier is not used for asynchronous operations
+            assertThrows(IllegalStateException.class, () -> SqlEngine.create().withDefaultConnectionSupplier(() -> conn).withAsyncExecutor(executor)
+                    .longQuery("SELECT id FROM person").listAsync());
+
+            final SqlEngine e = SqlEngine.create()
+                    .withDefaultConnectionSupplier(() -> conn)
+                    .withAsyncExecutor(executor)
+                    .withAsyncConnectionProvider(new ConnectionProvider() {
+                        @Override public Connection acquire() {
+                            return conn;
+                        }
+                        @Override public void release(Connection c) {
+                        }
+                    });
+
+            final CompletableFuture<AList<String>> names = e.stringQuery("SELECT name FROM person ORDER BY id").listAsync();
+            final CompletableFuture<Long> count = e.longQuery("SELECT COUNT(*) FROM person").singleAsync();
+            final CompletableFuture<AOption<Integer>> missing = e.intQuery("SELECT id FROM person WHERE id=?", 3).optionalAsync();
+            assertEquals(AList.of("Arno1", "Arno2"), names.get());
+            assertEquals(2L, count.get().longValue());
+            assertTrue(missing.get().isEmpty());
+
+            assertEquals(1, e.executeUpdateAsync("UPDATE person SET name=? WHERE id=?", "Arno", 1).get().intValue());
+            assertEquals("Arno", e.stringQuery("SELECT name FROM person WHERE id=?", 1).single());
+
+            final ExecutionException exc = assertThrows(ExecutionException.class, () -> e.longQuery("SELECT id FROM person").singleAsync().get());
+            assertTrue(exc.getCause() instanceof IllegalStateException);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test void testAsyncConnectionProvider() throws Exception {
+        createPerson(1, "Arno1");
+
+        final AtomicInteger numAcquired = new AtomicInteger();
+        final AtomicInteger numReleased = new AtomicInteger();
+        final ConnectionProvider fromDs = ConnectionProvider.fromDataSource(ds);
+        final ConnectionProvider connectionProvider = new ConnectionProvider() {
+            @Override public Connection acquire() throws SQLException {
+                numAcquired.incrementAndGet();
+                return fromDs.acquire();
+            }
+            @Override public void release(Connection c) throws SQLException {
+                numReleased.incrementAndGet();
+                fromDs.release(c);
+            }
+        };
+
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final SqlEngine e = SqlEngine.create()
+                    .withDefaultConnectionSupplier(() -> conn)
+                    .withAsyncExecutor(executor)
+                    .withAsyncConnectionProvider(connectionProvider);
+
+            // the test's connection has not committed, so asynchronous queries on their own connections do not see its changes
+            final CompletableFuture<Long> count1 = e.longQuery("SELECT COUNT(*) FROM person").singleAsync();
+            final CompletableFuture<Long> count2 = e.longQuery("SELECT COUNT(*) FROM person").singleAsync();
+            assertEquals(0L, count1.get().longValue());
+            assertEquals(0L, count2.get().longValue());
+            assertEquals(1L, e.longQuery("SELECT COUNT(*) FROM person").single().longValue());
+
+            final ExecutionException exc = assertThrows(ExecutionException.class, () -> e.longQuery("SELECT no_such_column FROM person").singleAsync().get());
+            assertTrue(exc.getCause() instanceof SQLException);
+
+            assertEquals(3, numAcquired.get());
+            assertEquals(3, numReleased.get());
+
+            assertThrows(IllegalStateException.class, () -> SqlEngine.create().withAsyncExecutor(executor).longQuery("SELECT id FROM person").listAsync());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test void testPrefetch() {
+        final List<Integer> expected = new ArrayList<>();
+        for (int i=1; i<=100; i++) {
+            createPerson(i, "Arno" + i);
+            expected.add(i);
+        }
+
+        final List<Integer> iterations = Collections.synchronizedList(new ArrayList<>());
+        // prefetching does not require an async executor
+        final SqlEngine e = SqlEngine.create()
+                .withListener(new SqlEngineEventListener() {
+                    @Override public void onAfterQueryIteration(int numRows) {
+                        iterations.add(numRows);
+                    }
+                });
+
+        try (Stream<Integer> s = e.intQuery("SELECT id FROM person ORDER BY id").streamWithPrefetch(conn, 7)) {
+            assertEquals(expected, s.collect(Collectors.toList()));
+        }
+        assertEquals(Arrays.asList(100), iterations);
+
+        final List<String> names = new ArrayList<>();
+        e.rawQuery("SELECT name FROM person ORDER BY id").forEachWithPrefetch(conn, 3, row -> names.add(row.getString("name")));
+        assertEquals(100, names.size());
+        assertEquals("Arno100", names.get(99));
+
+        iterations.clear();
+        try (Stream<Integer> s = e.intQuery("SELECT id FROM person ORDER BY id").streamWithPrefetch(conn, 5)) {
+            assertEquals(Arrays.asList(1, 2, 3), s.limit(3).collect(Collectors.toList()));
+        }
+        // closing the stream waits for the reader to release the ResultSet
+        assertEquals(1, iterations.size());
+        assertTrue(iterations.get(0) >= 3);
+
+        assertThrows(SQLException.class, () -> {
+            try (Stream<Integer> s = e.intQuery("SELECT no_such_column FROM person").streamWithPrefetch(conn)) {
+                s.count();
+            }
+        });
+
+        // the reader does not depend on the async executor's threads, even if they are all busy
+        final ExecutorService busyExecutor = Executors.newSingleThreadExecutor();
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            busyExecutor.execute(() -> {
+                try {
+                    release.await();
+                }
+                catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            final SqlEngine withBusyExecutor = SqlEngine.create().withAsyncExecutor(busyExecutor);
+            try (Stream<Integer> s = withBusyExecutor.intQuery("SELECT id FROM person ORDER BY id").streamWithPrefetch(conn, 7)) {
+                assertEquals(expected, s.collect(Collectors.toList()));
+            }
+        }
+        finally {
+            release.countDown();
+            busyExecutor.shutdown();
+        }
+    }
+
+    @Test void testOwningRowsReadOncePerExecution() {
+        for (int i=1; i<=5; i++) {
+            createPerson(i, "Arno" + i);
+        }
+
+        final List<Integer> owningRowCounts = new ArrayList<>();
+        final SqlEngine e = SqlEngine.create().withListener(new SqlEngineEventListener() {
+            @Override public void onOwningRowsRead(SqlSnippet sql, int numRows, long queryNanos) {
+                owningRowCounts.add(numRows);
+            }
+        });
+
+        final List<Integer> owningRowsPerProperty = new ArrayList<>();
+        final Function<String, InjectedProperty<Object>> property = name -> new InjectedProperty<Object>() {
+            @Override public String propertyName() {
+                return name;
+            }
+            @Override public boolean wantsOwningRows(SqlSnippet owningQuery) {
+                return true;
+            }
+            @Override public Object mementoPerQuery(Connection conn, Class<?> owningClass, SqlSnippet owningQuery) {
+                return null;
+            }
+            @Override public Object mementoPerQuery(Connection conn, Class<?> owningClass, SqlSnippet owningQuery, OwningRows owningRows) {
+                owningRowsPerProperty.add(owningRows.rows().size());
+                return null;
+            }
+            @Override public AOption<Object> value(Connection conn, SqlRow currentRow, Object memento) {
+                return AOption.empty();
+            }
+        };
+
+        assertEquals(5, e.intQuery("SELECT id FROM person ORDER BY id")
+                .withInjectedProperty(property.apply("a"))
+                .withInjectedProperty(property.apply("b"))
+                .list(conn)
+                .size());
+        assertEquals(Arrays.asList(5, 5), owningRowsPerProperty);
+        assertEquals(Collections.singletonList(5), owningRowCounts);
+    }
+
+    @Test void testPrefetchWithInjectedProperty() {
+        for (int i=1; i<=20; i++) {
+            createPerson(i, "Arno" + i);
+        }
+
+        final Set<Thread> valueThreads = Collections.synchronizedSet(new HashSet<>());
+        final AtomicInteger numValues = new AtomicInteger();
+        final AtomicInteger numValuesAfterClose = new AtomicInteger();
+        final AtomicInteger numClosed = new AtomicInteger();
+        final InjectedProperty<Object> property = new InjectedProperty<Object>() {
+            @Override public String propertyName() {
+                return "prop";
+            }
+            @Override public Object mementoPerQuery(Connection conn, Class<?> owningClass, SqlSnippet owningQuery) {
+                return (AutoCloseable) numClosed::incrementAndGet;
+            }
+            @Override public AOption<Object> value(Connection conn, SqlRow currentRow, Object memento) {
+                valueThreads.add(Thread.currentThread());
+                numValues.incrementAndGet();
+                if (numClosed.get() > 0) {
+                    numValuesAfterClose.incrementAndGet();
+                }
+                return AOption.some(currentRow.getLong("id"));
+            }
+        };
+
+        final SqlEngine e = SqlEngine.create();
+        try (Stream<Integer> s = e.intQuery("SELECT id FROM person ORDER BY id").withInjectedProperty(property).streamWithPrefetch(conn, 3)) {
+            assertEquals(20, s.count());
+        }
+
+        // values are resolved by the reader, while the property's memento is still open
+        assertEquals(20, numValues.get());
+        assertEquals(0, numValuesAfterClose.get());
+        assertEquals(1, numClosed.get());
+        assertFalse(valueThreads.contains(Thread.currentThread()));
+    }
+
+    @Test void testPublish() {
+        for (int i=1; i<=10; i++) {
+            createPerson(i, "Arno" + i);
+        }
+
+        final List<Integer> iterations = new ArrayList<>();
+        final SqlEngine e = SqlEngine.create().withListener(new SqlEngineEventListener() {
+            @Override public void onAfterQueryIteration(int numRows) {
+                iterations.add(numRows);
+            }
+        });
+
+        final List<Object> received = new ArrayList<>();
+        final AFlow.Subscription[] subscription = new AFlow.Subscription[1];
+        e.intQuery("SELECT id FROM person ORDER BY id").publish(conn, 3).subscribe(new AFlow.Subscriber<Integer>() {
+            @Override public void onSubscribe(AFlow.Subscription s) {
+                subscription[0] = s;
+            }
+            @Override public void onNext(Integer item) {
+                received.add(item);
+            }
+            @Override public void onError(Throwable throwable) {
+                received.add(throwable);
+            }
+            @Override public void onComplete() {
+                received.add("complete");
+            }
+        });
+
+        assertEquals(Collections.emptyList(), received);
+        subscription[0].request(2);
+        assertEquals(Arrays.asList(1, 2), received);
+        subscription[0].request(3);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), received);
+        assertEquals(Collections.emptyList(), iterations);
+
+        subscription[0].cancel();
+        assertEquals(Arrays.asList(5), iterations);
+        subscription[0].request(1);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), received);
+
+        received.clear();
+        e.intQuery("SELECT id FROM person WHERE id<=3 ORDER BY id").publish(conn).subscribe(new AFlow.Subscriber<Integer>() {
+            @Override public void onSubscribe(AFlow.Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+            @Override public void onNext(Integer item) {
+                received.add(item);
+            }
+            @Override public void onError(Throwable throwable) {
+                received.add(throwable);
+            }
+            @Override public void onComplete() {
+                received.add("complete");
+            }
+        });
+        assertEquals(Arrays.asList(1, 2, 3, "complete"), received);
+        assertEquals(Arrays.asList(5, 3), iterations);
+
+        // a subscriber throwing from onNext terminates the subscription, and the exception is passed to onError
+        received.clear();
+        final RuntimeException failure = new RuntimeException("failing on purpose");
+        e.intQuery("SELECT id FROM person ORDER BY id").publish(conn).subscribe(new AFlow.Subscriber<Integer>() {
+            @Override public void onSubscribe(AFlow.Subscription s) {
+                subscription[0] = s;
+            }
+            @Override public void onNext(Integer item) {
+                received.add(item);
+                if (item == 2) {
+                    throw failure;
+                }
+            }
+            @Override public void onError(Throwable throwable) {
+                received.add(throwable);
+            }
+            @Override public void onComplete() {
+                received.add("complete");
+            }
+        });
+        subscription[0].request(5);
+        assertEquals(Arrays.asList(1, 2, failure), received);
+        assertEquals(Arrays.asList(5, 3, 2), iterations);
+
+        subscription[0].request(1);
+        subscription[0].cancel();
+        assertEquals(Arrays.asList(1, 2, failure), received);
+        assertEquals(Arrays.asList(5, 3, 2), iterations);
+    }
+
     @Test
     @Disabled
     void testInjectedProperty() {
         fail("todo");
     }
 
+    @Test void testParallelInjectedProperties() throws Exception {
+        createPerson(1, "Arno");
+        createPerson(2, "Albrecht");
+
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final SqlEngine e = SqlEngine.create()
+                    .withDefaultConnectionSupplier(() -> conn)
+                    .withAsyncExecutor(executor)
+                    .withAsyncConnectionProvider(ConnectionProvider.fromDataSource(ds))
+                    .withInjectedPropertiesParallelism(2);
+
+            // each property waits for the other one to start, so this only terminates if they are loaded concurrently
+            final CyclicBarrier barrier = new CyclicBarrier(2);
+            final Set<Thread> threads = Collections.synchronizedSet(new HashSet<>());
+            final InjectedProperty<Object> a = new BarrierProperty("a", barrier, threads, false);
+            final InjectedProperty<Object> b = new BarrierProperty("b", barrier, threads, false);
+
+            assertEquals(AList.of(1L, 2L), e.longQuery("SELECT id FROM person ORDER BY id")
+                    .withInjectedProperty(a)
+                    .withInjectedProperty(b)
+                    .list());
+            assertEquals(2, threads.size());
+            assertTrue(threads.contains(Thread.currentThread()));
+
+            barrier.reset();
+            final InjectedProperty<Object> failing = new BarrierProperty("failing", barrier, threads, true);
+            assertThrows(IllegalArgumentException.class, () -> e.longQuery("SELECT id FROM person ORDER BY id")
+                    .withInjectedProperty(a)
+                    .withInjectedProperty(failing)
+                    .list());
+
+            assertThrows(IllegalStateException.class, () -> SqlEngine.create()
+                    .withInjectedPropertiesParallelism(2)
+                    .longQuery("SELECT id FROM person")
+                    .withInjectedProperty(a)
+                    .withInjectedProperty(b)
+                    .list(conn));
+            assertThrows(IllegalStateException.class, () -> SqlEngine.create()
+                    .withDefaultConnectionSupplier(() -> conn)
+                    .withAsyncExecutor(executor)
+                    .withInjectedPropertiesParallelism(2)
+                    .longQuery("SELECT id FROM person")
+                    .withInjectedProperty(a)
+                    .withInjectedProperty(b)
+                    .list());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private static class BarrierProperty implements InjectedProperty<Object> {
+        private final String name;
+        private final CyclicBarrier barrier;
+        private final Set<Thread> threads;
+        private final boolean fail;
+
+        BarrierProperty(String name, CyclicBarrier barrier, Set<Thread> threads, boolean fail) {
+            this.name = name;
+            this.barrier = barrier;
+            this.threads = threads;
+            this.fail = fail;
+        }
+
+        @Override public String propertyName() {
+            return name;
+        }
+        @Override public Object mementoPerQuery(Connection conn, Class<?> owningClass, SqlSnippet owningQuery) {
+            threads.add(Thread.currentThread());
+            try {
+                barrier.await(5, TimeUnit.SECONDS);
+            }
+            catch (Exception exc) {
+                throw new RuntimeException(exc);
+            }
+            if (fail) {
+                throw new IllegalArgumentException("failing on purpose");
+            }
+            return null;
+        }
+        @Override public AOption<Object> value(Connection conn, SqlRow currentRow, Object memento) {
+            return AOption.none();
+        }
+    }
+
     @Test void testRawQuery() {
         createPerson(1, "Arno");
         createPerson(2, "Bert");
@@ -515,6 +1086,203 @@ public class SqlEngineTest extends AbstractDatabaseTest {
         assertEquals(AList.of("Arno", "Bert", "Curt"), engine.rawQuery(sql("SELECT name FROM person"), sql("ORDER BY id")).list(conn).map(row -> row.getString(0)));
     }
 
+    @Test void testColumnarResult() {
+        for (int i=1; i<=10; i++) {
+            createPerson(i, "Arno" + i);
+        }
+
+        final SqlEngine engine = SqlEngine.create();
+        engine.executeUpdate(conn, "UPDATE person SET name=NULL WHERE id=5");
+
+        final ColumnarResult columns = engine.rawQuery("SELECT id, name, CAST(id AS INT) AS i, id*1.5 AS d, id>5 AS b FROM person ORDER BY id")
+                .toColumns(conn);
+        assertEquals(10, columns.numRows());
+        assertEquals(5, columns.numColumns());
+        assertEquals(ColumnarResult.ColumnType.LONG, columns.columnType("id"));
+        assertEquals(55L, LongStream.of(columns.longColumn("ID")).sum());
+        assertEquals(55, IntStream.of(columns.intColumn("i")).sum());
+        assertEquals(82.5, Arrays.stream(columns.doubleColumn(3)).sum(), 0.001);
+        assertEquals(5, columns.booleanColumn("b").cardinality());
+        assertFalse(columns.booleanColumn("b").get(4));
+        assertTrue(columns.booleanColumn("b").get(5));
+        assertEquals("Arno1", columns.stringColumn("name")[0]);
+        assertNull(columns.stringColumn("name")[4]);
+        assertTrue(columns.isNull(1, 4));
+        assertEquals(1, columns.nulls("name").cardinality());
+        assertTrue(columns.nulls("id").isEmpty());
+        assertThrows(IllegalStateException.class, () -> columns.doubleColumn("id"));
+        assertThrows(IllegalArgumentException.class, () -> columns.longColumn("no_such_column"));
+
+        final List<Integer> batchSizes = new ArrayList<>();
+        final List<Long> ids = new ArrayList<>();
+        engine.rawQuery("SELECT id FROM person ORDER BY id").forEachColumnBatch(conn, 4, batch -> {
+            batchSizes.add(batch.numRows());
+            for (long id: batch.longColumn(0)) {
+                ids.add(id);
+            }
+        });
+        assertEquals(Arrays.asList(4, 4, 2), batchSizes);
+        assertEquals(LongStream.rangeClosed(1, 10).boxed().collect(Collectors.toList()), ids);
+
+        assertEquals(0, engine.rawQuery("SELECT id FROM person WHERE id<0").toColumns(conn).numRows());
+
+        // integers that may not fit into a long are stored as objects rather than losing precision as doubles
+        final ColumnarResult decimals = engine
+                .rawQuery("SELECT CAST(id AS DECIMAL(10,0)) AS small, CAST(id AS DECIMAL(30,0)) * 1000000000000000000000 AS big FROM person ORDER BY id")
+                .toColumns(conn);
+        assertEquals(ColumnarResult.ColumnType.LONG, decimals.columnType("small"));
+        assertEquals(ColumnarResult.ColumnType.OBJECT, decimals.columnType("big"));
+        assertEquals(new BigDecimal("1000000000000000000000"), decimals.objectColumn("big")[0]);
+
+        // exceptions thrown by the consumer close the query, but they are no query failures
+        final List<Throwable> failures = new ArrayList<>();
+        final List<Integer> iterations = new ArrayList<>();
+        final SqlEngine withListener = engine.withListener(new SqlEngineEventListener() {
+            @Override public void onFailed(Throwable th) {
+                failures.add(th);
+            }
+            @Override public void onAfterQueryIteration(int numRows) {
+                iterations.add(numRows);
+            }
+        });
+        final RuntimeException consumerFailure = new RuntimeException("failing on purpose");
+        assertSame(consumerFailure, assertThrows(RuntimeException.class,
+                () -> withListener.rawQuery("SELECT id FROM person ORDER BY id").forEachColumnBatch(conn, 4, batch -> { throw consumerFailure; })));
+        assertEquals(Collections.emptyList(), failures);
+        assertEquals(Arrays.asList(4), iterations);
+    }
+
+    @Test void testQueryByKeys() {
+        for (int i=1; i<=10; i++) {
+            createPerson(i, "Arno" + i);
+        }
+
+        final List<Long> keys = Arrays.asList(7L, 3L, 99L, 5L, 3L, 1L, 42L);
+        final List<String> statements = new ArrayList<>();
+        final SqlEngine engine = SqlEngine.create().withRowExtractor(RawRowExtractor.INSTANCE).withListener(new SqlEngineEventListener() {
+            @Override public void onBeforeQuery(SqlSnippet sql, Class<?> rowClass) {
+                statements.add(sql.getSql());
+            }
+        });
+
+        final KeyedResult<Long, SqlRow> rows = engine.queryByKeys(conn, SqlRow.class, "id", keys, 2,
+                cond -> concat(sql("SELECT id, name FROM person WHERE"), cond));
+        assertEquals(Arrays.asList(7L, 3L, 5L, 1L), new ArrayList<>(rows.keySet()));
+        assertEquals("Arno5", rows.get(5L).getString("name"));
+        assertEquals(new LinkedHashSet<>(Arrays.asList(99L, 42L)), rows.missingKeys());
+        assertFalse(rows.isComplete());
+        assertEquals(3, statements.size());
+        assertFalse(statements.get(0).toUpperCase().contains(" OR "));
+
+        final KeyedResult<Long, String> names = engine.scalarQueryByKeys(conn, String.class, "id", "name", keys,
+                cond -> concat(sql("SELECT id, name FROM person WHERE"), cond));
+        assertEquals("Arno7", names.get(7L));
+        assertEquals(4, names.size());
+
+        assertTrue(engine.queryByKeys(conn, SqlRow.class, "id", Collections.<Long>emptyList(), cond -> concat(sql("SELECT * FROM person WHERE"), cond))
+                .isEmpty());
+
+        createPerson(11, "Arno1");
+        assertThrows(IllegalStateException.class, () -> engine.scalarQueryByKeys(conn, Long.class, "name", "id", Arrays.asList("Arno1"),
+                cond -> concat(sql("SELECT id, name FROM person WHERE"), cond)));
+
+        // null keys and keys of different types are rejected before any statement is executed
+        statements.clear();
+        assertThrows(IllegalArgumentException.class, () -> engine.queryByKeys(conn, SqlRow.class, "id", Arrays.asList(1L, null),
+                cond -> concat(sql("SELECT id, name FROM person WHERE"), cond)));
+        assertThrows(IllegalArgumentException.class, () -> engine.queryByKeys(conn, SqlRow.class, "id", Arrays.<Object>asList(1L, 2),
+                cond -> concat(sql("SELECT id, name FROM person WHERE"), cond)));
+        assertTrue(statements.isEmpty());
+    }
+
+    @Test void testResultCache() throws SQLException {
+        // results are only cached in auto-commit mode; the table is dropped after the test, so committing is harmless
+        conn.setAutoCommit(true);
+        createPerson(1, "Arno");
+        createPerson(2, "Berta");
+
+        final List<String> events = new ArrayList<>();
+        final SqlEngine engine = SqlEngine.create()
+                .withResultCache(10)
+                .withListener(new SqlEngineEventListener() {
+                    @Override public void onResultCacheHit(String sql) {
+                        events.add("hit");
+                    }
+                    @Override public void onResultCacheMiss(String sql) {
+                        events.add("miss");
+                    }
+                });
+
+        final AQuery<String> query = engine.scalarQuery(String.class, "SELECT name FROM person WHERE id<? ORDER BY id", 10).cached(Duration.ofMinutes(1));
+        assertEquals(Arrays.asList("Arno", "Berta"), query.list(conn));
+        assertEquals(Arrays.asList("Arno", "Berta"), query.list(conn));
+        assertEquals("Arno", query.first(conn).get());
+        assertEquals(Arrays.asList("miss", "hit", "miss"), events);
+
+        // different parameters are cached separately
+        events.clear();
+        assertEquals(Arrays.asList("Arno"), engine.scalarQuery(String.class, "SELECT name FROM person WHERE id<? ORDER BY id", 2)
+                .cached(Duration.ofMinutes(1)).list(conn));
+        assertEquals(Arrays.asList("miss"), events);
+
+        // modifying the table invalidates the cached results
+        events.clear();
+        engine.executeUpdate(conn, "UPDATE person SET name=? WHERE id=?", "Xaver", 1);
+        assertEquals(Arrays.asList("Xaver", "Berta"), query.list(conn));
+        assertEquals(Arrays.asList("miss"), events);
+
+        // modifying a different table does not
+        executeUpdate("CREATE TABLE other(id BIGINT)");
+        events.clear();
+        engine.executeUpdate(conn, "INSERT INTO other(id) VALUES (?)", 1);
+        assertEquals(Arrays.asList("Xaver", "Berta"), query.list(conn));
+        assertEquals(Arrays.asList("hit"), events);
+        executeUpdate("DROP TABLE other");
+
+        // queries without cached() do not use the cache
+        events.clear();
+        engine.scalarQuery(String.class, "SELECT name FROM person WHERE id<? ORDER BY id", 10).list(conn);
+        assertTrue(events.isEmpty());
+
+        // expired entries are reloaded
+        final AQuery<String> expiring = engine.scalarQuery(String.class, "SELECT name FROM person WHERE id=?", 2).cached(Duration.ZERO);
+        expiring.single(conn);
+        expiring.single(conn);
+        assertEquals(Arrays.asList("miss", "miss"), events);
+
+        // inside a transaction, the cache is bypassed, so uncommitted data is neither cached nor hidden by cached data
+        conn.setAutoCommit(false);
+        events.clear();
+        engine.executeUpdate(conn, "UPDATE person SET name=? WHERE id=?", "Uncommitted", 2);
+        assertEquals(Arrays.asList("Xaver", "Uncommitted"), query.list(conn));
+        assertEquals(Arrays.asList("Xaver", "Uncommitted"), query.list(conn));
+        assertTrue(events.isEmpty());
+        conn.rollback();
+
+        conn.setAutoCommit(true);
+        assertEquals(Arrays.asList("Xaver", "Berta"), query.list(conn));
+        assertEquals(Arrays.asList("miss"), events);
+        conn.setAutoCommit(false);
+    }
+
+    @Test void testDetachedRowEquality() {
+        createPerson(1, "Arno");
+        createPerson(2, "Arno");
+
+        final SqlEngine engine = SqlEngine.create();
+
+        final AList<SqlRow> rows = engine.rawQuery("SELECT name FROM person ORDER BY id").list(conn);
+        assertEquals(rows.get(0), rows.get(1));
+        assertEquals(rows.get(0).hashCode(), rows.get(1).hashCode());
+        assertEquals("Arno", rows.get(1).getString("NAME"));
+
+        final SqlRow other = engine.rawQuery("SELECT id AS x, name FROM person WHERE id=1").single(conn);
+        final SqlRow reordered = engine.rawQuery("SELECT NAME, id AS X FROM person WHERE id=1").single(conn);
+        assertNotEquals(rows.get(0), other);
+        assertEquals(other, reordered);
+        assertEquals(other.hashCode(), reordered.hashCode());
+    }
+
     @Test void testLongQuery() {
         final SqlEngine engine = SqlEngine.create();
 
@@ -568,6 +1336,161 @@ public class SqlEngineTest extends AbstractDatabaseTest {
         assertEquals(1.0, engine.doubleQuery(sql("SELECT id"), sql("FROM person")).single(conn), .000001);
     }
 
+    @Test void testStatementCache() {
+        final List<String> events = new ArrayList<>();
+        final SqlEngine engine = SqlEngine.create()
+                .withStatementCache(10)
+                .withListener(new SqlEngineEventListener() {
+                    @Override public void onStatementCacheHit(String sql) {
+                        events.add("hit");
+                    }
+                    @Override public void onStatementCacheMiss(String sql) {
+                        events.add("miss");
+                    }
+                });
+
+        try {
+            engine.executeUpdate(conn, "INSERT INTO person (id, name) VALUES (?,?)", 1, "Arno1");
+            engine.executeUpdate(conn, "INSERT INTO person (id, name) VALUES (?,?)", 2, "Arno2");
+            assertEquals(Arrays.asList("miss", "hit"), events);
+            events.clear();
+
+            try (Stream<String> s = engine.stringQuery("SELECT name FROM person ORDER BY id").stream(conn)) {
+                final Iterator<String> it = s.iterator();
+                assertEquals("Arno1", it.next());
+                // a statement is never shared while it is in use
+                assertEquals(Arrays.asList("Arno1", "Arno2"), engine.stringQuery("SELECT name FROM person ORDER BY id").list(conn));
+                assertEquals("Arno2", it.next());
+            }
+            assertEquals(Arrays.asList("miss", "miss"), events);
+            events.clear();
+
+            assertEquals(Arrays.asList("Arno1", "Arno2"), engine.stringQuery("SELECT name FROM person ORDER BY id").list(conn));
+            assertEquals(Arrays.asList("hit"), events);
+            assertEquals(2, engine.statementCache().size());
+        }
+        finally {
+            engine.statementCache().closeStatements(conn);
+        }
+        assertEquals(0, engine.statementCache().size());
+    }
+
+    @Test void testStatementCacheRestoresFetchSize() throws SQLException {
+        final SqlEngine engine = SqlEngine.create().withStatementCache(10);
+        try {
+            final int defaultFetchSize;
+            try (PreparedStatement ps = conn.prepareStatement("SELECT id FROM person")) {
+                defaultFetchSize = ps.getFetchSize();
+            }
+
+            try (Stream<Integer> s = engine.intQuery("SELECT id FROM person").stream(conn, defaultFetchSize + 7)) {
+                assertEquals(0, s.count());
+            }
+            assertEquals(1, engine.statementCache().size());
+
+            final PreparedStatement cached = engine.statementCache().prepare(conn, "SELECT id FROM person", AVector.empty());
+            try {
+                assertEquals(defaultFetchSize, cached.getFetchSize());
+            }
+            finally {
+                engine.statementCache().release(cached, true);
+            }
+        }
+        finally {
+            engine.statementCache().clear();
+        }
+    }
+
+    @Test void testStatementCacheEviction() throws SQLException {
+        final SqlEngine engine = SqlEngine.create().withStatementCache(1);
+        try {
+            assertEquals(0L, engine.longQuery("SELECT COUNT(*) FROM person").single(conn).longValue());
+            assertEquals(0L, engine.longQuery("SELECT COUNT(*) FROM person WHERE id > 0").single(conn).longValue());
+            // the first statement was evicted and closed
+            assertEquals(1, engine.statementCache().size());
+
+            final Connection other = ds.getConnection();
+            try {
+                assertEquals(0L, engine.longQuery("SELECT COUNT(*) FROM person WHERE id > 1").single(other).longValue());
+                assertEquals(1, engine.statementCache().size());
+            }
+            finally {
+                other.close();
+            }
+        }
+        finally {
+            engine.statementCache().clear();
+        }
+    }
+
+    @Test void testStatementCacheRemovesClosedConnections() throws SQLException {
+        final int sweepInterval = StatementCache.CLOSED_CONNECTIONS_SWEEP_INTERVAL;
+        final SqlEngine engine = SqlEngine.create().withStatementCache(2 * sweepInterval);
+        try {
+            final Connection other = ds.getConnection();
+            try {
+                assertEquals(0L, engine.longQuery("SELECT COUNT(*) FROM person").single(other).longValue());
+                assertEquals(1, engine.statementCache().size());
+            }
+            finally {
+                other.close();
+            }
+
+            // closed connections are not checked on every cache miss...
+            assertEquals(0L, engine.longQuery("SELECT COUNT(*) FROM person").single(conn).longValue());
+            assertEquals(2, engine.statementCache().size());
+
+            // ... but periodically, removing the statements of the closed connection
+            for (int i=1; i<sweepInterval; i++) {
+                assertEquals(0L, engine.longQuery("SELECT COUNT(*) FROM person WHERE id > " + i).single(conn).longValue());
+            }
+            assertEquals(sweepInterval, engine.statementCache().size());
+        }
+        finally {
+            engine.statementCache().clear();
+        }
+        assertEquals(0, engine.statementCache().size());
+    }
+
+    /**
+     * a handler that does something observable, to check that it is called instead of reading primitive values directly
+     */
+    static final PrimitiveTypeHandler TIMES_TEN_HANDLER = new PrimitiveTypeHandler() {
+        @Override public boolean canHandle(Class<?> cls) {
+            return cls == Long.class || cls == long.class;
+        }
+        @SuppressWarnings("unchecked")
+        @Override public <T> T fromSql(Class<T> targetType, Object o) {
+            return (T) Long.valueOf(((Number) o).longValue() * 10);
+        }
+        @Override public Object toSql(Object o) {
+            return o;
+        }
+    };
+
+    @Test
+    void testScalarNullAndZero() {
+        final SqlEngine engine = SqlEngine.create();
+
+        assertNull(engine.query(Long.class, "SELECT CAST(NULL AS BIGINT)").single(conn));
+        assertEquals(Long.valueOf(0), engine.query(Long.class, "SELECT CAST(0 AS BIGINT)").single(conn));
+        assertNull(engine.query(Integer.class, "SELECT CAST(NULL AS INT)").single(conn));
+        assertEquals(Integer.valueOf(0), engine.query(Integer.class, "SELECT 0").single(conn));
+        assertNull(engine.query(Double.class, "SELECT CAST(NULL AS DOUBLE)").single(conn));
+        assertNull(engine.query(Boolean.class, "SELECT CAST(NULL AS BOOLEAN)").single(conn));
+        assertEquals(Boolean.FALSE, engine.query(Boolean.class, "SELECT FALSE").single(conn));
+    }
+
+    @Test
+    void testCustomHandlerForScalarType() {
+        final SqlEngine engine = SqlEngine.create();
+        assertEquals(Long.valueOf(4), engine.query(Long.class, "SELECT CAST(4 AS INT)").single(conn));
+
+        final SqlEngine withHandler = engine.withPrimitiveHandler(TIMES_TEN_HANDLER);
+        assertEquals(Long.valueOf(40), withHandler.query(Long.class, "SELECT CAST(4 AS INT)").single(conn));
+        assertNull(withHandler.query(Long.class, "SELECT CAST(NULL AS INT)").single(conn));
+    }
+
     @Test
     @Disabled
     void testRawTypeMapping() {
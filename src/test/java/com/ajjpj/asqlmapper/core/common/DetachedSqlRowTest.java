@@ -0,0 +1,69 @@
+package com.ajjpj.asqlmapper.core.common;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
+import org.junit.jupiter.api.Test;
+
+public class DetachedSqlRowTest {
+    private static DetachedSqlRow row(Object[] values, String... columnNames) {
+        return new DetachedSqlRow(new ColumnIndex(Arrays.asList(columnNames)), values, PrimitiveTypeRegistry.defaults());
+    }
+
+    @Test void testEqualsIgnoresColumnNameCase() {
+        final DetachedSqlRow a = row(new Object[] {1L, "x"}, "id", "name");
+        final DetachedSqlRow b = row(new Object[] {1L, "x"}, "ID", "Name");
+
+        assertEquals(a, b);
+        assertEquals(b, a);
+        assertEquals(a.hashCode(), b.hashCode());
+    }
+
+    @Test void testEqualsComparesValues() {
+        final DetachedSqlRow a = row(new Object[] {1L, "x"}, "id", "name");
+
+        assertNotEquals(a, row(new Object[] {1L, "y"}, "id", "name"));
+        assertNotEquals(a, row(new Object[] {1L, null}, "id", "name"));
+        assertEquals(row(new Object[] {1L, null}, "id", "name"), row(new Object[] {1L, null}, "ID", "NAME"));
+    }
+
+    @Test void testEqualsIgnoresColumnOrder() {
+        final DetachedSqlRow a = row(new Object[] {1L, "x"}, "id", "name");
+        final DetachedSqlRow b = row(new Object[] {"x", 1L}, "NAME", "id");
+
+        assertEquals(a, b);
+        assertEquals(b, a);
+        assertEquals(a.hashCode(), b.hashCode());
+
+        assertNotEquals(a, row(new Object[] {"y", 1L}, "name", "id"));
+        assertNotEquals(a, row(new Object[] {1L, "x"}, "name", "id"));
+        assertNotEquals(a, row(new Object[] {1L, "x", null}, "id", "name", "extra"));
+        assertNotEquals(a, row(new Object[] {"x", 1L}, "name", "other"));
+    }
+
+    @Test void testDuplicateColumnNames() {
+        final DetachedSqlRow a = row(new Object[] {1L, 2L}, "id", "id");
+
+        assertEquals(a, row(new Object[] {1L, 2L}, "ID", "id"));
+        assertEquals(a.hashCode(), row(new Object[] {1L, 2L}, "ID", "id").hashCode());
+        assertNotEquals(a, row(new Object[] {2L, 1L}, "id", "id"));
+        assertNotEquals(a, row(new Object[] {2L, 2L}, "id", "id"));
+
+        // duplicate columns are matched by occurrence, also if the columns are reordered
+        final DetachedSqlRow b = row(new Object[] {1L, "x", 2L}, "id", "name", "id");
+        assertEquals(b, row(new Object[] {"x", 1L, 2L}, "name", "id", "ID"));
+        assertEquals(b.hashCode(), row(new Object[] {"x", 1L, 2L}, "name", "id", "ID").hashCode());
+        assertNotEquals(b, row(new Object[] {"x", 2L, 1L}, "name", "id", "id"));
+        assertNotEquals(b, row(new Object[] {"x", "x", 1L}, "name", "name", "id"));
+    }
+
+    @Test void testRowsSharingColumnIndex() {
+        final ColumnIndex columnIndex = new ColumnIndex(Arrays.asList("id", "name"));
+        final DetachedSqlRow a = new DetachedSqlRow(columnIndex, new Object[] {1L, "x"}, PrimitiveTypeRegistry.defaults());
+
+        assertEquals(a, new DetachedSqlRow(columnIndex, new Object[] {1L, "x"}, PrimitiveTypeRegistry.defaults()));
+        assertNotEquals(a, new DetachedSqlRow(columnIndex, new Object[] {2L, "x"}, PrimitiveTypeRegistry.defaults()));
+    }
+}
@@ -0,0 +1,144 @@
+package com.ajjpj.asqlmapper.core.injectedproperties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
+import com.ajjpj.asqlmapper.core.common.DetachedSqlRow;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+import org.junit.jupiter.api.Test;
+
+class KeyMapTest {
+    private static final int KEY_IDX = 1;
+
+    /**
+     * @return a row with the key in its second column, so column indexes are actually used
+     */
+    private static SqlRow row(Object key) {
+        final PrimitiveTypeRegistry primTypes = PrimitiveTypeRegistry.defaults();
+        return new SqlRow() {
+            @Override public DetachedSqlRow detach() {
+                throw new UnsupportedOperationException();
+            }
+            @Override public List<String> columnNames() {
+                return Arrays.asList("name", "key");
+            }
+            @Override public <T> T get(Class<T> cls, String columnName) {
+                return primTypes.fromSql(cls, columnName.equals("key") ? key : "x");
+            }
+            @Override public Object get(String columnName) {
+                return primTypes.fromSql(columnName.equals("key") ? key : "x");
+            }
+        };
+    }
+
+    @Test void testLongKeys() {
+        final KeyMap<String> map = KeyMap.forKeyType(Long.class);
+        map.put(row(1L), KEY_IDX, "a");
+        map.put(row(-1L), KEY_IDX, "b");
+        map.put(row(0L), KEY_IDX, "c");
+        map.put(row(1L), KEY_IDX, "d");
+
+        assertEquals(3, map.size());
+        assertEquals("d", map.get(row(1L), KEY_IDX));
+        assertEquals("b", map.get(row(-1L), KEY_IDX));
+        assertEquals("c", map.get(row(0L), KEY_IDX));
+        assertNull(map.get(row(2L), KEY_IDX));
+        assertEquals("b", map.get(row(-1L), "key"));
+    }
+
+    @Test void testIntKeys() {
+        final KeyMap<String> map = KeyMap.forKeyType(int.class);
+        assertEquals("a", map.computeIfAbsent(row(1), KEY_IDX, () -> "a"));
+        assertEquals("a", map.computeIfAbsent(row(1), KEY_IDX, () -> "b"));
+        map.put(row(Integer.MAX_VALUE), KEY_IDX, "max");
+
+        assertEquals(2, map.size());
+        assertEquals("a", map.get(row(1), KEY_IDX));
+        assertEquals("max", map.get(row(Integer.MAX_VALUE), KEY_IDX));
+        // int keys are widened, so they match long keys with the same value
+        assertEquals("a", map.get(row(1L), KEY_IDX));
+        assertNull(map.get(row(2), KEY_IDX));
+    }
+
+    @Test void testUuidKeys() {
+        final UUID a = UUID.randomUUID();
+        final UUID b = new UUID(a.getMostSignificantBits(), a.getLeastSignificantBits() + 1);
+        final UUID swapped = new UUID(a.getLeastSignificantBits(), a.getMostSignificantBits());
+
+        final KeyMap<String> map = KeyMap.forKeyType(UUID.class);
+        map.put(row(a), KEY_IDX, "a");
+        assertEquals("b", map.computeIfAbsent(row(b), KEY_IDX, () -> "b"));
+
+        assertEquals(2, map.size());
+        assertEquals("a", map.get(row(a), KEY_IDX));
+        assertEquals("b", map.get(row(b), KEY_IDX));
+        assertEquals("a", map.get(row(new UUID(a.getMostSignificantBits(), a.getLeastSignificantBits())), KEY_IDX));
+        assertNull(map.get(row(swapped), KEY_IDX));
+    }
+
+    @Test void testRehash() {
+        final int numKeys = 1000;
+        final KeyMap<Integer> longMap = KeyMap.forKeyType(Long.class);
+        final KeyMap<Integer> uuidMap = KeyMap.forKeyType(UUID.class);
+        for (int i=0; i<numKeys; i++) {
+            // multiples of a power of two are a worst case for a hash table without mixing
+            longMap.put(row(i * 1024L), KEY_IDX, i);
+            uuidMap.put(row(new UUID(i, 0)), KEY_IDX, i);
+        }
+
+        assertEquals(numKeys, longMap.size());
+        assertEquals(numKeys, uuidMap.size());
+        for (int i=0; i<numKeys; i++) {
+            assertEquals(Integer.valueOf(i), longMap.get(row(i * 1024L), KEY_IDX));
+            assertEquals(Integer.valueOf(i), uuidMap.get(row(new UUID(i, 0)), KEY_IDX));
+        }
+        assertNull(longMap.get(row(1L), KEY_IDX));
+        assertNull(uuidMap.get(row(new UUID(0, 1)), KEY_IDX));
+
+        longMap.replaceAll(i -> -i);
+        assertEquals(Integer.valueOf(-999), longMap.get(row(999 * 1024L), KEY_IDX));
+    }
+
+    @Test void testPutAllMergesChunks() {
+        final UUID u1 = UUID.randomUUID();
+        final UUID u2 = UUID.randomUUID();
+        final UUID u3 = UUID.randomUUID();
+
+        for (Object[] keys: Arrays.asList(new Object[] {1L, 2L, 3L}, new Object[] {u1, u2, u3}, new Object[] {"k1", "k2", "k3"})) {
+            final KeyMap<String> map = KeyMap.forKeyType(keys[0].getClass());
+            map.put(row(keys[0]), KEY_IDX, "1");
+            map.put(row(keys[1]), KEY_IDX, "2");
+
+            final KeyMap<String> chunk = KeyMap.forKeyType(keys[0].getClass());
+            chunk.put(row(keys[1]), KEY_IDX, "2'");
+            chunk.put(row(keys[2]), KEY_IDX, "3");
+
+            map.putAll(chunk);
+            assertEquals(3, map.size());
+            assertEquals("1", map.get(row(keys[0]), KEY_IDX));
+            assertEquals("2'", map.get(row(keys[1]), KEY_IDX));
+            assertEquals("3", map.get(row(keys[2]), KEY_IDX));
+            assertEquals(2, chunk.size());
+        }
+    }
+
+    @Test void testNullKeysNeverMatch() {
+        for (Object key: Arrays.asList(0L, UUID.randomUUID(), "k")) {
+            final KeyMap<String> map = KeyMap.forKeyType(key.getClass());
+            map.put(row(null), KEY_IDX, "null");
+            assertEquals(0, map.size());
+            assertNull(map.computeIfAbsent(row(null), KEY_IDX, () -> fail("no value is created for a null key")));
+            assertEquals(0, map.size());
+
+            // in particular, a null key does not match the long value 0
+            map.put(row(key), KEY_IDX, "key");
+            assertEquals(1, map.size());
+            assertNull(map.get(row(null), KEY_IDX));
+            assertEquals("key", map.get(row(key), KEY_IDX));
+        }
+    }
+}
@@ -1,8 +1,21 @@
 package com.ajjpj.asqlmapper.demo.rel;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,13 +23,21 @@ import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import com.ajjpj.acollections.AList;
 import com.ajjpj.acollections.ASet;
+import com.ajjpj.acollections.util.AOption;
 import com.ajjpj.asqlmapper.AbstractDatabaseTest;
 import com.ajjpj.asqlmapper.SqlMapperBuilder;
+import com.ajjpj.asqlmapper.core.AFlow;
+import com.ajjpj.asqlmapper.core.ConnectionProvider;
 import com.ajjpj.asqlmapper.core.SqlEngine;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
 import com.ajjpj.asqlmapper.core.common.CollectionBuildStrategy;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedToManyProperty;
 import com.ajjpj.asqlmapper.mapper.DatabaseDialect;
 import com.ajjpj.asqlmapper.mapper.SqlMapper;
+import com.ajjpj.asqlmapper.mapper.beans.relations.OneToManySpec;
+import com.ajjpj.asqlmapper.mapper.beans.relations.RelationLoadingStrategy;
 
 public class OneToManyDemoTest extends AbstractDatabaseTest  {
     private SqlMapper mapper;
@@ -116,4 +137,286 @@ public class OneToManyDemoTest extends AbstractDatabaseTest  {
             assertEquals(ASet.of(Address.of("street23", "city23"), Address.of("street22", "city22"), Address.of("street21", "city21")), persons.get(1).addresses().toSet());
         }
     }
+
+    @Test
+    void testLoadingStrategies() {
+        final AList<Long> personIds = mapper
+                .insertMany(AList.of(Person.of(0L, "Arno1"), Person.of(0L, "Arno2"), Person.of(0L, "Arno3")))
+                .map(Person::id);
+
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personIds.get(0), "street11", "city11");
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personIds.get(0), "street12", "city12");
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personIds.get(1), "street21", "city21");
+
+        final String owningSql = "select * from person where id <= ? order by id asc";
+        final OneToManySpec spec = mapper.getBeanMappingRegistry().resolveOneToMany(conn, PersonWithAddresses.class, "addresses");
+        assertEquals(RelationLoadingStrategy.ADAPTIVE, spec.loadingStrategy());
+
+        for (RelationLoadingStrategy strategy: RelationLoadingStrategy.values()) {
+            final AList<PersonWithAddresses> persons = mapper
+                    .query(PersonWithAddresses.class, owningSql, personIds.get(2))
+                    .withInjectedProperty(mapper.oneToMany("addresses", spec.withLoadingStrategy(strategy)))
+                    .list();
+
+            assertEquals(3, persons.size(), strategy.name());
+            assertEquals(ASet.of(Address.of("street11", "city11"), Address.of("street12", "city12")), persons.get(0).addresses().toSet(), strategy.name());
+            assertEquals(ASet.of(Address.of("street21", "city21")), persons.get(1).addresses().toSet(), strategy.name());
+            assertTrue(persons.get(2).addresses().isEmpty(), strategy.name());
+        }
+
+        // no owning rows -> no details
+        for (RelationLoadingStrategy strategy: RelationLoadingStrategy.values()) {
+            assertEquals(AList.empty(), mapper
+                    .query(PersonWithAddresses.class, owningSql, -1L)
+                    .withInjectedProperty(mapper.oneToMany("addresses", spec.withLoadingStrategy(strategy)))
+                    .list());
+        }
+
+        // observations are registered once per execution of the owning query if it read its rows before mapping, i.e. for
+        //  KEY_LIST and for ADAPTIVE with few rows
+        assertEquals(4, mapper.relationLoadingStatistics().observation(owningSql).get().numExecutions());
+        assertTrue(mapper.relationLoadingStatistics().prefersKeyList(owningSql));
+    }
+
+    @Test
+    void testStreamInWindows() {
+        final AList<Long> personIds = mapper
+                .insertMany(AList.of(Person.of(0L, "Arno1"), Person.of(0L, "Arno2"), Person.of(0L, "Arno3")))
+                .map(Person::id);
+
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personIds.get(0), "street11", "city11");
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personIds.get(0), "street12", "city12");
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personIds.get(2), "street31", "city31");
+
+        for (int windowSize: new int[] {1, 2, 3, 10}) {
+            final List<PersonWithAddresses> persons = new ArrayList<>();
+            mapper
+                    .query(PersonWithAddresses.class, "select * from person order by id asc")
+                    .withOneToMany("addresses")
+                    .forEachInWindows(windowSize, persons::add);
+
+            assertEquals(3, persons.size());
+            assertEquals(ASet.of(Address.of("street11", "city11"), Address.of("street12", "city12")), persons.get(0).addresses().toSet());
+            assertTrue(persons.get(1).addresses().isEmpty());
+            assertEquals(ASet.of(Address.of("street31", "city31")), persons.get(2).addresses().toSet());
+        }
+
+        try (Stream<PersonWithAddresses> s = mapper
+                .query(PersonWithAddresses.class, "select * from person where id < 0")
+                .withOneToMany("addresses")
+                .streamInWindows(2)) {
+            assertEquals(0, s.count());
+        }
+    }
+
+    @Test
+    void testJoinFetch() {
+        final AList<Long> personIds = mapper
+                .insertMany(AList.of(Person.of(0L, "Arno1"), Person.of(0L, "Arno2"), Person.of(0L, "Arno3")))
+                .map(Person::id);
+
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personIds.get(0), "street11", "city11");
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personIds.get(0), "street12", "city12");
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personIds.get(2), "street31", "city31");
+
+        final AList<PersonWithAddresses> joined = mapper
+                .query(PersonWithAddresses.class, "select * from person")
+                .withOneToManyJoined("addresses")
+                .list();
+        final AList<PersonWithAddresses> separate = mapper
+                .query(PersonWithAddresses.class, "select * from person order by id asc")
+                .withOneToMany("addresses")
+                .list();
+
+        assertEquals(3, joined.size());
+        assertEquals(ASet.of(Address.of("street11", "city11"), Address.of("street12", "city12")), joined.get(0).addresses().toSet());
+        assertTrue(joined.get(1).addresses().isEmpty());
+        assertEquals(ASet.of(Address.of("street31", "city31")), joined.get(2).addresses().toSet());
+        for (int i=0; i<3; i++) {
+            assertEquals(separate.get(i).id(), joined.get(i).id());
+            assertEquals(separate.get(i).addresses().toSet(), joined.get(i).addresses().toSet());
+        }
+
+        try (Stream<PersonWithAddresses> s = mapper
+                .query(PersonWithAddresses.class, "select * from person where id > ?", personIds.get(0))
+                .withOneToManyJoined("addresses")
+                .stream()) {
+            assertEquals(2, s.count());
+        }
+
+        assertEquals(0, mapper
+                .query(PersonWithAddresses.class, "select * from person where id < 0")
+                .withOneToManyJoined("addresses")
+                .list()
+                .size());
+
+        final List<Object> published = new ArrayList<>();
+        final AFlow.Subscription[] subscription = new AFlow.Subscription[1];
+        mapper.query(PersonWithAddresses.class, "select * from person")
+                .withOneToManyJoined("addresses")
+                .publish()
+                .subscribe(new AFlow.Subscriber<PersonWithAddresses>() {
+                    @Override public void onSubscribe(AFlow.Subscription s) {
+                        subscription[0] = s;
+                    }
+                    @Override public void onNext(PersonWithAddresses item) {
+                        published.add(item);
+                    }
+                    @Override public void onError(Throwable throwable) {
+                        published.add(throwable);
+                    }
+                    @Override public void onComplete() {
+                        published.add("complete");
+                    }
+                });
+        assertEquals(Collections.emptyList(), published);
+        subscription[0].request(1);
+        assertEquals(1, published.size());
+        subscription[0].request(Long.MAX_VALUE);
+        assertEquals(4, published.size());
+        for (int i=0; i<3; i++) {
+            final PersonWithAddresses person = (PersonWithAddresses) published.get(i);
+            assertEquals(joined.get(i).id(), person.id());
+            assertEquals(joined.get(i).addresses().toSet(), person.addresses().toSet());
+        }
+        assertEquals("complete", published.get(3));
+    }
+
+    @Test
+    void testMergeJoin() {
+        final AList<Long> personIds = mapper
+                .insertMany(AList.of(Person.of(0L, "Arno1"), Person.of(0L, "Arno2"), Person.of(0L, "Arno3")))
+                .map(Person::id);
+
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personIds.get(0), "street11", "city11");
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personIds.get(0), "street12", "city12");
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personIds.get(2), "street31", "city31");
+
+        final OneToManySpec spec = mapper.getBeanMappingRegistry().resolveOneToMany(conn, PersonWithAddresses.class, "addresses")
+                .withLoadingStrategy(RelationLoadingStrategy.MERGE_JOIN);
+
+        final List<PersonWithAddresses> streamed = new ArrayList<>();
+        try (Stream<PersonWithAddresses> s = mapper
+                .query(PersonWithAddresses.class, "select * from person order by id asc")
+                .withInjectedProperty(mapper.oneToMany("addresses", spec))
+                .stream()) {
+            s.forEach(streamed::add);
+        }
+
+        assertEquals(3, streamed.size());
+        assertEquals(ASet.of(Address.of("street11", "city11"), Address.of("street12", "city12")), streamed.get(0).addresses().toSet());
+        assertTrue(streamed.get(1).addresses().isEmpty());
+        assertEquals(ASet.of(Address.of("street31", "city31")), streamed.get(2).addresses().toSet());
+
+        // a detail connection from a ConnectionProvider is released when the owning query's results were processed
+        final List<Connection> acquired = new ArrayList<>();
+        final List<Connection> released = new ArrayList<>();
+        final ConnectionProvider detailConnectionProvider = new ConnectionProvider() {
+            @Override public Connection acquire() {
+                acquired.add(conn);
+                return conn;
+            }
+            @Override public void release(Connection c) {
+                released.add(c);
+            }
+        };
+        final AList<PersonWithAddresses> persons = mapper.engine()
+                .query(PersonWithAddresses.class, "select * from person order by id asc")
+                .withInjectedProperty(new InjectedToManyProperty<>("addresses", "id", Long.class, "person_id",
+                        mapper.engine().query(Address.class, "select * from address order by person_id asc"),
+                        CollectionBuildStrategy.forAVector())
+                        .withMergeJoin(detailConnectionProvider))
+                .list();
+        assertEquals(3, persons.size());
+        assertEquals(ASet.of(Address.of("street11", "city11"), Address.of("street12", "city12")), persons.get(0).addresses().toSet());
+        assertTrue(persons.get(1).addresses().isEmpty());
+        assertEquals(Collections.singletonList(conn), acquired);
+        assertEquals(Collections.singletonList(conn), released);
+
+        // the owning query must be ordered by its key
+        assertThrows(IllegalStateException.class, () -> mapper
+                .query(PersonWithAddresses.class, "select * from person order by id desc")
+                .withInjectedProperty(mapper.oneToMany("addresses", spec))
+                .list());
+    }
+
+    @Test
+    void testMergeJoinWithParallelInjectedProperties() throws Exception {
+        final AList<Long> personIds = mapper
+                .insertMany(AList.of(Person.of(0L, "Arno1"), Person.of(0L, "Arno2")))
+                .map(Person::id);
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personIds.get(0), "street11", "city11");
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personIds.get(1), "street21", "city21");
+
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final SqlMapper parallelMapper = new SqlMapperBuilder()
+                    .withDefaultPkName("id")
+                    .withDefaultConnectionSupplier(() -> conn)
+                    .withBeanStyle(SqlMapperBuilder.BeanStyle.immutables)
+                    .withAsyncExecutor(executor)
+                    .withAsyncConnectionProvider(ConnectionProvider.fromDataSource(ds))
+                    .withInjectedPropertiesParallelism(2)
+                    .build(DatabaseDialect.H2);
+            final OneToManySpec spec = parallelMapper.getBeanMappingRegistry().resolveOneToMany(conn, PersonWithAddresses.class, "addresses")
+                    .withLoadingStrategy(RelationLoadingStrategy.MERGE_JOIN);
+
+            // this property is loaded first, and it waits for the merge join's cursor to be created, so the cursor would be
+            //  created by the other worker if it were not bound to the query's connection
+            final CountDownLatch cursorCreated = new CountDownLatch(1);
+            final Set<Thread> cursorThreads = Collections.synchronizedSet(new HashSet<>());
+            final InjectedProperty<Object> waiting = new InjectedProperty<Object>() {
+                @Override public String propertyName() {
+                    return "waiting";
+                }
+                @Override public Object mementoPerQuery(Connection c, Class<?> owningClass, SqlSnippet owningQuery) {
+                    try {
+                        cursorCreated.await(1, TimeUnit.SECONDS);
+                    }
+                    catch (InterruptedException exc) {
+                        throw new RuntimeException(exc);
+                    }
+                    return null;
+                }
+                @Override public AOption<Object> value(Connection c, SqlRow currentRow, Object memento) {
+                    return AOption.none();
+                }
+            };
+            final InjectedProperty<Object> addresses = parallelMapper.oneToMany("addresses", spec);
+            final InjectedProperty<Object> recordingAddresses = new InjectedProperty<Object>() {
+                @Override public String propertyName() {
+                    return addresses.propertyName();
+                }
+                @Override public boolean mementoKeepsConnection() {
+                    return addresses.mementoKeepsConnection();
+                }
+                @Override public Object mementoPerQuery(Connection c, Class<?> owningClass, SqlSnippet owningQuery) {
+                    cursorThreads.add(Thread.currentThread());
+                    final Object result = addresses.mementoPerQuery(c, owningClass, owningQuery);
+                    cursorCreated.countDown();
+                    return result;
+                }
+                @Override public AOption<Object> value(Connection c, SqlRow currentRow, Object memento) {
+                    return addresses.value(c, currentRow, memento);
+                }
+            };
+
+            final List<PersonWithAddresses> streamed = new ArrayList<>();
+            try (Stream<PersonWithAddresses> s = parallelMapper
+                    .query(PersonWithAddresses.class, "select * from person order by id asc")
+                    .withInjectedProperty(waiting)
+                    .withInjectedProperty(recordingAddresses)
+                    .stream()) {
+                s.forEach(streamed::add);
+            }
+
+            assertEquals(Collections.singleton(Thread.currentThread()), cursorThreads);
+            assertEquals(2, streamed.size());
+            assertEquals(ASet.of(Address.of("street11", "city11")), streamed.get(0).addresses().toSet());
+            assertEquals(ASet.of(Address.of("street21", "city21")), streamed.get(1).addresses().toSet());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
 }
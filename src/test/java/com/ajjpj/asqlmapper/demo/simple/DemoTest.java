@@ -2,17 +2,31 @@ package com.ajjpj.asqlmapper.demo.simple;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
+import com.ajjpj.acollections.AList;
 import com.ajjpj.acollections.AMap;
 import com.ajjpj.asqlmapper.AbstractDatabaseTest;
 import com.ajjpj.asqlmapper.SqlMapperBuilder;
 import com.ajjpj.asqlmapper.core.AQuery;
 import com.ajjpj.asqlmapper.core.SqlEngine;
 import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.KeyedResult;
 import com.ajjpj.asqlmapper.core.listener.LoggingListener;
+import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
 import com.ajjpj.asqlmapper.mapper.DatabaseDialect;
 import com.ajjpj.asqlmapper.mapper.SqlMapper;
+import com.ajjpj.asqlmapper.mapper.cache.EntityCacheStatistics;
 import lombok.Builder;
 import lombok.Value;
 import lombok.experimental.Wither;
@@ -87,4 +101,172 @@ class DemoTest extends AbstractDatabaseTest {
         assertEquals(0L, engine.longQuery("select count(*) from person where id=?", 2).single().longValue());
         assertFalse(mapper.delete(Person.class, 2L));
     }
+
+    @Test
+    void testInsertManyInBatches() {
+        final SqlMapper mapper = builder.build(new DatabaseDialect.H2Dialect() {
+            @Override public int insertBatchSize(int numColumns) {
+                return 2;
+            }
+        });
+
+        final AList<Person> inserted = mapper.insertMany(Arrays.asList(
+                new Person(0, "Arno"), new Person(0, "Berta"), new Person(0, "Caesar"), new Person(0, "Doris"), new Person(0, "Emil")));
+        assertEquals(AList.of(new Person(1, "Arno"), new Person(2, "Berta"), new Person(3, "Caesar"), new Person(4, "Doris"), new Person(5, "Emil")),
+                inserted);
+        assertEquals(inserted, engine.query(Person.class, "select * from person order by id").list());
+    }
+
+    @Test
+    void testInsertAll() {
+        final SqlMapper mapper = builder.build(new DatabaseDialect.H2Dialect() {
+            @Override public int insertBatchSize(int numColumns) {
+                return 2;
+            }
+        });
+
+        final List<Person> inserted = new ArrayList<>();
+        final long numInserted = mapper.insertAll(conn, Stream.of("Arno", "Berta", "Caesar", "Doris", "Emil").map(name -> new Person(0, name)), 0, inserted::add);
+
+        assertEquals(5, numInserted);
+        assertEquals(Arrays.asList(new Person(1, "Arno"), new Person(2, "Berta"), new Person(3, "Caesar"), new Person(4, "Doris"), new Person(5, "Emil")),
+                inserted);
+        assertEquals(5L, engine.longQuery("select count(*) from person").single().longValue());
+
+        assertEquals(0, mapper.insertAll(Collections.<Person>emptyIterator()));
+    }
+
+    /**
+     * @return a mapper that inserts chunks of two beans and records bulk insert progress in {@code events}
+     */
+    private SqlMapper bulkInsertMapper(List<String> events) {
+        return builder
+                .withListener(new SqlEngineEventListener() {
+                    @Override public void onBulkInsertProgress(Class<?> beanType, long numInserted) {
+                        events.add("progress " + numInserted);
+                    }
+                })
+                .build(new DatabaseDialect.H2Dialect() {
+                    @Override public int insertBatchSize(int numColumns) {
+                        return 2;
+                    }
+                });
+    }
+
+    /**
+     * @return a connection delegating to {@code conn} that records calls to {@link Connection#commit()} in {@code events}
+     */
+    private Connection commitRecordingConnection(List<String> events) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {Connection.class}, (proxy, method, args) -> {
+            if (method.getName().equals("commit"))
+                events.add("commit");
+            try {
+                return method.invoke(conn, args);
+            }
+            catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    @Test
+    void testInsertAllWithCommits() {
+        final List<String> events = new ArrayList<>();
+        final SqlMapper mapper = bulkInsertMapper(events);
+
+        final long numInserted = mapper.insertAll(commitRecordingConnection(events),
+                Stream.of("Arno", "Berta", "Caesar", "Doris", "Emil").map(name -> new Person(0, name)), 2, p -> {});
+
+        assertEquals(5, numInserted);
+        // commits after every second chunk and after the last chunk
+        assertEquals(Arrays.asList("progress 2", "commit", "progress 4", "commit", "progress 5"), events);
+        assertEquals(5L, engine.longQuery("select count(*) from person").single().longValue());
+    }
+
+    @Test
+    void testInsertAllWithoutCommits() {
+        final List<String> events = new ArrayList<>();
+        final SqlMapper mapper = bulkInsertMapper(events);
+
+        mapper.insertAll(commitRecordingConnection(events), Stream.of("Arno", "Berta", "Caesar").map(name -> new Person(0, name)), 0, p -> {});
+        assertEquals(Arrays.asList("progress 2", "progress 3"), events);
+    }
+
+    @Test
+    void testInsertAllInAutoCommitMode() throws SQLException {
+        // the table is dropped after the test, so committing is harmless
+        conn.setAutoCommit(true);
+
+        final List<String> events = new ArrayList<>();
+        final SqlMapper mapper = bulkInsertMapper(events);
+
+        mapper.insertAll(commitRecordingConnection(events), Stream.of("Arno", "Berta", "Caesar").map(name -> new Person(0, name)), 1, p -> {});
+        assertEquals(Arrays.asList("progress 2", "progress 3"), events);
+        assertEquals(3L, engine.longQuery("select count(*) from person").single().longValue());
+    }
+
+    @Test
+    void testFindByPk() throws SQLException {
+        // the entity cache is only used in auto-commit mode; the table is dropped after the test, so committing is harmless
+        conn.setAutoCommit(true);
+        final SqlMapper mapper = builder
+                .withEntityCache(Person.class, 2, Duration.ofMinutes(1), true)
+                .build(DatabaseDialect.H2);
+
+        final Person arno = mapper.insert(new Person(0, "Arno"));
+        final Person berta = mapper.insert(new Person(0, "Berta"));
+
+        assertEquals(arno, mapper.findByPk(Person.class, arno.getId()).get());
+        assertEquals(arno, mapper.findByPk(Person.class, (int) arno.getId()).get());
+        assertTrue(mapper.findByPk(Person.class, 99L).isEmpty());
+        assertTrue(mapper.findByPk(Person.class, 99L).isEmpty());
+
+        EntityCacheStatistics stats = mapper.entityCache().statistics(Person.class).get();
+        assertEquals(2, stats.hits());
+        assertEquals(2, stats.misses());
+
+        // modifications through the mapper keep the cache coherent
+        assertTrue(mapper.update(new Person(arno.getId(), "Arno Haase")));
+        assertEquals("Arno Haase", mapper.findByPk(Person.class, arno.getId()).get().getName());
+        assertTrue(mapper.patch(Person.class, arno.getId(), AMap.of("name", "patched")));
+        assertEquals("patched", mapper.findByPk(Person.class, arno.getId()).get().getName());
+        assertTrue(mapper.delete(Person.class, arno.getId()));
+        assertTrue(mapper.findByPk(Person.class, arno.getId()).isEmpty());
+
+        final Map<Long, Person> found = mapper.findByPks(Person.class, Arrays.asList(berta.getId(), arno.getId(), 99L));
+        assertEquals(1, found.size());
+        assertEquals(berta, found.get(berta.getId()));
+
+        // the cache holds at most two entries
+        stats = mapper.entityCache().statistics(Person.class).get();
+        assertEquals(2, stats.size());
+        assertTrue(stats.evictions() > 0);
+
+        // inside a transaction, the cache is bypassed, so uncommitted modifications are neither cached nor hidden by cached beans
+        conn.setAutoCommit(false);
+        final long hits = stats.hits();
+        final long misses = stats.misses();
+        assertTrue(mapper.update(new Person(berta.getId(), "uncommitted")));
+        assertEquals("uncommitted", mapper.findByPk(Person.class, berta.getId()).get().getName());
+        assertEquals("uncommitted", mapper.findByPks(Person.class, Arrays.asList(berta.getId())).get(berta.getId()).getName());
+        stats = mapper.entityCache().statistics(Person.class).get();
+        assertEquals(hits, stats.hits());
+        assertEquals(misses, stats.misses());
+        conn.rollback();
+
+        conn.setAutoCommit(true);
+        assertEquals(berta, mapper.findByPk(Person.class, berta.getId()).get());
+        conn.setAutoCommit(false);
+    }
+
+    @Test
+    void testQueryByKeys() {
+        final SqlMapper mapper = builder.build(DatabaseDialect.H2);
+        final Person arno = mapper.insert(new Person(0, "Arno"));
+        final Person berta = mapper.insert(new Person(0, "Berta"));
+
+        final KeyedResult<String, Person> byName = mapper.queryByKeys(Person.class, "name", Arrays.asList("Berta", "Caesar", "Arno"));
+        assertEquals(Arrays.asList(berta, arno), new ArrayList<>(byName.values()));
+        assertEquals(Collections.singleton("Caesar"), byName.missingKeys());
+    }
 }
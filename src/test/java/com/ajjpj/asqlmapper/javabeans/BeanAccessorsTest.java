@@ -0,0 +1,127 @@
+package com.ajjpj.asqlmapper.javabeans;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+class BeanAccessorsTest {
+    public static class PublicBean {
+        private long id;
+        private String name;
+
+        public static PublicBean create() {
+            final PublicBean result = new PublicBean();
+            result.name = "created";
+            return result;
+        }
+
+        public long getId() {
+            return id;
+        }
+        public void setId(long id) {
+            this.id = id;
+        }
+        public String getName() {
+            return name;
+        }
+        public PublicBean withName(String name) {
+            this.name = name;
+            return this;
+        }
+        public String getFailing() throws IOException {
+            throw new IOException("failing getter");
+        }
+    }
+
+    static class NonPublicBean {
+        private int count;
+
+        NonPublicBean() {
+        }
+
+        int getCount() {
+            return count;
+        }
+        void setCount(int count) {
+            this.count = count;
+        }
+    }
+
+    @Test
+    void testPublicGetterAndSetter() throws Exception {
+        final Function<Object, Object> getter = BeanAccessors.instanceMethod(PublicBean.class.getMethod("getId"));
+        final BiFunction<Object, Object, Object> setter = BeanAccessors.instanceMethodWithArg(PublicBean.class.getMethod("setId", long.class));
+
+        final PublicBean bean = new PublicBean();
+        assertNull(setter.apply(bean, 42L));
+        assertEquals(42L, bean.getId());
+        assertEquals(42L, getter.apply(bean));
+    }
+
+    @Test
+    void testFluentSetter() throws Exception {
+        final BiFunction<Object, Object, Object> wither = BeanAccessors.instanceMethodWithArg(PublicBean.class.getMethod("withName", String.class));
+
+        final PublicBean bean = new PublicBean();
+        assertSame(bean, wither.apply(bean, "Arno"));
+        assertEquals("Arno", bean.getName());
+    }
+
+    @Test
+    void testNonPublicMembers() throws Exception {
+        final Method getter = NonPublicBean.class.getDeclaredMethod("getCount");
+        final Method setter = NonPublicBean.class.getDeclaredMethod("setCount", int.class);
+        final Constructor<?> ctor = NonPublicBean.class.getDeclaredConstructor();
+        getter.setAccessible(true);
+        setter.setAccessible(true);
+        ctor.setAccessible(true);
+
+        final Object bean = BeanAccessors.constructor(ctor).get();
+        assertTrue(bean instanceof NonPublicBean);
+
+        BeanAccessors.instanceMethodWithArg(setter).apply(bean, 7);
+        assertEquals(7, BeanAccessors.instanceMethod(getter).apply(bean));
+    }
+
+    @Test
+    void testStaticFactoryAndConstructor() throws Exception {
+        final Supplier<Object> factory = BeanAccessors.staticMethod(PublicBean.class.getMethod("create"));
+        assertEquals("created", ((PublicBean) factory.get()).getName());
+
+        final Supplier<Object> ctor = BeanAccessors.constructor(PublicBean.class.getConstructor());
+        assertNull(((PublicBean) ctor.get()).getName());
+    }
+
+    @Test
+    void testExceptionsArePropagated() throws Exception {
+        final Function<Object, Object> getter = BeanAccessors.instanceMethod(PublicBean.class.getMethod("getFailing"));
+        assertThrows(IOException.class, () -> getter.apply(new PublicBean()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testLambdaFor() throws Exception {
+        final ObjLongConsumer<Object> setter = BeanAccessors.lambdaFor(PublicBean.class.getMethod("setId", long.class), ObjLongConsumer.class,
+                "accept", MethodType.methodType(void.class, Object.class, long.class));
+
+        final PublicBean bean = new PublicBean();
+        setter.accept(bean, 17L);
+        assertEquals(17L, bean.getId());
+
+        assertThrows(IllegalArgumentException.class, () -> BeanAccessors.lambdaFor(NonPublicBean.class.getDeclaredMethod("setCount", int.class),
+                ObjLongConsumer.class, "accept", MethodType.methodType(void.class, Object.class, long.class)));
+    }
+}
@@ -0,0 +1,198 @@
+package com.ajjpj.asqlmapper.javabeans;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.ajjpj.asqlmapper.AbstractDatabaseTest;
+import com.ajjpj.asqlmapper.core.PrimitiveTypeHandler;
+import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
+import com.ajjpj.asqlmapper.core.SqlEngine;
+import com.ajjpj.asqlmapper.javabeans.columnnames.DirectColumnNameExtractor;
+import com.ajjpj.asqlmapper.javabeans.extractors.JavaBeansMetaDataExtractor;
+import org.junit.jupiter.api.Test;
+
+class BeanMetaDataBasedRowExtractorTest extends AbstractDatabaseTest {
+    public static class Person {
+        private long id;
+        private String name;
+
+        public long getId() {
+            return id;
+        }
+        public void setId(long id) {
+            this.id = id;
+        }
+        public String getName() {
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class Measurement {
+        private long id;
+        private Integer count;
+        private double score;
+        private boolean active;
+
+        public long getId() {
+            return id;
+        }
+        public void setId(long id) {
+            this.id = id;
+        }
+        public Integer getCount() {
+            return count;
+        }
+        public void setCount(Integer count) {
+            this.count = count;
+        }
+        public double getScore() {
+            return score;
+        }
+        public void setScore(double score) {
+            this.score = score;
+        }
+        public boolean isActive() {
+            return active;
+        }
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+    }
+
+    private final BeanMetaDataRegistry registry = new BeanMetaDataRegistryImpl(new JavaBeansMetaDataExtractor(new DirectColumnNameExtractor()));
+
+    private Object planFor(BeanMetaDataBasedRowExtractor extractor, String sql) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+            return extractor.mementoPerQuery(Person.class, PrimitiveTypeRegistry.defaults(), rs, false);
+        }
+    }
+
+    @Test
+    void testPlanReuse() throws SQLException {
+        final BeanMetaDataBasedRowExtractor extractor = new BeanMetaDataBasedRowExtractor(registry);
+
+        final Object plan = planFor(extractor, "SELECT 1 AS id, 'a' AS name");
+        assertSame(plan, planFor(extractor, "SELECT 2 AS id, 'b' AS name"));
+        assertNotSame(plan, planFor(extractor, "SELECT 'b' AS name, 2 AS id"));
+        assertEquals(2, extractor.planCacheSize());
+    }
+
+    @Test
+    void testPlanInvalidation() throws SQLException {
+        final BeanMetaDataBasedRowExtractor extractor = new BeanMetaDataBasedRowExtractor(registry);
+
+        final Object plan = planFor(extractor, "SELECT 1 AS id, 'a' AS name");
+        extractor.clearPlanCache();
+        assertEquals(0, extractor.planCacheSize());
+        assertNotSame(plan, planFor(extractor, "SELECT 1 AS id, 'a' AS name"));
+    }
+
+    @Test
+    void testPlanCacheIsBounded() throws SQLException {
+        final BeanMetaDataBasedRowExtractor extractor = new BeanMetaDataBasedRowExtractor(registry, false, 2);
+
+        final Object idAndName = planFor(extractor, "SELECT 1 AS id, 'a' AS name");
+        final Object nameAndId = planFor(extractor, "SELECT 'a' AS name, 1 AS id");
+        // using a plan makes it the most recently used one
+        assertSame(idAndName, planFor(extractor, "SELECT 1 AS id, 'a' AS name"));
+
+        planFor(extractor, "SELECT 1 AS id");
+        assertEquals(2, extractor.planCacheSize());
+
+        assertSame(idAndName, planFor(extractor, "SELECT 1 AS id, 'a' AS name"));
+        assertNotSame(nameAndId, planFor(extractor, "SELECT 'a' AS name, 1 AS id"));
+    }
+
+    @Test
+    void testDuplicateColumnNames() {
+        for (boolean specialized: new boolean[] {false, true}) {
+            final Person p = engine(specialized)
+                    .query(Person.class, "SELECT CAST(1 AS BIGINT) AS id, 'first' AS name, 'second' AS name")
+                    .single(conn);
+            assertEquals(1L, p.getId());
+            assertEquals("first", p.getName());
+        }
+    }
+
+    private SqlEngine engine(boolean specialized) {
+        return SqlEngine.create().withRowExtractor(specialized ? registry.asSpecializedRowExtractor() : registry.asRowExtractor());
+    }
+
+    @Test
+    void testPrimitiveColumns() {
+        for (boolean specialized: new boolean[] {false, true}) {
+            final Measurement m = engine(specialized)
+                    .query(Measurement.class, "SELECT CAST(1 AS BIGINT) AS id, 5 AS count, CAST(2.5 AS DOUBLE) AS score, TRUE AS active")
+                    .single(conn);
+            assertEquals(1L, m.getId());
+            assertEquals(Integer.valueOf(5), m.getCount());
+            assertEquals(2.5, m.getScore(), .0001);
+            assertTrue(m.isActive());
+        }
+    }
+
+    @Test
+    void testNullInNullableColumn() {
+        for (boolean specialized: new boolean[] {false, true}) {
+            final Measurement m = engine(specialized)
+                    .query(Measurement.class, "SELECT CAST(1 AS BIGINT) AS id, CAST(NULL AS INT) AS count, CAST(0 AS DOUBLE) AS score, FALSE AS active")
+                    .single(conn);
+            assertEquals(1L, m.getId());
+            assertNull(m.getCount());
+            assertEquals(0.0, m.getScore(), .0001);
+            assertFalse(m.isActive());
+        }
+    }
+
+    @Test
+    void testNullInPrimitiveColumn() {
+        for (boolean specialized: new boolean[] {false, true}) {
+            final SqlEngine engine = engine(specialized);
+            assertThrows(IllegalArgumentException.class, () -> engine
+                    .query(Measurement.class, "SELECT CAST(NULL AS BIGINT) AS id")
+                    .single(conn));
+            assertThrows(IllegalArgumentException.class, () -> engine
+                    .query(Measurement.class, "SELECT CAST(NULL AS DOUBLE) AS score")
+                    .single(conn));
+            assertThrows(IllegalArgumentException.class, () -> engine
+                    .query(Measurement.class, "SELECT CAST(NULL AS BOOLEAN) AS active")
+                    .single(conn));
+        }
+    }
+
+    @Test
+    void testCustomHandlerForPrimitiveProperty() {
+        final PrimitiveTypeHandler timesTenHandler = new PrimitiveTypeHandler() {
+            @Override public boolean canHandle(Class<?> cls) {
+                return cls == long.class;
+            }
+            @SuppressWarnings("unchecked")
+            @Override public <T> T fromSql(Class<T> targetType, Object o) {
+                return (T) Long.valueOf(((Number) o).longValue() * 10);
+            }
+            @Override public Object toSql(Object o) {
+                return o;
+            }
+        };
+
+        for (boolean specialized: new boolean[] {false, true}) {
+            final Measurement m = engine(specialized)
+                    .withPrimitiveHandler(timesTenHandler)
+                    .query(Measurement.class, "SELECT CAST(4 AS INT) AS id")
+                    .single(conn);
+            assertEquals(40L, m.getId());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.ajjpj.asqlmapper.javabeans.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.ParameterizedType;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.asqlmapper.javabeans.BeanProperty;
+import com.ajjpj.asqlmapper.javabeans.annotations.Column;
+import com.ajjpj.asqlmapper.javabeans.columnnames.ColumnNameExtractor;
+import com.ajjpj.asqlmapper.javabeans.columnnames.DirectColumnNameExtractor;
+import com.ajjpj.asqlmapper.javabeans.columnnames.SnakeCaseColumnNameExtractor;
+import com.ajjpj.asqlmapper.javabeans.extractors.BeanMetaDataExtractor;
+import com.ajjpj.asqlmapper.javabeans.extractors.GeneratedBeanMetaDataExtractor;
+import com.ajjpj.asqlmapper.javabeans.extractors.JavaBeansMetaDataExtractor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs {@link BeanMetaDataProcessor} in the system Java compiler on sample bean sources and checks the generated extractors.
+ */
+class BeanMetaDataProcessorTest {
+    private static final String PERSON_SOURCE = String.join("\n",
+            "package sample;",
+            "import com.ajjpj.asqlmapper.javabeans.annotations.*;",
+            "@Table(\"person\")",
+            "public class Person {",
+            "    private long id;",
+            "    private String firstName;",
+            "    private java.util.List<String> tags;",
+            "    private String ignored;",
+            "    public long getId() { return id; }",
+            "    public void setId(long id) { this.id = id; }",
+            "    @Column(\"fname\") public String getFirstName() { return firstName; }",
+            "    public void setFirstName(String firstName) { this.firstName = firstName; }",
+            "    public java.util.List<String> getTags() { return tags; }",
+            "    public void setTags(java.util.List<String> tags) { this.tags = tags; }",
+            "    @Ignore public String getIgnored() { return ignored; }",
+            "    public void setIgnored(String ignored) { this.ignored = ignored; }",
+            "    public String getReadOnly() { return \"x\"; }",
+            "    @Table(\"address\")",
+            "    public static class Address {",
+            "        private String streetName;",
+            "        public String getStreetName() { return streetName; }",
+            "        public void setStreetName(String streetName) { this.streetName = streetName; }",
+            "    }",
+            "}");
+
+    private static final String NOT_A_BEAN_SOURCE = String.join("\n",
+            "package sample;",
+            "@com.ajjpj.asqlmapper.javabeans.annotations.Table(\"not_a_bean\")",
+            "public class NotABean {",
+            "    private NotABean() {}",
+            "}");
+
+    private Path tempDir;
+
+    @BeforeEach void createTempDir() throws IOException {
+        tempDir = Files.createTempDirectory("bean-meta-data-processor");
+    }
+
+    @AfterEach void deleteTempDir() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            for (Path p: files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    private ClassLoader compile() throws IOException {
+        final Path src = tempDir.resolve("src/sample");
+        final Path out = tempDir.resolve("out");
+        Files.createDirectories(src);
+        Files.createDirectories(out);
+        Files.write(src.resolve("Person.java"), PERSON_SOURCE.getBytes(StandardCharsets.UTF_8));
+        Files.write(src.resolve("NotABean.java"), NOT_A_BEAN_SOURCE.getBytes(StandardCharsets.UTF_8));
+
+        final List<String> args = new ArrayList<>(Arrays.asList(
+                "-classpath", System.getProperty("java.class.path"),
+                "-processor", BeanMetaDataProcessor.class.getName(),
+                "-d", out.toString(),
+                "-s", out.toString()));
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final StringWriter diagnostics = new StringWriter();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            final boolean success = compiler.getTask(diagnostics, fileManager, null, args, null,
+                    fileManager.getJavaFileObjects(src.resolve("Person.java").toFile(), src.resolve("NotABean.java").toFile())).call();
+            assertTrue(success, diagnostics.toString());
+        }
+
+        return new URLClassLoader(new URL[] {out.toUri().toURL()}, getClass().getClassLoader());
+    }
+
+    private BeanMetaDataExtractor generatedExtractor(ClassLoader cl, String beanClassName) throws Exception {
+        return (BeanMetaDataExtractor) cl.loadClass(GeneratedBeanMetaDataExtractor.generatedClassNameFor(beanClassName)).getConstructor().newInstance();
+    }
+
+    private static BeanMetaDataExtractor runtimeExtractor(ColumnNameExtractor columnNameExtractor) {
+        return new GeneratedBeanMetaDataExtractor(new JavaBeansMetaDataExtractor(columnNameExtractor), columnNameExtractor);
+    }
+
+    private static BeanProperty property(AVector<BeanProperty> properties, String name) {
+        return properties.stream().filter(p -> p.name().equals(name)).findFirst().get();
+    }
+
+    @Test
+    void testGeneratedExtractor() throws Exception {
+        final ClassLoader cl = compile();
+        final Class<?> personClass = cl.loadClass("sample.Person");
+        final BeanMetaDataExtractor generated = generatedExtractor(cl, personClass.getName());
+
+        assertTrue(generated.canHandle(personClass));
+        assertFalse(generated.canHandle(Object.class));
+
+        // only explicit column names are generated
+        assertEquals("fname", property(generated.beanProperties(personClass), "firstName").columnName());
+        assertNull(property(generated.beanProperties(personClass), "id").columnName());
+
+        final BeanMetaDataExtractor extractor = runtimeExtractor(new DirectColumnNameExtractor());
+
+        final AVector<BeanProperty> properties = extractor.beanProperties(personClass);
+        assertEquals(Arrays.asList("firstName", "id", "tags"), properties.stream().map(BeanProperty::name).sorted().collect(Collectors.toList()));
+
+        assertEquals("fname", property(properties, "firstName").columnName());
+        assertEquals("id", property(properties, "id").columnName());
+        assertEquals(long.class, property(properties, "id").propClass());
+
+        final Object person = extractor.builderFactoryFor(personClass).get();
+        property(properties, "id").set(person, 42L);
+        property(properties, "firstName").setOnBuilder(person, "Arno");
+        assertEquals(42L, property(properties, "id").get(person));
+        assertEquals("Arno", property(properties, "firstName").get(person));
+        assertEquals(person, extractor.builderFinalizerFor(personClass).apply(person));
+
+        // reflective meta data is resolved lazily
+        assertEquals("fname", property(properties, "firstName").getAnnotation(Column.class).get().value());
+        assertEquals(String.class, ((ParameterizedType) property(properties, "tags").propType()).getActualTypeArguments()[0]);
+    }
+
+    @Test
+    void testNestedClass() throws Exception {
+        final ClassLoader cl = compile();
+        final Class<?> addressClass = cl.loadClass("sample.Person$Address");
+        final BeanMetaDataExtractor extractor = generatedExtractor(cl, addressClass.getName());
+
+        assertEquals("sample.Person_Address_BeanMetaData", extractor.getClass().getName());
+        assertEquals("streetName", runtimeExtractor(new DirectColumnNameExtractor()).beanProperties(addressClass).get(0).columnName());
+    }
+
+    @Test
+    void testColumnNamesFromRuntimeExtractor() throws Exception {
+        final ClassLoader cl = compile();
+        final Class<?> personClass = cl.loadClass("sample.Person");
+        final Class<?> addressClass = cl.loadClass("sample.Person$Address");
+        final BeanMetaDataExtractor extractor = runtimeExtractor(new SnakeCaseColumnNameExtractor());
+
+        assertEquals("street_name", extractor.beanProperties(addressClass).get(0).columnName());
+        assertEquals("fname", property(extractor.beanProperties(personClass), "firstName").columnName());
+        assertEquals("id", property(extractor.beanProperties(personClass), "id").columnName());
+    }
+
+    @Test
+    void testUnsupportedClassIsSkipped() throws Exception {
+        final ClassLoader cl = compile();
+        assertFalse(new File(tempDir.resolve("out").toFile(), "sample/NotABean" + GeneratedBeanMetaDataExtractor.GENERATED_CLASS_SUFFIX + ".class").exists());
+        cl.loadClass("sample.NotABean");
+    }
+}